@@ -0,0 +1,97 @@
+package pipeline.orchestrator.execution;
+
+import com.google.protobuf.DynamicMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.buffers.LinkBuffer;
+import pipeline.orchestrator.execution.buffers.LinkBuffers;
+import pipeline.orchestrator.grpc.messages.Data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the links and their buffers
+ * Contended benchmarks use the drop newest policy and poll the
+ * buffer so that no thread is left blocked when the iteration ends.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkBenchmark {
+
+    private static final ComputationState STATE = ComputationState.from(
+            0,
+            DynamicMessage.newBuilder(Data.newBuilder().setNum(1).build()).build());
+
+    @State(Scope.Thread)
+    public static class UncontendedState {
+
+        @Param({"1", "64"})
+        int capacity;
+
+        Link link;
+
+        @Setup
+        public void setUp() {
+            link = new Link(capacity, OverflowPolicy.BLOCK);
+        }
+    }
+
+    @State(Scope.Group)
+    public static class SpscState {
+
+        @Param({"locking", "lock-free"})
+        String implementation;
+
+        @Param({"64"})
+        int capacity;
+
+        LinkBuffer buffer;
+
+        @Setup
+        public void setUp() {
+            buffer = buildBuffer(implementation, capacity);
+        }
+    }
+
+    @Benchmark
+    public ComputationState putTake(UncontendedState state) throws InterruptedException {
+        state.link.put(STATE);
+        return state.link.take();
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public boolean spscPut(SpscState state) throws InterruptedException {
+        return state.buffer.put(STATE);
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public ComputationState spscPoll(SpscState state) {
+        return state.buffer.poll();
+    }
+
+    private static LinkBuffer buildBuffer(String implementation, int capacity) {
+        if (implementation.equals("locking")) {
+            return LinkBuffers.locking(capacity, OverflowPolicy.DROP_NEWEST);
+        }
+        return LinkBuffers.forTopology(1, 1, capacity, OverflowPolicy.DROP_NEWEST);
+    }
+}
@@ -0,0 +1,82 @@
+package pipeline.orchestrator.execution.inputs;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.protobuf.DynamicMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.Link;
+import pipeline.orchestrator.grpc.messages.CompositeMessage;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.messages.SubMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the join of two inputs when one of them is missing
+ * half of the ids, as happens when a stage drops states
+ * Each invocation sends a batch of states to both links and
+ * reads all the joined states.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultipleInputStreamBenchmark {
+
+    private static final int BATCH = 64;
+
+    private static final DynamicMessage DATA = DynamicMessage.newBuilder(
+            Data.newBuilder().setNum(1).build()).build();
+
+    private static final DynamicMessage SUB_MESSAGE = DynamicMessage.newBuilder(
+            SubMessage.newBuilder().setSubData(Data.newBuilder().setNum(2)).build()).build();
+
+    private Link dataLink;
+    private Link subMessageLink;
+
+    private StageInputStream inputStream;
+
+    private int nextId = 0;
+
+    @Setup
+    public void setUp() {
+        dataLink = new Link(BATCH, OverflowPolicy.BLOCK);
+        subMessageLink = new Link(BATCH, OverflowPolicy.BLOCK);
+        inputStream = new MultipleInputStream(
+                CompositeMessage.getDescriptor(),
+                ImmutableSetMultimap.of("data", dataLink, "sub_message", subMessageLink),
+                BATCH,
+                1000);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH / 2)
+    public void joinWithMissingIds(Blackhole blackhole) throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) {
+            int id = nextId + i;
+            dataLink.put(ComputationState.from(id, DATA));
+            // Only the even ids are complete
+            if (id % 2 == 0) {
+                subMessageLink.put(ComputationState.from(id, SUB_MESSAGE));
+            }
+        }
+        nextId += BATCH;
+        for (int i = 0; i < BATCH / 2; i++) {
+            blackhole.consume(inputStream.get());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package pipeline.orchestrator.execution.stages;
+
+import com.google.common.eventbus.EventBus;
+import com.google.protobuf.DynamicMessage;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.protobuf.ProtoServiceDescriptorSupplier;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pipeline.orchestrator.architecture.LinkInformation;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.Link;
+import pipeline.orchestrator.execution.scheduling.StageScheduler;
+import pipeline.orchestrator.execution.scheduling.StageSchedulers;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.methods.FullMethodDescription;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a pipeline with two unary
+ * stages that call in-process grpc servers
+ * Each invocation sends a batch of states to the first stage
+ * and waits for all of them to leave the second stage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineThroughputBenchmark {
+
+    private static final int BATCH = 128;
+
+    @Param({"1", "16"})
+    private int maxInFlight;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private Server server;
+    private ManagedChannel channel;
+    private StageScheduler scheduler;
+
+    private AbstractPipelineStage first;
+    private AbstractPipelineStage second;
+
+    private Link sourceLink;
+    private Link sinkLink;
+
+    private DynamicMessage request;
+
+    private int nextId = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        String serverName = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(serverName)
+                .addService(new AddingService())
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(serverName).build();
+        scheduler = StageSchedulers.platform();
+
+        EventBus eventBus = new EventBus();
+        first = buildStage("first", eventBus);
+        second = buildStage("second", eventBus);
+
+        sourceLink = new Link(BATCH, OverflowPolicy.BLOCK);
+        sinkLink = new Link(BATCH, OverflowPolicy.BLOCK);
+        first.bindInput("", sourceLink);
+        PipelineStages.linkStages(
+                first,
+                second,
+                LinkInformation.newBuilder()
+                        .setSourceStageName("first")
+                        .setTargetStageName("second")
+                        .setCapacity(BATCH)
+                        .setOverflowPolicy(OverflowPolicy.BLOCK)
+                        .build());
+        second.bindOutput("", sinkLink);
+
+        scheduler.schedule("stage-first", first);
+        scheduler.schedule("stage-second", second);
+
+        request = DynamicMessage.newBuilder(Data.newBuilder().setNum(1).build()).build();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        first.finish();
+        second.finish();
+        scheduler.shutdown();
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void twoUnaryStages(Blackhole blackhole) throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) {
+            sourceLink.put(ComputationState.from(nextId++, request));
+        }
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(sinkLink.take());
+        }
+    }
+
+    private AbstractPipelineStage buildStage(String name, EventBus eventBus) {
+        return UnaryPipelineStage.newBuilder()
+                .setName(name)
+                .setChannel(channel)
+                .setFullMethodDescription(addMethodDescription())
+                .setEventBus(eventBus)
+                .setMaxInFlight(maxInFlight)
+                .setParallelism(parallelism)
+                .setScheduler(scheduler)
+                .build();
+    }
+
+    private static FullMethodDescription addMethodDescription() {
+        ProtoServiceDescriptorSupplier supplier = (ProtoServiceDescriptorSupplier)
+                AddingServiceGrpc.getServiceDescriptor().getSchemaDescriptor();
+        return FullMethodDescription.newBuilder()
+                .setMethodDescriptor(supplier.getServiceDescriptor().findMethodByName("Add"))
+                .setMethodFullName(AddingServiceGrpc.getAddMethod().getFullMethodName())
+                .build();
+    }
+
+    private static final class AddingService extends AddingServiceGrpc.AddingServiceImplBase {
+
+        @Override
+        public void add(Data request, StreamObserver<Data> responseObserver) {
+            responseObserver.onNext(Data.newBuilder()
+                    .setNum(request.getNum() + 1)
+                    .build());
+            responseObserver.onCompleted();
+        }
+    }
+}
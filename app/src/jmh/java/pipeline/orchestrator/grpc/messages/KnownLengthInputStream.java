@@ -0,0 +1,16 @@
+package pipeline.orchestrator.grpc.messages;
+
+import io.grpc.KnownLength;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Stream with a known length, like the ones
+ * that grpc gives to the marshallers
+ */
+class KnownLengthInputStream extends ByteArrayInputStream implements KnownLength {
+
+    KnownLengthInputStream(byte[] buf) {
+        super(buf);
+    }
+}
@@ -0,0 +1,101 @@
+package pipeline.orchestrator.grpc.messages;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DynamicMessage;
+import io.grpc.Drainable;
+import io.grpc.MethodDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link DynamicMessageMarshaller} with the
+ * previous implementation that used a shared builder
+ * Messages are parsed from streams with a known length, as
+ * received from grpc, and streamed by draining them to an
+ * output stream, as done by grpc when sending.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarshallerBenchmark {
+
+    @Param({"1024", "65536", "4194304"})
+    private int payloadSize;
+
+    private byte[] serialized;
+    private DynamicMessage message;
+
+    private MethodDescriptor.Marshaller<DynamicMessage> sharedBuilderMarshaller;
+    private MethodDescriptor.Marshaller<DynamicMessage> parserMarshaller;
+
+    @Setup
+    public void setUp() {
+        byte[] content = new byte[payloadSize];
+        new Random(0).nextBytes(content);
+        Payload payload = Payload.newBuilder()
+                .setContent(ByteString.copyFrom(content))
+                .setData(Data.newBuilder().setNum(1))
+                .build();
+        serialized = payload.toByteArray();
+        message = DynamicMessage.newBuilder(payload).build();
+        sharedBuilderMarshaller = new SharedBuilderMarshaller(Payload.getDescriptor());
+        parserMarshaller = DynamicMessageMarshaller.forDescriptor(Payload.getDescriptor());
+    }
+
+    @Benchmark
+    public DynamicMessage parseSharedBuilder() {
+        return sharedBuilderMarshaller.parse(new KnownLengthInputStream(serialized));
+    }
+
+    @Benchmark
+    public DynamicMessage parseParser() {
+        return parserMarshaller.parse(new KnownLengthInputStream(serialized));
+    }
+
+    /**
+     * The shared builder is not thread safe so only
+     * the new marshaller is measured with several threads
+     */
+    @Benchmark
+    @Threads(4)
+    public DynamicMessage parseParserConcurrent() {
+        return parserMarshaller.parse(new KnownLengthInputStream(serialized));
+    }
+
+    @Benchmark
+    public long streamSharedBuilder() throws IOException {
+        return drain(sharedBuilderMarshaller.stream(message));
+    }
+
+    @Benchmark
+    public long streamParser() throws IOException {
+        return drain(parserMarshaller.stream(message));
+    }
+
+    private static long drain(InputStream stream) throws IOException {
+        // Same logic as the grpc message framer
+        if (stream instanceof Drainable) {
+            return ((Drainable) stream).drainTo(ByteStreams.nullOutputStream());
+        }
+        return ByteStreams.copy(stream, ByteStreams.nullOutputStream());
+    }
+}
@@ -0,0 +1,69 @@
+package pipeline.orchestrator.grpc.messages;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.DynamicMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the merge of sub messages into a message
+ * and the split of a message into its fields
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergerSplitterBenchmark {
+
+    private DynamicMessageMerger merger;
+    private DynamicMessageSplitter splitter;
+
+    private ImmutableMap<String, DynamicMessage> subMessages;
+    private DynamicMessage composite;
+
+    @Setup
+    public void setUp() {
+        merger = DynamicMessageMerger.newBuilder()
+                .forDescriptor(CompositeMessage.getDescriptor())
+                .build();
+        splitter = DynamicMessageSplitter.newBuilder()
+                .forDescriptor(CompositeMessage.getDescriptor())
+                .build();
+
+        Data data = Data.newBuilder().setNum(1).build();
+        SubMessage subMessage = SubMessage.newBuilder()
+                .setSubData(Data.newBuilder().setNum(2))
+                .build();
+        subMessages = ImmutableMap.of(
+                "data", DynamicMessage.newBuilder(data).build(),
+                "sub_message", DynamicMessage.newBuilder(subMessage).build());
+        composite = DynamicMessage.newBuilder(CompositeMessage.newBuilder()
+                .setData(data)
+                .setSubMessage(subMessage)
+                .setValue(3)
+                .build())
+                .build();
+    }
+
+    @Benchmark
+    public DynamicMessage merge() {
+        return merger.merge(subMessages);
+    }
+
+    @Benchmark
+    public DynamicMessage split() {
+        return splitter.getSubMessage(composite, "data");
+    }
+}
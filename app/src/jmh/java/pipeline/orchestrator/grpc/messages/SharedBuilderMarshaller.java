@@ -0,0 +1,36 @@
+package pipeline.orchestrator.grpc.messages;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import io.grpc.MethodDescriptor;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Previous implementation of the {@link DynamicMessageMarshaller}
+ * with a shared builder, kept as the baseline for the benchmarks
+ * Not thread safe.
+ */
+class SharedBuilderMarshaller implements MethodDescriptor.Marshaller<DynamicMessage> {
+
+    private final DynamicMessage.Builder builder;
+
+    SharedBuilderMarshaller(Descriptors.Descriptor messageDescriptor) {
+        builder = DynamicMessage.newBuilder(messageDescriptor);
+    }
+
+    @Override
+    public InputStream stream(DynamicMessage value) {
+        return value.toByteString().newInput();
+    }
+
+    @Override
+    public DynamicMessage parse(InputStream stream) {
+        try {
+            return builder.clear().mergeFrom(stream).build();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to parse message from input stream", e);
+        }
+    }
+}
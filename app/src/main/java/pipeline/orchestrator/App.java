@@ -9,19 +9,35 @@ import pipeline.orchestrator.architecture.parsing.ArchitectureParser;
 import pipeline.orchestrator.configuration.Configuration;
 import pipeline.orchestrator.configuration.ConfigurationManager;
 import pipeline.orchestrator.execution.ExecutionOrchestrator;
+import pipeline.orchestrator.execution.scheduling.StageSchedulers;
+import pipeline.orchestrator.metrics.MetricsRegistry;
+import pipeline.orchestrator.metrics.PrometheusExporter;
+import pipeline.orchestrator.reflection.DescriptorCache;
 import pipeline.orchestrator.verification.errors.ErrorReport;
 
 import java.io.*;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.function.Consumer;
 
 public class App {
 
     private static final Logger LOGGER = LogManager.getLogger(App.class);
 
+    // Time to wait for the other changes of a save before reloading
+    private static final long RELOAD_DELAY_MS = 500;
+
     private ExecutionOrchestrator orchestrator = null;
 
+    private PrometheusExporter metricsExporter = null;
+
+    // Watches the config file in hot reload mode, otherwise null
+    private WatchService configWatcher = null;
+
     public static void main(String[] args) {
         new App().run(args);
     }
@@ -51,83 +67,136 @@ public class App {
         ValueGraph<StageInformation, LinkInformation> architecture =
                 result.getArchitecture();
 
+        if (configuration.getMetricsPort().isPresent()) {
+            try {
+                metricsExporter = PrometheusExporter.start(
+                        MetricsRegistry.getInstance(),
+                        configuration.getMetricsPort().getAsInt());
+            } catch (IOException exception) {
+                LOGGER.error("Unable to export metrics", exception);
+            }
+        }
+
+        configuration.getDescriptorCacheDir().ifPresent(
+                dir -> DescriptorCache.getInstance().persistTo(Paths.get(dir)));
+
         try {
-            waitForStages(architecture.nodes());
-        } catch (IOException exception) {
-            LOGGER.error("Error while waiting for stages to start", exception);
-            return;
-        } catch (InterruptedException exception) {
-            Thread.currentThread().interrupt();
+            orchestrator = new ExecutionOrchestrator(
+                    architecture,
+                    StageSchedulers.forType(configuration.getSchedulerType()));
+        } catch (IllegalArgumentException exception) {
+            // Stages with options unsupported by their method type
+            // or with derived states whose ids do not fit
+            LOGGER.error("Invalid pipeline architecture: {}", exception.getMessage());
             return;
         }
-
-        orchestrator = new ExecutionOrchestrator(architecture);
         orchestrator.run();
+
+        if (configuration.isHotReload()) {
+            watchConfigFile(Paths.get(configuration.getConfigFile()).toAbsolutePath());
+        }
     }
 
     public void finish() {
         if (orchestrator != null) {
             orchestrator.finish();
         }
-    }
-
-    private void handleIOExceptionAtParseConfiguration(
-            Configuration configuration,
-            IOException exception
-    ) {
-        if (exception instanceof FileNotFoundException) {
-            LOGGER.error("File not found: '{}'", configuration.getConfigFile());
+        if (metricsExporter != null) {
+            metricsExporter.stop();
         }
-        else {
-            LOGGER.error("Unknown IOException when parsing pipeline architecture", exception);
+        if (configWatcher != null) {
+            try {
+                configWatcher.close();
+            } catch (IOException exception) {
+                LOGGER.warn("Unable to stop watching config file", exception);
+            }
         }
     }
 
-    private void waitForStages(
-            Iterable<StageInformation> stages
-    ) throws IOException, InterruptedException {
-        LOGGER.debug("Started waiting for stages");
-        for (StageInformation stage : stages) {
-            waitForStage(stage);
+    /**
+     * Starts a thread that reconfigures the pipeline
+     * whenever the config file is modified
+     * @param configFile path of the config file
+     */
+    private void watchConfigFile(Path configFile) {
+        try {
+            configWatcher = configFile.getFileSystem().newWatchService();
+            configFile.getParent().register(
+                    configWatcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException exception) {
+            LOGGER.error("Unable to watch config file: Hot reload disabled", exception);
+            return;
         }
-        LOGGER.debug("Finished waiting for stages");
+        LOGGER.info("Watching '{}' for changes", configFile);
+        Thread thread = new Thread(() -> watchConfigFile(configWatcher, configFile), "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
     }
 
-    private void waitForStage(
-            StageInformation stage
-    ) throws IOException, InterruptedException {
-        String target = stage.getServiceHost() + ":" + stage.getServicePort();
-        LOGGER.info("Waiting for stage '{}' at '{}'.", stage.getName(), target);
-        Process process = new ProcessBuilder()
-                .command("./bin/wait-for-it.sh", "-t", "0", target)
-                .start();
-
-        Executors.newSingleThreadExecutor().submit(
-                new StreamGobbler(process.getInputStream(), LOGGER::info)
-        );
-        Executors.newSingleThreadExecutor().submit(
-                new StreamGobbler(process.getErrorStream(), LOGGER::info)
-        );
-
-        int status = process.waitFor();
-        if (status != 0) {
-            LOGGER.info("Status is {}", status);
+    private void watchConfigFile(WatchService watcher, Path configFile) {
+        try {
+            while (true) {
+                if (waitForChange(watcher, configFile)) {
+                    // Editors may write the file in multiple steps
+                    Thread.sleep(RELOAD_DELAY_MS);
+                    WatchKey key;
+                    while ((key = watcher.poll()) != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                    reloadConfigFile(configFile);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException exception) {
+            LOGGER.debug("Stopped watching config file");
         }
     }
 
-    private static class StreamGobbler implements Runnable {
-        private InputStream inputStream;
-        private Consumer<String> consumer;
+    private static boolean waitForChange(WatchService watcher, Path configFile)
+            throws InterruptedException {
+        WatchKey key = watcher.take();
+        boolean changed = key.pollEvents().stream()
+                .anyMatch(event -> configFile.getFileName().equals(event.context()));
+        key.reset();
+        return changed;
+    }
 
-        public StreamGobbler(InputStream inputStream, Consumer<String> consumer) {
-            this.inputStream = inputStream;
-            this.consumer = consumer;
+    /**
+     * Parses the config file again and reconfigures the pipeline
+     * The running pipeline is kept if the file has errors
+     * @param configFile path of the config file
+     */
+    private void reloadConfigFile(Path configFile) {
+        LOGGER.info("Config file modified: Reconfiguring pipeline");
+        // Any failure keeps the watcher thread running for the next change
+        try {
+            ArchitectureParser.ParsingResult result =
+                    ArchitectureParser.parseYaml(configFile.toString());
+            ErrorReport report = result.getReport();
+            if (report.hasErrors()) {
+                if (LOGGER.isErrorEnabled())
+                    LOGGER.error("Invalid config file: Keeping running pipeline\n{}", report.summarize());
+                return;
+            }
+            orchestrator.reconfigure(result.getArchitecture());
+        } catch (IOException exception) {
+            LOGGER.error("Unable to read config file: Keeping running pipeline", exception);
+        } catch (RuntimeException exception) {
+            LOGGER.error("Unable to reconfigure pipeline: Keeping running pipeline", exception);
         }
+    }
 
-        @Override
-        public void run() {
-            new BufferedReader(new InputStreamReader(inputStream)).lines()
-                    .forEach(consumer);
+    private void handleIOExceptionAtParseConfiguration(
+            Configuration configuration,
+            IOException exception
+    ) {
+        if (exception instanceof FileNotFoundException) {
+            LOGGER.error("File not found: '{}'", configuration.getConfigFile());
+        }
+        else {
+            LOGGER.error("Unknown IOException when parsing pipeline architecture", exception);
         }
     }
 }
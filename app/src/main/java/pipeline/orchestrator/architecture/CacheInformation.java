@@ -0,0 +1,134 @@
+package pipeline.orchestrator.architecture;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Class to store the configuration of the cache
+ * of responses of a stage
+ * The responses are indexed by the request, or by
+ * some of its fields, and the least recently used
+ * responses are evicted when the cache is full
+ */
+public class CacheInformation {
+
+    public static final int DEFAULT_SIZE = 1024;
+
+    public static final int DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+    // Maximum number of responses in the cache
+    private int size = DEFAULT_SIZE;
+
+    // Maximum bytes of the requests and responses in the cache
+    private int maxBytes = DEFAULT_MAX_BYTES;
+
+    // Time after which a response is no longer used
+    // If not set, responses are only evicted when the cache is full
+    private Integer ttlMs = null;
+
+    // Fields of the request that index the responses
+    // If empty, the whole request is used
+    private ImmutableList<String> fields = ImmutableList.of();
+
+    private CacheInformation() {}
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Optional<Integer> getTtlMs() {
+        return Optional.ofNullable(ttlMs);
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CacheInformation that = (CacheInformation) o;
+        return size == that.size &&
+                maxBytes == that.maxBytes &&
+                Objects.equals(ttlMs, that.ttlMs) &&
+                Objects.equals(fields, that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                size,
+                maxBytes,
+                ttlMs,
+                fields);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInformation{" +
+                "size=" + size +
+                ", maxBytes=" + maxBytes +
+                ", ttlMs=" + ttlMs +
+                ", fields=" + fields +
+                '}';
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private CacheInformation current = new CacheInformation();
+
+        public Builder setSize(int size) {
+            current.size = size;
+            return this;
+        }
+
+        public Builder setMaxBytes(int maxBytes) {
+            current.maxBytes = maxBytes;
+            return this;
+        }
+
+        public Builder setTtlMs(Integer ttlMs) {
+            current.ttlMs = ttlMs;
+            return this;
+        }
+
+        public Builder setFields(List<String> fields) {
+            current.fields = ImmutableList.copyOf(fields);
+            return this;
+        }
+
+        public Builder clear() {
+            current = new CacheInformation();
+            return this;
+        }
+
+        public CacheInformation build() {
+            Preconditions.checkState(current.size > 0);
+            Preconditions.checkState(current.maxBytes > 0);
+            Preconditions.checkState(current.ttlMs == null || current.ttlMs > 0);
+            return copy(current);
+        }
+
+        private CacheInformation copy(CacheInformation original) {
+            CacheInformation copy = new CacheInformation();
+            copy.size = original.size;
+            copy.maxBytes = original.maxBytes;
+            copy.ttlMs = original.ttlMs;
+            copy.fields = original.fields;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package pipeline.orchestrator.architecture;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Class to store the configuration of the connections
+ * to the servers of a stage
+ * Stages with the same configuration for the same server
+ * share the connections
+ */
+public class ChannelInformation {
+
+    public static final int DEFAULT_CONNECTIONS = 1;
+
+    public static final int DEFAULT_MAX_INBOUND_MESSAGE_BYTES = 4 * 1024 * 1024;
+
+    public static final int DEFAULT_KEEP_ALIVE_TIMEOUT_MS = 20000;
+
+    // Number of connections to each server
+    private int connections = DEFAULT_CONNECTIONS;
+
+    // Maximum size of a response
+    private int maxInboundMessageBytes = DEFAULT_MAX_INBOUND_MESSAGE_BYTES;
+
+    // Flow control window of each connection
+    // If not set, the window is adjusted automatically
+    private Integer flowControlWindowBytes = null;
+
+    // Time without reads after which a keep alive ping is sent
+    // If not set, no pings are sent
+    private Integer keepAliveTimeMs = null;
+
+    // Time to wait for the response to a keep alive ping
+    private int keepAliveTimeoutMs = DEFAULT_KEEP_ALIVE_TIMEOUT_MS;
+
+    private ChannelInformation() {}
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public int getMaxInboundMessageBytes() {
+        return maxInboundMessageBytes;
+    }
+
+    public Optional<Integer> getFlowControlWindowBytes() {
+        return Optional.ofNullable(flowControlWindowBytes);
+    }
+
+    public Optional<Integer> getKeepAliveTimeMs() {
+        return Optional.ofNullable(keepAliveTimeMs);
+    }
+
+    public int getKeepAliveTimeoutMs() {
+        return keepAliveTimeoutMs;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChannelInformation that = (ChannelInformation) o;
+        return connections == that.connections &&
+                maxInboundMessageBytes == that.maxInboundMessageBytes &&
+                keepAliveTimeoutMs == that.keepAliveTimeoutMs &&
+                Objects.equals(flowControlWindowBytes, that.flowControlWindowBytes) &&
+                Objects.equals(keepAliveTimeMs, that.keepAliveTimeMs);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                connections,
+                maxInboundMessageBytes,
+                flowControlWindowBytes,
+                keepAliveTimeMs,
+                keepAliveTimeoutMs);
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelInformation{" +
+                "connections=" + connections +
+                ", maxInboundMessageBytes=" + maxInboundMessageBytes +
+                ", flowControlWindowBytes=" + flowControlWindowBytes +
+                ", keepAliveTimeMs=" + keepAliveTimeMs +
+                ", keepAliveTimeoutMs=" + keepAliveTimeoutMs +
+                '}';
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private ChannelInformation current = new ChannelInformation();
+
+        public Builder setConnections(int connections) {
+            current.connections = connections;
+            return this;
+        }
+
+        public Builder setMaxInboundMessageBytes(int maxInboundMessageBytes) {
+            current.maxInboundMessageBytes = maxInboundMessageBytes;
+            return this;
+        }
+
+        public Builder setFlowControlWindowBytes(Integer flowControlWindowBytes) {
+            current.flowControlWindowBytes = flowControlWindowBytes;
+            return this;
+        }
+
+        public Builder setKeepAliveTimeMs(Integer keepAliveTimeMs) {
+            current.keepAliveTimeMs = keepAliveTimeMs;
+            return this;
+        }
+
+        public Builder setKeepAliveTimeoutMs(int keepAliveTimeoutMs) {
+            current.keepAliveTimeoutMs = keepAliveTimeoutMs;
+            return this;
+        }
+
+        public Builder clear() {
+            current = new ChannelInformation();
+            return this;
+        }
+
+        public ChannelInformation build() {
+            Preconditions.checkState(current.connections > 0);
+            Preconditions.checkState(current.maxInboundMessageBytes > 0);
+            Preconditions.checkState(current.flowControlWindowBytes == null || current.flowControlWindowBytes > 0);
+            Preconditions.checkState(current.keepAliveTimeMs == null || current.keepAliveTimeMs > 0);
+            Preconditions.checkState(current.keepAliveTimeoutMs > 0);
+            return copy(current);
+        }
+
+        private ChannelInformation copy(ChannelInformation original) {
+            ChannelInformation copy = new ChannelInformation();
+            copy.connections = original.connections;
+            copy.maxInboundMessageBytes = original.maxInboundMessageBytes;
+            copy.flowControlWindowBytes = original.flowControlWindowBytes;
+            copy.keepAliveTimeMs = original.keepAliveTimeMs;
+            copy.keepAliveTimeoutMs = original.keepAliveTimeoutMs;
+            return copy;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package pipeline.orchestrator.architecture;
 
 import com.google.common.base.Preconditions;
 
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -9,10 +10,15 @@ import java.util.Optional;
  * two different stages
  * Saves the field that should be recovered from
  * the source stage and the field that should be filed
- * in the destination stage
+ * in the destination stage as well as how the
+ * link buffers the states sent between them
  */
 public class LinkInformation {
 
+    public static final int DEFAULT_CAPACITY = 1;
+
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DROP_OLDEST;
+
     // Name of the source stage
     private String sourceStageName;
 
@@ -27,6 +33,12 @@ public class LinkInformation {
     // If not set than the created message should be everything received
     private String targetFieldName;
 
+    // Maximum number of computation states buffered in the link
+    private int capacity = DEFAULT_CAPACITY;
+
+    // Policy to apply when the link is full
+    private OverflowPolicy overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+
     private LinkInformation() {}
 
     public String getSourceStageName() {
@@ -45,6 +57,38 @@ public class LinkInformation {
         return Optional.ofNullable(targetFieldName);
     }
 
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LinkInformation that = (LinkInformation) o;
+        return capacity == that.capacity &&
+                Objects.equals(sourceStageName, that.sourceStageName) &&
+                Objects.equals(targetStageName, that.targetStageName) &&
+                Objects.equals(sourceFieldName, that.sourceFieldName) &&
+                Objects.equals(targetFieldName, that.targetFieldName) &&
+                Objects.equals(overflowPolicy, that.overflowPolicy);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                sourceStageName,
+                targetStageName,
+                sourceFieldName,
+                targetFieldName,
+                capacity,
+                overflowPolicy);
+    }
+
     @Override
     public String toString() {
         return "LinkInformation{" +
@@ -52,6 +96,8 @@ public class LinkInformation {
                 ", targetStageName='" + targetStageName + '\'' +
                 ", sourceFieldName='" + sourceFieldName + '\'' +
                 ", targetFieldName='" + targetFieldName + '\'' +
+                ", capacity=" + capacity +
+                ", overflowPolicy=" + overflowPolicy +
                 '}';
     }
 
@@ -83,6 +129,16 @@ public class LinkInformation {
             return this;
         }
 
+        public Builder setCapacity(int capacity) {
+            current.capacity = capacity;
+            return this;
+        }
+
+        public Builder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            current.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
         public Builder clear() {
             current = new LinkInformation();
             return this;
@@ -91,6 +147,8 @@ public class LinkInformation {
         public LinkInformation build() {
             Preconditions.checkNotNull(current.sourceStageName);
             Preconditions.checkNotNull(current.targetStageName);
+            Preconditions.checkState(current.capacity > 0);
+            Preconditions.checkNotNull(current.overflowPolicy);
             return copy(current);
         }
 
@@ -100,6 +158,8 @@ public class LinkInformation {
             copy.targetStageName = original.targetStageName;
             copy.sourceFieldName = original.sourceFieldName;
             copy.targetFieldName = original.targetFieldName;
+            copy.capacity = original.capacity;
+            copy.overflowPolicy = original.overflowPolicy;
             return copy;
         }
     }
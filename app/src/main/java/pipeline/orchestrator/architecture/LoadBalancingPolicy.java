@@ -0,0 +1,46 @@
+package pipeline.orchestrator.architecture;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Policy that a stage with multiple replicas uses
+ * to select the replica for each request
+ */
+public enum LoadBalancingPolicy {
+
+    /**
+     * Sends the requests to each replica in turn
+     */
+    ROUND_ROBIN("round-robin"),
+
+    /**
+     * Sends each request to the replica with the
+     * least requests waiting for a response
+     */
+    LEAST_OUTSTANDING("least-outstanding");
+
+    private final String configName;
+
+    LoadBalancingPolicy(String configName) {
+        this.configName = configName;
+    }
+
+    /**
+     * @return name of the policy in the configuration file
+     */
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Finds the policy with the given configuration name
+     * @param configName name of the policy in the configuration file
+     * @return the policy with the given name or empty if no such policy exists
+     */
+    public static Optional<LoadBalancingPolicy> fromConfigName(String configName) {
+        return Arrays.stream(values())
+                .filter(policy -> policy.configName.equalsIgnoreCase(configName))
+                .findAny();
+    }
+}
@@ -0,0 +1,45 @@
+package pipeline.orchestrator.architecture;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Order in which a stage that processes multiple
+ * computation states concurrently sends the results
+ */
+public enum OutputOrdering {
+
+    /**
+     * Results are sent in the order of the computation states ids
+     */
+    ORDERED("ordered"),
+
+    /**
+     * Results are sent as soon as they are completed
+     */
+    RELAXED("relaxed");
+
+    private final String configName;
+
+    OutputOrdering(String configName) {
+        this.configName = configName;
+    }
+
+    /**
+     * @return name of the ordering in the configuration file
+     */
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Finds the ordering with the given configuration name
+     * @param configName name of the ordering in the configuration file
+     * @return the ordering with the given name or empty if no such ordering exists
+     */
+    public static Optional<OutputOrdering> fromConfigName(String configName) {
+        return Arrays.stream(values())
+                .filter(ordering -> ordering.configName.equalsIgnoreCase(configName))
+                .findAny();
+    }
+}
@@ -0,0 +1,64 @@
+package pipeline.orchestrator.architecture;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Policy that a link applies when a new computation state
+ * is sent and its buffer is already full
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Discards the oldest buffered state to store the new one
+     */
+    DROP_OLDEST("drop-oldest"),
+
+    /**
+     * Discards the new state and keeps the buffered ones
+     */
+    DROP_NEWEST("drop-newest"),
+
+    /**
+     * Blocks the sender until there is space in the buffer
+     */
+    BLOCK("block"),
+
+    /**
+     * Never discards states. States that do not fit in the
+     * buffer are kept serialized until there is space for them
+     */
+    SPILL("spill"),
+
+    /**
+     * Never discards states. The link grants one credit for each free
+     * position in the buffer and senders wait for a credit before
+     * producing a state, so the buffer never overflows and the
+     * pipeline runs at the rate of the slowest stage
+     */
+    CREDIT("credit");
+
+    private final String configName;
+
+    OverflowPolicy(String configName) {
+        this.configName = configName;
+    }
+
+    /**
+     * @return name of the policy in the configuration file
+     */
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Finds the policy with the given configuration name
+     * @param configName name of the policy in the configuration file
+     * @return the policy with the given name or empty if no such policy exists
+     */
+    public static Optional<OverflowPolicy> fromConfigName(String configName) {
+        return Arrays.stream(values())
+                .filter(policy -> policy.configName.equalsIgnoreCase(configName))
+                .findAny();
+    }
+}
@@ -0,0 +1,113 @@
+package pipeline.orchestrator.architecture;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Objects;
+
+/**
+ * Class to store the retry policy of the calls of a stage
+ * Calls that fail with an unavailable status before any response
+ * are sent again after a backoff that doubles with each attempt
+ */
+public class RetryInformation {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    public static final int DEFAULT_INITIAL_BACKOFF_MS = 100;
+
+    public static final int DEFAULT_MAX_BACKOFF_MS = 5000;
+
+    // Maximum number of attempts of a call, including the first
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    // Backoff before the second attempt
+    private int initialBackoffMs = DEFAULT_INITIAL_BACKOFF_MS;
+
+    // Upper bound of the backoff between attempts
+    private int maxBackoffMs = DEFAULT_MAX_BACKOFF_MS;
+
+    private RetryInformation() {}
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public int getInitialBackoffMs() {
+        return initialBackoffMs;
+    }
+
+    public int getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RetryInformation that = (RetryInformation) o;
+        return maxAttempts == that.maxAttempts &&
+                initialBackoffMs == that.initialBackoffMs &&
+                maxBackoffMs == that.maxBackoffMs;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                maxAttempts,
+                initialBackoffMs,
+                maxBackoffMs);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryInformation{" +
+                "maxAttempts=" + maxAttempts +
+                ", initialBackoffMs=" + initialBackoffMs +
+                ", maxBackoffMs=" + maxBackoffMs +
+                '}';
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private RetryInformation current = new RetryInformation();
+
+        public Builder setMaxAttempts(int maxAttempts) {
+            current.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder setInitialBackoffMs(int initialBackoffMs) {
+            current.initialBackoffMs = initialBackoffMs;
+            return this;
+        }
+
+        public Builder setMaxBackoffMs(int maxBackoffMs) {
+            current.maxBackoffMs = maxBackoffMs;
+            return this;
+        }
+
+        public Builder clear() {
+            current = new RetryInformation();
+            return this;
+        }
+
+        public RetryInformation build() {
+            Preconditions.checkState(current.maxAttempts > 0);
+            Preconditions.checkState(current.initialBackoffMs > 0);
+            Preconditions.checkState(current.maxBackoffMs > 0);
+            return copy(current);
+        }
+
+        private RetryInformation copy(RetryInformation original) {
+            RetryInformation copy = new RetryInformation();
+            copy.maxAttempts = original.maxAttempts;
+            copy.initialBackoffMs = original.initialBackoffMs;
+            copy.maxBackoffMs = original.maxBackoffMs;
+            return copy;
+        }
+    }
+}
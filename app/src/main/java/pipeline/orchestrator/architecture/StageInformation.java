@@ -1,7 +1,11 @@
 package pipeline.orchestrator.architecture;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HostAndPort;
 
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -9,10 +13,35 @@ import java.util.Optional;
  */
 public class StageInformation {
 
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1;
+
+    public static final LoadBalancingPolicy DEFAULT_LOAD_BALANCING_POLICY =
+            LoadBalancingPolicy.ROUND_ROBIN;
+
+    public static final int DEFAULT_PARALLELISM = 1;
+
+    public static final OutputOrdering DEFAULT_OUTPUT_ORDERING = OutputOrdering.ORDERED;
+
+    public static final int DEFAULT_BATCH_SIZE = 1;
+
+    public static final int DEFAULT_BATCH_TIMEOUT_MS = 10;
+
+    public static final int DEFAULT_JOIN_WINDOW = 64;
+
+    public static final int DEFAULT_JOIN_TIMEOUT_MS = 1000;
+
+    public static final int DEFAULT_MAX_FAN_OUT = 1024;
+
     private String name = null;
     private String serviceHost = null;
     private int servicePort = -1;
 
+    // Addresses of other servers running the same service
+    // The requests are distributed through all of them
+    private ImmutableList<HostAndPort> replicas = ImmutableList.of();
+
+    private LoadBalancingPolicy loadBalancingPolicy = DEFAULT_LOAD_BALANCING_POLICY;
+
     private String serviceName = null;
     private String methodName = null;
 
@@ -22,6 +51,63 @@ public class StageInformation {
      */
     private boolean oneShot = false;
 
+    /**
+     * Maximum number of requests that the stage sends to
+     * the service without receiving the respective responses.
+     */
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+    // Number of workers that process computation states concurrently
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private OutputOrdering outputOrdering = DEFAULT_OUTPUT_ORDERING;
+
+    /**
+     * Maximum number of states sent in a single batch request.
+     * Batching is disabled if the size is 1.
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    // Maximum time to wait for a batch to fill
+    private int batchTimeoutMs = DEFAULT_BATCH_TIMEOUT_MS;
+
+    /**
+     * Maximum number of consecutive ids waiting for the other
+     * fields when the stage receives multiple fields.
+     */
+    private int joinWindow = DEFAULT_JOIN_WINDOW;
+
+    // Maximum time to wait for all the fields of an id
+    private int joinTimeoutMs = DEFAULT_JOIN_TIMEOUT_MS;
+
+    // Field of the messages of a bidirectional streaming
+    // method with the id to match the responses to the requests
+    // If not defined, responses are matched in order
+    private String idField = null;
+
+    // Maximum number of states that a server streaming
+    // stage derives from each state it receives
+    private int maxFanOut = DEFAULT_MAX_FAN_OUT;
+
+    // Cache of the responses of an unary method
+    // If not defined, every request is sent to the service
+    private CacheInformation cache = null;
+
+    // Retry policy of the calls that fail with an unavailable status
+    // If not defined, failed calls are not sent again
+    private RetryInformation retry = null;
+
+    // Maximum time for each call with a single request
+    // If not defined, calls have no deadline
+    private Integer timeoutMs = null;
+
+    // Flag to specify if unary calls without a response
+    // after the usual latency should be sent again
+    private boolean hedging = false;
+
+    // Configuration of the connections to the servers
+    private ChannelInformation channel = ChannelInformation.newBuilder().build();
+
     private StageInformation() {}
 
     public String getName() {
@@ -36,6 +122,25 @@ public class StageInformation {
         return servicePort;
     }
 
+    public List<HostAndPort> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @return the address of the service followed
+     *         by the addresses of the replicas
+     */
+    public List<HostAndPort> getAddresses() {
+        return ImmutableList.<HostAndPort>builder()
+                .add(HostAndPort.fromParts(serviceHost, servicePort))
+                .addAll(replicas)
+                .build();
+    }
+
+    public LoadBalancingPolicy getLoadBalancingPolicy() {
+        return loadBalancingPolicy;
+    }
+
     public Optional<String> getServiceName() {
         return Optional.ofNullable(serviceName);
     }
@@ -48,15 +153,143 @@ public class StageInformation {
         return oneShot;
     }
 
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public OutputOrdering getOutputOrdering() {
+        return outputOrdering;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getBatchTimeoutMs() {
+        return batchTimeoutMs;
+    }
+
+    public int getJoinWindow() {
+        return joinWindow;
+    }
+
+    public int getJoinTimeoutMs() {
+        return joinTimeoutMs;
+    }
+
+    public Optional<String> getIdField() {
+        return Optional.ofNullable(idField);
+    }
+
+    public int getMaxFanOut() {
+        return maxFanOut;
+    }
+
+    public Optional<CacheInformation> getCache() {
+        return Optional.ofNullable(cache);
+    }
+
+    public Optional<RetryInformation> getRetry() {
+        return Optional.ofNullable(retry);
+    }
+
+    public Optional<Integer> getTimeoutMs() {
+        return Optional.ofNullable(timeoutMs);
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    public ChannelInformation getChannel() {
+        return channel;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StageInformation that = (StageInformation) o;
+        return servicePort == that.servicePort &&
+                oneShot == that.oneShot &&
+                maxInFlight == that.maxInFlight &&
+                parallelism == that.parallelism &&
+                batchSize == that.batchSize &&
+                batchTimeoutMs == that.batchTimeoutMs &&
+                joinWindow == that.joinWindow &&
+                joinTimeoutMs == that.joinTimeoutMs &&
+                maxFanOut == that.maxFanOut &&
+                hedging == that.hedging &&
+                Objects.equals(name, that.name) &&
+                Objects.equals(serviceHost, that.serviceHost) &&
+                Objects.equals(replicas, that.replicas) &&
+                Objects.equals(loadBalancingPolicy, that.loadBalancingPolicy) &&
+                Objects.equals(serviceName, that.serviceName) &&
+                Objects.equals(methodName, that.methodName) &&
+                Objects.equals(outputOrdering, that.outputOrdering) &&
+                Objects.equals(idField, that.idField) &&
+                Objects.equals(cache, that.cache) &&
+                Objects.equals(retry, that.retry) &&
+                Objects.equals(timeoutMs, that.timeoutMs) &&
+                Objects.equals(channel, that.channel);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                name,
+                serviceHost,
+                servicePort,
+                replicas,
+                loadBalancingPolicy,
+                serviceName,
+                methodName,
+                oneShot,
+                maxInFlight,
+                parallelism,
+                outputOrdering,
+                batchSize,
+                batchTimeoutMs,
+                joinWindow,
+                joinTimeoutMs,
+                idField,
+                maxFanOut,
+                cache,
+                retry,
+                timeoutMs,
+                hedging,
+                channel);
+    }
+
     @Override
     public String toString() {
         return "StageInformation{" +
                 "name='" + name + '\'' +
                 ", serviceHost='" + serviceHost + '\'' +
                 ", servicePort=" + servicePort +
+                ", replicas=" + replicas +
+                ", loadBalancingPolicy=" + loadBalancingPolicy +
                 ", serviceName='" + serviceName + '\'' +
                 ", methodName='" + methodName + '\'' +
                 ", oneShot=" + oneShot +
+                ", maxInFlight=" + maxInFlight +
+                ", parallelism=" + parallelism +
+                ", outputOrdering=" + outputOrdering +
+                ", batchSize=" + batchSize +
+                ", batchTimeoutMs=" + batchTimeoutMs +
+                ", joinWindow=" + joinWindow +
+                ", joinTimeoutMs=" + joinTimeoutMs +
+                ", idField='" + idField + '\'' +
+                ", maxFanOut=" + maxFanOut +
+                ", cache=" + cache +
+                ", retry=" + retry +
+                ", timeoutMs=" + timeoutMs +
+                ", hedging=" + hedging +
+                ", channel=" + channel +
                 '}';
     }
 
@@ -82,6 +315,16 @@ public class StageInformation {
             return this;
         }
 
+        public Builder setReplicas(List<HostAndPort> replicas) {
+            current.replicas = ImmutableList.copyOf(replicas);
+            return this;
+        }
+
+        public Builder setLoadBalancingPolicy(LoadBalancingPolicy loadBalancingPolicy) {
+            current.loadBalancingPolicy = loadBalancingPolicy;
+            return this;
+        }
+
         public Builder setServiceName(String name) {
             current.serviceName = name;
             return this;
@@ -97,6 +340,76 @@ public class StageInformation {
             return this;
         }
 
+        public Builder setMaxInFlight(int maxInFlight) {
+            current.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public Builder setParallelism(int parallelism) {
+            current.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder setOutputOrdering(OutputOrdering outputOrdering) {
+            current.outputOrdering = outputOrdering;
+            return this;
+        }
+
+        public Builder setBatchSize(int batchSize) {
+            current.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder setBatchTimeoutMs(int batchTimeoutMs) {
+            current.batchTimeoutMs = batchTimeoutMs;
+            return this;
+        }
+
+        public Builder setJoinWindow(int joinWindow) {
+            current.joinWindow = joinWindow;
+            return this;
+        }
+
+        public Builder setJoinTimeoutMs(int joinTimeoutMs) {
+            current.joinTimeoutMs = joinTimeoutMs;
+            return this;
+        }
+
+        public Builder setIdField(String idField) {
+            current.idField = idField;
+            return this;
+        }
+
+        public Builder setMaxFanOut(int maxFanOut) {
+            current.maxFanOut = maxFanOut;
+            return this;
+        }
+
+        public Builder setCache(CacheInformation cache) {
+            current.cache = cache;
+            return this;
+        }
+
+        public Builder setRetry(RetryInformation retry) {
+            current.retry = retry;
+            return this;
+        }
+
+        public Builder setTimeoutMs(Integer timeoutMs) {
+            current.timeoutMs = timeoutMs;
+            return this;
+        }
+
+        public Builder setHedging(boolean hedging) {
+            current.hedging = hedging;
+            return this;
+        }
+
+        public Builder setChannel(ChannelInformation channel) {
+            current.channel = channel;
+            return this;
+        }
+
         public Builder from(StageInformation stageInformation) {
             current = copy(stageInformation);
             return this;
@@ -106,6 +419,17 @@ public class StageInformation {
             Preconditions.checkState(current.name != null);
             Preconditions.checkState(current.serviceHost != null);
             Preconditions.checkState(current.servicePort != -1);
+            Preconditions.checkState(current.maxInFlight > 0);
+            Preconditions.checkState(current.loadBalancingPolicy != null);
+            Preconditions.checkState(current.parallelism > 0);
+            Preconditions.checkState(current.outputOrdering != null);
+            Preconditions.checkState(current.batchSize > 0);
+            Preconditions.checkState(current.batchTimeoutMs > 0);
+            Preconditions.checkState(current.joinWindow > 0);
+            Preconditions.checkState(current.joinTimeoutMs > 0);
+            Preconditions.checkState(current.maxFanOut > 0);
+            Preconditions.checkState(current.timeoutMs == null || current.timeoutMs > 0);
+            Preconditions.checkState(current.channel != null);
             return copy(current);
         }
 
@@ -119,9 +443,25 @@ public class StageInformation {
             stageInformation.name = original.name;
             stageInformation.serviceHost = original.serviceHost;
             stageInformation.servicePort = original.servicePort;
+            stageInformation.replicas = original.replicas;
+            stageInformation.loadBalancingPolicy = original.loadBalancingPolicy;
             stageInformation.serviceName = original.serviceName;
             stageInformation.methodName = original.methodName;
             stageInformation.oneShot = original.oneShot;
+            stageInformation.maxInFlight = original.maxInFlight;
+            stageInformation.parallelism = original.parallelism;
+            stageInformation.outputOrdering = original.outputOrdering;
+            stageInformation.batchSize = original.batchSize;
+            stageInformation.batchTimeoutMs = original.batchTimeoutMs;
+            stageInformation.joinWindow = original.joinWindow;
+            stageInformation.joinTimeoutMs = original.joinTimeoutMs;
+            stageInformation.idField = original.idField;
+            stageInformation.maxFanOut = original.maxFanOut;
+            stageInformation.cache = original.cache;
+            stageInformation.retry = original.retry;
+            stageInformation.timeoutMs = original.timeoutMs;
+            stageInformation.hedging = original.hedging;
+            stageInformation.channel = original.channel;
             return stageInformation;
         }
     }
@@ -0,0 +1,143 @@
+package pipeline.orchestrator.architecture;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Type of the pipeline stage that executes a method
+ * Each type only supports some of the options of the stages,
+ * so options that the type would ignore are reported as errors.
+ */
+public enum StageType {
+
+    /**
+     * Unary method executed only once
+     */
+    ONE_SHOT("one-shot", ImmutableSet.of(
+            StageType.TIMEOUT_MS,
+            StageType.HEDGING)),
+
+    /**
+     * Unary method with one call for each computation state
+     */
+    UNARY("unary", ImmutableSet.of(
+            StageType.MAX_IN_FLIGHT,
+            StageType.PARALLELISM,
+            StageType.ORDERING,
+            StageType.CACHE,
+            StageType.TIMEOUT_MS,
+            StageType.HEDGING)),
+
+    /**
+     * Unary method with multiple computation states in each call
+     */
+    BATCHING("batching", ImmutableSet.of(
+            StageType.MAX_IN_FLIGHT,
+            StageType.ORDERING,
+            StageType.BATCH_SIZE,
+            StageType.BATCH_TIMEOUT_MS,
+            StageType.TIMEOUT_MS,
+            StageType.HEDGING)),
+
+    /**
+     * Server streaming method
+     */
+    SERVER_STREAMING("server streaming", ImmutableSet.of(
+            StageType.MAX_IN_FLIGHT,
+            StageType.MAX_FAN_OUT,
+            StageType.TIMEOUT_MS)),
+
+    /**
+     * Client streaming method
+     */
+    CLIENT_STREAMING("client streaming", ImmutableSet.of(
+            StageType.MAX_IN_FLIGHT,
+            StageType.ORDERING,
+            StageType.BATCH_SIZE,
+            StageType.BATCH_TIMEOUT_MS)),
+
+    /**
+     * Bidirectional streaming method
+     */
+    BIDI_STREAMING("bidirectional streaming", ImmutableSet.of(
+            StageType.MAX_IN_FLIGHT,
+            StageType.ID_FIELD,
+            StageType.TIMEOUT_MS));
+
+    private static final String MAX_IN_FLIGHT = "max-in-flight";
+    private static final String PARALLELISM = "parallelism";
+    private static final String ORDERING = "ordering";
+    private static final String BATCH_SIZE = "batch-size";
+    private static final String BATCH_TIMEOUT_MS = "batch-timeout-ms";
+    private static final String ID_FIELD = "id-field";
+    private static final String MAX_FAN_OUT = "max-fan-out";
+    private static final String CACHE = "cache";
+    private static final String TIMEOUT_MS = "timeout-ms";
+    private static final String HEDGING = "hedging";
+
+    private final String description;
+
+    private final ImmutableSet<String> supportedOptions;
+
+    StageType(String description, ImmutableSet<String> supportedOptions) {
+        this.description = description;
+        this.supportedOptions = supportedOptions;
+    }
+
+    /**
+     * @return description of the type for the error messages
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Finds the options of a stage that this type does not support
+     * Options with their default values are not considered, since
+     * there is no way to know if they were set in the configuration
+     * @param stageInformation information of the stage
+     * @return names of the unsupported options in the configuration file
+     */
+    public Set<String> findUnsupportedOptions(StageInformation stageInformation) {
+        Set<String> unsupported = new LinkedHashSet<>(configuredOptions(stageInformation));
+        unsupported.removeAll(supportedOptions);
+        return unsupported;
+    }
+
+    private static Set<String> configuredOptions(StageInformation stageInformation) {
+        Set<String> options = new LinkedHashSet<>();
+        if (stageInformation.getMaxInFlight() != StageInformation.DEFAULT_MAX_IN_FLIGHT) {
+            options.add(MAX_IN_FLIGHT);
+        }
+        if (stageInformation.getParallelism() != StageInformation.DEFAULT_PARALLELISM) {
+            options.add(PARALLELISM);
+        }
+        if (stageInformation.getOutputOrdering() != StageInformation.DEFAULT_OUTPUT_ORDERING) {
+            options.add(ORDERING);
+        }
+        if (stageInformation.getBatchSize() != StageInformation.DEFAULT_BATCH_SIZE) {
+            options.add(BATCH_SIZE);
+        }
+        if (stageInformation.getBatchTimeoutMs() != StageInformation.DEFAULT_BATCH_TIMEOUT_MS) {
+            options.add(BATCH_TIMEOUT_MS);
+        }
+        if (stageInformation.getIdField().isPresent()) {
+            options.add(ID_FIELD);
+        }
+        if (stageInformation.getMaxFanOut() != StageInformation.DEFAULT_MAX_FAN_OUT) {
+            options.add(MAX_FAN_OUT);
+        }
+        if (stageInformation.getCache().isPresent()) {
+            options.add(CACHE);
+        }
+        if (stageInformation.getTimeoutMs().isPresent()) {
+            options.add(TIMEOUT_MS);
+        }
+        if (stageInformation.isHedging()) {
+            options.add(HEDGING);
+        }
+        return options;
+    }
+}
@@ -4,10 +4,18 @@ import com.google.common.collect.Streams;
 import com.google.common.graph.ImmutableValueGraph;
 import com.google.common.graph.MutableValueGraph;
 import com.google.common.graph.ValueGraphBuilder;
+import com.google.common.net.HostAndPort;
+import pipeline.orchestrator.architecture.CacheInformation;
+import pipeline.orchestrator.architecture.ChannelInformation;
 import pipeline.orchestrator.architecture.LinkInformation;
+import pipeline.orchestrator.architecture.RetryInformation;
 import pipeline.orchestrator.architecture.StageInformation;
+import pipeline.orchestrator.architecture.StageType;
+import pipeline.orchestrator.verification.errors.ErrorReport;
+import pipeline.orchestrator.verification.errors.UnsupportedOptionError;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -26,6 +34,41 @@ public class ArchitectureGraphBuilder {
         return buildGraph(stages, links);
     }
 
+    /**
+     * Verifies that the stages only have options supported by their type
+     * The method of a stage is only discovered when the stage is built,
+     * so here only the stages whose type is given by the configuration
+     * are verified. The other stages are verified when they are built.
+     * @param architectureInformation information of the architecture
+     * @return error report with the unsupported options
+     */
+    public static ErrorReport verifyOptions(
+            ArchitectureInformationDto architectureInformation) {
+
+        ErrorReport.Builder report = ErrorReport.newBuilder();
+        for (StageInformationDto dto : architectureInformation.getStages()) {
+            StageInformation stage = buildStage(dto);
+            configuredType(stage).ifPresent(type -> type.findUnsupportedOptions(stage)
+                    .forEach(option -> report.append(UnsupportedOptionError.forOption(
+                            stage.getName(),
+                            option,
+                            type.getDescription()))));
+        }
+        return report.build();
+    }
+
+    private static Optional<StageType> configuredType(StageInformation stage) {
+        if (stage.isOneShot()) {
+            return Optional.of(StageType.ONE_SHOT);
+        }
+        // Client streaming stages also use the batch size,
+        // but support a subset of the batching options
+        if (stage.getBatchSize() > 1) {
+            return Optional.of(StageType.BATCHING);
+        }
+        return Optional.empty();
+    }
+
     private static Map<String, StageInformation> buildStages(Iterable<StageInformationDto> stages) {
         return Streams.stream(stages)
                 .map(ArchitectureGraphBuilder::buildStage)
@@ -34,13 +77,72 @@ public class ArchitectureGraphBuilder {
     }
 
     private static StageInformation buildStage(StageInformationDto dto) {
-        return StageInformation.newBuilder()
+        StageInformation.Builder builder = StageInformation.newBuilder()
                 .setName(dto.getName())
                 .setServiceHost(dto.getHost())
                 .setServicePort(dto.getPort())
                 .setServiceName(dto.getService())
                 .setMethodName(dto.getMethod())
                 .setOneShot(dto.isOneShot())
+                .setMaxInFlight(dto.getMaxInFlight())
+                .setParallelism(dto.getParallelism())
+                .setBatchSize(dto.getBatchSize())
+                .setBatchTimeoutMs(dto.getBatchTimeoutMs())
+                .setJoinWindow(dto.getJoinWindow())
+                .setJoinTimeoutMs(dto.getJoinTimeoutMs())
+                .setIdField(dto.getIdField())
+                .setMaxFanOut(dto.getMaxFanOut())
+                .setTimeoutMs(dto.getTimeoutMs())
+                .setHedging(dto.isHedging());
+        if (dto.getReplicas() != null) {
+            builder.setReplicas(dto.getReplicas().stream()
+                    .map(replica -> HostAndPort.fromParts(replica.getHost(), replica.getPort()))
+                    .collect(Collectors.toList()));
+        }
+        if (dto.getLoadBalancing() != null) {
+            builder.setLoadBalancingPolicy(dto.getLoadBalancing());
+        }
+        if (dto.getOrdering() != null) {
+            builder.setOutputOrdering(dto.getOrdering());
+        }
+        if (dto.getCache() != null) {
+            builder.setCache(buildCache(dto.getCache()));
+        }
+        if (dto.getRetry() != null) {
+            builder.setRetry(buildRetry(dto.getRetry()));
+        }
+        if (dto.getChannel() != null) {
+            builder.setChannel(buildChannel(dto.getChannel()));
+        }
+        return builder.build();
+    }
+
+    private static CacheInformation buildCache(StageInformationDto.CacheDto dto) {
+        CacheInformation.Builder builder = CacheInformation.newBuilder()
+                .setSize(dto.getSize())
+                .setMaxBytes(dto.getMaxBytes())
+                .setTtlMs(dto.getTtlMs());
+        if (dto.getFields() != null) {
+            builder.setFields(dto.getFields());
+        }
+        return builder.build();
+    }
+
+    private static RetryInformation buildRetry(StageInformationDto.RetryDto dto) {
+        return RetryInformation.newBuilder()
+                .setMaxAttempts(dto.getMaxAttempts())
+                .setInitialBackoffMs(dto.getInitialBackoffMs())
+                .setMaxBackoffMs(dto.getMaxBackoffMs())
+                .build();
+    }
+
+    private static ChannelInformation buildChannel(StageInformationDto.ChannelDto dto) {
+        return ChannelInformation.newBuilder()
+                .setConnections(dto.getConnections())
+                .setMaxInboundMessageBytes(dto.getMaxInboundMessageBytes())
+                .setFlowControlWindowBytes(dto.getFlowControlWindowBytes())
+                .setKeepAliveTimeMs(dto.getKeepAliveTimeMs())
+                .setKeepAliveTimeoutMs(dto.getKeepAliveTimeoutMs())
                 .build();
     }
 
@@ -51,12 +153,16 @@ public class ArchitectureGraphBuilder {
     }
 
     private static LinkInformation buildLink(LinkInformationDto dto) {
-        return LinkInformation.newBuilder()
+        LinkInformation.Builder builder = LinkInformation.newBuilder()
                 .setSourceStageName(dto.getSource().getStage())
                 .setTargetStageName(dto.getTarget().getStage())
                 .setSourceFieldName(dto.getSource().getField())
                 .setTargetFieldName(dto.getTarget().getField())
-                .build();
+                .setCapacity(dto.getCapacity());
+        if (dto.getOverflow() != null) {
+            builder.setOverflowPolicy(dto.getOverflow());
+        }
+        return builder.build();
     }
 
     private static ImmutableValueGraph<StageInformation, LinkInformation> buildGraph(
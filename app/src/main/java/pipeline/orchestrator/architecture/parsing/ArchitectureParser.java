@@ -51,6 +51,10 @@ public class ArchitectureParser {
         // Verify if necessary conditions for building
         // graph are satisfied
         ErrorReport report = Verifications.exhaustiveVerification(dto);
+        if (!report.hasErrors()) {
+            // Options are only verified if the stages can be built
+            report = ArchitectureGraphBuilder.verifyOptions(dto);
+        }
 
         if (report.hasErrors())
             LOGGER.warn("Errors detected in pipeline architecture configuration file");
@@ -1,7 +1,10 @@
 package pipeline.orchestrator.architecture.parsing;
 
+import pipeline.orchestrator.architecture.LinkInformation;
+import pipeline.orchestrator.architecture.OverflowPolicy;
 import pipeline.orchestrator.verification.annotations.Verifiable;
 import pipeline.orchestrator.verification.annotations.VerifyNotNull;
+import pipeline.orchestrator.verification.annotations.VerifyPositive;
 
 /**
  * Class to store the configuration of a link
@@ -29,6 +32,14 @@ public class LinkInformationDto {
     @VerifyNotNull
     private EndpointDto target;
 
+    // Maximum number of states buffered in the link
+    @VerifyPositive
+    private int capacity = LinkInformation.DEFAULT_CAPACITY;
+
+    // Policy to apply when the link is full
+    // If not set then the default policy is used
+    private OverflowPolicy overflow;
+
     public EndpointDto getSource() {
         return source;
     }
@@ -45,6 +56,24 @@ public class LinkInformationDto {
         this.target = target;
     }
 
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public OverflowPolicy getOverflow() {
+        return overflow;
+    }
+
+    public void setOverflow(String overflow) {
+        this.overflow = OverflowPolicy.fromConfigName(overflow)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        String.format("Unknown overflow policy '%s'", overflow)));
+    }
+
     /**
      * Class representing the endpoint of a link
      * Can either represent a source or a target stage
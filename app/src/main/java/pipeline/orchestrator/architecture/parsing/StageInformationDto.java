@@ -1,10 +1,19 @@
 package pipeline.orchestrator.architecture.parsing;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
+import pipeline.orchestrator.architecture.CacheInformation;
+import pipeline.orchestrator.architecture.ChannelInformation;
+import pipeline.orchestrator.architecture.LoadBalancingPolicy;
+import pipeline.orchestrator.architecture.OutputOrdering;
+import pipeline.orchestrator.architecture.RetryInformation;
+import pipeline.orchestrator.architecture.StageInformation;
 import pipeline.orchestrator.verification.annotations.Verifiable;
+import pipeline.orchestrator.verification.annotations.VerifyIterable;
 import pipeline.orchestrator.verification.annotations.VerifyNotNull;
 import pipeline.orchestrator.verification.annotations.VerifyPositive;
 
+import java.util.List;
+
 /**
  * Class to store the information regarding a stage
  */
@@ -23,6 +32,16 @@ public class StageInformationDto {
     @VerifyPositive
     private int port;
 
+    // Other servers with the same service
+    // that can receive the requests
+    @VerifyIterable
+    private List<ReplicaDto> replicas;
+
+    // Policy to distribute the requests through the replicas
+    // If not set then the default policy is used
+    @JsonAlias("load-balancing")
+    private LoadBalancingPolicy loadBalancing;
+
     // Name of the grpc service to invoke
     private String service;
 
@@ -34,6 +53,69 @@ public class StageInformationDto {
     @JsonAlias("one-shot")
     private boolean oneShot;
 
+    // Maximum number of concurrent requests
+    // sent to the service
+    @VerifyPositive
+    @JsonAlias("max-in-flight")
+    private int maxInFlight = StageInformation.DEFAULT_MAX_IN_FLIGHT;
+
+    // Number of workers that execute requests concurrently
+    @VerifyPositive
+    private int parallelism = StageInformation.DEFAULT_PARALLELISM;
+
+    // Order of the results when multiple workers are used
+    // If not set then the default ordering is used
+    private OutputOrdering ordering;
+
+    // Maximum number of states to send in a batch request
+    @VerifyPositive
+    @JsonAlias("batch-size")
+    private int batchSize = StageInformation.DEFAULT_BATCH_SIZE;
+
+    // Maximum time to wait for a batch to fill
+    @VerifyPositive
+    @JsonAlias("batch-timeout-ms")
+    private int batchTimeoutMs = StageInformation.DEFAULT_BATCH_TIMEOUT_MS;
+
+    // Maximum number of ids waiting to be joined
+    @VerifyPositive
+    @JsonAlias("join-window")
+    private int joinWindow = StageInformation.DEFAULT_JOIN_WINDOW;
+
+    // Maximum time to wait for all the fields of an id
+    @VerifyPositive
+    @JsonAlias("join-timeout-ms")
+    private int joinTimeoutMs = StageInformation.DEFAULT_JOIN_TIMEOUT_MS;
+
+    // Field with the id to match the responses
+    // of bidirectional streaming methods
+    @JsonAlias("id-field")
+    private String idField;
+
+    // Maximum number of states derived from each
+    // state received by a server streaming stage
+    @VerifyPositive
+    @JsonAlias("max-fan-out")
+    private int maxFanOut = StageInformation.DEFAULT_MAX_FAN_OUT;
+
+    // Cache of the responses of an unary method
+    private CacheDto cache;
+
+    // Retry policy of the calls that fail with an unavailable status
+    private RetryDto retry;
+
+    // Maximum time for each call with a single request
+    @VerifyPositive
+    @JsonAlias("timeout-ms")
+    private Integer timeoutMs;
+
+    // Flag to specify if unary calls without a response
+    // after the usual latency should be sent again
+    private boolean hedging;
+
+    // Configuration of the connections to the servers
+    private ChannelDto channel;
+
     public String getName() {
         return name;
     }
@@ -58,6 +140,112 @@ public class StageInformationDto {
         this.port = port;
     }
 
+    public List<ReplicaDto> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<ReplicaDto> replicas) {
+        this.replicas = replicas;
+    }
+
+    public LoadBalancingPolicy getLoadBalancing() {
+        return loadBalancing;
+    }
+
+    public void setLoadBalancing(String loadBalancing) {
+        this.loadBalancing = LoadBalancingPolicy.fromConfigName(loadBalancing)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        String.format("Unknown load balancing policy '%s'", loadBalancing)));
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchTimeoutMs() {
+        return batchTimeoutMs;
+    }
+
+    public void setBatchTimeoutMs(int batchTimeoutMs) {
+        this.batchTimeoutMs = batchTimeoutMs;
+    }
+
+    public int getJoinWindow() {
+        return joinWindow;
+    }
+
+    public void setJoinWindow(int joinWindow) {
+        this.joinWindow = joinWindow;
+    }
+
+    public int getJoinTimeoutMs() {
+        return joinTimeoutMs;
+    }
+
+    public void setJoinTimeoutMs(int joinTimeoutMs) {
+        this.joinTimeoutMs = joinTimeoutMs;
+    }
+
+    public String getIdField() {
+        return idField;
+    }
+
+    public void setIdField(String idField) {
+        this.idField = idField;
+    }
+
+    public int getMaxFanOut() {
+        return maxFanOut;
+    }
+
+    public void setMaxFanOut(int maxFanOut) {
+        this.maxFanOut = maxFanOut;
+    }
+
+    public CacheDto getCache() {
+        return cache;
+    }
+
+    public void setCache(CacheDto cache) {
+        this.cache = cache;
+    }
+
+    public RetryDto getRetry() {
+        return retry;
+    }
+
+    public void setRetry(RetryDto retry) {
+        this.retry = retry;
+    }
+
+    public Integer getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(Integer timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
+
+    public ChannelDto getChannel() {
+        return channel;
+    }
+
+    public void setChannel(ChannelDto channel) {
+        this.channel = channel;
+    }
+
     public String getService() {
         return service;
     }
@@ -82,15 +270,296 @@ public class StageInformationDto {
         this.oneShot = oneShot;
     }
 
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public OutputOrdering getOrdering() {
+        return ordering;
+    }
+
+    public void setOrdering(String ordering) {
+        this.ordering = OutputOrdering.fromConfigName(ordering)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        String.format("Unknown ordering '%s'", ordering)));
+    }
+
     @Override
     public String toString() {
         return "StageInformationDto{" +
                 "name='" + name + '\'' +
                 ", host='" + host + '\'' +
                 ", port=" + port +
+                ", replicas=" + replicas +
+                ", loadBalancing=" + loadBalancing +
                 ", service='" + service + '\'' +
                 ", method='" + method + '\'' +
                 ", oneShot=" + oneShot +
+                ", maxInFlight=" + maxInFlight +
+                ", parallelism=" + parallelism +
+                ", ordering=" + ordering +
+                ", batchSize=" + batchSize +
+                ", batchTimeoutMs=" + batchTimeoutMs +
+                ", joinWindow=" + joinWindow +
+                ", joinTimeoutMs=" + joinTimeoutMs +
+                ", idField='" + idField + '\'' +
+                ", maxFanOut=" + maxFanOut +
+                ", cache=" + cache +
+                ", retry=" + retry +
+                ", timeoutMs=" + timeoutMs +
+                ", hedging=" + hedging +
+                ", channel=" + channel +
                 '}';
     }
+
+    /**
+     * Class representing the address of a replica
+     */
+    @Verifiable
+    public static class ReplicaDto {
+
+        // Host of the replica
+        @VerifyNotNull
+        private String host;
+
+        // Port of the replica
+        @VerifyPositive
+        private int port;
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public String toString() {
+            return "ReplicaDto{" +
+                    "host='" + host + '\'' +
+                    ", port=" + port +
+                    '}';
+        }
+    }
+
+    /**
+     * Class representing the cache of responses of a stage
+     */
+    @Verifiable
+    public static class CacheDto {
+
+        // Maximum number of responses in the cache
+        @VerifyPositive
+        private int size = CacheInformation.DEFAULT_SIZE;
+
+        // Maximum bytes of the requests and responses in the cache
+        @VerifyPositive
+        @JsonAlias("max-bytes")
+        private int maxBytes = CacheInformation.DEFAULT_MAX_BYTES;
+
+        // Time after which a response is no longer used
+        @JsonAlias("ttl-ms")
+        private Integer ttlMs;
+
+        // Fields of the request that index the responses
+        private List<String> fields;
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public Integer getTtlMs() {
+            return ttlMs;
+        }
+
+        public void setTtlMs(Integer ttlMs) {
+            this.ttlMs = ttlMs;
+        }
+
+        public List<String> getFields() {
+            return fields;
+        }
+
+        public void setFields(List<String> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheDto{" +
+                    "size=" + size +
+                    ", maxBytes=" + maxBytes +
+                    ", ttlMs=" + ttlMs +
+                    ", fields=" + fields +
+                    '}';
+        }
+    }
+
+    /**
+     * Class representing the retry policy of a stage
+     */
+    @Verifiable
+    public static class RetryDto {
+
+        // Maximum number of attempts of a call, including the first
+        @VerifyPositive
+        @JsonAlias("max-attempts")
+        private int maxAttempts = RetryInformation.DEFAULT_MAX_ATTEMPTS;
+
+        // Backoff before the second attempt
+        @VerifyPositive
+        @JsonAlias("initial-backoff-ms")
+        private int initialBackoffMs = RetryInformation.DEFAULT_INITIAL_BACKOFF_MS;
+
+        // Upper bound of the backoff between attempts
+        @VerifyPositive
+        @JsonAlias("max-backoff-ms")
+        private int maxBackoffMs = RetryInformation.DEFAULT_MAX_BACKOFF_MS;
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public int getInitialBackoffMs() {
+            return initialBackoffMs;
+        }
+
+        public void setInitialBackoffMs(int initialBackoffMs) {
+            this.initialBackoffMs = initialBackoffMs;
+        }
+
+        public int getMaxBackoffMs() {
+            return maxBackoffMs;
+        }
+
+        public void setMaxBackoffMs(int maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+        }
+
+        @Override
+        public String toString() {
+            return "RetryDto{" +
+                    "maxAttempts=" + maxAttempts +
+                    ", initialBackoffMs=" + initialBackoffMs +
+                    ", maxBackoffMs=" + maxBackoffMs +
+                    '}';
+        }
+    }
+
+    /**
+     * Class representing the connections to the servers of a stage
+     */
+    @Verifiable
+    public static class ChannelDto {
+
+        // Number of connections to each server
+        @VerifyPositive
+        private int connections = ChannelInformation.DEFAULT_CONNECTIONS;
+
+        // Maximum size of a response
+        @VerifyPositive
+        @JsonAlias("max-inbound-message-bytes")
+        private int maxInboundMessageBytes = ChannelInformation.DEFAULT_MAX_INBOUND_MESSAGE_BYTES;
+
+        // Flow control window of each connection
+        @JsonAlias("flow-control-window-bytes")
+        private Integer flowControlWindowBytes;
+
+        // Time without reads after which a keep alive ping is sent
+        @JsonAlias("keep-alive-time-ms")
+        private Integer keepAliveTimeMs;
+
+        // Time to wait for the response to a keep alive ping
+        @VerifyPositive
+        @JsonAlias("keep-alive-timeout-ms")
+        private int keepAliveTimeoutMs = ChannelInformation.DEFAULT_KEEP_ALIVE_TIMEOUT_MS;
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public void setConnections(int connections) {
+            this.connections = connections;
+        }
+
+        public int getMaxInboundMessageBytes() {
+            return maxInboundMessageBytes;
+        }
+
+        public void setMaxInboundMessageBytes(int maxInboundMessageBytes) {
+            this.maxInboundMessageBytes = maxInboundMessageBytes;
+        }
+
+        public Integer getFlowControlWindowBytes() {
+            return flowControlWindowBytes;
+        }
+
+        public void setFlowControlWindowBytes(Integer flowControlWindowBytes) {
+            this.flowControlWindowBytes = flowControlWindowBytes;
+        }
+
+        public Integer getKeepAliveTimeMs() {
+            return keepAliveTimeMs;
+        }
+
+        public void setKeepAliveTimeMs(Integer keepAliveTimeMs) {
+            this.keepAliveTimeMs = keepAliveTimeMs;
+        }
+
+        public int getKeepAliveTimeoutMs() {
+            return keepAliveTimeoutMs;
+        }
+
+        public void setKeepAliveTimeoutMs(int keepAliveTimeoutMs) {
+            this.keepAliveTimeoutMs = keepAliveTimeoutMs;
+        }
+
+        @Override
+        public String toString() {
+            return "ChannelDto{" +
+                    "connections=" + connections +
+                    ", maxInboundMessageBytes=" + maxInboundMessageBytes +
+                    ", flowControlWindowBytes=" + flowControlWindowBytes +
+                    ", keepAliveTimeMs=" + keepAliveTimeMs +
+                    ", keepAliveTimeoutMs=" + keepAliveTimeoutMs +
+                    '}';
+        }
+    }
 }
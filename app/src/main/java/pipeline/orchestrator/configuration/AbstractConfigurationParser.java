@@ -1,5 +1,9 @@
 package pipeline.orchestrator.configuration;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pipeline.orchestrator.execution.scheduling.SchedulerType;
+
 import java.util.Optional;
 
 /**
@@ -8,13 +12,84 @@ import java.util.Optional;
  */
 public abstract class AbstractConfigurationParser {
 
+    private static final Logger LOGGER = LogManager.getLogger(AbstractConfigurationParser.class);
+
     public final Optional<Configuration> buildAppConfiguration() {
 
         Configuration.Builder builder = Configuration.newBuilder();
 
+        getScheduler().ifPresent(scheduler -> setSchedulerType(builder, scheduler));
+        getMetricsPort().ifPresent(port -> setMetricsPort(builder, port));
+        getDescriptorCacheDir().ifPresent(builder::setDescriptorCacheDir);
+        getHotReload().ifPresent(hotReload -> setHotReload(builder, hotReload));
+
         return getConfigFile()
                 .map(file -> builder.setConfigFile(file).build());
     }
 
     protected abstract Optional<String> getConfigFile();
+
+    /**
+     * @return the name of the scheduler type or empty if
+     *         not defined, in which case the default is used
+     */
+    protected Optional<String> getScheduler() {
+        return Optional.empty();
+    }
+
+    /**
+     * @return the port to export the metrics or empty
+     *         if not defined, in which case they are not exported
+     */
+    protected Optional<String> getMetricsPort() {
+        return Optional.empty();
+    }
+
+    /**
+     * @return the directory to cache the descriptors of the services
+     *         or empty if not defined, in which case they are not cached
+     */
+    protected Optional<String> getDescriptorCacheDir() {
+        return Optional.empty();
+    }
+
+    /**
+     * @return whether to reconfigure the pipeline when the config file
+     *         changes or empty if not defined, in which case it is not
+     */
+    protected Optional<String> getHotReload() {
+        return Optional.empty();
+    }
+
+    private static void setMetricsPort(Configuration.Builder builder, String port) {
+        try {
+            int metricsPort = Integer.parseInt(port);
+            if (metricsPort < 0 || metricsPort > 65535) {
+                throw new NumberFormatException();
+            }
+            builder.setMetricsPort(metricsPort);
+        }
+        catch (NumberFormatException e) {
+            LOGGER.warn("Invalid metrics port '{}': Metrics not exported", port);
+        }
+    }
+
+    private static void setHotReload(Configuration.Builder builder, String hotReload) {
+        if ("true".equalsIgnoreCase(hotReload) || "false".equalsIgnoreCase(hotReload)) {
+            builder.setHotReload(Boolean.parseBoolean(hotReload));
+        }
+        else {
+            LOGGER.warn("Invalid hot reload '{}': Config file not watched", hotReload);
+        }
+    }
+
+    private static void setSchedulerType(Configuration.Builder builder, String scheduler) {
+        Optional<SchedulerType> schedulerType = SchedulerType.fromConfigName(scheduler);
+        if (schedulerType.isPresent()) {
+            builder.setSchedulerType(schedulerType.get());
+        }
+        else {
+            LOGGER.warn("Unknown scheduler '{}': Using default", scheduler);
+        }
+    }
 }
@@ -1,17 +1,65 @@
 package pipeline.orchestrator.configuration;
 
+import pipeline.orchestrator.execution.scheduling.SchedulerType;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+
 public class Configuration {
 
     private String configFile;
 
+    // Type of threads that execute the stages
+    private SchedulerType schedulerType = SchedulerType.PLATFORM;
+
+    // Port to export the metrics, or -1 if not exported
+    private int metricsPort = -1;
+
+    // Directory to cache the descriptors of the services, or null if not cached
+    private String descriptorCacheDir = null;
+
+    // Reconfigure the pipeline when the config file changes
+    private boolean hotReload = false;
+
     public String getConfigFile() {
         return configFile;
     }
 
+    public SchedulerType getSchedulerType() {
+        return schedulerType;
+    }
+
+    /**
+     * @return the port to export the metrics or empty if not exported
+     */
+    public OptionalInt getMetricsPort() {
+        return metricsPort >= 0 ? OptionalInt.of(metricsPort) : OptionalInt.empty();
+    }
+
+    /**
+     * @return the directory to cache the descriptors of
+     *         the services or empty if not cached
+     */
+    public Optional<String> getDescriptorCacheDir() {
+        return Optional.ofNullable(descriptorCacheDir);
+    }
+
+    /**
+     * @return true if the pipeline is reconfigured when
+     *         the config file changes and false otherwise
+     */
+    public boolean isHotReload() {
+        return hotReload;
+    }
+
     @Override
     public String toString() {
         return "Configuration{" +
                 "configFile='" + configFile + '\'' +
+                ", schedulerType=" + schedulerType +
+                ", metricsPort=" + metricsPort +
+                ", descriptorCacheDir='" + descriptorCacheDir + '\'' +
+                ", hotReload=" + hotReload +
                 '}';
     }
 
@@ -30,6 +78,26 @@ public class Configuration {
             return this;
         }
 
+        public Builder setSchedulerType(SchedulerType schedulerType) {
+            current.schedulerType = schedulerType;
+            return this;
+        }
+
+        public Builder setMetricsPort(int metricsPort) {
+            current.metricsPort = metricsPort;
+            return this;
+        }
+
+        public Builder setDescriptorCacheDir(String descriptorCacheDir) {
+            current.descriptorCacheDir = descriptorCacheDir;
+            return this;
+        }
+
+        public Builder setHotReload(boolean hotReload) {
+            current.hotReload = hotReload;
+            return this;
+        }
+
         public Builder clear() {
             current = new Configuration();
             return this;
@@ -42,6 +110,10 @@ public class Configuration {
         private Configuration copy(Configuration original) {
             Configuration copy = new Configuration();
             copy.configFile = original.configFile;
+            copy.schedulerType = original.schedulerType;
+            copy.metricsPort = original.metricsPort;
+            copy.descriptorCacheDir = original.descriptorCacheDir;
+            copy.hotReload = original.hotReload;
             return copy;
         }
     }
@@ -10,8 +10,36 @@ public class EnvironmentVariablesParser extends AbstractConfigurationParser {
 
     private static final String CONFIG_FILE = "CONFIG_FILE";
 
+    private static final String SCHEDULER = "SCHEDULER";
+
+    private static final String METRICS_PORT = "METRICS_PORT";
+
+    private static final String DESCRIPTOR_CACHE_DIR = "DESCRIPTOR_CACHE_DIR";
+
+    private static final String HOT_RELOAD = "HOT_RELOAD";
+
     @Override
     protected Optional<String> getConfigFile() {
         return Optional.ofNullable(System.getenv(CONFIG_FILE));
     }
+
+    @Override
+    protected Optional<String> getScheduler() {
+        return Optional.ofNullable(System.getenv(SCHEDULER));
+    }
+
+    @Override
+    protected Optional<String> getMetricsPort() {
+        return Optional.ofNullable(System.getenv(METRICS_PORT));
+    }
+
+    @Override
+    protected Optional<String> getDescriptorCacheDir() {
+        return Optional.ofNullable(System.getenv(DESCRIPTOR_CACHE_DIR));
+    }
+
+    @Override
+    protected Optional<String> getHotReload() {
+        return Optional.ofNullable(System.getenv(HOT_RELOAD));
+    }
 }
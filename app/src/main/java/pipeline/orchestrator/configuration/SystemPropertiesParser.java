@@ -6,8 +6,36 @@ public class SystemPropertiesParser extends AbstractConfigurationParser {
 
     private static final String CONFIG_FILE = "configFile";
 
+    private static final String SCHEDULER = "scheduler";
+
+    private static final String METRICS_PORT = "metricsPort";
+
+    private static final String DESCRIPTOR_CACHE_DIR = "descriptorCacheDir";
+
+    private static final String HOT_RELOAD = "hotReload";
+
     @Override
     protected Optional<String> getConfigFile() {
         return Optional.ofNullable(System.getProperty(CONFIG_FILE));
     }
+
+    @Override
+    protected Optional<String> getScheduler() {
+        return Optional.ofNullable(System.getProperty(SCHEDULER));
+    }
+
+    @Override
+    protected Optional<String> getMetricsPort() {
+        return Optional.ofNullable(System.getProperty(METRICS_PORT));
+    }
+
+    @Override
+    protected Optional<String> getDescriptorCacheDir() {
+        return Optional.ofNullable(System.getProperty(DESCRIPTOR_CACHE_DIR));
+    }
+
+    @Override
+    protected Optional<String> getHotReload() {
+        return Optional.ofNullable(System.getProperty(HOT_RELOAD));
+    }
 }
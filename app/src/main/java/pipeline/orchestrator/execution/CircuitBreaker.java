@@ -0,0 +1,88 @@
+package pipeline.orchestrator.execution;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Circuit breaker of a single stage
+ * The circuit opens when the service of the stage is unavailable,
+ * and the stage is paused while it is open. After some time the
+ * circuit is half open and the stage is resumed to probe the
+ * service. If the service fails again shortly after, the circuit
+ * opens for twice the time, otherwise it is considered closed.
+ */
+class CircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    // Time that the circuit is open after the first failure
+    static final long INITIAL_OPEN_MS = 1000;
+
+    // Upper bound of the time that the circuit is open
+    static final long MAX_OPEN_MS = 30000;
+
+    // Time after a probe during which a failure
+    // is considered a failure of the probe
+    static final long PROBE_WINDOW_MS = 10000;
+
+    private State state = State.CLOSED;
+
+    // Failures since the circuit was last closed
+    private int consecutiveFailures = 0;
+
+    // Instant when the circuit was last half opened
+    private long probeStartMs;
+
+    /**
+     * Opens the circuit after a failure of the service
+     * @param nowMs current time in milliseconds
+     * @return the time in milliseconds that the circuit should be open,
+     *         or -1 if the circuit was already open
+     */
+    synchronized long open(long nowMs) {
+        if (getState(nowMs) == State.OPEN) {
+            return -1;
+        }
+        consecutiveFailures = state == State.HALF_OPEN ? consecutiveFailures + 1 : 1;
+        state = State.OPEN;
+        return openTimeMs(consecutiveFailures);
+    }
+
+    /**
+     * Half opens the circuit to probe the service
+     * @param nowMs current time in milliseconds
+     */
+    synchronized void halfOpen(long nowMs) {
+        state = State.HALF_OPEN;
+        probeStartMs = nowMs;
+    }
+
+    synchronized State getState(long nowMs) {
+        // The probe succeeded if no failure happened during the window
+        if (state == State.HALF_OPEN && nowMs - probeStartMs >= PROBE_WINDOW_MS) {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        }
+        return state;
+    }
+
+    /**
+     * Computes the time that the circuit is open, which doubles
+     * with each consecutive failure, with a random value of up to
+     * a quarter of it added so that the stages that failed together
+     * are not resumed together
+     * @param failures number of consecutive failures
+     * @return the time in milliseconds
+     */
+    private static long openTimeMs(int failures) {
+        long openMs = INITIAL_OPEN_MS;
+        for (int i = 1; i < failures && openMs < MAX_OPEN_MS; i++) {
+            openMs *= 2;
+        }
+        openMs = Math.min(openMs, MAX_OPEN_MS);
+        return openMs + ThreadLocalRandom.current().nextLong(openMs / 4 + 1);
+    }
+}
@@ -1,6 +1,10 @@
 package pipeline.orchestrator.execution;
 
+import com.google.common.base.Preconditions;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
 
 /**
  * Object with the computation state
@@ -8,16 +12,69 @@ import com.google.protobuf.DynamicMessage;
  * This id should be kept throughout the merge and split operations
  * so that the state can be uniquely identified
  * Also stores the current computation state
+ * The state may be kept in its serialized form, as received from a
+ * stage, and is only parsed when the fields of the message are needed
+ * (e.g. for splitting or merging). States that go directly from one
+ * stage to another are forwarded without being parsed.
+ * The state also carries the timing trail of the stages that
+ * processed the computation, which is kept by the followup states.
+ * States derived from the same state by a server streaming stage keep
+ * its id and are told apart by their sub id, which encodes the index of
+ * the state in each stream it came from, so that joins can still match
+ * them to the other states of the computation.
  */
 public class ComputationState {
 
     private final int id;
 
-    private final DynamicMessage message;
+    // Position among the states derived from the same
+    // computation, zero if the state was not derived
+    private final long subId;
+
+    private final Descriptors.Descriptor descriptor;
+
+    // At least one of the representations is always set
+    // The other is computed on demand and cached
+    private volatile DynamicMessage message;
+    private volatile ByteString bytes;
+
+    // Hops of the timing trail, shared with the previous states
+    // Only modified before the state is sent to the links
+    private TimingTrail.HopLog trailLog;
+    private int trailHops;
+
+    private ComputationState(
+            int id,
+            long subId,
+            Descriptors.Descriptor descriptor,
+            DynamicMessage message,
+            ByteString bytes,
+            TimingTrail.HopLog trailLog,
+            int trailHops) {
 
-    private ComputationState(int id, DynamicMessage message) {
         this.id = id;
+        this.subId = subId;
+        this.descriptor = descriptor;
         this.message = message;
+        this.bytes = bytes;
+        this.trailLog = trailLog;
+        this.trailHops = trailHops;
+    }
+
+    private ComputationState(
+            int id,
+            Descriptors.Descriptor descriptor,
+            DynamicMessage message,
+            ByteString bytes,
+            TimingTrail trail) {
+
+        this(id,
+             0,
+             descriptor,
+             message,
+             bytes,
+             trail != null ? trail.getLog() : null,
+             trail != null ? trail.getHops() : 0);
     }
 
     /**
@@ -27,13 +84,69 @@ public class ComputationState {
      * @return the new computation state
      */
     public static ComputationState from(int id, DynamicMessage dynamicMessage) {
-        return new ComputationState(id, dynamicMessage);
+        return from(id, dynamicMessage, null);
+    }
+
+    /**
+     * Creates a new ComputationState with the given id, message and trail
+     * @param id id for the computation
+     * @param dynamicMessage message with the current computation state
+     * @param trail timing trail of the computation or null if not known
+     * @return the new computation state
+     */
+    public static ComputationState from(
+            int id,
+            DynamicMessage dynamicMessage,
+            TimingTrail trail) {
+
+        Preconditions.checkNotNull(dynamicMessage);
+        return new ComputationState(
+                id,
+                dynamicMessage.getDescriptorForType(),
+                dynamicMessage,
+                null,
+                trail);
+    }
+
+    /**
+     * Creates a new ComputationState with the given id and serialized message
+     * The message is only parsed if requested
+     * @param id id for the computation
+     * @param descriptor descriptor for the message type
+     * @param bytes serialized message with the current computation state
+     * @return the new computation state
+     */
+    public static ComputationState from(
+            int id,
+            Descriptors.Descriptor descriptor,
+            ByteString bytes) {
+
+        return from(id, descriptor, bytes, null);
+    }
+
+    /**
+     * Creates a new ComputationState with the given id, serialized message and trail
+     * @param id id for the computation
+     * @param descriptor descriptor for the message type
+     * @param bytes serialized message with the current computation state
+     * @param trail timing trail of the computation or null if not known
+     * @return the new computation state
+     */
+    public static ComputationState from(
+            int id,
+            Descriptors.Descriptor descriptor,
+            ByteString bytes,
+            TimingTrail trail) {
+
+        Preconditions.checkNotNull(descriptor);
+        Preconditions.checkNotNull(bytes);
+        return new ComputationState(id, descriptor, null, bytes, trail);
     }
 
     /**
      * Creates a new computation state from the old
      * The new state is a followup of the previous state where the message is updated
-     * @param previous previous state that defines the computation id
+     * @param previous previous state that defines the computation id and trail
      * @param dynamicMessage new message for the computation state
      * @return a new computation state with the previous id and new message
      */
@@ -41,21 +154,188 @@ public class ComputationState {
             ComputationState previous,
             DynamicMessage dynamicMessage) {
 
-        return new ComputationState(previous.id, dynamicMessage);
+        Preconditions.checkNotNull(dynamicMessage);
+        return new ComputationState(
+                previous.id,
+                previous.subId,
+                dynamicMessage.getDescriptorForType(),
+                dynamicMessage,
+                null,
+                previous.trailLog,
+                previous.trailHops);
+    }
+
+    /**
+     * Creates a new computation state from the old with a serialized message
+     * @param previous previous state that defines the computation id and trail
+     * @param descriptor descriptor for the message type
+     * @param bytes new serialized message for the computation state
+     * @return a new computation state with the previous id and new message
+     */
+    public static ComputationState from(
+            ComputationState previous,
+            Descriptors.Descriptor descriptor,
+            ByteString bytes) {
+
+        Preconditions.checkNotNull(descriptor);
+        Preconditions.checkNotNull(bytes);
+        return new ComputationState(
+                previous.id,
+                previous.subId,
+                descriptor,
+                null,
+                bytes,
+                previous.trailLog,
+                previous.trailHops);
+    }
+
+    /**
+     * Creates a new state derived from the previous one by a stage that
+     * sends multiple states for each received state
+     * The derived state keeps the id and trail of the previous state
+     * @param previous state that the new state was derived from
+     * @param index position of the new state among the derived states
+     * @param maxFanOut maximum number of states derived from the previous state
+     * @param dynamicMessage message of the derived state
+     * @return a new computation state with the previous id and a new sub id
+     * @throws ArithmeticException if the sub id does not fit in a long
+     */
+    public static ComputationState derive(
+            ComputationState previous,
+            int index,
+            int maxFanOut,
+            DynamicMessage dynamicMessage) {
+
+        Preconditions.checkElementIndex(index, maxFanOut);
+        Preconditions.checkNotNull(dynamicMessage);
+        // Zero is reserved for the states that were not derived
+        long subId = Math.addExact(
+                Math.multiplyExact(previous.subId, maxFanOut + 1L),
+                index + 1L);
+        return new ComputationState(
+                previous.id,
+                subId,
+                dynamicMessage.getDescriptorForType(),
+                dynamicMessage,
+                null,
+                previous.trailLog,
+                previous.trailHops);
+    }
+
+    /**
+     * Creates the state that joins the states of a computation
+     * @param parts joined states, all with the same id
+     * @param dynamicMessage message with the joined fields
+     * @return a new computation state with the id of the parts, the sub id
+     *         of the derived part, if any, and the trail of the critical path
+     */
+    public static ComputationState join(ComputationState[] parts, DynamicMessage dynamicMessage) {
+        Preconditions.checkArgument(parts.length > 0);
+        Preconditions.checkNotNull(dynamicMessage);
+        long subId = 0;
+        for (ComputationState part : parts) {
+            subId = Math.max(subId, part.subId);
+        }
+        TimingTrail trail = TimingTrail.latest(parts);
+        return new ComputationState(
+                parts[0].id,
+                subId,
+                dynamicMessage.getDescriptorForType(),
+                dynamicMessage,
+                null,
+                trail != null ? trail.getLog() : null,
+                trail != null ? trail.getHops() : 0);
     }
 
     public int getId() {
         return id;
     }
 
+    /**
+     * @return position of the state among the states derived from
+     *         the same computation, zero if the state was not derived
+     */
+    public long getSubId() {
+        return subId;
+    }
+
+    public Descriptors.Descriptor getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Returns the message, parsing it the first time
+     * if the state was created from the serialized form
+     * @return the message with the computation state
+     */
     public DynamicMessage getMessage() {
-        return message;
+        DynamicMessage result = message;
+        if (result == null) {
+            // Parsing twice on concurrent calls is harmless
+            try {
+                result = DynamicMessage.parseFrom(descriptor, bytes);
+            }
+            catch (InvalidProtocolBufferException e) {
+                throw new IllegalStateException(
+                        "Unable to parse message of type " + descriptor.getFullName(), e);
+            }
+            message = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the serialized message, serializing it the
+     * first time if the state was created from a message
+     * @return the serialized message with the computation state
+     */
+    public ByteString getBytes() {
+        ByteString result = bytes;
+        if (result == null) {
+            result = message.toByteString();
+            bytes = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the timing trail of the computation or null if no stage recorded it
+     */
+    public TimingTrail getTrail() {
+        return trailLog != null ? new TimingTrail(trailLog, trailHops) : null;
+    }
+
+    /**
+     * Appends a hop to the timing trail
+     * If the stage is already in the trail, the hops since its
+     * previous visit are folded into the new hop
+     * Should only be called by the stage that created the
+     * state, before sending it to the outputs
+     * @param stageName name of the stage that processed the computation
+     * @param startNanos instant when the stage started processing
+     * @param endNanos instant when the stage finished processing
+     */
+    public void recordHop(String stageName, long startNanos, long endNanos) {
+        Preconditions.checkNotNull(stageName);
+        // A stage already in the trail folds the loop since its previous visit
+        int position = TimingTrail.HopLog.positionOf(trailLog, trailHops, stageName);
+        long start = TimingTrail.HopLog.foldedStart(trailLog, trailHops, position, startNanos);
+        trailLog = TimingTrail.HopLog.append(trailLog, position, stageName, start, endNanos);
+        trailHops = position + 1;
+    }
+
+    /**
+     * @return true if the message was already parsed and false otherwise
+     */
+    public boolean isParsed() {
+        return message != null;
     }
 
     @Override
     public String toString() {
         return "ComputationState{" +
                 "id=" + id +
+                ", subId=" + subId +
                 '}';
     }
 }
@@ -3,40 +3,97 @@ package pipeline.orchestrator.execution;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.graph.EndpointPair;
 import com.google.common.graph.ValueGraph;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pipeline.orchestrator.architecture.LinkInformation;
 import pipeline.orchestrator.architecture.StageInformation;
+import pipeline.orchestrator.execution.scheduling.StageGroupScheduler;
+import pipeline.orchestrator.execution.scheduling.StageScheduler;
+import pipeline.orchestrator.execution.scheduling.StageSchedulers;
 import pipeline.orchestrator.execution.stages.AbstractPipelineStage;
 import pipeline.orchestrator.execution.stages.PipelineStages;
+import pipeline.orchestrator.grpc.channels.ChannelRegistry;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Orchestrator class responsible for the entire execution of the pipeline
+ * The pipeline can be reconfigured while running, in which case only
+ * the stages that changed are replaced and the other stages keep their
+ * threads, channels and links.
  */
 public class ExecutionOrchestrator implements Runnable {
 
     private static final Logger LOGGER = LogManager.getLogger(ExecutionOrchestrator.class);
 
+    // Maximum number of stages built at the same time
+    private static final int MAX_CONCURRENT_BUILDS = 16;
+
+    // Maximum time to wait for a replaced stage to stop
+    private static final long STOP_TIMEOUT_MS = 5000;
+
     private boolean running = false;
-    private final ImmutableMap<String, AbstractPipelineStage> executionStages;
+
+    private ValueGraph<StageInformation, LinkInformation> architecture;
+
+    private ImmutableMap<String, AbstractPipelineStage> executionStages;
+
+    // Links between the stages, by the names of the stages
+    private Map<EndpointPair<String>, Link> links = new HashMap<>();
+
+    // Scheduler that executes the stages
+    private final StageScheduler scheduler;
+
+    // Schedulers of the tasks of each stage, so that
+    // a stage can be stopped without the others
+    private final Map<String, StageGroupScheduler> stageSchedulers = new HashMap<>();
+
+    private StagesMonitor monitor = null;
 
     public ExecutionOrchestrator(
             ValueGraph<StageInformation, LinkInformation> architecture) {
 
+        this(architecture, StageSchedulers.platform());
+    }
+
+    public ExecutionOrchestrator(
+            ValueGraph<StageInformation, LinkInformation> architecture,
+            StageScheduler scheduler) {
+
         Preconditions.checkNotNull(architecture);
+        Preconditions.checkNotNull(scheduler);
+        this.scheduler = scheduler;
+        this.architecture = architecture;
 
         // Create pipeline stages
-        Iterator<AbstractPipelineStage> stages = architecture.nodes().stream()
-                .map(PipelineStages::buildStage)
-                .iterator();
+        architecture.nodes().forEach(stageInformation -> stageSchedulers.put(
+                stageInformation.getName(),
+                StageSchedulers.group(scheduler)));
         this.executionStages = Maps.uniqueIndex(
-                stages,
+                buildStages(architecture.nodes(), stageSchedulers),
                 AbstractPipelineStage::getName);
+        try {
+            PipelineStages.verifyFanOut(architecture, executionStages);
+        }
+        catch (IllegalArgumentException e) {
+            architecture.nodes().forEach(PipelineStages::releaseChannels);
+            throw e;
+        }
 
         // Create links
         Set<EndpointPair<StageInformation>> endpoints = architecture.edges();
@@ -48,29 +105,462 @@ public class ExecutionOrchestrator implements Runnable {
             AbstractPipelineStage sourceStage = executionStages.get(endpoint.source().getName());
             AbstractPipelineStage targetStage = executionStages.get(endpoint.target().getName());
 
-            PipelineStages.linkStages(
+            Link link = PipelineStages.linkStages(
                     sourceStage,
                     targetStage,
                     linkInformation);
+            links.put(
+                    EndpointPair.ordered(sourceStage.getName(), targetStage.getName()),
+                    link);
+        }
+    }
+
+    /**
+     * Builds the stages concurrently, so that the time waiting for
+     * the servers and discovering the methods is close to the time
+     * of the slowest stage
+     * @param stagesInformation information of the stages to build
+     * @param schedulers schedulers for the additional threads of each stage
+     * @return the built stages
+     */
+    private static List<AbstractPipelineStage> buildStages(
+            Set<StageInformation> stagesInformation,
+            Map<String, ? extends StageScheduler> schedulers) {
+
+        int threads = Math.max(1, Math.min(stagesInformation.size(), MAX_CONCURRENT_BUILDS));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Map<StageInformation, Future<AbstractPipelineStage>> futures = new HashMap<>();
+        try {
+            for (StageInformation stageInformation : stagesInformation) {
+                StageScheduler stageScheduler = schedulers.get(stageInformation.getName());
+                futures.put(stageInformation, executor.submit(
+                        () -> PipelineStages.buildStage(stageInformation, stageScheduler)));
+            }
+            List<AbstractPipelineStage> stages = new ArrayList<>();
+            for (Future<AbstractPipelineStage> future : futures.values()) {
+                stages.add(future.get());
+            }
+            return stages;
+        }
+        catch (ExecutionException e) {
+            releaseBuilt(futures);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            releaseBuilt(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building stages", e);
+        }
+        finally {
+            // Stop the stages still waiting if one failed
+            executor.shutdownNow();
         }
     }
 
+    /**
+     * Releases the channels of the stages that were built
+     * before another stage failed to build
+     * @param futures builds of the stages
+     */
+    private static void releaseBuilt(Map<StageInformation, Future<AbstractPipelineStage>> futures) {
+        futures.forEach((stageInformation, future) -> {
+            // Builds still running release their channels when interrupted
+            if (!future.cancel(true)) {
+                try {
+                    future.get();
+                    PipelineStages.releaseChannels(stageInformation);
+                }
+                catch (ExecutionException | InterruptedException e) {
+                    // Failed builds already released their channels
+                }
+            }
+        });
+    }
+
     @Override
-    public void run() {
+    public synchronized void run() {
         LOGGER.info("Starting Pipeline Execution");
-        new StagesMonitor(executionStages);
-        executionStages.values().forEach(
-                pipelineStage -> new Thread(pipelineStage).start());
+        monitor = new StagesMonitor(executionStages);
+        executionStages.values().forEach(this::startStage);
         setRunning(true);
     }
 
-    public void finish() {
+    /**
+     * Reconfigures the running pipeline to a new architecture
+     * The stages that were added or changed are built, together with
+     * the stages whose links changed, since the streams of a stage are
+     * bound to its links when it starts. The new stages are built
+     * before the stages they replace are stopped, so a new architecture
+     * that fails to build leaves the pipeline running as before.
+     * The other stages keep running, and the states buffered in the
+     * links are kept or moved to the links that replace them.
+     * A stage that does not stop in time is left with its links, and
+     * the running stages linked to it are replaced too, so that no link
+     * is used by more threads than its buffer supports.
+     * @param newArchitecture architecture of the reconfigured pipeline
+     */
+    public synchronized void reconfigure(
+            ValueGraph<StageInformation, LinkInformation> newArchitecture) {
+
+        Preconditions.checkNotNull(newArchitecture);
+        Preconditions.checkState(isRunning());
+
+        Map<String, StageInformation> oldNodes = indexNodes(architecture);
+        Map<String, StageInformation> newNodes = indexNodes(newArchitecture);
+        Map<EndpointPair<String>, LinkInformation> oldEdges = indexEdges(architecture);
+        Map<EndpointPair<String>, LinkInformation> newEdges = indexEdges(newArchitecture);
+
+        Set<String> removed = Sets.difference(oldNodes.keySet(), newNodes.keySet()).immutableCopy();
+        Set<String> changed = new HashSet<>();
+        newNodes.forEach((name, stageInformation) -> {
+            if (!stageInformation.equals(oldNodes.get(name))) {
+                changed.add(name);
+            }
+        });
+        for (EndpointPair<String> edge : Sets.union(oldEdges.keySet(), newEdges.keySet())) {
+            if (!Objects.equals(oldEdges.get(edge), newEdges.get(edge))) {
+                if (newNodes.containsKey(edge.source())) changed.add(edge.source());
+                if (newNodes.containsKey(edge.target())) changed.add(edge.target());
+            }
+        }
+        if (changed.isEmpty() && removed.isEmpty()) {
+            LOGGER.info("Pipeline architecture unchanged");
+            return;
+        }
+
+        // Build the new stages before stopping the stages they replace
+        Map<String, StageGroupScheduler> newSchedulers = new HashMap<>();
+        Map<String, AbstractPipelineStage> built = new HashMap<>();
+        Set<String> toBuild = changed;
+        try {
+            while (!toBuild.isEmpty()) {
+                toBuild.forEach(name -> newSchedulers.put(name, StageSchedulers.group(scheduler)));
+                Set<StageInformation> stagesInformation = toBuild.stream()
+                        .map(newNodes::get)
+                        .collect(Collectors.toSet());
+                buildStages(stagesInformation, newSchedulers)
+                        .forEach(stage -> built.put(stage.getName(), stage));
+                toBuild = findUnsupportedLinks(built, oldEdges, newEdges);
+            }
+            Map<String, AbstractPipelineStage> stages = new HashMap<>(executionStages);
+            stages.putAll(built);
+            PipelineStages.verifyFanOut(newArchitecture, stages);
+        }
+        catch (RuntimeException e) {
+            // The running stages keep their channels and metrics
+            releaseNewStages(built.keySet(), newNodes, oldNodes);
+            throw e;
+        }
+
+        Set<String> stopped = new HashSet<>(
+                Sets.union(removed, Sets.intersection(built.keySet(), oldNodes.keySet())));
+        // Stages that did not stop may still use their links, so the links are
+        // rebuilt and the running stages that share them are replaced as well
+        Set<String> isolated = new HashSet<>();
+        Set<String> toStop = stopped;
+        while (!toStop.isEmpty()) {
+            Set<String> stuck = stopStages(toStop, oldNodes);
+            isolated.addAll(stuck);
+            Set<String> neighbours = findRunningNeighbours(stuck, oldEdges, newNodes, built);
+            if (!neighbours.isEmpty()) {
+                try {
+                    neighbours.forEach(name -> newSchedulers.put(name, StageSchedulers.group(scheduler)));
+                    buildStages(
+                            neighbours.stream().map(newNodes::get).collect(Collectors.toSet()),
+                            newSchedulers)
+                            .forEach(stage -> built.put(stage.getName(), stage));
+                }
+                catch (RuntimeException e) {
+                    // The replaced stages are already stopped
+                    LOGGER.error("Pipeline reconfiguration failed after stopping stages {}", stopped);
+                    releaseNewStages(built.keySet(), newNodes, oldNodes);
+                    throw e;
+                }
+            }
+            stopped.addAll(neighbours);
+            toStop = neighbours;
+        }
+        removed.forEach(PipelineStages::unregisterStageMetrics);
+        oldEdges.forEach((edge, linkInformation) -> {
+            if (!newEdges.containsKey(edge)) {
+                PipelineStages.unregisterLinkMetrics(edge.source(), edge.target(), linkInformation);
+            }
+        });
+
+        ImmutableMap.Builder<String, AbstractPipelineStage> stagesBuilder = ImmutableMap.builder();
+        newNodes.keySet().forEach(name -> stagesBuilder.put(
+                name,
+                built.getOrDefault(name, executionStages.get(name))));
+        ImmutableMap<String, AbstractPipelineStage> newStages = stagesBuilder.build();
+
+        Map<EndpointPair<String>, Link> newLinks = new HashMap<>();
+        newEdges.forEach((edge, linkInformation) -> newLinks.put(
+                edge,
+                relink(edge, linkInformation, newStages, built, isolated, oldEdges.get(edge))));
+
+        stopped.forEach(stageSchedulers::remove);
+        stageSchedulers.putAll(newSchedulers);
+        links = newLinks;
+        architecture = newArchitecture;
+        executionStages = newStages;
+        monitor.setStages(newStages);
+        built.values().forEach(this::startStage);
+
+        LOGGER.info(
+                "Pipeline reconfigured: {} stages started, {} stages removed",
+                built.size(),
+                removed.size());
+    }
+
+    public synchronized void finish() {
         if (isRunning()) {
             executionStages.values().forEach(AbstractPipelineStage::finish);
+            // Interrupt the stages waiting for inputs or outputs
+            scheduler.shutdown();
+            // Close the connections and stop the event loop threads
+            ChannelRegistry.getInstance().shutdown();
             setRunning(false);
         }
     }
 
+    private void startStage(AbstractPipelineStage stage) {
+        stageSchedulers.get(stage.getName()).schedule(
+                "stage-" + stage.getName(),
+                stage);
+    }
+
+    /**
+     * Finds the running stages that must also be replaced, since the
+     * buffer of a link they keep was selected for the threads of the
+     * stage on the other side and does not support the new stage
+     * @param built new stages
+     * @param oldEdges links of the running architecture
+     * @param newEdges links of the new architecture
+     * @return names of the running stages to replace
+     */
+    private Set<String> findUnsupportedLinks(
+            Map<String, AbstractPipelineStage> built,
+            Map<EndpointPair<String>, LinkInformation> oldEdges,
+            Map<EndpointPair<String>, LinkInformation> newEdges) {
+
+        Set<String> unsupported = new HashSet<>();
+        newEdges.forEach((edge, linkInformation) -> {
+            boolean newSource = built.containsKey(edge.source());
+            boolean newTarget = built.containsKey(edge.target());
+            // Links between new stages are built again if needed
+            if (newSource == newTarget || !linkInformation.equals(oldEdges.get(edge))) {
+                return;
+            }
+            AbstractPipelineStage source = built.getOrDefault(
+                    edge.source(), executionStages.get(edge.source()));
+            AbstractPipelineStage target = built.getOrDefault(
+                    edge.target(), executionStages.get(edge.target()));
+            if (!PipelineStages.canRelink(links.get(edge), source, target)) {
+                unsupported.add(newSource ? edge.target() : edge.source());
+            }
+        });
+        return unsupported;
+    }
+
+    /**
+     * Stops the stages that are removed or replaced, waiting for
+     * their threads so that they no longer use their links, and
+     * releases their channels
+     * @param names names of the stages to stop
+     * @param stagesInformation information of the running stages
+     * @return names of the stages that did not stop in time
+     *         and may still use their links
+     */
+    private Set<String> stopStages(Set<String> names, Map<String, StageInformation> stagesInformation) {
+        names.forEach(name -> {
+            LOGGER.info("Stage '{}': Stopping stage", name);
+            executionStages.get(name).finish();
+            stageSchedulers.get(name).shutdown();
+        });
+        Set<String> stuck = new HashSet<>(names);
+        try {
+            for (String name : names) {
+                boolean terminated = stageSchedulers.get(name)
+                        .awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                // Responses of the calls still in flight are discarded
+                boolean detached = executionStages.get(name)
+                        .detachOutputs(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (terminated && detached) {
+                    stuck.remove(name);
+                }
+                else {
+                    LOGGER.warn(
+                            "Stage '{}': Not stopped after {} ms, its links are rebuilt",
+                            name,
+                            STOP_TIMEOUT_MS);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            // The stages not checked yet are handled as not stopped
+            Thread.currentThread().interrupt();
+        }
+        // Replaced stages got the channels again if the servers did not change
+        names.forEach(name -> PipelineStages.releaseChannels(stagesInformation.get(name)));
+        return stuck;
+    }
+
+    /**
+     * Finds the running stages that are kept by the reconfiguration
+     * but share a link with a stage that did not stop
+     * @param stuck names of the stages that did not stop
+     * @param oldEdges links of the running architecture
+     * @param newNodes stages of the new architecture
+     * @param built new stages
+     * @return names of the running stages to replace
+     */
+    private static Set<String> findRunningNeighbours(
+            Set<String> stuck,
+            Map<EndpointPair<String>, LinkInformation> oldEdges,
+            Map<String, StageInformation> newNodes,
+            Map<String, AbstractPipelineStage> built) {
+
+        Set<String> neighbours = new HashSet<>();
+        oldEdges.keySet().forEach(edge -> {
+            if (stuck.contains(edge.source())) {
+                neighbours.add(edge.target());
+            }
+            if (stuck.contains(edge.target())) {
+                neighbours.add(edge.source());
+            }
+        });
+        neighbours.removeIf(name -> !newNodes.containsKey(name) || built.containsKey(name));
+        return neighbours;
+    }
+
+    /**
+     * Releases the channels and metrics of the new stages that
+     * will not be started
+     * @param built names of the new stages
+     * @param newNodes stages of the new architecture
+     * @param oldNodes stages of the running architecture
+     */
+    private static void releaseNewStages(
+            Set<String> built,
+            Map<String, StageInformation> newNodes,
+            Map<String, StageInformation> oldNodes) {
+
+        built.forEach(name -> {
+            PipelineStages.releaseChannels(newNodes.get(name));
+            if (!oldNodes.containsKey(name)) {
+                PipelineStages.unregisterStageMetrics(name);
+            }
+        });
+    }
+
+    /**
+     * Links 2 stages of the reconfigured pipeline
+     * The link between the stages is kept if it did not change and its
+     * buffer supports the stages, otherwise a new link is built and the
+     * states buffered in the previous link are moved to it
+     * Links of the stages that did not stop are always built again,
+     * and their states are left to those stages
+     * @param edge names of the stages to link
+     * @param linkInformation information of the link in the new architecture
+     * @param stages stages of the reconfigured pipeline
+     * @param built new stages
+     * @param isolated names of the replaced stages that did not stop
+     * @param previousInformation information of the link in the
+     *                            running architecture or null if new
+     * @return the link between the stages
+     */
+    private Link relink(
+            EndpointPair<String> edge,
+            LinkInformation linkInformation,
+            ImmutableMap<String, AbstractPipelineStage> stages,
+            Map<String, AbstractPipelineStage> built,
+            Set<String> isolated,
+            LinkInformation previousInformation) {
+
+        AbstractPipelineStage source = stages.get(edge.source());
+        AbstractPipelineStage target = stages.get(edge.target());
+        boolean newSource = built.containsKey(edge.source());
+        boolean newTarget = built.containsKey(edge.target());
+        Link link = links.get(edge);
+        if (!newSource && !newTarget) {
+            return link;
+        }
+        // Another thread may still send to or take from the link
+        boolean shared = isolated.contains(edge.source()) || isolated.contains(edge.target());
+        if (link != null
+                && !shared
+                && linkInformation.equals(previousInformation)
+                && PipelineStages.canRelink(link, source, target)) {
+            PipelineStages.relinkStages(source, target, linkInformation, link, newSource, newTarget);
+            return link;
+        }
+        if (previousInformation != null && !linkInformation.equals(previousInformation)) {
+            // The new link may be exported with other labels
+            PipelineStages.unregisterLinkMetrics(edge.source(), edge.target(), previousInformation);
+        }
+        Link newLink = PipelineStages.linkStages(source, target, linkInformation);
+        if (link != null && !shared) {
+            transferStates(edge, link, newLink);
+        }
+        return newLink;
+    }
+
+    /**
+     * Moves the states buffered in a replaced link to the new link
+     * The states that do not fit the new link are dropped
+     * @param edge names of the linked stages
+     * @param from replaced link
+     * @param to new link
+     */
+    private static void transferStates(EndpointPair<String> edge, Link from, Link to) {
+        int moved = 0;
+        int dropped = 0;
+        try {
+            ComputationState state;
+            while ((state = from.poll()) != null) {
+                if (moved < to.getCapacity() && to.tryAcquireCredit(0, TimeUnit.MILLISECONDS)) {
+                    to.put(state);
+                    moved++;
+                }
+                else {
+                    dropped++;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.debug("Moved {} states from '{}' to '{}' to the new link", moved, edge.source(), edge.target());
+        if (dropped > 0) {
+            LOGGER.warn(
+                    "Dropped {} states from '{}' to '{}' that did not fit the new link",
+                    dropped,
+                    edge.source(),
+                    edge.target());
+        }
+    }
+
+    private static Map<String, StageInformation> indexNodes(
+            ValueGraph<StageInformation, LinkInformation> architecture) {
+
+        return Maps.uniqueIndex(architecture.nodes(), StageInformation::getName);
+    }
+
+    private static Map<EndpointPair<String>, LinkInformation> indexEdges(
+            ValueGraph<StageInformation, LinkInformation> architecture) {
+
+        Map<EndpointPair<String>, LinkInformation> edges = new HashMap<>();
+        for (EndpointPair<StageInformation> endpoint : architecture.edges()) {
+            edges.put(
+                    EndpointPair.ordered(endpoint.source().getName(), endpoint.target().getName()),
+                    architecture.edgeValue(endpoint).orElseThrow(IllegalArgumentException::new));
+        }
+        return edges;
+    }
+
     private synchronized boolean isRunning() {
         return running;
     }
@@ -1,40 +1,160 @@
 package pipeline.orchestrator.execution;
 
-import java.util.ArrayList;
+import com.google.common.base.Preconditions;
+import pipeline.orchestrator.architecture.LinkInformation;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.buffers.LinkBuffer;
+import pipeline.orchestrator.execution.buffers.LinkBuffers;
+
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 
 /*
  * Class to link to stages
+ * Buffers up to a given capacity of computation states and
+ * applies the configured overflow policy when the buffer is full
+ * With the credit policy, the link grants a credit for each free
+ * position of the buffer. Senders acquire a credit before producing
+ * a state and the credit is returned when the state is taken.
  */
 public class Link {
 
-    private static final int MAX_QUEUE_SIZE = 1;
-    private final List<LinkListener> listeners = new ArrayList<>();
+    private final List<LinkListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final LinkBuffer buffer;
+
+    // States stored in the buffer
+    private final LongAdder enqueued = new LongAdder();
+
+    // Free positions not yet granted to a sender
+    // Null if the link does not use credits
+    private final Semaphore credits;
+
+    public Link() {
+        this(LinkInformation.DEFAULT_CAPACITY, LinkInformation.DEFAULT_OVERFLOW_POLICY);
+    }
+
+    /**
+     * Creates a link that can be used by any number of threads
+     * @param capacity maximum number of states buffered
+     * @param overflowPolicy policy to apply when the link is full
+     */
+    public Link(int capacity, OverflowPolicy overflowPolicy) {
+        this(LinkBuffers.locking(capacity, overflowPolicy));
+    }
 
-    private final BlockingQueue<ComputationState> dataQueue
-            = new ArrayBlockingQueue<>(MAX_QUEUE_SIZE);
+    /**
+     * Creates a link that stores the states in the given buffer
+     * @param buffer buffer to use
+     */
+    public Link(LinkBuffer buffer) {
+        Preconditions.checkNotNull(buffer);
+        this.buffer = buffer;
+        this.credits = buffer.getOverflowPolicy() == OverflowPolicy.CREDIT
+                ? new Semaphore(buffer.getCapacity())
+                : null;
+    }
 
     public void registerListener(LinkListener listener) {
-        synchronized (dataQueue) {
-            listeners.add(listener);
-        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes all listeners, when the stage that
+     * receives the states is replaced
+     */
+    public void clearListeners() {
+        listeners.clear();
     }
 
-    public void put(ComputationState dynamicMessage)
+    /**
+     * Checks if the link can be used by the given number of threads
+     * @param producers maximum number of threads that put states concurrently
+     * @param consumers maximum number of threads that take states concurrently
+     * @return true if the link is safe for the threads and false otherwise
+     */
+    public boolean supports(int producers, int consumers) {
+        return buffer.supports(producers, consumers);
+    }
+
+    public void put(ComputationState computationState)
             throws InterruptedException {
-        synchronized (dataQueue) {
-            if (dataQueue.size() == MAX_QUEUE_SIZE)
-                dataQueue.take();
-            dataQueue.put(dynamicMessage);
+        if (buffer.put(computationState)) {
+            enqueued.increment();
             listeners.forEach(l -> l.onNewObject(this));
         }
     }
 
     public ComputationState take() throws InterruptedException {
-        return dataQueue.take();
+        ComputationState computationState = buffer.take();
+        // Position is free again
+        releaseCredit();
+        return computationState;
+    }
+
+    /**
+     * Takes a computation state from the link without waiting
+     * @return the state or null if the link is empty
+     */
+    public ComputationState poll() {
+        ComputationState computationState = buffer.poll();
+        if (computationState != null) {
+            releaseCredit();
+        }
+        return computationState;
+    }
+
+    /**
+     * Waits for a credit to send a state to the link
+     * Returns immediately if the link does not use credits
+     * The credit must be used with {@link Link#put(ComputationState)}
+     * or released with {@link Link#releaseCredit()}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquireCredit() throws InterruptedException {
+        if (credits != null) {
+            credits.acquire();
+        }
+    }
+
+    /**
+     * Waits up to the given time for a credit to send a state to the link
+     * @param timeout maximum time to wait
+     * @param unit unit of the timeout
+     * @return true if the credit was acquired or the link
+     *         does not use credits and false otherwise
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean tryAcquireCredit(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return credits == null || credits.tryAcquire(timeout, unit);
+    }
+
+    /**
+     * Returns a credit that was acquired but not used to send a state
+     */
+    public void releaseCredit() {
+        if (credits != null) {
+            credits.release();
+        }
+    }
+
+    /**
+     * @return true if senders must acquire credits for the link
+     */
+    public boolean usesCredits() {
+        return credits != null;
+    }
+
+    /**
+     * @return number of credits available to the senders
+     */
+    public int getAvailableCredits() {
+        return credits != null ? credits.availablePermits() : Integer.MAX_VALUE;
     }
 
     /**
@@ -51,10 +171,48 @@ public class Link {
         // we can iterate while the predicate is not true
         Predicate<ComputationState> predicateNegation = predicate.negate();
 
-        ComputationState computationState = dataQueue.take();
+        ComputationState computationState = take();
         while (predicateNegation.test(computationState)) {
-            computationState = dataQueue.take();
+            computationState = take();
         }
         return computationState;
     }
+
+    /**
+     * @return number of states stored in the link
+     */
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    /**
+     * @return number of states discarded by the overflow policy
+     */
+    public long getDropped() {
+        return buffer.getDropped();
+    }
+
+    /**
+     * @return number of states currently in the link
+     */
+    public int size() {
+        return buffer.size();
+    }
+
+    public int getCapacity() {
+        return buffer.getCapacity();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return buffer.getOverflowPolicy();
+    }
+
+    @Override
+    public String toString() {
+        return "Link{" +
+                "buffer=" + buffer.getClass().getSimpleName() +
+                ", capacity=" + buffer.getCapacity() +
+                ", overflowPolicy=" + buffer.getOverflowPolicy() +
+                '}';
+    }
 }
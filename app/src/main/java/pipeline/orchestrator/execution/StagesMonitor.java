@@ -8,38 +8,90 @@ import pipeline.orchestrator.execution.stages.events.UnavailableServiceEvent;
 import pipeline.orchestrator.execution.stages.AbstractPipelineStage;
 import pipeline.orchestrator.execution.stages.PipelineStages;
 
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Class to monitor the execution of the stages
+ * A stage with an unavailable service is paused by its circuit
+ * breaker while the other stages keep running. The stages after
+ * it stop receiving states and the stages before it are only
+ * held back when the links to it are full.
  */
 public class StagesMonitor {
 
     private static final Logger LOGGER = LogManager.getLogger(StagesMonitor.class);
 
-    private final ImmutableMap<String, AbstractPipelineStage> stages;
+    // Replaced when the pipeline is reconfigured
+    private volatile ImmutableMap<String, AbstractPipelineStage> stages;
+
+    private volatile ImmutableMap<String, CircuitBreaker> breakers;
+
+    // Resumes the stages without blocking the events thread
+    private final ScheduledExecutorService probeExecutor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stages-monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
 
     public StagesMonitor(
             ImmutableMap<String, AbstractPipelineStage> stages) {
         this.stages = stages;
+        this.breakers = stages.keySet().stream()
+                .collect(ImmutableMap.toImmutableMap(name -> name, name -> new CircuitBreaker()));
         PipelineStages.subscribeToStagesEvents(this);
     }
 
+    /**
+     * Replaces the monitored stages when the pipeline is reconfigured
+     * The stages that were kept keep their circuit breakers, while
+     * the new stages start with a closed circuit
+     * @param stages stages of the reconfigured pipeline
+     */
+    public synchronized void setStages(
+            ImmutableMap<String, AbstractPipelineStage> stages) {
+        ImmutableMap<String, AbstractPipelineStage> previousStages = this.stages;
+        ImmutableMap<String, CircuitBreaker> previousBreakers = this.breakers;
+        this.breakers = stages.entrySet().stream()
+                .collect(ImmutableMap.toImmutableMap(
+                        Map.Entry::getKey,
+                        entry -> previousStages.get(entry.getKey()) == entry.getValue()
+                                ? previousBreakers.get(entry.getKey())
+                                : new CircuitBreaker()));
+        this.stages = stages;
+    }
+
     @Subscribe
     public void handleUnavailableService(UnavailableServiceEvent event) {
-        LOGGER.warn(
-                "Unavailable Service for Stage '{}'",
-                event.getStageName());
-        // Pause Stages
-        LOGGER.info("Pausing stages");
-        stages.values().forEach(AbstractPipelineStage::pause);
-        try {
-            Thread.sleep(10000);
+        String stageName = event.getStageName();
+        AbstractPipelineStage stage = stages.get(stageName);
+        CircuitBreaker breaker = breakers.get(stageName);
+        // Event of a stage that was removed
+        if (stage == null || breaker == null) {
+            return;
         }
-        catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            LOGGER.info("Interrupted");
+        long openMs = breaker.open(System.currentTimeMillis());
+        // Failure of a call sent before the circuit opened
+        if (openMs < 0) {
+            return;
         }
-        // Resume Stages
-        LOGGER.info("Resuming stages");
-        stages.values().forEach(AbstractPipelineStage::resume);
+        LOGGER.warn(
+                "Stage '{}': Unavailable service, pausing stage for {} ms",
+                stageName,
+                openMs);
+        stage.pause();
+        probeExecutor.schedule(
+                () -> probe(stageName, stage, breaker),
+                openMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void probe(String stageName, AbstractPipelineStage stage, CircuitBreaker breaker) {
+        LOGGER.info("Stage '{}': Resuming stage to probe the service", stageName);
+        breaker.halfOpen(System.currentTimeMillis());
+        stage.resume();
     }
 }
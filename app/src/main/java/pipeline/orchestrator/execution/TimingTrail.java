@@ -0,0 +1,304 @@
+package pipeline.orchestrator.execution;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timing of the stages that a computation went through
+ * Each hop keeps the instants when the stage started and finished
+ * processing the computation. The hops are stored in preallocated
+ * arrays that are shared by the states of a computation: a trail is
+ * a view of the first hops of the arrays, and appending a hop writes
+ * the next slot if no other state has taken it yet. The arrays are only
+ * copied when they are full or when a state is sent to several stages
+ * and the second of them appends a hop, so recording a hop usually
+ * allocates nothing.
+ * The time that the computation waited in the links before a hop is
+ * the difference between the start of the hop and the end of the
+ * previous one. The first hop is the source of the computation.
+ * A stage that is visited again closes a loop of the pipeline: the hops
+ * after its previous visit are folded into a single hop of the stage,
+ * from the start of the previous visit to the end of the new one. The
+ * trail then has at most one hop for each stage, however many times the
+ * computation goes around a cycle, and so do the paths of the trails.
+ * Instants are in nanoseconds, as returned by {@link System#nanoTime()}.
+ */
+public final class TimingTrail {
+
+    private final HopLog log;
+
+    private final int hops;
+
+    TimingTrail(HopLog log, int hops) {
+        this.log = log;
+        this.hops = hops;
+    }
+
+    /**
+     * Appends a hop to a trail
+     * @param previous trail to append to, or null if the hop is the source
+     * @param stageName name of the stage that processed the computation
+     * @param startNanos instant when the stage started processing
+     * @param endNanos instant when the stage finished processing
+     * @return the trail with the new hop
+     */
+    public static TimingTrail append(
+            TimingTrail previous,
+            String stageName,
+            long startNanos,
+            long endNanos) {
+
+        Preconditions.checkNotNull(stageName);
+        HopLog previousLog = previous != null ? previous.log : null;
+        int hops = previous != null ? previous.hops : 0;
+        int position = HopLog.positionOf(previousLog, hops, stageName);
+        HopLog log = HopLog.append(
+                previousLog,
+                position,
+                stageName,
+                HopLog.foldedStart(previousLog, hops, position, startNanos),
+                endNanos);
+        return new TimingTrail(log, position + 1);
+    }
+
+    /**
+     * Selects the trail of the slowest part of a join, which is the
+     * critical path of the joined computation
+     * @param parts states that were joined
+     * @return the trail that ended last or null if no part has a trail
+     */
+    public static TimingTrail latest(ComputationState[] parts) {
+        TimingTrail latest = null;
+        for (ComputationState part : parts) {
+            TimingTrail trail = part.getTrail();
+            if (trail != null && (latest == null || trail.getEndNanos() - latest.getEndNanos() > 0)) {
+                latest = trail;
+            }
+        }
+        return latest;
+    }
+
+    HopLog getLog() {
+        return log;
+    }
+
+    /**
+     * @return the previous hop or null if this hop is the source
+     */
+    public TimingTrail getPrevious() {
+        return hops > 1 ? new TimingTrail(log, hops - 1) : null;
+    }
+
+    public String getStageName() {
+        return getStageName(hops - 1);
+    }
+
+    public long getStartNanos() {
+        return log.startNanos[hops - 1];
+    }
+
+    public long getEndNanos() {
+        return log.endNanos[hops - 1];
+    }
+
+    /**
+     * @return time that the computation waited in the links
+     *         before this hop, zero for the source
+     */
+    public long getQueueNanos() {
+        return getQueueNanos(hops - 1);
+    }
+
+    /**
+     * @return time that the stage took to process the computation
+     */
+    public long getProcessingNanos() {
+        return getProcessingNanos(hops - 1);
+    }
+
+    /**
+     * @param hop position of the hop, starting at 0 for the source
+     * @return name of the stage of the hop
+     */
+    public String getStageName(int hop) {
+        Preconditions.checkElementIndex(hop, hops);
+        return log.stageNames[hop];
+    }
+
+    /**
+     * @param hop position of the hop, starting at 0 for the source
+     * @return time that the computation waited in the
+     *         links before the hop, zero for the source
+     */
+    public long getQueueNanos(int hop) {
+        Preconditions.checkElementIndex(hop, hops);
+        return hop > 0 ? log.startNanos[hop] - log.endNanos[hop - 1] : 0;
+    }
+
+    /**
+     * @param hop position of the hop, starting at 0 for the source
+     * @return time that the stage of the hop took to process the computation
+     */
+    public long getProcessingNanos(int hop) {
+        Preconditions.checkElementIndex(hop, hops);
+        return log.endNanos[hop] - log.startNanos[hop];
+    }
+
+    /**
+     * @return instant when the source started the computation
+     */
+    public long getSourceNanos() {
+        return log.startNanos[0];
+    }
+
+    /**
+     * @return number of hops in the trail
+     */
+    public int getHops() {
+        return hops;
+    }
+
+    /**
+     * @return hash of the stage names in the path, equal for trails
+     *         that went through the same stages
+     */
+    public int getPathHash() {
+        return log.pathHashes[hops - 1];
+    }
+
+    /**
+     * @return the stage names in the path from the source separated by '>'
+     */
+    public String getPath() {
+        return String.join(">", Arrays.asList(log.stageNames).subList(0, hops));
+    }
+
+    /**
+     * Trails are equal if they are views of the same hops
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimingTrail that = (TimingTrail) o;
+        return hops == that.hops && log == that.log;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(log) + hops;
+    }
+
+    @Override
+    public String toString() {
+        return "TimingTrail{" +
+                "path='" + getPath() + '\'' +
+                ", hops=" + hops +
+                '}';
+    }
+
+    /**
+     * Arrays with the hops of the trails of a computation
+     * Slots are written once, by the state that claims them,
+     * before the state is sent to the links, so the slots of a
+     * trail are visible to the stages that receive its state.
+     */
+    static final class HopLog {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final String[] stageNames;
+        private final long[] startNanos;
+        private final long[] endNanos;
+        private final int[] pathHashes;
+
+        // Number of slots claimed by the states
+        private final AtomicInteger claimed;
+
+        private HopLog(int capacity, int claimed) {
+            this.stageNames = new String[capacity];
+            this.startNanos = new long[capacity];
+            this.endNanos = new long[capacity];
+            this.pathHashes = new int[capacity];
+            this.claimed = new AtomicInteger(claimed);
+        }
+
+        /**
+         * Finds the position of a new hop of a stage
+         * @param log log with the previous hops or null if there are none
+         * @param hops number of previous hops in the log
+         * @param stageName name of the stage of the new hop
+         * @return the position of the previous visit of the stage, whose hop
+         *         is folded with the ones after it, or the number of hops if
+         *         the stage was not visited yet
+         */
+        static int positionOf(HopLog log, int hops, String stageName) {
+            for (int i = 0; i < hops; i++) {
+                if (log.stageNames[i].equals(stageName)) {
+                    return i;
+                }
+            }
+            return hops;
+        }
+
+        /**
+         * @param log log with the previous hops or null if there are none
+         * @param hops number of previous hops in the log
+         * @param position position of the new hop, as returned by
+         *                 {@link #positionOf(HopLog, int, String)}
+         * @param startNanos instant when the stage started processing
+         * @return the start of the previous visit of the stage if
+         *         the new hop folds a loop or the given start otherwise
+         */
+        static long foldedStart(HopLog log, int hops, int position, long startNanos) {
+            return position < hops ? log.startNanos[position] : startNanos;
+        }
+
+        /**
+         * Writes a hop after the first hops of a log
+         * @param log log with the previous hops or null if the hop is the source
+         * @param hops number of previous hops in the log that are kept
+         * @param stageName name of the stage that processed the computation
+         * @param startNanos instant when the stage started processing
+         * @param endNanos instant when the stage finished processing
+         * @return the log with the hop, which is a copy if the slot
+         *         after the previous hops was full or already taken
+         */
+        static HopLog append(
+                HopLog log,
+                int hops,
+                String stageName,
+                long startNanos,
+                long endNanos) {
+
+            if (log == null
+                    || hops == log.stageNames.length
+                    || !log.claimed.compareAndSet(hops, hops + 1)) {
+                log = copy(log, hops);
+            }
+            log.stageNames[hops] = stageName;
+            log.startNanos[hops] = startNanos;
+            log.endNanos[hops] = endNanos;
+            log.pathHashes[hops] = 31 * (hops > 0 ? log.pathHashes[hops - 1] : 0)
+                    + stageName.hashCode();
+            return log;
+        }
+
+        /**
+         * @return a new log with the first hops of the given one
+         *         and the slot after them already claimed
+         */
+        private static HopLog copy(HopLog log, int hops) {
+            HopLog copy = new HopLog(Math.max(INITIAL_CAPACITY, 2 * hops), hops + 1);
+            if (log != null) {
+                System.arraycopy(log.stageNames, 0, copy.stageNames, 0, hops);
+                System.arraycopy(log.startNanos, 0, copy.startNanos, 0, hops);
+                System.arraycopy(log.endNanos, 0, copy.endNanos, 0, hops);
+                System.arraycopy(log.pathHashes, 0, copy.pathHashes, 0, hops);
+            }
+            return copy;
+        }
+    }
+}
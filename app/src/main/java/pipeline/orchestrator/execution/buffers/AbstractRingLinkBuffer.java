@@ -0,0 +1,156 @@
+package pipeline.orchestrator.execution.buffers;
+
+import com.google.common.base.Preconditions;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.ComputationState;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Base class for the lock free ring buffers
+ * Implements the blocking operations on top of the non blocking
+ * ones. The single consumer only parks when the buffer is empty
+ * and is unparked by the producers when a new state is published.
+ * Producers blocked by a full buffer park until the consumer frees
+ * a slot, with a timeout as a safeguard against missed signals.
+ */
+abstract class AbstractRingLinkBuffer extends RingIndices implements LinkBuffer {
+
+    // Number of times a thread spins before parking
+    private static final int MAX_SPINS = 64;
+
+    // Maximum time that a producer waits before checking for space again
+    private static final long MAX_PRODUCER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    // Consumer thread parked while waiting for a new state
+    private volatile Thread waitingConsumer = null;
+
+    // Producer threads parked while waiting for space
+    private final Queue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
+
+    // States discarded by the overflow policy
+    private final LongAdder dropped = new LongAdder();
+
+    AbstractRingLinkBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        Preconditions.checkArgument(capacity > 0);
+        Preconditions.checkNotNull(overflowPolicy);
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public final ComputationState take() throws InterruptedException {
+        ComputationState computationState = poll();
+        for (int spins = 0; computationState == null && spins < MAX_SPINS; spins++) {
+            Thread.onSpinWait();
+            computationState = poll();
+        }
+        if (computationState != null) {
+            return computationState;
+        }
+        waitingConsumer = Thread.currentThread();
+        try {
+            // Check again after registering to avoid missing a signal
+            while ((computationState = poll()) == null) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return computationState;
+        }
+        finally {
+            waitingConsumer = null;
+        }
+    }
+
+    @Override
+    public final int size() {
+        // Read the consumer index first so that the size is never negative
+        long consumerIndex = lvConsumerIndex();
+        long producerIndex = lvProducerIndex();
+        return (int) Math.min(capacity, Math.max(0, producerIndex - consumerIndex));
+    }
+
+    @Override
+    public final long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public final int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public final OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Counts a state discarded by the overflow policy
+     */
+    final void recordDropped() {
+        dropped.increment();
+    }
+
+    /**
+     * Wakes the consumer if it is parked waiting for a state
+     * Must be called by producers after publishing a state
+     */
+    final void signalConsumer() {
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Wakes the producers parked waiting for space
+     * Must be called by the consumer after freeing a slot
+     */
+    final void signalProducers() {
+        if (!waitingProducers.isEmpty()) {
+            waitingProducers.forEach(LockSupport::unpark);
+        }
+    }
+
+    /**
+     * Waits for the consumer to free space in the buffer
+     * Spins for a while before parking the producer
+     * @param attempt number of times the producer already waited
+     * @throws InterruptedException if the thread was interrupted
+     */
+    final void awaitSpace(int attempt) throws InterruptedException {
+        if (attempt < MAX_SPINS) {
+            Thread.onSpinWait();
+        }
+        else {
+            Thread producer = Thread.currentThread();
+            waitingProducers.add(producer);
+            try {
+                // Check again after registering to avoid missing a signal
+                if (isFull()) {
+                    LockSupport.parkNanos(this, MAX_PRODUCER_PARK_NANOS);
+                }
+            }
+            finally {
+                waitingProducers.remove(producer);
+            }
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private boolean isFull() {
+        return lvProducerIndex() - lvConsumerIndex() >= capacity;
+    }
+}
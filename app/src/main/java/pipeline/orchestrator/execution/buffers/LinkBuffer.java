@@ -0,0 +1,64 @@
+package pipeline.orchestrator.execution.buffers;
+
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.ComputationState;
+
+/**
+ * Storage for the computation states that are sent through a link
+ * Implementations define which threads may concurrently put and take
+ * states and apply the overflow policy when the buffer is full
+ */
+public interface LinkBuffer {
+
+    /**
+     * Stores the computation state according to the overflow policy
+     * @param computationState state to store
+     * @return true if the state was stored and false if it was discarded
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    boolean put(ComputationState computationState) throws InterruptedException;
+
+    /**
+     * Removes the oldest computation state, waiting if necessary
+     * until a state is available
+     * @return the oldest state in the buffer
+     * @throws InterruptedException if interrupted while waiting
+     */
+    ComputationState take() throws InterruptedException;
+
+    /**
+     * Removes the oldest computation state if one is available
+     * @return the oldest state in the buffer or null if the buffer is empty
+     */
+    ComputationState poll();
+
+    /**
+     * @return number of computation states currently buffered
+     */
+    int size();
+
+    /**
+     * @return number of computation states discarded by the overflow policy
+     */
+    long getDropped();
+
+    /**
+     * @return maximum number of computation states buffered
+     */
+    int getCapacity();
+
+    /**
+     * @return policy applied when the buffer is full
+     */
+    OverflowPolicy getOverflowPolicy();
+
+    /**
+     * Checks if the buffer can be used by the given number of threads
+     * @param producers maximum number of threads that put states concurrently
+     * @param consumers maximum number of threads that take states concurrently
+     * @return true if the buffer is safe for the threads and false otherwise
+     */
+    default boolean supports(int producers, int consumers) {
+        return true;
+    }
+}
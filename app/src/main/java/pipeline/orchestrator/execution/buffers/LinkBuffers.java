@@ -0,0 +1,55 @@
+package pipeline.orchestrator.execution.buffers;
+
+import com.google.common.base.Preconditions;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+
+/**
+ * Static factory for link buffers
+ * Selects the cheapest buffer implementation that is safe
+ * for the number of threads that use it
+ */
+public class LinkBuffers {
+
+    private LinkBuffers() {}
+
+    /**
+     * Builds a buffer for the given topology
+     * @param producers maximum number of threads that put states
+     *                  concurrently, where threads that are serialized
+     *                  by a lock count as one
+     * @param consumers maximum number of threads that take states
+     *                  concurrently, counted in the same way
+     * @param capacity maximum number of states buffered
+     * @param overflowPolicy policy to apply when the buffer is full
+     * @return a lock free ring buffer if one supports the topology
+     *         and policy or a lock based buffer otherwise
+     */
+    public static LinkBuffer forTopology(
+            int producers,
+            int consumers,
+            int capacity,
+            OverflowPolicy overflowPolicy) {
+
+        Preconditions.checkArgument(producers > 0);
+        Preconditions.checkArgument(consumers > 0);
+
+        if (consumers == 1 && producers == 1
+                && overflowPolicy != OverflowPolicy.SPILL) {
+            return new SpscRingLinkBuffer(capacity, overflowPolicy);
+        }
+        else {
+            return locking(capacity, overflowPolicy);
+        }
+    }
+
+    /**
+     * Builds a lock based buffer that supports any number of
+     * producers and consumers and all the overflow policies
+     * @param capacity maximum number of states buffered
+     * @param overflowPolicy policy to apply when the buffer is full
+     * @return the new buffer
+     */
+    public static LinkBuffer locking(int capacity, OverflowPolicy overflowPolicy) {
+        return new LockingLinkBuffer(capacity, overflowPolicy);
+    }
+}
@@ -0,0 +1,170 @@
+package pipeline.orchestrator.execution.buffers;
+
+import com.google.common.base.Preconditions;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.ComputationState;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Link buffer guarded by a single lock
+ * Supports any number of producers and consumers and all
+ * the overflow policies
+ */
+class LockingLinkBuffer implements LinkBuffer {
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    private final Deque<ComputationState> dataQueue = new ArrayDeque<>();
+
+    // States that did not fit in the data queue with the spill policy
+    // They are stored serialized to reduce their memory footprint
+    private final Deque<ComputationState> spilledQueue = new ArrayDeque<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    // States discarded by the overflow policy
+    // Only written while holding the lock
+    private volatile long dropped = 0;
+
+    LockingLinkBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        Preconditions.checkArgument(capacity > 0);
+        Preconditions.checkNotNull(overflowPolicy);
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public boolean put(ComputationState computationState)
+            throws InterruptedException {
+
+        lock.lockInterruptibly();
+        try {
+            boolean stored = store(computationState);
+            if (stored) {
+                notEmpty.signal();
+            }
+            return stored;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ComputationState take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (dataQueue.isEmpty()) {
+                notEmpty.await();
+            }
+            return remove();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ComputationState poll() {
+        lock.lock();
+        try {
+            return dataQueue.isEmpty() ? null : remove();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return dataQueue.size() + spilledQueue.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Removes the oldest state from the data queue
+     * Must be called while holding the lock with a non empty queue
+     * @return the removed state
+     */
+    private ComputationState remove() {
+        ComputationState computationState = dataQueue.poll();
+        // Refill the queue with the oldest spilled state
+        if (!spilledQueue.isEmpty()) {
+            dataQueue.add(spilledQueue.poll());
+        }
+        notFull.signal();
+        return computationState;
+    }
+
+    /**
+     * Stores the computation state according to the overflow policy
+     * Must be called while holding the lock
+     * @param computationState state to store
+     * @return true if the state was stored and false if it was discarded
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    private boolean store(ComputationState computationState)
+            throws InterruptedException {
+
+        if (dataQueue.size() < capacity && spilledQueue.isEmpty()) {
+            dataQueue.add(computationState);
+            return true;
+        }
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                dataQueue.poll();
+                dataQueue.add(computationState);
+                dropped++;
+                return true;
+            case DROP_NEWEST:
+                dropped++;
+                return false;
+            case BLOCK:
+            case CREDIT:
+                // Senders with credit never wait here
+                while (dataQueue.size() >= capacity) {
+                    notFull.await();
+                }
+                dataQueue.add(computationState);
+                return true;
+            case SPILL:
+                // Only the serialized form is kept, which is parsed
+                // again if the fields are needed
+                spilledQueue.add(ComputationState.from(
+                        computationState,
+                        computationState.getDescriptor(),
+                        computationState.getBytes()));
+                return true;
+            default:
+                throw new IllegalStateException(
+                        "Unknown overflow policy: " + overflowPolicy);
+        }
+    }
+}
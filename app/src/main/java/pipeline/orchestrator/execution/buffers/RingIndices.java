@@ -0,0 +1,101 @@
+package pipeline.orchestrator.execution.buffers;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/*
+ * Producer and consumer indices for the ring buffers
+ * Each index is surrounded by padding fields, declared in a
+ * class hierarchy so that the JVM keeps their order, in order to
+ * place them in different cache lines and avoid false sharing
+ * between the producer and consumer threads
+ */
+
+abstract class RingIndicesPad0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p08, p09, p0a, p0b, p0c, p0d, p0e, p0f;
+}
+
+abstract class RingProducerIndex extends RingIndicesPad0 {
+
+    private static final VarHandle PRODUCER_INDEX;
+
+    static {
+        try {
+            PRODUCER_INDEX = MethodHandles.lookup().findVarHandle(
+                    RingProducerIndex.class,
+                    "producerIndex",
+                    long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long producerIndex;
+
+    final long lvProducerIndex() {
+        return producerIndex;
+    }
+
+    final void svProducerIndex(long value) {
+        producerIndex = value;
+    }
+
+    final boolean casProducerIndex(long expected, long value) {
+        return PRODUCER_INDEX.compareAndSet(this, expected, value);
+    }
+}
+
+abstract class RingIndicesPad1 extends RingProducerIndex {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+    long p18, p19, p1a, p1b, p1c, p1d, p1e, p1f;
+}
+
+abstract class RingConsumerIndex extends RingIndicesPad1 {
+
+    private static final VarHandle CONSUMER_INDEX;
+
+    static {
+        try {
+            CONSUMER_INDEX = MethodHandles.lookup().findVarHandle(
+                    RingConsumerIndex.class,
+                    "consumerIndex",
+                    long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long consumerIndex;
+
+    final long lvConsumerIndex() {
+        return consumerIndex;
+    }
+
+    final void svConsumerIndex(long value) {
+        consumerIndex = value;
+    }
+
+    final boolean casConsumerIndex(long expected, long value) {
+        return CONSUMER_INDEX.compareAndSet(this, expected, value);
+    }
+}
+
+abstract class RingIndices extends RingConsumerIndex {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+    long p28, p29, p2a, p2b, p2c, p2d, p2e, p2f;
+
+    /**
+     * @param capacity requested capacity
+     * @return the smallest power of two greater or equal to the capacity
+     */
+    static int ringSize(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
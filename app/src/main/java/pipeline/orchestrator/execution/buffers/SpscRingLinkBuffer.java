@@ -0,0 +1,98 @@
+package pipeline.orchestrator.execution.buffers;
+
+import com.google.common.base.Preconditions;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.ComputationState;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock free ring buffer for a single producer and a single consumer
+ * Offers never block for the drop policies. With the drop oldest
+ * policy the producer advances the consumer index to evict the
+ * oldest state, so both threads update it with compare and set.
+ * Consumed slots are not cleared since the producer may already be
+ * reusing them, so at most one ring of stale references is retained.
+ * Does not support the spill policy.
+ * The producer and the consumer may be a different thread on each
+ * call, as long as the calls on each side are serialized by a lock
+ * that orders them with happens before, such as the drainer of the
+ * concurrent output streams or the output and input locks of the
+ * stages. The indices are then only written by one side at a time.
+ */
+class SpscRingLinkBuffer extends AbstractRingLinkBuffer {
+
+    private final AtomicReferenceArray<ComputationState> slots;
+    private final int mask;
+
+    SpscRingLinkBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        super(capacity, overflowPolicy);
+        Preconditions.checkArgument(overflowPolicy != OverflowPolicy.SPILL);
+        int ringSize = ringSize(capacity);
+        this.slots = new AtomicReferenceArray<>(ringSize);
+        this.mask = ringSize - 1;
+    }
+
+    @Override
+    public boolean supports(int producers, int consumers) {
+        return producers == 1 && consumers == 1;
+    }
+
+    @Override
+    public boolean put(ComputationState computationState)
+            throws InterruptedException {
+
+        Preconditions.checkNotNull(computationState);
+        int capacity = getCapacity();
+        OverflowPolicy overflowPolicy = getOverflowPolicy();
+        // Only this thread writes the producer index
+        long producerIndex = lvProducerIndex();
+        int attempt = 0;
+        long consumerIndex;
+        while (producerIndex - (consumerIndex = lvConsumerIndex()) >= capacity) {
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    recordDropped();
+                    return false;
+                case DROP_OLDEST:
+                    // Evict the oldest state unless the consumer took it first
+                    if (casConsumerIndex(consumerIndex, consumerIndex + 1)) {
+                        recordDropped();
+                    }
+                    break;
+                case BLOCK:
+                case CREDIT:
+                    awaitSpace(attempt++);
+                    break;
+                default:
+                    throw new IllegalStateException(
+                            "Unsupported overflow policy: " + overflowPolicy);
+            }
+        }
+        slots.lazySet(index(producerIndex), computationState);
+        // Volatile write so that it is ordered with reading the waiting consumer
+        svProducerIndex(producerIndex + 1);
+        signalConsumer();
+        return true;
+    }
+
+    @Override
+    public ComputationState poll() {
+        while (true) {
+            long consumerIndex = lvConsumerIndex();
+            if (consumerIndex >= lvProducerIndex()) {
+                return null;
+            }
+            ComputationState computationState = slots.get(index(consumerIndex));
+            // Fails if the producer evicted this state in the meantime
+            if (casConsumerIndex(consumerIndex, consumerIndex + 1)) {
+                signalProducers();
+                return computationState;
+            }
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+}
@@ -1,31 +1,45 @@
 package pipeline.orchestrator.execution.inputs;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import pipeline.orchestrator.execution.ComputationState;
 import pipeline.orchestrator.execution.Link;
 import pipeline.orchestrator.execution.LinkListener;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 
 /**
  * Input Stream that receives entire messages from multiple sources
  * The messages are all collected and sent to the next stage
  * with no specific order between them
+ * The sources only signal that a message is available, and the
+ * links are read by the thread that gets the messages, taking one
+ * message from each link in turn so that no source is starved.
+ * The messages wait in the links, which block or drop according
+ * to their own policies when full.
  */
 public class CollectorInputStream
         implements StageInputStream, LinkListener {
 
-    private final BlockingQueue<ComputationState> collectingQueue =
-            new LinkedBlockingQueue<>();
+    private final ImmutableList<Link> links;
+
+    // One permit for each state put in any of the links
+    private final Semaphore available = new Semaphore(0);
+
+    // Link to read first in the next get
+    private int next = 0;
 
     public CollectorInputStream(
             ImmutableSetMultimap<String, Link> inputs) {
 
         Preconditions.checkArgument(canBuildFrom(inputs));
-        inputs.get("").forEach(link -> link.registerListener(this));
+        links = ImmutableList.copyOf(inputs.get(""));
+        links.forEach(link -> link.registerListener(this));
+        // States left in the links by the stage that this one
+        // replaced when the pipeline was reconfigured
+        available.release((int) getPending());
     }
 
     @Override
@@ -41,22 +55,57 @@ public class CollectorInputStream
 
     @Override
     public ComputationState get() {
-        try {
-            return collectingQueue.take();
-        }
-        catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return null;
+        while (true) {
+            try {
+                available.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            ComputationState state = pollNext();
+            if (state != null) {
+                return state;
+            }
+            // The state of the permit was discarded by the
+            // overflow policy of the link, so wait for another
         }
     }
 
+    /**
+     * Only signals that a state is available since the
+     * links are read by the thread that gets the states
+     * @param link link with the new state
+     */
     @Override
     public void onNewObject(Link link) {
-        try {
-            collectingQueue.add(link.take());
-        }
-        catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        available.release();
+    }
+
+    /**
+     * @return number of states waiting in the links
+     */
+    public long getPending() {
+        return links.stream()
+                .mapToLong(Link::size)
+                .sum();
+    }
+
+    /**
+     * Takes a state from the first link with states,
+     * starting after the link of the previous state
+     * @return the state or null if all links are empty
+     */
+    private ComputationState pollNext() {
+        int size = links.size();
+        for (int i = 0; i < size; i++) {
+            int current = (next + i) % size;
+            ComputationState state = links.get(current).poll();
+            if (state != null) {
+                next = (current + 1) % size;
+                return state;
+            }
         }
+        return null;
     }
 }
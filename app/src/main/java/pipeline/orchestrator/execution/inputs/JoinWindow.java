@@ -0,0 +1,253 @@
+package pipeline.orchestrator.execution.inputs;
+
+import com.google.common.base.Preconditions;
+import pipeline.orchestrator.execution.ComputationState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Window with the partial tuples of a join, indexed by id
+ * Each id is kept in the slot given by the id modulo the window
+ * size, so at most that many consecutive ids are waiting for their
+ * parts at the same time. An incomplete id is expired when a newer id
+ * needs its slot or when it waits for longer than the timeout.
+ * States derived by server streaming stages share the id of their
+ * computation and are joined by their sub id: a derived part is joined
+ * with the parts with the same sub id and, for the other parts, with the
+ * parts of the computation that were not derived. Since the number of
+ * derived states is not known, the parts that were not derived are kept
+ * for the next derived states until the id expires.
+ * Not thread safe.
+ */
+final class JoinWindow {
+
+    private final int numParts;
+    private final int mask;
+
+    // Last id in each slot, kept after the slot is cleared
+    // so that late parts of that id are discarded
+    private final int[] ids;
+    private final boolean[] used;
+    private final boolean[] occupied;
+    // Parts of each slot that were not derived, indexed by the part number
+    private final ComputationState[][] parts;
+    private final int[] received;
+    // Derived parts of each slot by sub id, created on demand
+    private final List<Map<Long, ComputationState[]>> derived;
+    // Derived states of each slot that were joined
+    private final int[] joinedDerived;
+    // Instant when the first part of each slot arrived
+    private final long[] arrivals;
+
+    private int occupiedSlots = 0;
+
+    private volatile long completed = 0;
+    private volatile long expired = 0;
+    private volatile long discarded = 0;
+
+    /**
+     * @param numParts number of parts to join for each id
+     * @param size minimum number of ids in the window, rounded
+     *             up to a power of two
+     */
+    JoinWindow(int numParts, int size) {
+        Preconditions.checkArgument(numParts > 0);
+        Preconditions.checkArgument(size > 0);
+        int slots = Integer.highestOneBit(size);
+        if (slots < size) {
+            slots <<= 1;
+        }
+        this.numParts = numParts;
+        this.mask = slots - 1;
+        this.ids = new int[slots];
+        this.used = new boolean[slots];
+        this.occupied = new boolean[slots];
+        this.parts = new ComputationState[slots][numParts];
+        this.received = new int[slots];
+        this.derived = new ArrayList<>(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            derived.add(null);
+        }
+        this.joinedDerived = new int[slots];
+        this.arrivals = new long[slots];
+    }
+
+    /**
+     * Adds a part to the window
+     * @param part number of the part
+     * @param state state with the part
+     * @param now current instant in nanoseconds
+     * @param onComplete receives all the parts of each tuple that the state completed
+     */
+    void add(int part, ComputationState state, long now, Consumer<ComputationState[]> onComplete) {
+        int id = state.getId();
+        int slot = id & mask;
+        if (used[slot]) {
+            int distance = ids[slot] - id;
+            if (distance > 0 || (distance == 0 && !occupied[slot])) {
+                // The id was already expired or completed
+                discarded++;
+                return;
+            }
+            if (distance < 0 && occupied[slot]) {
+                // Newer id takes the slot
+                if (clear(slot)) {
+                    expired++;
+                }
+            }
+        }
+        if (!occupied[slot]) {
+            used[slot] = true;
+            occupied[slot] = true;
+            occupiedSlots++;
+            ids[slot] = id;
+            arrivals[slot] = now;
+        }
+        if (state.getSubId() != 0) {
+            addDerived(slot, part, state, onComplete);
+            return;
+        }
+        if (parts[slot][part] == null) {
+            received[slot]++;
+        }
+        // A repeated part replaces the previous one
+        parts[slot][part] = state;
+        Map<Long, ComputationState[]> derivedParts = derived.get(slot);
+        if (derivedParts != null && !derivedParts.isEmpty()) {
+            // The part may complete the derived states waiting for it
+            Iterator<ComputationState[]> iterator = derivedParts.values().iterator();
+            while (iterator.hasNext()) {
+                ComputationState[] tuple = iterator.next();
+                if (completeDerived(slot, tuple, onComplete)) {
+                    iterator.remove();
+                }
+            }
+        }
+        else if (received[slot] == numParts && joinedDerived[slot] == 0) {
+            ComputationState[] complete = Arrays.copyOf(parts[slot], numParts);
+            clear(slot);
+            completed++;
+            onComplete.accept(complete);
+        }
+    }
+
+    private void addDerived(
+            int slot,
+            int part,
+            ComputationState state,
+            Consumer<ComputationState[]> onComplete) {
+
+        Map<Long, ComputationState[]> derivedParts = derived.get(slot);
+        if (derivedParts == null) {
+            // Derived states are joined in the order they arrived
+            derivedParts = new LinkedHashMap<>();
+            derived.set(slot, derivedParts);
+        }
+        ComputationState[] tuple = derivedParts.computeIfAbsent(
+                state.getSubId(),
+                subId -> new ComputationState[numParts]);
+        // A repeated part replaces the previous one
+        tuple[part] = state;
+        if (completeDerived(slot, tuple, onComplete)) {
+            derivedParts.remove(state.getSubId());
+        }
+    }
+
+    /**
+     * Joins the derived parts of a sub id if the parts that are
+     * missing were received without being derived
+     * @return true if the tuple was joined and false otherwise
+     */
+    private boolean completeDerived(
+            int slot,
+            ComputationState[] tuple,
+            Consumer<ComputationState[]> onComplete) {
+
+        for (int part = 0; part < numParts; part++) {
+            if (tuple[part] == null && parts[slot][part] == null) {
+                return false;
+            }
+        }
+        ComputationState[] complete = new ComputationState[numParts];
+        for (int part = 0; part < numParts; part++) {
+            complete[part] = tuple[part] != null ? tuple[part] : parts[slot][part];
+        }
+        joinedDerived[slot]++;
+        completed++;
+        onComplete.accept(complete);
+        return true;
+    }
+
+    /**
+     * Expires the ids that are waiting for longer than the timeout
+     * @param now current instant in nanoseconds
+     * @param timeoutNanos maximum time to wait for all the parts
+     * @return number of expired ids
+     */
+    int expire(long now, long timeoutNanos) {
+        int count = 0;
+        for (int slot = 0; slot < ids.length && occupiedSlots > 0; slot++) {
+            if (occupied[slot] && now - arrivals[slot] >= timeoutNanos && clear(slot)) {
+                count++;
+            }
+        }
+        expired += count;
+        return count;
+    }
+
+    boolean isEmpty() {
+        return occupiedSlots == 0;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return number of tuples with all parts joined, which
+     *         may be more than one for ids with derived states
+     */
+    long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return number of ids removed before receiving all the parts
+     */
+    long getExpired() {
+        return expired;
+    }
+
+    /**
+     * @return number of parts received after their id was removed
+     */
+    long getDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * Removes the parts of a slot
+     * @return true if parts were waiting to be joined and false
+     *         if only the parts kept for the derived states remained
+     */
+    private boolean clear(int slot) {
+        Map<Long, ComputationState[]> derivedParts = derived.get(slot);
+        boolean incomplete = joinedDerived[slot] == 0
+                || (derivedParts != null && !derivedParts.isEmpty());
+        occupied[slot] = false;
+        occupiedSlots--;
+        received[slot] = 0;
+        Arrays.fill(parts[slot], null);
+        if (derivedParts != null) {
+            derivedParts.clear();
+        }
+        joinedDerived[slot] = 0;
+        return incomplete;
+    }
+}
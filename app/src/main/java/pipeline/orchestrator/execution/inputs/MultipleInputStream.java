@@ -1,5 +1,7 @@
 package pipeline.orchestrator.execution.inputs;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
@@ -7,31 +9,70 @@ import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
 import pipeline.orchestrator.execution.ComputationState;
 import pipeline.orchestrator.execution.Link;
+import pipeline.orchestrator.execution.LinkListener;
 import pipeline.orchestrator.grpc.messages.DynamicMessageMerger;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
-public class MultipleInputStream implements StageInputStream {
+/**
+ * Input stream that joins the states with the same id from
+ * multiple links, each one with a field of the final message
+ * The states are kept in a window indexed by id until all the
+ * fields arrive, so each id is sent as soon as it is complete,
+ * independently of the other ids. Incomplete ids are expired when
+ * they fall out of the window or wait for longer than the timeout.
+ * States derived by server streaming stages are joined with the states
+ * of their computation that were not derived, as described in the window.
+ */
+public class MultipleInputStream implements StageInputStream, LinkListener {
 
     private final DynamicMessageMerger merger;
-    private final ImmutableMap<String, Link> inputs;
 
-    // Id of the next message to be created
-    private int currentId = 0;
+    // Field names and links, in the same order as the window parts
+    private final ImmutableList<String> fieldNames;
+    private final ImmutableList<Link> links;
 
-    // Map with most recent states for all inputs
-    private final Map<String, ComputationState> mostRecentStates =
-            new HashMap<>();
+    private final JoinWindow window;
+
+    private final long timeoutNanos;
+
+    // One permit for each state put in any of the links
+    // Links are only read by the thread that gets the states
+    private final Semaphore available = new Semaphore(0);
+
+    // Joined states not yet returned
+    private final Deque<ComputationState> joined = new ArrayDeque<>();
+
+    private final Consumer<ComputationState[]> onJoined = parts -> joined.add(merge(parts));
+
+    private long lastExpiration = System.nanoTime();
 
     MultipleInputStream(
             Descriptors.Descriptor descriptor,
-            ImmutableSetMultimap<String, Link> inputs) {
-        this.inputs = ImmutableMap.copyOf(inputs.entries());
+            ImmutableSetMultimap<String, Link> inputs,
+            int joinWindow,
+            int joinTimeoutMs) {
+
+        Preconditions.checkArgument(joinTimeoutMs > 0);
+        ImmutableList.Builder<String> fieldNamesBuilder = ImmutableList.builder();
+        ImmutableList.Builder<Link> linksBuilder = ImmutableList.builder();
+        for (Map.Entry<String, Link> entry : inputs.entries()) {
+            fieldNamesBuilder.add(entry.getKey());
+            linksBuilder.add(entry.getValue());
+        }
+        fieldNames = fieldNamesBuilder.build();
+        links = linksBuilder.build();
+        window = new JoinWindow(links.size(), joinWindow);
+        timeoutNanos = TimeUnit.MILLISECONDS.toNanos(joinTimeoutMs);
         merger = DynamicMessageMerger.newBuilder()
                 .forDescriptor(descriptor)
                 .build();
+        links.forEach(link -> link.registerListener(this));
     }
 
     static boolean canBuildFrom(ImmutableSetMultimap<String, Link> inputs) {
@@ -49,68 +90,90 @@ public class MultipleInputStream implements StageInputStream {
 
     @Override
     public ComputationState get() {
-        ImmutableMap.Builder<String, DynamicMessage> builder =
-                ImmutableMap.builder();
-
-        for (String fieldName : inputs.keySet()) {
-            Optional<ComputationState> optionalComputationState =
-                    tryGetFirstWithId(fieldName, currentId);
-
-            if (optionalComputationState.isPresent()) {
-                ComputationState state = optionalComputationState.get();
-                // We can use this message since is from the state with
-                // the current id
-                if (state.getId() == currentId) {
-                    builder.put(fieldName, state.getMessage());
+        while (joined.isEmpty()) {
+            readLinks();
+            if (!joined.isEmpty()) {
+                break;
+            }
+            expireIncomplete();
+            try {
+                if (window.isEmpty()) {
+                    available.acquire();
                 }
-                // The first message from the given link has a
-                // higher id and so we must return a state with that id or higher
                 else {
-                    currentId = state.getId();
-                    return get();
+                    // Wake up to expire the waiting ids
+                    available.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
                 }
             }
-            else {
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 return null;
             }
         }
-        // Increment Id so that the next message
-        // to be delivered has at least the next id
-        return ComputationState.from(
-                currentId++,
-                merger.merge(builder.build()));
+        return joined.poll();
+    }
+
+    /**
+     * Only signals that a state is available since the
+     * link is read by the thread that gets the states
+     * @param link link with the new state
+     */
+    @Override
+    public void onNewObject(Link link) {
+        available.release();
+    }
+
+    /**
+     * @return number of states with all fields joined
+     */
+    public long getCompletedJoins() {
+        return window.getCompleted();
+    }
+
+    /**
+     * @return number of ids expired before receiving all the fields
+     */
+    public long getExpiredJoins() {
+        return window.getExpired();
     }
 
     /**
-     * Returns the first computation state with an equal or higher id
-     * First checks if there is already a state in the most recent states
-     * @param fieldName the field name for the link to use
-     * @param id id to compare the states to
-     * @return a computational state with a higher or equal id to the provided
+     * @return number of states received after their id was expired
      */
-    private Optional<ComputationState> tryGetFirstWithId(String fieldName, int id) {
-        return Optional.ofNullable(mostRecentStates.get(fieldName))
-                .filter(computationState -> computationState.getId() >= id)
-                .or(() -> takeLinkUntilId(fieldName, id));
+    public long getDiscardedStates() {
+        return window.getDiscarded();
     }
 
     /**
-     * Removes states from the link until a higher or equal id is found
-     * and returns that state updating the most recent states for that field name
-     * @param fieldName the field name for the link to use
-     * @param id id to test
-     * @return the first computational state with a higher or equal id
-     *         provided by the link
+     * Adds all the states in the links to the window
      */
-    private Optional<ComputationState> takeLinkUntilId(String fieldName, int id) {
-        try {
-            ComputationState linkState = inputs.get(fieldName).takeUntil(
-                    computationState -> computationState.getId() >= id);
-            mostRecentStates.put(fieldName, linkState);
-            return Optional.ofNullable(linkState);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return Optional.empty();
+    private void readLinks() {
+        long now = System.nanoTime();
+        for (int part = 0; part < links.size(); part++) {
+            Link link = links.get(part);
+            ComputationState state;
+            while ((state = link.poll()) != null) {
+                window.add(part, state, now, onJoined);
+            }
+        }
+    }
+
+    private void expireIncomplete() {
+        long now = System.nanoTime();
+        // Check at most a few times per timeout
+        if (!window.isEmpty() && now - lastExpiration >= timeoutNanos / 4) {
+            window.expire(now, timeoutNanos);
+            lastExpiration = now;
+        }
+    }
+
+    private ComputationState merge(ComputationState[] parts) {
+        ImmutableMap.Builder<String, DynamicMessage> builder =
+                ImmutableMap.builderWithExpectedSize(parts.length);
+        for (int part = 0; part < parts.length; part++) {
+            builder.put(fieldNames.get(part), parts[part].getMessage());
         }
+        // The joined state keeps the trail of the critical path
+        return ComputationState.join(parts, merger.merge(builder.build()));
     }
 }
@@ -2,6 +2,7 @@ package pipeline.orchestrator.execution.inputs;
 
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.protobuf.Descriptors.Descriptor;
+import pipeline.orchestrator.architecture.StageInformation;
 import pipeline.orchestrator.execution.ComputationState;
 import pipeline.orchestrator.execution.Link;
 
@@ -15,6 +16,28 @@ public interface StageInputStream extends Supplier<ComputationState> {
             Descriptor finalMessageDescriptor,
             ImmutableSetMultimap<String, Link> inputs) {
 
+        return forInputs(
+                finalMessageDescriptor,
+                inputs,
+                StageInformation.DEFAULT_JOIN_WINDOW,
+                StageInformation.DEFAULT_JOIN_TIMEOUT_MS);
+    }
+
+    /**
+     * Builds the input stream for the given inputs
+     * @param finalMessageDescriptor descriptor of the messages to receive
+     * @param inputs links for the stage inputs, by field name
+     * @param joinWindow maximum number of ids waiting to be joined
+     *                   when the inputs are for multiple fields
+     * @param joinTimeoutMs maximum time to wait for all the fields of an id
+     * @return the input stream
+     */
+    static StageInputStream forInputs(
+            Descriptor finalMessageDescriptor,
+            ImmutableSetMultimap<String, Link> inputs,
+            int joinWindow,
+            int joinTimeoutMs) {
+
         if (SourceInputStream.canBuildFrom(inputs)) {
             // No inputs, source node
             return new SourceInputStream(finalMessageDescriptor);
@@ -23,7 +46,11 @@ public interface StageInputStream extends Supplier<ComputationState> {
         } else if (CollectorInputStream.canBuildFrom(inputs)) {
             return new CollectorInputStream(inputs);
         } else if (MultipleInputStream.canBuildFrom(inputs)) {
-            return new MultipleInputStream(finalMessageDescriptor, inputs);
+            return new MultipleInputStream(
+                    finalMessageDescriptor,
+                    inputs,
+                    joinWindow,
+                    joinTimeoutMs);
         } else {
             throw new IllegalArgumentException();
         }
@@ -0,0 +1,69 @@
+package pipeline.orchestrator.execution.outputs;
+
+import pipeline.orchestrator.architecture.OutputOrdering;
+import pipeline.orchestrator.execution.ComputationState;
+
+/**
+ * Output stream for stages that process multiple computation
+ * states concurrently
+ * A position is reserved for each state when it is received
+ * and later completed with the result, possibly from another thread.
+ * The results are sent to the output stream one at a time.
+ */
+public interface ConcurrentOutputStream {
+
+    /**
+     * Reserves the next position in the output
+     * @return the reserved position
+     */
+    long reserve();
+
+    /**
+     * Completes the given position with a computation state
+     * @param position position previously reserved
+     * @param computationState state to send
+     */
+    void complete(long position, ComputationState computationState);
+
+    /**
+     * Releases the given position without sending any state
+     * @param position position previously reserved
+     */
+    void skip(long position);
+
+    /**
+     * Waits for a credit to send a state to the outputs
+     * The credit is held until the state is sent or released
+     * @throws InterruptedException if interrupted while waiting
+     * @see StageOutputStream#acquireCredit()
+     */
+    void acquireCredit() throws InterruptedException;
+
+    /**
+     * Releases a credit for a state that will not be sent
+     * @see StageOutputStream#releaseCredit()
+     */
+    void releaseCredit();
+
+    /**
+     * @param ordering order in which the states are sent
+     * @param outputStream stream to send the states
+     * @param capacity maximum number of credits held by states that
+     *                 were not sent yet
+     * @return concurrent output stream for the given ordering
+     */
+    static ConcurrentOutputStream forOrdering(
+            OutputOrdering ordering,
+            StageOutputStream outputStream,
+            int capacity) {
+
+        switch (ordering) {
+            case ORDERED:
+                return new SequencedOutputStream(outputStream, capacity);
+            case RELAXED:
+                return new UnorderedOutputStream(outputStream, capacity);
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+}
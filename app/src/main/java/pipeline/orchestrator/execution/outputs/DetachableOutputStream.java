@@ -0,0 +1,81 @@
+package pipeline.orchestrator.execution.outputs;
+
+import pipeline.orchestrator.execution.ComputationState;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Output stream that stops sending states once detached
+ * Used by stages that may be replaced while the pipeline is running,
+ * since the responses of their calls still in flight must not reach
+ * the links that are now used by the new stage.
+ */
+public class DetachableOutputStream implements StageOutputStream {
+
+    // Time between checks for the states being sent when detaching
+    private static final long DETACH_POLL_MS = 1;
+
+    private final StageOutputStream outputStream;
+
+    // States being sent, counted without a lock since
+    // detaching is rare and sending is on the hot path
+    private final LongAdder sending = new LongAdder();
+
+    private volatile boolean detached = false;
+
+    public DetachableOutputStream(StageOutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void accept(ComputationState state) {
+        sending.increment();
+        try {
+            if (!detached) {
+                outputStream.accept(state);
+            }
+            else if (outputStream.usesCredits()) {
+                // Credit acquired for the discarded state
+                outputStream.releaseCredit();
+            }
+        }
+        finally {
+            sending.decrement();
+        }
+    }
+
+    @Override
+    public void acquireCredit() throws InterruptedException {
+        outputStream.acquireCredit();
+    }
+
+    @Override
+    public void releaseCredit() {
+        outputStream.releaseCredit();
+    }
+
+    @Override
+    public boolean usesCredits() {
+        return outputStream.usesCredits();
+    }
+
+    /**
+     * Discards the states sent from now on
+     * @param timeout maximum time to wait for the states being sent
+     * @param unit unit of the timeout
+     * @return true if no state is still being sent and false otherwise
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean detach(long timeout, TimeUnit unit) throws InterruptedException {
+        detached = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (sending.sum() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(DETACH_POLL_MS);
+        }
+        return true;
+    }
+}
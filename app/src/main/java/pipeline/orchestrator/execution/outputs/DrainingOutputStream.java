@@ -0,0 +1,139 @@
+package pipeline.orchestrator.execution.outputs;
+
+import com.google.common.base.Preconditions;
+import pipeline.orchestrator.execution.ComputationState;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Base for the concurrent output streams that send the states from
+ * a single drainer thread
+ * Completions only queue the states that are ready under the lock.
+ * The first thread to find no drainer sends the queued states outside
+ * the lock, so a blocked output only holds that thread while the other
+ * completions return immediately.
+ * Queued states keep their credit until they are sent, so that at most
+ * capacity states wait in the stream and the stage still feels the
+ * backpressure of its outputs when reading the next states.
+ */
+abstract class DrainingOutputStream implements ConcurrentOutputStream {
+
+    private final StageOutputStream outputStream;
+
+    // Credits of the states that were not sent yet
+    private final Semaphore unsent;
+
+    // Lock instead of a monitor since the subclasses
+    // keep their own state under the same lock
+    protected final Lock lock = new ReentrantLock();
+
+    // States ready to send in order
+    private final Queue<ComputationState> ready = new ArrayDeque<>();
+
+    // True while a thread is sending the ready states
+    private boolean draining = false;
+
+    DrainingOutputStream(StageOutputStream outputStream, int capacity) {
+        Preconditions.checkNotNull(outputStream);
+        Preconditions.checkArgument(capacity > 0);
+        this.outputStream = outputStream;
+        this.unsent = new Semaphore(capacity);
+    }
+
+    /**
+     * Waits until fewer than capacity states are waiting in the
+     * stream and then for a credit in the outputs
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public void acquireCredit() throws InterruptedException {
+        unsent.acquire();
+        try {
+            outputStream.acquireCredit();
+        }
+        catch (InterruptedException e) {
+            unsent.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void releaseCredit() {
+        outputStream.releaseCredit();
+        unsent.release();
+    }
+
+    /**
+     * Queues a state to send
+     * Must be called while holding the lock
+     * @param computationState state to send
+     */
+    protected void enqueue(ComputationState computationState) {
+        ready.add(computationState);
+    }
+
+    /**
+     * Sends the queued states unless another thread is already
+     * sending them
+     * Must be called without holding the lock
+     */
+    protected void drain() {
+        lock.lock();
+        try {
+            if (draining) {
+                // The current drainer sends the new states
+                return;
+            }
+            draining = true;
+        }
+        finally {
+            lock.unlock();
+        }
+        ComputationState next = null;
+        try {
+            while ((next = pollReady()) != null) {
+                try {
+                    outputStream.accept(next);
+                }
+                finally {
+                    unsent.release();
+                }
+            }
+        }
+        finally {
+            if (next != null) {
+                // Failed to send, the next completion
+                // sends the remaining states
+                stopDraining();
+            }
+        }
+    }
+
+    private ComputationState pollReady() {
+        lock.lock();
+        try {
+            ComputationState next = ready.poll();
+            if (next == null) {
+                draining = false;
+            }
+            return next;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void stopDraining() {
+        lock.lock();
+        try {
+            draining = false;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
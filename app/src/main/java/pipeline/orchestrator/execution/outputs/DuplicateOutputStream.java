@@ -37,6 +37,21 @@ public class DuplicateOutputStream implements StageOutputStream {
         }
     }
 
+    @Override
+    public void acquireCredit() throws InterruptedException {
+        Links.acquireCredits(outputs);
+    }
+
+    @Override
+    public void releaseCredit() {
+        outputs.forEach(Link::releaseCredit);
+    }
+
+    @Override
+    public boolean usesCredits() {
+        return outputs.stream().anyMatch(Link::usesCredits);
+    }
+
     @Override
     public String toString() {
         return "DuplicateOutputStream {"
@@ -0,0 +1,35 @@
+package pipeline.orchestrator.execution.outputs;
+
+import pipeline.orchestrator.execution.Link;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Utility methods for the output links of a stream
+ */
+final class Links {
+
+    private Links() {}
+
+    /**
+     * Acquires a credit in each link, always in the same order
+     * If interrupted, the credits already acquired are released
+     * @param links links to acquire the credits
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static void acquireCredits(Collection<Link> links) throws InterruptedException {
+        List<Link> acquired = new ArrayList<>(links.size());
+        try {
+            for (Link link : links) {
+                link.acquireCredit();
+                acquired.add(link);
+            }
+        }
+        catch (InterruptedException e) {
+            acquired.forEach(Link::releaseCredit);
+            throw e;
+        }
+    }
+}
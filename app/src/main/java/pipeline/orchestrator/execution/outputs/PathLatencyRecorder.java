@@ -0,0 +1,150 @@
+package pipeline.orchestrator.execution.outputs;
+
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.TimingTrail;
+import pipeline.orchestrator.metrics.Histogram;
+import pipeline.orchestrator.metrics.MetricsRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the timing trails of the computations that reach the sinks
+ * Computations are grouped by the path of stages they went through.
+ * For each path the end to end latency is recorded, along with the
+ * time waiting in the links before each hop and the time processing
+ * in each hop, so that a high latency percentile of a path can be
+ * attributed to a specific link or stage.
+ * The number of paths that are tracked is bounded. The latency of the
+ * computations of any other path is recorded under the "other" path,
+ * without the histograms of the hops.
+ */
+final class PathLatencyRecorder {
+
+    // Maximum number of paths with their own histograms
+    static final int MAX_PATHS = 64;
+
+    static final String OTHER_PATH = "other";
+
+    private static final PathLatencyRecorder INSTANCE =
+            new PathLatencyRecorder(MetricsRegistry.getInstance());
+
+    private final MetricsRegistry registry;
+
+    // Histograms of each path, indexed by the path hash
+    private final Map<Integer, PathMetrics> paths = new ConcurrentHashMap<>();
+
+    // Latency of the paths over the maximum, registered when first needed
+    private volatile Histogram otherLatency = null;
+
+    PathLatencyRecorder(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    static PathLatencyRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the trail of a state that reached a sink
+     * States without a trail are ignored
+     * @param state state that reached the sink
+     * @param now current instant in nanoseconds
+     */
+    void record(ComputationState state, long now) {
+        TimingTrail trail = state.getTrail();
+        if (trail == null) {
+            return;
+        }
+        PathMetrics metrics = paths.get(trail.getPathHash());
+        if (metrics == null) {
+            // Concurrent sinks may add a few paths over the maximum
+            if (paths.size() >= MAX_PATHS) {
+                recordOther(trail, now);
+                return;
+            }
+            metrics = paths.computeIfAbsent(
+                    trail.getPathHash(),
+                    hash -> new PathMetrics(trail));
+        }
+        if (!metrics.matches(trail)) {
+            // Different paths with the same hash should be rare
+            // so the histograms are looked up in the registry
+            metrics = new PathMetrics(trail);
+        }
+        metrics.record(trail, now);
+    }
+
+    private void recordOther(TimingTrail trail, long now) {
+        Histogram histogram = otherLatency;
+        if (histogram == null) {
+            // The registry returns the same histogram to concurrent sinks
+            histogram = latencyHistogram(registry, OTHER_PATH);
+            otherLatency = histogram;
+        }
+        histogram.record(now - trail.getSourceNanos());
+    }
+
+    private static Histogram latencyHistogram(MetricsRegistry registry, String path) {
+        return registry.histogram(
+                "pipeline_path_latency_seconds",
+                "Time from the source of a computation until it reaches a sink",
+                "path", path);
+    }
+
+    private final class PathMetrics {
+
+        // Stage names, from the source to the last hop
+        private final String[] stageNames;
+
+        private final Histogram latency;
+        private final Histogram[] queue;
+        private final Histogram[] processing;
+
+        private PathMetrics(TimingTrail trail) {
+            String path = trail.getPath();
+            int hops = trail.getHops();
+            stageNames = new String[hops];
+            queue = new Histogram[hops];
+            processing = new Histogram[hops];
+            latency = latencyHistogram(registry, path);
+            for (int i = 0; i < hops; i++) {
+                String stage = trail.getStageName(i);
+                String position = String.valueOf(i);
+                stageNames[i] = stage;
+                queue[i] = registry.histogram(
+                        "pipeline_path_hop_queue_seconds",
+                        "Time that the computations of a path wait in the links before a stage",
+                        "path", path,
+                        "hop", position,
+                        "stage", stage);
+                processing[i] = registry.histogram(
+                        "pipeline_path_hop_processing_seconds",
+                        "Time that a stage takes to process the computations of a path",
+                        "path", path,
+                        "hop", position,
+                        "stage", stage);
+            }
+        }
+
+        private boolean matches(TimingTrail trail) {
+            if (trail.getHops() != stageNames.length) {
+                return false;
+            }
+            for (int i = 0; i < stageNames.length; i++) {
+                if (!stageNames[i].equals(trail.getStageName(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void record(TimingTrail trail, long now) {
+            for (int i = 0; i < stageNames.length; i++) {
+                queue[i].record(trail.getQueueNanos(i));
+                processing[i].record(trail.getProcessingNanos(i));
+            }
+            latency.record(now - trail.getSourceNanos());
+        }
+    }
+}
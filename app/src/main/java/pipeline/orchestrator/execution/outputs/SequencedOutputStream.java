@@ -0,0 +1,84 @@
+package pipeline.orchestrator.execution.outputs;
+
+import com.google.common.base.Preconditions;
+import pipeline.orchestrator.execution.ComputationState;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Output stream for stages with multiple requests in flight
+ * Responses may complete in any order, but are only sent to the
+ * output stream in the order in which the positions were reserved.
+ * Since the stage reserves a position for each computation state as
+ * it is received, the states leave the stage ordered by their id
+ * as they arrived, keeping the downstream merge semantics.
+ */
+class SequencedOutputStream extends DrainingOutputStream {
+
+    // Next position to give to a new computation state
+    private final AtomicLong nextReserved = new AtomicLong();
+
+    // Next position to queue for the output stream
+    private long nextEmitted = 0;
+
+    // Completed positions waiting for the previous ones
+    // An empty optional means that nothing should be sent
+    private final Map<Long, Optional<ComputationState>> completed = new HashMap<>();
+
+    SequencedOutputStream(StageOutputStream outputStream, int capacity) {
+        super(outputStream, capacity);
+    }
+
+    @Override
+    public long reserve() {
+        return nextReserved.getAndIncrement();
+    }
+
+    /**
+     * Completes the given position with a computation state
+     * The state is sent when all previous positions are completed
+     * @param position position previously reserved
+     * @param computationState state to send
+     */
+    @Override
+    public void complete(long position, ComputationState computationState) {
+        Preconditions.checkNotNull(computationState);
+        release(position, Optional.of(computationState));
+    }
+
+    /**
+     * Releases the given position without sending any state
+     * so that the following states are not held back
+     * @param position position previously reserved
+     */
+    @Override
+    public void skip(long position) {
+        release(position, Optional.empty());
+    }
+
+    private void release(
+            long position,
+            Optional<ComputationState> computationState) {
+
+        lock.lock();
+        try {
+            Preconditions.checkArgument(position >= nextEmitted);
+            Preconditions.checkArgument(position < nextReserved.get());
+            completed.put(position, computationState);
+            // Queue all consecutive completed states while holding
+            // the lock so the drainer always sends them in order
+            Optional<ComputationState> next;
+            while ((next = completed.remove(nextEmitted)) != null) {
+                nextEmitted++;
+                next.ifPresent(this::enqueue);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        drain();
+    }
+}
@@ -22,6 +22,21 @@ class SingleOutputStream implements StageOutputStream {
         }
     }
 
+    @Override
+    public void acquireCredit() throws InterruptedException {
+        output.acquireCredit();
+    }
+
+    @Override
+    public void releaseCredit() {
+        output.releaseCredit();
+    }
+
+    @Override
+    public boolean usesCredits() {
+        return output.usesCredits();
+    }
+
     static boolean canBuildFrom(
             ImmutableSetMultimap<String, Link> outputs) {
 
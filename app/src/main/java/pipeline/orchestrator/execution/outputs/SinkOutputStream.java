@@ -6,6 +6,16 @@ import pipeline.orchestrator.execution.Link;
 
 class SinkOutputStream implements StageOutputStream {
 
+    private final PathLatencyRecorder recorder;
+
+    SinkOutputStream() {
+        this(PathLatencyRecorder.getInstance());
+    }
+
+    SinkOutputStream(PathLatencyRecorder recorder) {
+        this.recorder = recorder;
+    }
+
     static boolean canBuildFrom(
             ImmutableSetMultimap<String, Link> outputs) {
         return outputs.isEmpty();
@@ -13,6 +23,7 @@ class SinkOutputStream implements StageOutputStream {
 
     @Override
     public void accept(ComputationState state) {
-        // Do nothing, just drop message
+        // Computation ends here, so only its latency is recorded
+        recorder.record(state, System.nanoTime());
     }
 }
@@ -35,6 +35,21 @@ class SplitterOutputStream implements StageOutputStream {
                 && outputs.entries().size() == keys.size();
     }
 
+    @Override
+    public void acquireCredit() throws InterruptedException {
+        Links.acquireCredits(outputs.values());
+    }
+
+    @Override
+    public void releaseCredit() {
+        outputs.values().forEach(Link::releaseCredit);
+    }
+
+    @Override
+    public boolean usesCredits() {
+        return outputs.values().stream().anyMatch(Link::usesCredits);
+    }
+
     @Override
     public void accept(ComputationState computationState) {
         for (Map.Entry<String, Link> pair : outputs.entries()) {
@@ -9,6 +9,33 @@ import java.util.function.Consumer;
 
 public interface StageOutputStream extends Consumer<ComputationState> {
 
+    /**
+     * Waits for a credit to send one state in each of the output links
+     * Stages that acquire the credit before reading or producing a state
+     * never wait for space in links with the credit policy. The credit
+     * is used when the state is accepted or must be released otherwise.
+     * @throws InterruptedException if interrupted while waiting, in
+     *                              which case no credit is kept
+     */
+    default void acquireCredit() throws InterruptedException {
+        // No links to wait for
+    }
+
+    /**
+     * Releases the credit acquired for a state that will not be sent
+     */
+    default void releaseCredit() {
+        // No links to wait for
+    }
+
+    /**
+     * @return true if any output link grants credits, in which case
+     *         acquiring a credit may wait for the downstream stages
+     */
+    default boolean usesCredits() {
+        return false;
+    }
+
     static StageOutputStream forOutputs(
             Descriptor receivedMessageDescriptor,
             ImmutableSetMultimap<String, Link> outputs) {
@@ -0,0 +1,44 @@
+package pipeline.orchestrator.execution.outputs;
+
+import com.google.common.base.Preconditions;
+import pipeline.orchestrator.execution.ComputationState;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Output stream that sends the results as soon as they
+ * are completed, without waiting for the previous positions
+ */
+class UnorderedOutputStream extends DrainingOutputStream {
+
+    private final AtomicLong nextReserved = new AtomicLong();
+
+    UnorderedOutputStream(StageOutputStream outputStream, int capacity) {
+        super(outputStream, capacity);
+    }
+
+    @Override
+    public long reserve() {
+        return nextReserved.getAndIncrement();
+    }
+
+    @Override
+    public void complete(long position, ComputationState computationState) {
+        Preconditions.checkNotNull(computationState);
+        // Output streams are not thread safe so
+        // the drainer sends one result at a time
+        lock.lock();
+        try {
+            enqueue(computationState);
+        }
+        finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    @Override
+    public void skip(long position) {
+        // Nothing to do since no result waits for this position
+    }
+}
@@ -0,0 +1,37 @@
+package pipeline.orchestrator.execution.scheduling;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Scheduler that executes each task in a platform thread from a pool
+ * Threads are renamed after the task while they execute it
+ */
+class PlatformStageScheduler implements StageScheduler {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Override
+    public void schedule(String name, Runnable task) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkNotNull(task);
+        executor.execute(() -> {
+            Thread thread = Thread.currentThread();
+            String poolName = thread.getName();
+            thread.setName(name);
+            try {
+                task.run();
+            }
+            finally {
+                thread.setName(poolName);
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,44 @@
+package pipeline.orchestrator.execution.scheduling;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Types of threads that can execute the stages
+ */
+public enum SchedulerType {
+
+    /**
+     * Stages run in a pool of platform threads
+     */
+    PLATFORM("platform"),
+
+    /**
+     * Stages run in virtual threads if the JVM supports them
+     */
+    VIRTUAL("virtual");
+
+    private final String configName;
+
+    SchedulerType(String configName) {
+        this.configName = configName;
+    }
+
+    /**
+     * @return name of the scheduler type in the configuration
+     */
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Finds the scheduler type with the given configuration name
+     * @param configName name of the scheduler type in the configuration
+     * @return the type with the given name or empty if no such type exists
+     */
+    public static Optional<SchedulerType> fromConfigName(String configName) {
+        return Arrays.stream(values())
+                .filter(type -> type.configName.equalsIgnoreCase(configName))
+                .findAny();
+    }
+}
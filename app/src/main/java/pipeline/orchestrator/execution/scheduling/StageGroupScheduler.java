@@ -0,0 +1,107 @@
+package pipeline.orchestrator.execution.scheduling;
+
+import com.google.common.base.Preconditions;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler for the tasks of a single stage
+ * The tasks are executed by a parent scheduler shared by all the
+ * stages, but can be interrupted without affecting the tasks of
+ * the other stages, so that a stage can be replaced while the
+ * pipeline is running.
+ */
+public class StageGroupScheduler implements StageScheduler {
+
+    private final StageScheduler parent;
+
+    // Threads executing the tasks, only interrupted
+    // while they execute a task of this group
+    private final Set<Thread> running = new HashSet<>();
+
+    // Tasks scheduled and not yet finished
+    private int pending = 0;
+
+    private boolean shutdown = false;
+
+    StageGroupScheduler(StageScheduler parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public void schedule(String name, Runnable task) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkNotNull(task);
+        synchronized (this) {
+            Preconditions.checkState(!shutdown);
+            pending++;
+        }
+        try {
+            parent.schedule(name, () -> {
+                // Not executed if the group was shutdown before it started
+                if (taskStarted()) {
+                    try {
+                        task.run();
+                    }
+                    finally {
+                        taskFinished();
+                    }
+                }
+                else {
+                    taskFinished();
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            // Rejected by the parent scheduler
+            taskFinished();
+            throw e;
+        }
+    }
+
+    /**
+     * Interrupts the tasks of this group and rejects new ones
+     */
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        running.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Waits for all tasks of this group to finish
+     * @param timeout maximum time to wait
+     * @param unit unit of the timeout
+     * @return true if all tasks finished and false otherwise
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    private synchronized boolean taskStarted() {
+        if (shutdown) {
+            return false;
+        }
+        running.add(Thread.currentThread());
+        return true;
+    }
+
+    private synchronized void taskFinished() {
+        running.remove(Thread.currentThread());
+        pending--;
+        notifyAll();
+    }
+}
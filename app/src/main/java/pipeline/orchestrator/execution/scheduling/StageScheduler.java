@@ -0,0 +1,20 @@
+package pipeline.orchestrator.execution.scheduling;
+
+/**
+ * Executes the long running tasks of the stages, such as the
+ * stages themselves or their additional workers
+ */
+public interface StageScheduler {
+
+    /**
+     * Starts the execution of the given task
+     * @param name name of the task, used to name its thread
+     * @param task task to execute
+     */
+    void schedule(String name, Runnable task);
+
+    /**
+     * Interrupts all running tasks and rejects new ones
+     */
+    void shutdown();
+}
@@ -0,0 +1,54 @@
+package pipeline.orchestrator.execution.scheduling;
+
+import com.google.common.base.Preconditions;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Class to create the stage schedulers
+ */
+public class StageSchedulers {
+
+    private static final Logger LOGGER = LogManager.getLogger(StageSchedulers.class);
+
+    private StageSchedulers() {}
+
+    /**
+     * Creates a scheduler of the given type
+     * Falls back to platform threads if virtual threads
+     * are requested but not supported
+     * @param type type of the scheduler
+     * @return the new scheduler
+     */
+    public static StageScheduler forType(SchedulerType type) {
+        switch (type) {
+            case PLATFORM:
+                return platform();
+            case VIRTUAL:
+                return VirtualStageScheduler.create()
+                        .orElseGet(() -> {
+                            LOGGER.warn("Virtual threads not supported: Using platform threads");
+                            return platform();
+                        });
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Creates a scheduler for the tasks of a single stage
+     * @param parent scheduler that executes the tasks
+     * @return the new scheduler
+     */
+    public static StageGroupScheduler group(StageScheduler parent) {
+        Preconditions.checkNotNull(parent);
+        return new StageGroupScheduler(parent);
+    }
+
+    /**
+     * @return a new scheduler that uses a pool of platform threads
+     */
+    public static StageScheduler platform() {
+        return new PlatformStageScheduler();
+    }
+}
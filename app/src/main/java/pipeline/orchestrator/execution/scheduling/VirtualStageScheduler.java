@@ -0,0 +1,96 @@
+package pipeline.orchestrator.execution.scheduling;
+
+import com.google.common.base.Preconditions;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scheduler that executes each task in a new virtual thread
+ * Virtual threads are accessed through reflection since the project
+ * targets a JDK version without them. Use {@link #create()} to check
+ * if the running JVM supports them.
+ */
+class VirtualStageScheduler implements StageScheduler {
+
+    // Thread.ofVirtual()
+    private final Method ofVirtual;
+
+    // Thread.Builder#name(String)
+    private final Method name;
+
+    // Thread.Builder#unstarted(Runnable)
+    private final Method unstarted;
+
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean shutdown = false;
+
+    private VirtualStageScheduler(Method ofVirtual, Method name, Method unstarted) {
+        this.ofVirtual = ofVirtual;
+        this.name = name;
+        this.unstarted = unstarted;
+    }
+
+    /**
+     * @return a new scheduler or empty if the JVM
+     *         does not support virtual threads
+     */
+    static Optional<StageScheduler> create() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            // The methods exist but fail when virtual threads
+            // are a disabled preview feature of the JVM
+            ofVirtual.invoke(null);
+            return Optional.of(new VirtualStageScheduler(
+                    ofVirtual,
+                    builderClass.getMethod("name", String.class),
+                    builderClass.getMethod("unstarted", Runnable.class)));
+        }
+        catch (ClassNotFoundException
+                | NoSuchMethodException
+                | IllegalAccessException
+                | InvocationTargetException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void schedule(String name, Runnable task) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkNotNull(task);
+        Preconditions.checkState(!shutdown);
+        Thread thread;
+        try {
+            Object builder = this.name.invoke(ofVirtual.invoke(null), name);
+            thread = (Thread) unstarted.invoke(builder, (Runnable) () -> {
+                try {
+                    task.run();
+                }
+                finally {
+                    running.remove(Thread.currentThread());
+                }
+            });
+        }
+        catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Unable to create virtual thread", e);
+        }
+        // Registered before starting so that a concurrent shutdown
+        // either sees the thread or is seen by the check below
+        running.add(thread);
+        thread.start();
+        if (shutdown) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        running.forEach(Thread::interrupt);
+    }
+}
@@ -5,16 +5,25 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.eventbus.EventBus;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
 import com.google.protobuf.DynamicMessage;
 import io.grpc.Channel;
 import io.grpc.MethodDescriptor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import pipeline.orchestrator.architecture.StageInformation;
 import pipeline.orchestrator.execution.Link;
 import pipeline.orchestrator.execution.inputs.StageInputStream;
+import pipeline.orchestrator.execution.outputs.DetachableOutputStream;
 import pipeline.orchestrator.execution.outputs.StageOutputStream;
 import pipeline.orchestrator.grpc.methods.FullMethodDescription;
 import pipeline.orchestrator.grpc.methods.MethodDescriptors;
+import pipeline.orchestrator.metrics.MetricsRegistry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class for an abstract pipeline stage
@@ -36,6 +45,15 @@ public abstract class AbstractPipelineStage implements Runnable {
 
     private final EventBus eventBus;
 
+    private final StageMetrics metrics;
+
+    // Output streams built for the stage, detached if it is replaced
+    private final List<DetachableOutputStream> outputStreams = new CopyOnWriteArrayList<>();
+
+    // Configuration for the join of multiple input fields
+    private int joinWindow = StageInformation.DEFAULT_JOIN_WINDOW;
+    private int joinTimeoutMs = StageInformation.DEFAULT_JOIN_TIMEOUT_MS;
+
     // Variable to check if a method that implies that the stage is
     // running was called and so any configuration commands should fail
     private boolean setupComplete = false;
@@ -50,6 +68,7 @@ public abstract class AbstractPipelineStage implements Runnable {
         this.channel = channel;
         this.fullMethodDescription = fullMethodDescription;
         this.eventBus = eventBus;
+        this.metrics = new StageMetrics(stageName, MetricsRegistry.getInstance());
 
         if (logger.isInfoEnabled()) {
             logger.info(
@@ -108,6 +127,48 @@ public abstract class AbstractPipelineStage implements Runnable {
         outputs.put(fieldName, link);
     }
 
+    /**
+     * Configures the join of the inputs when the stage
+     * receives multiple fields
+     * @param joinWindow maximum number of ids waiting to be joined
+     * @param joinTimeoutMs maximum time to wait for all the fields of an id
+     */
+    void configureJoin(int joinWindow, int joinTimeoutMs) {
+        Preconditions.checkState(!setupComplete);
+        Preconditions.checkArgument(joinWindow > 0);
+        Preconditions.checkArgument(joinTimeoutMs > 0);
+        this.joinWindow = joinWindow;
+        this.joinTimeoutMs = joinTimeoutMs;
+    }
+
+    /**
+     * Stages with several threads serialize the sends with a lock
+     * or a single drainer, so they send from one thread at a time
+     * @return maximum number of threads of this stage that
+     *         send states to the output links concurrently
+     */
+    int getOutputThreads() {
+        return 1;
+    }
+
+    /**
+     * Stages with several workers serialize the reads with a lock,
+     * so they receive from one thread at a time
+     * @return maximum number of threads of this stage that
+     *         receive states from the input links concurrently
+     */
+    int getInputThreads() {
+        return 1;
+    }
+
+    /**
+     * @return maximum number of states derived from each received
+     *         state, or zero if the stage does not derive states
+     */
+    int getMaxFanOut() {
+        return 0;
+    }
+
     protected Channel getChannel() {
         return channel;
     }
@@ -120,22 +181,79 @@ public abstract class AbstractPipelineStage implements Runnable {
         return MethodDescriptors.fromDescription(fullMethodDescription);
     }
 
+    /**
+     * Builds the method descriptor for calls with the serialized messages
+     * @return the method descriptor
+     */
+    protected MethodDescriptor<ByteString, ByteString> buildRawGrpcMethodDescriptor() {
+        return MethodDescriptors.rawFromDescription(fullMethodDescription);
+    }
+
     protected StageInputStream getStageInputStream() {
+        return getStageInputStream(
+                fullMethodDescription.getMethodDescriptor().getInputType());
+    }
+
+    /**
+     * Builds the input stream for messages with a type
+     * other than the method input type
+     * @param descriptor descriptor of the messages to receive
+     * @return the input stream
+     */
+    protected StageInputStream getStageInputStream(Descriptor descriptor) {
         logger.trace("Stage '{}': Building Input Stream", name);
 
         setupComplete = true;
-        return StageInputStream.forInputs(
-                fullMethodDescription.getMethodDescriptor().getInputType(),
-                ImmutableSetMultimap.copyOf(inputs));
+        return metrics.meter(StageInputStream.forInputs(
+                descriptor,
+                ImmutableSetMultimap.copyOf(inputs),
+                joinWindow,
+                joinTimeoutMs));
     }
 
     protected StageOutputStream getStageOutputStream() {
+        return getStageOutputStream(
+                fullMethodDescription.getMethodDescriptor().getOutputType());
+    }
+
+    /**
+     * Builds the output stream for messages with a type
+     * other than the method output type
+     * @param descriptor descriptor of the messages to send
+     * @return the output stream
+     */
+    protected StageOutputStream getStageOutputStream(Descriptor descriptor) {
         logger.trace("Stage '{}': Building Output Stream", name);
 
         setupComplete = true;
-        return StageOutputStream.forOutputs(
-                fullMethodDescription.getMethodDescriptor().getOutputType(),
-                ImmutableSetMultimap.copyOf(outputs));
+        DetachableOutputStream outputStream = new DetachableOutputStream(
+                StageOutputStream.forOutputs(descriptor, ImmutableSetMultimap.copyOf(outputs)));
+        outputStreams.add(outputStream);
+        return metrics.meter(outputStream);
+    }
+
+    /**
+     * Stops the stage from sending states to its output links
+     * Should be called after the stage finished when it is replaced
+     * while the pipeline is running, since the responses of the calls
+     * still in flight would be sent to the links of the new stage
+     * @param timeout maximum time to wait for the states being sent
+     * @param unit unit of the timeout
+     * @return true if no state is still being sent and false otherwise
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean detachOutputs(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean detached = true;
+        for (DetachableOutputStream outputStream : outputStreams) {
+            long remaining = Math.max(deadline - System.nanoTime(), 0);
+            detached &= outputStream.detach(remaining, TimeUnit.NANOSECONDS);
+        }
+        return detached;
+    }
+
+    StageMetrics getMetrics() {
+        return metrics;
     }
 
     protected Logger getLogger() {
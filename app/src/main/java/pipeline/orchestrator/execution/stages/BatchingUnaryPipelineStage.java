@@ -0,0 +1,387 @@
+package pipeline.orchestrator.execution.stages;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.DynamicMessage;
+import io.grpc.Channel;
+import io.grpc.StatusRuntimeException;
+import pipeline.orchestrator.architecture.OutputOrdering;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.inputs.StageInputStream;
+import pipeline.orchestrator.execution.outputs.ConcurrentOutputStream;
+import pipeline.orchestrator.execution.scheduling.StageScheduler;
+import pipeline.orchestrator.execution.stages.events.UnavailableServiceEvent;
+import pipeline.orchestrator.grpc.messages.DynamicMessageBatcher;
+import pipeline.orchestrator.grpc.methods.FullMethodDescription;
+import pipeline.orchestrator.grpc.methods.UnaryServiceMethodInvoker;
+import pipeline.orchestrator.grpc.utils.StatusRuntimeExceptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stage that executes an Unary Grpc Method with batches of states
+ * The request and response messages must each have a single repeated
+ * message field. The stage receives states with the type of the request
+ * field, packs up to a maximum number of them in a request, waiting at most
+ * a given time for the batch to fill, and sends each message of the
+ * response field to the outputs with the id of the respective state.
+ */
+public class BatchingUnaryPipelineStage extends AbstractPipelineStage {
+
+    private final UnaryServiceMethodInvoker<DynamicMessage, DynamicMessage> invoker;
+
+    private final DynamicMessageBatcher batcher;
+
+    private final int batchSize;
+    private final long batchTimeoutNanos;
+
+    // Maximum batch requests waiting for a response
+    private final int maxInFlight;
+
+    private final OutputOrdering outputOrdering;
+
+    // Scheduler for the thread that reads the inputs
+    private final StageScheduler scheduler;
+
+    // States read from the inputs waiting to be batched
+    private final BlockingQueue<ComputationState> pending;
+
+    private final PauseControl pauseControl = new PauseControl();
+
+    private BatchingUnaryPipelineStage(
+            String stageName,
+            Channel channel,
+            FullMethodDescription fullMethodDescription,
+            EventBus eventBus,
+            int batchSize,
+            int batchTimeoutMs,
+            int maxInFlight,
+            OutputOrdering outputOrdering,
+            StageScheduler scheduler) {
+
+        super(stageName,  channel, fullMethodDescription, eventBus);
+        Preconditions.checkArgument(batchSize > 0);
+        Preconditions.checkArgument(batchTimeoutMs > 0);
+        Preconditions.checkArgument(maxInFlight > 0);
+        Preconditions.checkNotNull(outputOrdering);
+        Preconditions.checkNotNull(scheduler);
+        invoker = UnaryServiceMethodInvoker.<DynamicMessage, DynamicMessage>newBuilder()
+                .forChannel(getChannel())
+                .forMethod(buildGrpcMethodDescriptor())
+                .build();
+        batcher = DynamicMessageBatcher.newBuilder()
+                .forRequestDescriptor(getFullMethodDescription().getMethodDescriptor().getInputType())
+                .forResponseDescriptor(getFullMethodDescription().getMethodDescriptor().getOutputType())
+                .build();
+        this.batchSize = batchSize;
+        this.batchTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(batchTimeoutMs);
+        this.maxInFlight = maxInFlight;
+        this.outputOrdering = outputOrdering;
+        this.scheduler = scheduler;
+        this.pending = new ArrayBlockingQueue<>(batchSize);
+    }
+
+    @Override
+    public void run() {
+        // Links carry the messages inside the batches
+        StageInputStream inputStream = getStageInputStream(
+                batcher.getRequestItemDescriptor());
+        ConcurrentOutputStream outputStream = ConcurrentOutputStream.forOrdering(
+                outputOrdering,
+                getStageOutputStream(batcher.getResponseItemDescriptor()),
+                // States in flight and in the next batch
+                (maxInFlight + 1) * batchSize);
+
+        getLogger().debug(
+                "Stage '{}': Running with batches of {}",
+                getName(),
+                batchSize);
+
+        // Inputs are read in another thread so that
+        // this thread can wait with a timeout
+        scheduler.schedule(
+                getName() + "-batch-reader",
+                () -> readInputs(inputStream, outputStream));
+
+        // Permits for the requests that can be waiting for a response
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        // Run forever until finished
+        while (true) {
+
+            waitPaused();
+
+            // Check if finished while paused
+            if (isFinished()) {
+                break;
+            }
+
+            // Wait for a response if the maximum
+            // number of requests are in flight
+            try {
+                inFlight.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pause();
+                continue;
+            }
+
+            try {
+                sendBatch(collectBatch(), outputStream, inFlight);
+            }
+            catch (InterruptedException e) {
+                // Interrupted while waiting for the inputs
+                inFlight.release();
+                Thread.currentThread().interrupt();
+            }
+
+            if (Thread.currentThread().isInterrupted()) {
+                pause();
+            }
+        }
+        getLogger().info("Stage '{}': Processing finished", getName());
+    }
+
+    @Override
+    public void resume() {
+        getLogger().trace("Stage '{}': Received resume signal", getName());
+        if (!pauseControl.resume()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not resumed (already finished)",
+                    getName());
+        }
+    }
+
+    @Override
+    public void pause() {
+        getLogger().trace("Stage '{}': Received pause signal", getName());
+        if (!pauseControl.pause()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not paused (already finished)",
+                    getName());
+        }
+    }
+
+    @Override
+    public void finish() {
+        getLogger().trace("Stage '{}': Received finish signal", getName());
+        pauseControl.finish();
+    }
+
+    /**
+     * Returns a builder for batching unary pipeline stages
+     * @return the new builder
+     */
+    public static StageBuilder<BatchingUnaryPipelineStage> newBuilder() {
+        return new Builder();
+    }
+
+    private void waitPaused() {
+        if (pauseControl.isPaused()) {
+            getLogger().trace("Stage '{}': Waiting", getName());
+        }
+        pauseControl.awaitResumed();
+    }
+
+    private boolean isFinished() {
+        return pauseControl.isFinished();
+    }
+
+    private void readInputs(
+            StageInputStream inputStream,
+            ConcurrentOutputStream outputStream) {
+
+        while (true) {
+            // Stop reading while paused so that
+            // no states are taken from the inputs
+            waitPaused();
+            if (isFinished()) {
+                break;
+            }
+            // Each state read has space in the outputs for its result
+            try {
+                outputStream.acquireCredit();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            ComputationState state = inputStream.get();
+            if (state == null) {
+                // Interrupted while waiting for the input
+                // Only happens when the stage is finishing
+                outputStream.releaseCredit();
+                break;
+            }
+            try {
+                pending.put(state);
+            }
+            catch (InterruptedException e) {
+                outputStream.releaseCredit();
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Waits for the first state and then for up to the batch
+     * size states or until the batch timeout expires
+     * @return the states to send in the batch
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private List<ComputationState> collectBatch() throws InterruptedException {
+        List<ComputationState> batch = new ArrayList<>(batchSize);
+        batch.add(pending.take());
+        long deadline = System.nanoTime() + batchTimeoutNanos;
+        while (batch.size() < batchSize) {
+            // Take the states that are already available
+            if (pending.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            ComputationState state;
+            if (remaining <= 0
+                    || (state = pending.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                break;
+            }
+            batch.add(state);
+        }
+        return batch;
+    }
+
+    private void sendBatch(
+            List<ComputationState> batch,
+            ConcurrentOutputStream outputStream,
+            Semaphore inFlight) {
+
+        long[] positions = new long[batch.size()];
+        List<DynamicMessage> messages = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            positions[i] = outputStream.reserve();
+            messages.add(batch.get(i).getMessage());
+        }
+
+        getLogger().trace(
+                "Stage '{}': Sending batch with {} states",
+                getName(),
+                batch.size());
+
+        long start = getMetrics().startCall();
+        ListenableFuture<DynamicMessage> response =
+                invoker.futureCall(batcher.batch(messages));
+
+        Futures.addCallback(
+                response,
+                new FutureCallback<>() {
+                    @Override
+                    public void onSuccess(DynamicMessage result) {
+                        long end = getMetrics().callCompleted(start);
+                        completeBatch(batch, positions, result, start, end, outputStream);
+                        inFlight.release();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        getMetrics().callFailed(start);
+                        for (long position : positions) {
+                            outputStream.skip(position);
+                            outputStream.releaseCredit();
+                        }
+                        inFlight.release();
+                        handleCallFailure(t);
+                    }
+                },
+                MoreExecutors.directExecutor());
+    }
+
+    private void completeBatch(
+            List<ComputationState> batch,
+            long[] positions,
+            DynamicMessage response,
+            long start,
+            long end,
+            ConcurrentOutputStream outputStream) {
+
+        ImmutableList<DynamicMessage> results = batcher.unbatch(response);
+        if (results.size() != batch.size()) {
+            // Unable to match the results with the states
+            getLogger().error(
+                    "Stage '{}': Batch response has {} messages but the request had {}",
+                    getName(),
+                    results.size(),
+                    batch.size());
+            for (long position : positions) {
+                outputStream.skip(position);
+                outputStream.releaseCredit();
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            ComputationState responseState = ComputationState.from(batch.get(i), results.get(i));
+            // All the states of the batch share the timing of the call
+            responseState.recordHop(getName(), start, end);
+            outputStream.complete(positions[i], responseState);
+        }
+    }
+
+    private void handleCallFailure(Throwable t) {
+        if (t instanceof StatusRuntimeException) {
+            handleStatusRuntimeException((StatusRuntimeException) t);
+        }
+        else {
+            getLogger().error(
+                    "Stage '{}': Unknown error when executing call",
+                    getName(),
+                    t);
+            System.exit(1);
+        }
+    }
+
+    private void handleStatusRuntimeException(StatusRuntimeException e) {
+        if (StatusRuntimeExceptions.isUnavailable(e)
+                || StatusRuntimeExceptions.isDeadlineExceeded(e)) {
+            // Paused by the stages monitor
+            postEvent(new UnavailableServiceEvent(getName()));
+        }
+        else {
+            getLogger().error(
+                    "Stage '{}': Unknown StatusRuntimeException when executing call",
+                    getName(),
+                    e);
+            System.exit(1);
+        }
+    }
+
+    private static final class Builder extends StageBuilder<BatchingUnaryPipelineStage> {
+
+        @Override
+        public BatchingUnaryPipelineStage build() {
+            return new BatchingUnaryPipelineStage(
+                    getName(),
+                    getChannel(),
+                    getDescription(),
+                    getEventBus(),
+                    getBatchSize(),
+                    getBatchTimeoutMs(),
+                    getMaxInFlight(),
+                    getOutputOrdering(),
+                    getScheduler());
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package pipeline.orchestrator.execution.stages;
+
+import com.google.common.base.Preconditions;
+import com.google.common.eventbus.EventBus;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.Channel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.inputs.StageInputStream;
+import pipeline.orchestrator.execution.outputs.StageOutputStream;
+import pipeline.orchestrator.execution.stages.events.UnavailableServiceEvent;
+import pipeline.orchestrator.grpc.methods.AsyncStreamingMethodInvoker;
+import pipeline.orchestrator.grpc.methods.FullMethodDescription;
+import pipeline.orchestrator.grpc.utils.StatusRuntimeExceptions;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stage that executes a Bidirectional Streaming Grpc Method
+ * The stage keeps a single stream open and sends each state as soon as
+ * it is received, with up to a maximum number of states waiting for a
+ * response. The service must send one response for each request.
+ * Responses are matched to the requests either in order or, if an id
+ * field is configured, by the value of that field, which the stage sets
+ * in the requests and the service copies to the responses. The value is
+ * a sequence number of the stream, since states derived from the same
+ * computation share the same id.
+ * If the stream fails or is closed by the service, the states waiting
+ * for a response are discarded and a new stream is opened.
+ * A state without a response after the timeout is discarded. When the
+ * responses are matched in order, the following responses could no
+ * longer be matched, so the whole stream is discarded instead.
+ */
+public class BidiStreamingPipelineStage extends AbstractPipelineStage {
+
+    // Time to wait for each response if the stage has no timeout
+    static final int DEFAULT_RESPONSE_TIMEOUT_MS = 30_000;
+
+    // Only discards the expired states so a single thread is enough
+    private static final ScheduledThreadPoolExecutor EXPIRY_EXECUTOR = newExpiryExecutor();
+
+    private final AsyncStreamingMethodInvoker<ByteString, ByteString> invoker;
+
+    private final Descriptors.Descriptor responseDescriptor;
+
+    // Id fields in the request and response messages
+    // Null if the responses are matched in order
+    private final Descriptors.FieldDescriptor requestIdField;
+    private final Descriptors.FieldDescriptor responseIdField;
+
+    // Maximum states waiting for a response
+    private final int maxInFlight;
+
+    // Maximum time that a state waits for its response
+    private final long responseTimeoutMs;
+
+    // Responses of consecutive streams may overlap
+    private final Lock outputLock = new ReentrantLock();
+
+    private final PauseControl pauseControl = new PauseControl();
+
+    private BidiStreamingPipelineStage(
+            String stageName,
+            Channel channel,
+            FullMethodDescription fullMethodDescription,
+            EventBus eventBus,
+            int maxInFlight,
+            String idField,
+            long responseTimeoutMs) {
+
+        super(stageName,  channel, fullMethodDescription, eventBus);
+        Preconditions.checkArgument(maxInFlight > 0);
+        Preconditions.checkArgument(responseTimeoutMs > 0);
+        invoker = AsyncStreamingMethodInvoker.<ByteString, ByteString>newBuilder()
+                .forChannel(getChannel())
+                .forMethod(buildRawGrpcMethodDescriptor())
+                .build();
+        Descriptors.MethodDescriptor methodDescriptor = getFullMethodDescription().getMethodDescriptor();
+        responseDescriptor = methodDescriptor.getOutputType();
+        if (idField != null) {
+            requestIdField = findIdField(methodDescriptor.getInputType(), idField);
+            responseIdField = findIdField(responseDescriptor, idField);
+        }
+        else {
+            requestIdField = null;
+            responseIdField = null;
+        }
+        this.maxInFlight = maxInFlight;
+        this.responseTimeoutMs = responseTimeoutMs;
+    }
+
+    @Override
+    public void run() {
+        StageInputStream inputStream = getStageInputStream();
+        StageOutputStream outputStream = getStageOutputStream();
+
+        getLogger().debug(
+                "Stage '{}': Running with {} matching",
+                getName(),
+                requestIdField != null ? "id" : "ordered");
+
+        // Permits for the states that can be waiting for a response
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        BidiStream stream = null;
+
+        // Run forever until finished
+        while (true) {
+
+            waitPaused();
+
+            // Check if finished while paused
+            if (isFinished()) {
+                break;
+            }
+
+            // Wait for a response if the maximum
+            // number of states are in flight
+            try {
+                inFlight.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pause();
+                continue;
+            }
+
+            try {
+                outputStream.acquireCredit();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                inFlight.release();
+                pause();
+                continue;
+            }
+
+            ComputationState requestState = inputStream.get();
+            if (requestState == null) {
+                // Interrupted while waiting for the input
+                outputStream.releaseCredit();
+                inFlight.release();
+            }
+            else {
+                if (stream == null || stream.isClosed()) {
+                    if (stream != null) {
+                        // Late responses of the old stream are not expected
+                        stream.cancel();
+                    }
+                    getLogger().debug("Stage '{}': Opening stream", getName());
+                    stream = new BidiStream(outputStream, inFlight);
+                }
+                stream.send(requestState);
+            }
+
+            if (Thread.currentThread().isInterrupted()) {
+                pause();
+            }
+        }
+        if (stream != null) {
+            stream.close();
+        }
+        getLogger().info("Stage '{}': Processing finished", getName());
+    }
+
+    @Override
+    public void resume() {
+        getLogger().trace("Stage '{}': Received resume signal", getName());
+        if (!pauseControl.resume()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not resumed (already finished)",
+                    getName());
+        }
+    }
+
+    @Override
+    public void pause() {
+        getLogger().trace("Stage '{}': Received pause signal", getName());
+        if (!pauseControl.pause()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not paused (already finished)",
+                    getName());
+        }
+    }
+
+    @Override
+    public void finish() {
+        getLogger().trace("Stage '{}': Received finish signal", getName());
+        pauseControl.finish();
+    }
+
+    /**
+     * Returns a builder for bidirectional streaming pipeline stages
+     * @return the new builder
+     */
+    public static StageBuilder<BidiStreamingPipelineStage> newBuilder() {
+        return new Builder();
+    }
+
+    private void waitPaused() {
+        if (pauseControl.isPaused()) {
+            getLogger().trace("Stage '{}': Waiting", getName());
+        }
+        pauseControl.awaitResumed();
+    }
+
+    private boolean isFinished() {
+        return pauseControl.isFinished();
+    }
+
+    private static ScheduledThreadPoolExecutor newExpiryExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "stream-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most states receive a response before the timeout
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private static Descriptors.FieldDescriptor findIdField(
+            Descriptors.Descriptor descriptor,
+            String idField) {
+
+        Descriptors.FieldDescriptor field = descriptor.findFieldByName(idField);
+        Preconditions.checkArgument(
+                field != null,
+                "Id field '%s' not found in message %s",
+                idField,
+                descriptor.getFullName());
+        Preconditions.checkArgument(
+                !field.isRepeated()
+                        && (field.getJavaType() == Descriptors.FieldDescriptor.JavaType.INT
+                            || field.getJavaType() == Descriptors.FieldDescriptor.JavaType.LONG),
+                "Id field '%s' in message %s must be a single integer",
+                idField,
+                descriptor.getFullName());
+        return field;
+    }
+
+    private ByteString toRequest(ComputationState state, int requestId) {
+        if (requestIdField == null) {
+            return state.getBytes();
+        }
+        Object id = requestIdField.getJavaType() == Descriptors.FieldDescriptor.JavaType.INT
+                ? (Object) requestId
+                : (Object) (long) requestId;
+        return state.getMessage().toBuilder()
+                .setField(requestIdField, id)
+                .build()
+                .toByteString();
+    }
+
+    private void handleCallFailure(Throwable t) {
+        if (t instanceof StatusRuntimeException) {
+            handleStatusRuntimeException((StatusRuntimeException) t);
+        }
+        else {
+            getLogger().error(
+                    "Stage '{}': Unknown error when executing call",
+                    getName(),
+                    t);
+            System.exit(1);
+        }
+    }
+
+    private void handleStatusRuntimeException(StatusRuntimeException e) {
+        // A server that does not respond in time is handled as unavailable
+        if (StatusRuntimeExceptions.isUnavailable(e)
+                || StatusRuntimeExceptions.isDeadlineExceeded(e)) {
+            // Paused by the stages monitor
+            postEvent(new UnavailableServiceEvent(getName()));
+        }
+        else {
+            getLogger().error(
+                    "Stage '{}': Unknown StatusRuntimeException when executing call",
+                    getName(),
+                    e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * State sent in the stream and waiting for a response
+     */
+    private static final class Request {
+
+        private final ComputationState state;
+        private final int requestId;
+        private final long start;
+
+        // Discards the state if there is no response in time
+        private ScheduledFuture<?> expiry;
+
+        private Request(ComputationState state, int requestId, long start) {
+            this.state = state;
+            this.requestId = requestId;
+            this.start = start;
+        }
+
+        private void cancelExpiry() {
+            expiry.cancel(false);
+        }
+    }
+
+    /**
+     * Stream with the states waiting for a response
+     * States are only sent by the stage thread and
+     * responses are received by the grpc threads.
+     */
+    private final class BidiStream implements StreamObserver<ByteString> {
+
+        private final StageOutputStream outputStream;
+        private final Semaphore inFlight;
+
+        private final StreamObserver<ByteString> requests;
+
+        // Requests in the order they were sent, when matching in order
+        private final Deque<Request> ordered = new ArrayDeque<>();
+        // Requests by id, when matching by the id field
+        private final Map<Integer, Request> byId = new LinkedHashMap<>();
+
+        // Id of the next request, only used by the stage thread
+        private int nextRequestId = 0;
+
+        private boolean closed = false;
+
+        private BidiStream(StageOutputStream outputStream, Semaphore inFlight) {
+            this.outputStream = outputStream;
+            this.inFlight = inFlight;
+            this.requests = invoker.call(this);
+        }
+
+        private void send(ComputationState state) {
+            int requestId = nextRequestId++;
+            ByteString request = toRequest(state, requestId);
+            synchronized (this) {
+                if (closed) {
+                    // Failed after the state was read
+                    release();
+                    return;
+                }
+                Request pending = new Request(state, requestId, getMetrics().startCall());
+                if (requestIdField != null) {
+                    byId.put(requestId, pending);
+                }
+                else {
+                    ordered.add(pending);
+                }
+                pending.expiry = EXPIRY_EXECUTOR.schedule(
+                        () -> expire(pending),
+                        responseTimeoutMs,
+                        TimeUnit.MILLISECONDS);
+            }
+            requests.onNext(request);
+        }
+
+        private synchronized boolean isClosed() {
+            return closed;
+        }
+
+        private void close() {
+            requests.onCompleted();
+        }
+
+        private void cancel() {
+            requests.onError(Status.CANCELLED
+                    .withDescription("Stream discarded")
+                    .asRuntimeException());
+        }
+
+        /**
+         * Discards a state that did not receive a response in time
+         * @param pending request of the state
+         */
+        private void expire(Request pending) {
+            boolean removed;
+            synchronized (this) {
+                if (requestIdField != null) {
+                    removed = byId.remove(pending.requestId, pending);
+                }
+                else {
+                    removed = ordered.contains(pending);
+                }
+            }
+            if (!removed) {
+                // Response received or stream already closed
+                return;
+            }
+            if (requestIdField != null) {
+                getLogger().warn(
+                        "Stage '{}': Discarded state {} without response after {} ms",
+                        getName(),
+                        pending.state.getId(),
+                        responseTimeoutMs);
+                getMetrics().callFailed(pending.start);
+                release();
+            }
+            else {
+                // The next responses would be matched to the wrong states
+                getLogger().warn(
+                        "Stage '{}': No response after {} ms, discarding stream",
+                        getName(),
+                        responseTimeoutMs);
+                closeWithFailure();
+            }
+        }
+
+        @Override
+        public void onNext(ByteString value) {
+            Request pending;
+            ComputationState responseState;
+            if (responseIdField != null) {
+                DynamicMessage response;
+                try {
+                    response = DynamicMessage.parseFrom(responseDescriptor, value);
+                }
+                catch (InvalidProtocolBufferException e) {
+                    // The state of the response is discarded when it expires
+                    getLogger().warn("Stage '{}': Unable to parse response", getName(), e);
+                    return;
+                }
+                int id = ((Number) response.getField(responseIdField)).intValue();
+                synchronized (this) {
+                    pending = byId.remove(id);
+                }
+                if (pending == null) {
+                    getLogger().warn("Stage '{}': Response with unknown id {}", getName(), id);
+                    return;
+                }
+                pending.cancelExpiry();
+                responseState = ComputationState.from(pending.state, response);
+            }
+            else {
+                synchronized (this) {
+                    pending = ordered.poll();
+                }
+                if (pending == null) {
+                    getLogger().warn("Stage '{}': Response without request", getName());
+                    return;
+                }
+                pending.cancelExpiry();
+                responseState = ComputationState.from(pending.state, responseDescriptor, value);
+            }
+            long end = getMetrics().callCompleted(pending.start);
+            responseState.recordHop(getName(), pending.start, end);
+            outputLock.lock();
+            try {
+                outputStream.accept(responseState);
+            }
+            finally {
+                outputLock.unlock();
+            }
+            inFlight.release();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // Streams discarded by the stage are cancelled
+            if (closeWithFailure()) {
+                handleCallFailure(t);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            if (closeWithFailure()) {
+                getLogger().warn("Stage '{}': Stream closed by the service", getName());
+            }
+        }
+
+        /**
+         * Discards the requests waiting for a response
+         * @return true if the stream was open and false otherwise
+         */
+        private boolean closeWithFailure() {
+            int discarded;
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                closed = true;
+                discarded = ordered.size() + byId.size();
+                ordered.forEach(this::discard);
+                byId.values().forEach(this::discard);
+                ordered.clear();
+                byId.clear();
+            }
+            if (discarded > 0) {
+                getLogger().warn(
+                        "Stage '{}': Discarded {} states without response",
+                        getName(),
+                        discarded);
+            }
+            for (int i = 0; i < discarded; i++) {
+                release();
+            }
+            return true;
+        }
+
+        private void discard(Request request) {
+            request.cancelExpiry();
+            getMetrics().callFailed(request.start);
+        }
+
+        private void release() {
+            outputStream.releaseCredit();
+            inFlight.release();
+        }
+    }
+
+    private static final class Builder extends StageBuilder<BidiStreamingPipelineStage> {
+
+        @Override
+        public BidiStreamingPipelineStage build() {
+            return new BidiStreamingPipelineStage(
+                    getName(),
+                    getChannel(),
+                    getDescription(),
+                    getEventBus(),
+                    getMaxInFlight(),
+                    getIdField(),
+                    getTimeoutMs() != null ? getTimeoutMs() : DEFAULT_RESPONSE_TIMEOUT_MS);
+        }
+    }
+}
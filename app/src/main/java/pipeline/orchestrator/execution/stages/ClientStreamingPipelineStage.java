@@ -0,0 +1,389 @@
+package pipeline.orchestrator.execution.stages;
+
+import com.google.common.base.Preconditions;
+import com.google.common.eventbus.EventBus;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
+import io.grpc.Channel;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import pipeline.orchestrator.architecture.OutputOrdering;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.inputs.StageInputStream;
+import pipeline.orchestrator.execution.outputs.ConcurrentOutputStream;
+import pipeline.orchestrator.execution.scheduling.StageScheduler;
+import pipeline.orchestrator.execution.stages.events.UnavailableServiceEvent;
+import pipeline.orchestrator.grpc.methods.AsyncStreamingMethodInvoker;
+import pipeline.orchestrator.grpc.methods.FullMethodDescription;
+import pipeline.orchestrator.grpc.utils.StatusRuntimeExceptions;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stage that executes a Client Streaming Grpc Method
+ * The stage sends up to a maximum number of states in each stream,
+ * waiting at most a given time for the stream to fill after the first
+ * state, and then closes the stream. The response of the stream is
+ * sent to the outputs with the id of the last state in the stream.
+ * Messages are sent and received in their serialized form.
+ */
+public class ClientStreamingPipelineStage extends AbstractPipelineStage {
+
+    private final AsyncStreamingMethodInvoker<ByteString, ByteString> invoker;
+
+    private final Descriptors.Descriptor responseDescriptor;
+
+    private final int streamSize;
+    private final long streamTimeoutNanos;
+
+    // Maximum streams waiting for a response
+    private final int maxInFlight;
+
+    private final OutputOrdering outputOrdering;
+
+    // Scheduler for the thread that reads the inputs
+    private final StageScheduler scheduler;
+
+    // States read from the inputs waiting to be sent
+    private final BlockingQueue<ComputationState> pending;
+
+    private final PauseControl pauseControl = new PauseControl();
+
+    private ClientStreamingPipelineStage(
+            String stageName,
+            Channel channel,
+            FullMethodDescription fullMethodDescription,
+            EventBus eventBus,
+            int streamSize,
+            int streamTimeoutMs,
+            int maxInFlight,
+            OutputOrdering outputOrdering,
+            StageScheduler scheduler) {
+
+        super(stageName,  channel, fullMethodDescription, eventBus);
+        Preconditions.checkArgument(streamSize > 0);
+        Preconditions.checkArgument(streamTimeoutMs > 0);
+        Preconditions.checkArgument(maxInFlight > 0);
+        Preconditions.checkNotNull(outputOrdering);
+        Preconditions.checkNotNull(scheduler);
+        invoker = AsyncStreamingMethodInvoker.<ByteString, ByteString>newBuilder()
+                .forChannel(getChannel())
+                .forMethod(buildRawGrpcMethodDescriptor())
+                .build();
+        responseDescriptor = getFullMethodDescription().getMethodDescriptor().getOutputType();
+        this.streamSize = streamSize;
+        this.streamTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(streamTimeoutMs);
+        this.maxInFlight = maxInFlight;
+        this.outputOrdering = outputOrdering;
+        this.scheduler = scheduler;
+        this.pending = new ArrayBlockingQueue<>(streamSize);
+    }
+
+    @Override
+    public void run() {
+        StageInputStream inputStream = getStageInputStream();
+        ConcurrentOutputStream outputStream = ConcurrentOutputStream.forOrdering(
+                outputOrdering,
+                getStageOutputStream(),
+                maxInFlight);
+
+        getLogger().debug(
+                "Stage '{}': Running with streams of {}",
+                getName(),
+                streamSize);
+
+        // Inputs are read in another thread so that
+        // this thread can wait with a timeout
+        scheduler.schedule(getName() + "-stream-reader", () -> readInputs(inputStream));
+
+        // Permits for the streams that can be waiting for a response
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        // Run forever until finished
+        while (true) {
+
+            waitPaused();
+
+            // Check if finished while paused
+            if (isFinished()) {
+                break;
+            }
+
+            // Wait for a response if the maximum
+            // number of streams are in flight
+            try {
+                inFlight.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pause();
+                continue;
+            }
+
+            // Each stream has a single response
+            try {
+                outputStream.acquireCredit();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                inFlight.release();
+                pause();
+                continue;
+            }
+
+            ComputationState first;
+            try {
+                first = pending.take();
+            }
+            catch (InterruptedException e) {
+                // Interrupted while waiting for the inputs
+                outputStream.releaseCredit();
+                inFlight.release();
+                Thread.currentThread().interrupt();
+                pause();
+                continue;
+            }
+            sendStream(first, outputStream, inFlight);
+
+            if (Thread.currentThread().isInterrupted()) {
+                pause();
+            }
+        }
+        getLogger().info("Stage '{}': Processing finished", getName());
+    }
+
+    @Override
+    public void resume() {
+        getLogger().trace("Stage '{}': Received resume signal", getName());
+        if (!pauseControl.resume()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not resumed (already finished)",
+                    getName());
+        }
+    }
+
+    @Override
+    public void pause() {
+        getLogger().trace("Stage '{}': Received pause signal", getName());
+        if (!pauseControl.pause()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not paused (already finished)",
+                    getName());
+        }
+    }
+
+    @Override
+    public void finish() {
+        getLogger().trace("Stage '{}': Received finish signal", getName());
+        pauseControl.finish();
+    }
+
+    /**
+     * Returns a builder for client streaming pipeline stages
+     * @return the new builder
+     */
+    public static StageBuilder<ClientStreamingPipelineStage> newBuilder() {
+        return new Builder();
+    }
+
+    private void waitPaused() {
+        if (pauseControl.isPaused()) {
+            getLogger().trace("Stage '{}': Waiting", getName());
+        }
+        pauseControl.awaitResumed();
+    }
+
+    private boolean isFinished() {
+        return pauseControl.isFinished();
+    }
+
+    private void readInputs(StageInputStream inputStream) {
+        while (true) {
+            // Stop reading while paused so that
+            // no states are taken from the inputs
+            waitPaused();
+            if (isFinished()) {
+                break;
+            }
+            ComputationState state = inputStream.get();
+            if (state == null) {
+                // Interrupted while waiting for the input
+                // Only happens when the stage is finishing
+                break;
+            }
+            try {
+                pending.put(state);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Sends the first state and then up to the stream size
+     * states or until the stream timeout expires
+     * @param first first state of the stream
+     * @param outputStream stream to send the response
+     * @param inFlight permits released when the response is received
+     */
+    private void sendStream(
+            ComputationState first,
+            ConcurrentOutputStream outputStream,
+            Semaphore inFlight) {
+
+        long position = outputStream.reserve();
+        ResponseObserver observer = new ResponseObserver(
+                position,
+                outputStream,
+                inFlight,
+                getMetrics().startCall());
+        StreamObserver<ByteString> requests = invoker.call(observer);
+
+        observer.last = first;
+        requests.onNext(first.getBytes());
+        int sent = 1;
+        long deadline = System.nanoTime() + streamTimeoutNanos;
+        try {
+            while (sent < streamSize) {
+                long remaining = deadline - System.nanoTime();
+                ComputationState state;
+                if (remaining <= 0
+                        || (state = pending.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                    break;
+                }
+                observer.last = state;
+                requests.onNext(state.getBytes());
+                sent++;
+            }
+        }
+        catch (InterruptedException e) {
+            // Close the stream with the states already sent
+            Thread.currentThread().interrupt();
+        }
+
+        getLogger().trace(
+                "Stage '{}': Closing stream with {} states",
+                getName(),
+                sent);
+        requests.onCompleted();
+    }
+
+    private void handleCallFailure(Throwable t) {
+        if (t instanceof StatusRuntimeException) {
+            handleStatusRuntimeException((StatusRuntimeException) t);
+        }
+        else {
+            getLogger().error(
+                    "Stage '{}': Unknown error when executing call",
+                    getName(),
+                    t);
+            System.exit(1);
+        }
+    }
+
+    private void handleStatusRuntimeException(StatusRuntimeException e) {
+        // A server that does not respond in time is handled as unavailable
+        if (StatusRuntimeExceptions.isUnavailable(e)
+                || StatusRuntimeExceptions.isDeadlineExceeded(e)) {
+            // Paused by the stages monitor
+            postEvent(new UnavailableServiceEvent(getName()));
+        }
+        else {
+            getLogger().error(
+                    "Stage '{}': Unknown StatusRuntimeException when executing call",
+                    getName(),
+                    e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Observer for the single response of a stream
+     */
+    private final class ResponseObserver implements StreamObserver<ByteString> {
+
+        private final long position;
+        private final ConcurrentOutputStream outputStream;
+        private final Semaphore inFlight;
+        private final long start;
+
+        // Last state sent in the stream, which gives its id to the response
+        private volatile ComputationState last;
+
+        private ByteString response;
+
+        private ResponseObserver(
+                long position,
+                ConcurrentOutputStream outputStream,
+                Semaphore inFlight,
+                long start) {
+
+            this.position = position;
+            this.outputStream = outputStream;
+            this.inFlight = inFlight;
+            this.start = start;
+        }
+
+        @Override
+        public void onNext(ByteString value) {
+            response = value;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            getMetrics().callFailed(start);
+            outputStream.skip(position);
+            outputStream.releaseCredit();
+            inFlight.release();
+            handleCallFailure(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            if (response == null) {
+                // The stub does not check that the server sent the response
+                getMetrics().callFailed(start);
+                outputStream.skip(position);
+                outputStream.releaseCredit();
+                inFlight.release();
+                getLogger().warn(
+                        "Stage '{}': Stream of state {} completed without a response",
+                        getName(),
+                        last.getId());
+                return;
+            }
+            long end = getMetrics().callCompleted(start);
+            ComputationState responseState =
+                    ComputationState.from(last, responseDescriptor, response);
+            responseState.recordHop(getName(), start, end);
+            outputStream.complete(position, responseState);
+            inFlight.release();
+        }
+    }
+
+    private static final class Builder extends StageBuilder<ClientStreamingPipelineStage> {
+
+        @Override
+        public ClientStreamingPipelineStage build() {
+            return new ClientStreamingPipelineStage(
+                    getName(),
+                    getChannel(),
+                    getDescription(),
+                    getEventBus(),
+                    getBatchSize(),
+                    getBatchTimeoutMs(),
+                    getMaxInFlight(),
+                    getOutputOrdering(),
+                    getScheduler());
+        }
+    }
+}
@@ -25,8 +25,7 @@ public class OneShotUnaryPipelineStage extends AbstractPipelineStage {
 
     private final UnaryServiceMethodInvoker<DynamicMessage, DynamicMessage> invoker;
 
-    private boolean paused = false;
-    private boolean finished = false;
+    private final PauseControl pauseControl = new PauseControl();
 
     private OneShotUnaryPipelineStage(
             String stageName,
@@ -53,73 +52,67 @@ public class OneShotUnaryPipelineStage extends AbstractPipelineStage {
             return;
         }
 
+        // Wait for space in the outputs before producing the state
+        try {
+            outputStream.acquireCredit();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pauseControl.finish();
+            return;
+        }
+
         ComputationState requestState = inputStream.get();
+        long start = getMetrics().startCall();
         try {
             DynamicMessage response = invoker.call(requestState.getMessage());
+            long end = getMetrics().callCompleted(start);
             ComputationState responseState = ComputationState.from(
                     requestState,
                     response);
+            responseState.recordHop(getName(), start, end);
             outputStream.accept(responseState);
         } catch (StatusRuntimeException e) {
+            getMetrics().callFailed(start);
+            outputStream.releaseCredit();
             handleStatusRuntimeException(e);
         }
 
         if (Thread.currentThread().isInterrupted()) {
             pause();
         }
-        synchronized (this) {
-            finished = true;
-        }
+        pauseControl.finish();
         getLogger().info("Stage '{}': Processing finished", getName());
     }
 
     @Override
     public void resume() {
         getLogger().trace("Stage '{}': Received resume signal", getName());
-        synchronized (this) {
-            // Can only resume if not paused
-            if (!finished) {
-                paused = false;
-                // Notify thread to resume if waiting
-                notifyAll();
-            }
-            else {
-                // Stage remains finished
-                // Should not happen
-                getLogger().warn(
-                        "Stage '{}': Not resumed (already finished)",
-                        getName());
-            }
+        if (!pauseControl.resume()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not resumed (already finished)",
+                    getName());
         }
     }
 
     @Override
     public void pause() {
         getLogger().trace("Stage '{}': Received pause signal", getName());
-        synchronized (this) {
-            // Can only pause if not paused
-            if (!finished) {
-                paused = true;
-            }
-            else {
-                // Stage remains finished
-                // Should not happen
-                getLogger().warn(
-                        "Stage '{}': Not paused (already finished)",
-                        getName());
-            }
+        if (!pauseControl.pause()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not paused (already finished)",
+                    getName());
         }
     }
 
     @Override
     public void finish() {
         getLogger().trace("Stage '{}': Received finish signal", getName());
-        synchronized (this) {
-            // Unpause in order to finish
-            paused = false;
-            finished = true;
-            notifyAll();
-        }
+        pauseControl.finish();
     }
 
     /**
@@ -131,28 +124,21 @@ public class OneShotUnaryPipelineStage extends AbstractPipelineStage {
     }
 
     private void waitPaused() {
-        synchronized (this) {
-            while (paused) {
-                try {
-                    wait();
-                }
-                catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
+        if (pauseControl.isPaused()) {
+            getLogger().trace("Stage '{}': Waiting", getName());
         }
+        pauseControl.awaitResumed();
     }
 
     private boolean isFinished() {
-        synchronized (this) {
-            return finished;
-        }
+        return pauseControl.isFinished();
     }
 
     private void handleStatusRuntimeException(StatusRuntimeException e) {
-        if (StatusRuntimeExceptions.isUnavailable(e)) {
+        if (StatusRuntimeExceptions.isUnavailable(e)
+                || StatusRuntimeExceptions.isDeadlineExceeded(e)) {
+            // Paused by the stages monitor
             postEvent(new UnavailableServiceEvent(getName()));
-            pause();
         }
         else {
             getLogger().error("Unknown StatusRuntimeException when executing call", e);
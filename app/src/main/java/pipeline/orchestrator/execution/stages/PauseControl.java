@@ -0,0 +1,108 @@
+package pipeline.orchestrator.execution.stages;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Class to control the pause, resume and finish signals of a stage
+ * Uses a lock and a condition instead of the object monitor
+ * so that stages running in virtual threads do not pin their
+ * carrier thread while paused
+ */
+final class PauseControl {
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition resumed = lock.newCondition();
+
+    private boolean paused = false;
+    private boolean finished = false;
+
+    /**
+     * Pauses the stage if not finished
+     * @return true if paused and false if already finished
+     */
+    boolean pause() {
+        lock.lock();
+        try {
+            // Can only pause if not finished
+            if (!finished) {
+                paused = true;
+            }
+            return !finished;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Resumes the stage if not finished
+     * @return true if resumed and false if already finished
+     */
+    boolean resume() {
+        lock.lock();
+        try {
+            // Can only resume if not finished
+            if (!finished) {
+                paused = false;
+                // Notify threads to resume if waiting
+                resumed.signalAll();
+            }
+            return !finished;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    void finish() {
+        lock.lock();
+        try {
+            // Unpause in order to finish
+            paused = false;
+            finished = true;
+            resumed.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isPaused() {
+        lock.lock();
+        try {
+            return paused;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isFinished() {
+        lock.lock();
+        try {
+            return finished;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits while the stage is paused
+     * The interrupted status of the thread is kept
+     * if interrupted while waiting
+     */
+    void awaitResumed() {
+        lock.lock();
+        try {
+            while (paused) {
+                resumed.awaitUninterruptibly();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
@@ -2,21 +2,39 @@ package pipeline.orchestrator.execution.stages;
 
 import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
+import com.google.common.graph.EndpointPair;
+import com.google.common.graph.ValueGraph;
 import com.google.protobuf.Descriptors;
 import io.grpc.Channel;
-import io.grpc.ManagedChannelBuilder;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pipeline.orchestrator.architecture.LinkInformation;
 import pipeline.orchestrator.architecture.StageInformation;
+import pipeline.orchestrator.architecture.StageType;
 import pipeline.orchestrator.execution.Link;
+import pipeline.orchestrator.execution.buffers.LinkBuffers;
+import pipeline.orchestrator.execution.scheduling.StageScheduler;
+import pipeline.orchestrator.grpc.channels.ChannelReadiness;
+import pipeline.orchestrator.grpc.channels.ChannelRegistry;
+import pipeline.orchestrator.grpc.channels.DeadlineInterceptor;
+import pipeline.orchestrator.grpc.channels.HedgingChannel;
+import pipeline.orchestrator.grpc.channels.ReplicaPoolChannel;
+import pipeline.orchestrator.grpc.channels.RetryingChannel;
 import pipeline.orchestrator.grpc.methods.FullMethodDescription;
+import pipeline.orchestrator.metrics.MetricsRegistry;
 import pipeline.orchestrator.reflection.MethodSearchInformation;
 import pipeline.orchestrator.reflection.ServerMethodDiscovery;
 import pipeline.orchestrator.reflection.UnableToDiscoverMethodException;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 /**
  * Class to assist the usage of PipelineStages
@@ -35,14 +53,65 @@ public class PipelineStages {
 
     /**
      * Builds a new stage that is linked to the given stage
+     * Waits for the server of the stage to accept connections
+     * before discovering the method to execute
      * @param stageInformation information of the stage that this pipeline
      *                         stage will linked too
+     * @param scheduler scheduler for any additional threads of the stage
      * @return the pipeline stage that can be executed to execute
      *         requests on the given stage
      */
-    public static AbstractPipelineStage buildStage(StageInformation stageInformation) {
+    public static AbstractPipelineStage buildStage(
+            StageInformation stageInformation,
+            StageScheduler scheduler) {
+
         logBuildStage(stageInformation);
-        return buildStageFromInformation(stageInformation);
+        try {
+            return buildStageFromInformation(stageInformation, scheduler);
+        }
+        catch (RuntimeException e) {
+            // The channels were requested before the failure
+            releaseChannels(stageInformation);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the channels of a stage that was stopped, which are
+     * closed if no other stage connects to the same servers
+     * @param stageInformation information of the stopped stage
+     */
+    public static void releaseChannels(StageInformation stageInformation) {
+        stageInformation.getAddresses().forEach(address -> ChannelRegistry.getInstance()
+                .release(address, stageInformation.getChannel()));
+    }
+
+    /**
+     * Removes the metrics of a stage that was removed from the pipeline
+     * The metrics of a stage that is replaced are kept, since the stage
+     * that replaces it registers the same metrics
+     * @param stageName name of the removed stage
+     */
+    public static void unregisterStageMetrics(String stageName) {
+        MetricsRegistry.getInstance().unregister("stage", stageName);
+    }
+
+    /**
+     * Removes the metrics of a link that was removed or replaced by a
+     * link with another configuration
+     * @param sourceName name of the stage that produced the messages
+     * @param targetName name of the stage that received the messages
+     * @param linkInformation information of the removed link
+     */
+    public static void unregisterLinkMetrics(
+            String sourceName,
+            String targetName,
+            LinkInformation linkInformation) {
+
+        MetricsRegistry.getInstance().unregister(
+                "source", sourceName,
+                "target", targetName,
+                "field", linkInformation.getTargetFieldName().orElse(""));
     }
 
     /**
@@ -51,7 +120,7 @@ public class PipelineStages {
      * @param target stage that receives the messages
      * @param linkInformation information about the messages sent
      */
-    public static void linkStages(
+    public static Link linkStages(
             AbstractPipelineStage source,
             AbstractPipelineStage target,
             LinkInformation linkInformation) {
@@ -60,9 +129,115 @@ public class PipelineStages {
 
         String sourceFieldName = linkInformation.getSourceFieldName().orElse("");
         String targetFieldName = linkInformation.getTargetFieldName().orElse("");
-        Link link = new Link();
+        // Lock free buffers are selected when the stages
+        // access the link from a single thread
+        Link link = new Link(LinkBuffers.forTopology(
+                source.getOutputThreads(),
+                target.getInputThreads(),
+                linkInformation.getCapacity(),
+                linkInformation.getOverflowPolicy()));
         source.bindOutput(sourceFieldName, link);
         target.bindInput(targetFieldName, link);
+        registerLinkMetrics(source, target, targetFieldName, link);
+        return link;
+    }
+
+    /**
+     * Method to link 2 pipeline stages through the link of the stages
+     * they replace, so that the states buffered in it are kept
+     * Only the new stages are bound to the link, since a stage that
+     * is already running keeps sending or receiving through it
+     * @param source stage that produces the messages
+     * @param target stage that receives the messages
+     * @param linkInformation information about the messages sent
+     * @param link link used by the replaced stages
+     * @param newSource true if the source stage is not running yet
+     * @param newTarget true if the target stage is not running yet
+     */
+    public static void relinkStages(
+            AbstractPipelineStage source,
+            AbstractPipelineStage target,
+            LinkInformation linkInformation,
+            Link link,
+            boolean newSource,
+            boolean newTarget) {
+
+        logLinkStages(source, target, linkInformation);
+
+        String targetFieldName = linkInformation.getTargetFieldName().orElse("");
+        if (newSource) {
+            source.bindOutput(linkInformation.getSourceFieldName().orElse(""), link);
+        }
+        if (newTarget) {
+            // Listeners of the input stream of the replaced stage
+            link.clearListeners();
+            target.bindInput(targetFieldName, link);
+        }
+        registerLinkMetrics(source, target, targetFieldName, link);
+    }
+
+    /**
+     * Checks if a link can be used by the given stages,
+     * since the buffer of the link was selected for the
+     * threads of the stages it was built for
+     * @param link link to check
+     * @param source stage that produces the messages
+     * @param target stage that receives the messages
+     * @return true if the link is safe for the stages and false otherwise
+     */
+    public static boolean canRelink(
+            Link link,
+            AbstractPipelineStage source,
+            AbstractPipelineStage target) {
+
+        return link.supports(source.getOutputThreads(), target.getInputThreads());
+    }
+
+    /**
+     * Checks that the sub ids of the states derived by chained server
+     * streaming stages fit in a long
+     * Each stage that derives states multiplies the number of sub ids
+     * of the states it receives by its maximum fan out plus one.
+     * @param architecture architecture of the pipeline
+     * @param stages built stages, by name
+     * @throws IllegalArgumentException if the sub ids of a stage do not
+     *         fit or a stage that derives states is in a cycle
+     */
+    public static void verifyFanOut(
+            ValueGraph<StageInformation, LinkInformation> architecture,
+            Map<String, AbstractPipelineStage> stages) {
+
+        // Number of sub ids of the states sent by each stage
+        Map<String, Long> subIds = new HashMap<>();
+        architecture.nodes().forEach(stageInformation -> subIds.put(stageInformation.getName(), 1L));
+        // The counts only grow after all the paths if a cycle derives states
+        for (int i = 0; i <= architecture.nodes().size(); i++) {
+            boolean updated = false;
+            for (EndpointPair<StageInformation> edge : architecture.edges()) {
+                String source = edge.source().getName();
+                String target = edge.target().getName();
+                long targetSubIds;
+                try {
+                    targetSubIds = Math.multiplyExact(
+                            subIds.get(source),
+                            stages.get(target).getMaxFanOut() + 1L);
+                }
+                catch (ArithmeticException e) {
+                    throw new IllegalArgumentException(String.format(
+                            "Stage '%s': Ids of the derived states do not fit, reduce max-fan-out",
+                            target));
+                }
+                if (targetSubIds > subIds.get(target)) {
+                    subIds.put(target, targetSubIds);
+                    updated = true;
+                }
+            }
+            if (!updated) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException(
+                "Stages with server streaming methods that derive states can not be in a cycle");
     }
 
     /**
@@ -77,22 +252,114 @@ public class PipelineStages {
         EVENT_BUS.register(subscriber);
     }
 
-    private static AbstractPipelineStage buildStageFromInformation(StageInformation stageInformation) {
+    private static void registerLinkMetrics(
+            AbstractPipelineStage source,
+            AbstractPipelineStage target,
+            String targetFieldName,
+            Link link) {
+
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        String[] labels = {
+                "source", source.getName(),
+                "target", target.getName(),
+                "field", targetFieldName
+        };
+        registry.counter(
+                "pipeline_link_enqueued_total",
+                "States sent through the link",
+                link::getEnqueued,
+                labels);
+        registry.counter(
+                "pipeline_link_dropped_total",
+                "States discarded by the overflow policy of the link",
+                link::getDropped,
+                labels);
+        registry.gauge(
+                "pipeline_link_depth",
+                "States currently buffered in the link",
+                link::size,
+                labels);
+        registry.gauge(
+                "pipeline_link_capacity",
+                "Maximum number of states buffered in the link",
+                link::getCapacity,
+                labels);
+    }
 
-        Channel channel = ManagedChannelBuilder
-                .forAddress(
-                        stageInformation.getServiceHost(),
-                        stageInformation.getServicePort())
-                .usePlaintext().build();
+    private static AbstractPipelineStage buildStageFromInformation(
+            StageInformation stageInformation,
+            StageScheduler scheduler) {
 
+        Channel channel = buildChannel(stageInformation);
+
+        // The method is only discovered once since
+        // all the replicas run the same service
         Optional<FullMethodDescription> fullMethodDesc =
                 getFullMethodDescription(channel, stageInformation);
 
-        return fullMethodDesc.map(desc -> getPipelineStage(stageInformation, channel, desc))
+        return fullMethodDesc.map(desc -> getPipelineStage(stageInformation, channel, desc, scheduler))
                 .orElseThrow(() -> new IllegalStateException(
                         String.format("Unable to build pipeline stage for %s", channel.authority())));
     }
 
+    private static Channel buildChannel(StageInformation stageInformation) {
+        Channel channel = buildPoolChannel(stageInformation);
+        // Unavailable calls are sent again after all replicas were tried
+        if (stageInformation.getRetry().isPresent()) {
+            channel = RetryingChannel.newBuilder()
+                    .forChannel(channel)
+                    .setRetry(stageInformation.getRetry().get())
+                    .build();
+        }
+        if (stageInformation.isHedging()) {
+            channel = HedgingChannel.newBuilder()
+                    .forChannel(channel)
+                    .build();
+        }
+        // The deadline is set first so that it covers all the attempts
+        if (stageInformation.getTimeoutMs().isPresent()) {
+            channel = ClientInterceptors.intercept(
+                    channel,
+                    new DeadlineInterceptor(stageInformation.getTimeoutMs().get()));
+        }
+        return channel;
+    }
+
+    private static Channel buildPoolChannel(StageInformation stageInformation) {
+        // Stages with the same servers share the connections
+        List<ManagedChannel> channels = stageInformation.getAddresses().stream()
+                .flatMap(address -> ChannelRegistry.getInstance()
+                        .getChannels(address, stageInformation.getChannel())
+                        .stream())
+                .collect(Collectors.toList());
+        // Only the main server is required to be running
+        awaitReady(stageInformation, channels.get(0));
+        if (channels.size() == 1) {
+            return channels.get(0);
+        }
+        ReplicaPoolChannel.Builder builder = ReplicaPoolChannel.newBuilder()
+                .setLoadBalancingPolicy(stageInformation.getLoadBalancingPolicy());
+        channels.forEach(builder::addReplica);
+        return builder.build();
+    }
+
+    private static void awaitReady(StageInformation stageInformation, ManagedChannel channel) {
+        LOGGER.info(
+                "Waiting for stage '{}' at '{}'.",
+                stageInformation.getName(),
+                channel.authority());
+        try {
+            ChannelReadiness.awaitReady(channel);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    String.format("Interrupted while waiting for stage '%s'", stageInformation.getName()),
+                    e);
+        }
+        LOGGER.debug("Stage '{}' is ready", stageInformation.getName());
+    }
+
     private static Optional<FullMethodDescription> getFullMethodDescription(
             Channel channel,
             StageInformation stageInformation
@@ -118,39 +385,90 @@ public class PipelineStages {
     private static AbstractPipelineStage getPipelineStage(
             StageInformation stageInformation,
             Channel channel,
-            FullMethodDescription fullMethodDesc) {
+            FullMethodDescription fullMethodDesc,
+            StageScheduler scheduler) {
 
-        // Builder to use when building the new stage
-        StageBuilder<?> builder = getStageBuilder(
+        StageType stageType = getStageType(
                 stageInformation,
                 fullMethodDesc.getMethodDescriptor());
+        Set<String> unsupportedOptions = stageType.findUnsupportedOptions(stageInformation);
+        if (!unsupportedOptions.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+                    "Stage '%s': Options %s are not supported by %s stages",
+                    stageInformation.getName(),
+                    unsupportedOptions,
+                    stageType.getDescription()));
+        }
+
+        // Builder to use when building the new stage
+        StageBuilder<?> builder = getStageBuilder(stageType);
 
-        return builder
+        AbstractPipelineStage stage = builder
                 .setName(stageInformation.getName())
                 .setChannel(channel)
                 .setFullMethodDescription(fullMethodDesc)
                 .setEventBus(EVENT_BUS)
+                .setMaxInFlight(stageInformation.getMaxInFlight())
+                .setParallelism(stageInformation.getParallelism())
+                .setOutputOrdering(stageInformation.getOutputOrdering())
+                .setBatchSize(stageInformation.getBatchSize())
+                .setBatchTimeoutMs(stageInformation.getBatchTimeoutMs())
+                .setIdField(stageInformation.getIdField().orElse(null))
+                .setMaxFanOut(stageInformation.getMaxFanOut())
+                .setCache(stageInformation.getCache().orElse(null))
+                .setTimeoutMs(stageInformation.getTimeoutMs().orElse(null))
+                .setScheduler(scheduler)
                 .build();
+        stage.configureJoin(
+                stageInformation.getJoinWindow(),
+                stageInformation.getJoinTimeoutMs());
+        return stage;
     }
 
-    private static StageBuilder<?> getStageBuilder(
+    private static StageType getStageType(
             StageInformation stageInformation,
             Descriptors.MethodDescriptor methodDescriptor) {
 
-        StageBuilder<?> builder;
         if (isUnary(methodDescriptor) && isOneShot(stageInformation)) {
-            builder = OneShotUnaryPipelineStage.newBuilder();
+            return StageType.ONE_SHOT;
+        }
+        else if (isUnary(methodDescriptor) && isBatching(stageInformation)) {
+            return StageType.BATCHING;
         }
         else if (isUnary(methodDescriptor) && !isOneShot(stageInformation)) {
-            builder = UnaryPipelineStage.newBuilder();
+            return StageType.UNARY;
         }
         else if (isServerStreaming(methodDescriptor) && !isOneShot(stageInformation)) {
-            builder = ServerStreamingPipelineStage.newBuilder();
+            return StageType.SERVER_STREAMING;
+        }
+        else if (isClientStreaming(methodDescriptor) && !isOneShot(stageInformation)) {
+            return StageType.CLIENT_STREAMING;
+        }
+        else if (isBidiStreaming(methodDescriptor) && !isOneShot(stageInformation)) {
+            return StageType.BIDI_STREAMING;
         }
         else {
             throw new UnsupportedOperationException("Unsupported method type");
         }
-        return builder;
+    }
+
+    private static StageBuilder<?> getStageBuilder(StageType stageType) {
+        switch (stageType) {
+            case ONE_SHOT:
+                return OneShotUnaryPipelineStage.newBuilder();
+            case BATCHING:
+                return BatchingUnaryPipelineStage.newBuilder();
+            case UNARY:
+                return UnaryPipelineStage.newBuilder();
+            case SERVER_STREAMING:
+                return ServerStreamingPipelineStage.newBuilder();
+            case CLIENT_STREAMING:
+                return ClientStreamingPipelineStage.newBuilder();
+            case BIDI_STREAMING:
+                return BidiStreamingPipelineStage.newBuilder();
+            default:
+                throw new UnsupportedOperationException("Unsupported stage type");
+        }
     }
 
     private static boolean isUnary(Descriptors.MethodDescriptor descriptor) {
@@ -161,10 +479,22 @@ public class PipelineStages {
         return descriptor.isServerStreaming() && !descriptor.isClientStreaming();
     }
 
+    private static boolean isClientStreaming(Descriptors.MethodDescriptor descriptor) {
+        return !descriptor.isServerStreaming() && descriptor.isClientStreaming();
+    }
+
+    private static boolean isBidiStreaming(Descriptors.MethodDescriptor descriptor) {
+        return descriptor.isServerStreaming() && descriptor.isClientStreaming();
+    }
+
     private static boolean isOneShot(StageInformation stageInformation) {
         return stageInformation.isOneShot();
     }
 
+    private static boolean isBatching(StageInformation stageInformation) {
+        return stageInformation.getBatchSize() > 1;
+    }
+
     private static void logBuildStage(StageInformation stageInformation) {
 
         if (LOGGER.isTraceEnabled()) {
@@ -0,0 +1,196 @@
+package pipeline.orchestrator.execution.stages;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import pipeline.orchestrator.architecture.CacheInformation;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.metrics.Counter;
+import pipeline.orchestrator.metrics.MetricsRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the responses of a stage with an unary method
+ * Responses are indexed by the serialized request, or by the serialized
+ * values of some of its fields, so the method must always return the
+ * same response for the same request. The least recently used responses
+ * are evicted when the cache exceeds its size or its bytes, and responses
+ * older than the time to live are never returned.
+ */
+final class ResponseCache {
+
+    private final int size;
+    private final long maxBytes;
+
+    // Zero if the responses do not expire
+    private final long ttlNanos;
+
+    private final Descriptors.Descriptor requestDescriptor;
+
+    // Fields of the request that index the responses
+    // If empty, the whole request is used
+    private final List<Descriptors.FieldDescriptor> fields;
+
+    // Entries in access order, so the first is the least recently used
+    private final LinkedHashMap<ByteString, Entry> entries =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    // Bytes of the keys and responses in the cache
+    private long bytes = 0;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    ResponseCache(
+            String stageName,
+            CacheInformation information,
+            Descriptors.Descriptor requestDescriptor,
+            MetricsRegistry registry) {
+
+        this.size = information.getSize();
+        this.maxBytes = information.getMaxBytes();
+        this.ttlNanos = information.getTtlMs()
+                .map(TimeUnit.MILLISECONDS::toNanos)
+                .orElse(0L);
+        this.requestDescriptor = requestDescriptor;
+        ImmutableList.Builder<Descriptors.FieldDescriptor> builder = ImmutableList.builder();
+        for (String name : information.getFields()) {
+            Descriptors.FieldDescriptor field = requestDescriptor.findFieldByName(name);
+            Preconditions.checkArgument(
+                    field != null,
+                    "Cache field '%s' not found in message %s",
+                    name,
+                    requestDescriptor.getFullName());
+            builder.add(field);
+        }
+        this.fields = builder.build();
+
+        hits = registry.counter(
+                "pipeline_stage_cache_hits_total",
+                "Requests answered with a cached response",
+                "stage", stageName);
+        misses = registry.counter(
+                "pipeline_stage_cache_misses_total",
+                "Requests without a cached response that were sent to the service",
+                "stage", stageName);
+        evictions = registry.counter(
+                "pipeline_stage_cache_evictions_total",
+                "Responses removed from the cache to make space or after expiring",
+                "stage", stageName);
+        registry.gauge(
+                "pipeline_stage_cache_entries",
+                "Responses currently in the cache",
+                this::size,
+                "stage", stageName);
+        registry.gauge(
+                "pipeline_stage_cache_bytes",
+                "Bytes of the requests and responses currently in the cache",
+                this::getBytes,
+                "stage", stageName);
+    }
+
+    /**
+     * Computes the key of the request of a state
+     * @param state state with the request
+     * @return the key to get and put the response
+     */
+    ByteString keyOf(ComputationState state) {
+        if (fields.isEmpty()) {
+            return state.getBytes();
+        }
+        DynamicMessage request = state.getMessage();
+        DynamicMessage.Builder key = DynamicMessage.newBuilder(requestDescriptor);
+        for (Descriptors.FieldDescriptor field : fields) {
+            key.setField(field, request.getField(field));
+        }
+        return key.build().toByteString();
+    }
+
+    /**
+     * Returns the response for a key if it is cached and not expired
+     * @param key key of the request
+     * @param now current instant in nanoseconds
+     * @return the cached response or null if there is none
+     */
+    synchronized ByteString get(ByteString key, long now) {
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry, now)) {
+            remove(key, entry);
+            evictions.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.response;
+    }
+
+    /**
+     * Stores the response for a key, evicting the least
+     * recently used responses if the cache is full
+     * Responses larger than the cache are not stored
+     * @param key key of the request
+     * @param response response of the service
+     * @param now current instant in nanoseconds
+     */
+    synchronized void put(ByteString key, ByteString response, long now) {
+        long entryBytes = (long) key.size() + response.size();
+        if (entryBytes > maxBytes) {
+            return;
+        }
+        Entry previous = entries.get(key);
+        if (previous != null) {
+            remove(key, previous);
+        }
+        entries.put(key, new Entry(response, now));
+        bytes += entryBytes;
+
+        Iterator<Map.Entry<ByteString, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > size || bytes > maxBytes) {
+            Map.Entry<ByteString, Entry> evicted = eldest.next();
+            bytes -= evicted.getKey().size() + evicted.getValue().response.size();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlNanos > 0 && now - entry.created > ttlNanos;
+    }
+
+    private void remove(ByteString key, Entry entry) {
+        entries.remove(key);
+        bytes -= key.size() + entry.response.size();
+    }
+
+    private static final class Entry {
+
+        private final ByteString response;
+
+        // Instant when the response was stored
+        private final long created;
+
+        private Entry(ByteString response, long created) {
+            this.response = response;
+            this.created = created;
+        }
+    }
+}
@@ -5,42 +5,87 @@ import com.google.common.eventbus.EventBus;
 import com.google.protobuf.DynamicMessage;
 import io.grpc.Channel;
 import io.grpc.StatusRuntimeException;
-import io.grpc.stub.StreamObserver;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import pipeline.orchestrator.execution.ComputationState;
 import pipeline.orchestrator.execution.inputs.StageInputStream;
 import pipeline.orchestrator.execution.outputs.StageOutputStream;
+import pipeline.orchestrator.execution.scheduling.StageScheduler;
 import pipeline.orchestrator.execution.stages.events.UnavailableServiceEvent;
 import pipeline.orchestrator.grpc.methods.FullMethodDescription;
 import pipeline.orchestrator.grpc.utils.StatusRuntimeExceptions;
 import pipeline.orchestrator.grpc.methods.AsyncServerStreamingMethodInvoker;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Stage that executes a Server Streaming Grpc Method
- * This stage can only be in the beginning of the pipeline
- * since it creates its own ids for the computational states
+ * Each message of a stream is sent to the outputs as a new state.
+ * At the beginning of the pipeline the states receive consecutive ids.
+ * Otherwise, the states are derived from the received state: they keep
+ * its id and receive a sub id with the index of the message in the
+ * stream, so that the states of the same input can still be joined
+ * downstream with the other states of the computation.
+ * Up to max-in-flight streams can be open at the same time. The states
+ * of each stream are sent in the order of the messages, but the states
+ * of concurrent streams are interleaved, so they are not sent in the
+ * order of the received states.
+ * If the outputs use credits, the stage only requests a message from
+ * the server for each credit granted by the outputs, so the server
+ * produces at the rate of the downstream stages. The messages are
+ * requested by a thread for each stream, which stops requesting while
+ * the stage is paused and cancels the stream when it finishes.
  */
 public class ServerStreamingPipelineStage extends AbstractPipelineStage {
 
-    private int currentId = 0;
+    // Next id when the stage is at the beginning of the pipeline
+    private final AtomicInteger currentId = new AtomicInteger(0);
 
     private final AsyncServerStreamingMethodInvoker<DynamicMessage, DynamicMessage> invoker;
 
-    private boolean paused = false;
-    private boolean finished = false;
+    // Maximum streams open at the same time
+    private final int maxInFlight;
+
+    // Maximum messages sent to the outputs for each stream
+    private final int maxFanOut;
+
+    // Scheduler for the threads that request
+    // the messages of the streams with flow control
+    private final StageScheduler scheduler;
+
+    // Messages of concurrent streams are received in different threads
+    private final Lock outputLock = new ReentrantLock();
+
+    // Streams that are cancelled if the stage finishes
+    private final Set<StreamResponseObserver> openStreams = ConcurrentHashMap.newKeySet();
+
+    private final PauseControl pauseControl = new PauseControl();
 
     private ServerStreamingPipelineStage(
             String stageName,
             Channel channel,
             FullMethodDescription fullMethodDescription,
-            EventBus eventBus) {
+            EventBus eventBus,
+            int maxInFlight,
+            int maxFanOut,
+            StageScheduler scheduler) {
 
         super(stageName,  channel, fullMethodDescription, eventBus);
+        Preconditions.checkArgument(maxInFlight > 0);
+        Preconditions.checkArgument(maxFanOut > 0);
+        Preconditions.checkNotNull(scheduler);
         invoker = AsyncServerStreamingMethodInvoker.<DynamicMessage, DynamicMessage>newBuilder()
                 .forChannel(getChannel())
                 .forMethod(buildGrpcMethodDescriptor())
                 .build();
+        this.maxInFlight = maxInFlight;
+        this.maxFanOut = maxFanOut;
+        this.scheduler = scheduler;
     }
 
     @Override
@@ -48,10 +93,17 @@ public class ServerStreamingPipelineStage extends AbstractPipelineStage {
         StageInputStream inputStream = getStageInputStream();
         StageOutputStream outputStream = getStageOutputStream();
 
-        getLogger().debug("Stage '{}': Running", getName());
+        getLogger().debug(
+                "Stage '{}': Running with {} streams",
+                getName(),
+                maxInFlight);
+
+        // Sources have no meaningful ids so consecutive ids are created
+        boolean deriveIds = !inputStream.isSource();
 
-        // Check if the input stream is a source so that it can ignore ids
-        Preconditions.checkState(inputStream.isSource());
+        // Permits for the streams that can be open
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        int streams = 0;
 
         // Run forever until finished
         while (true) {
@@ -63,34 +115,58 @@ public class ServerStreamingPipelineStage extends AbstractPipelineStage {
                 break;
             }
 
-            ComputationState requestState = inputStream.get();
-            CountDownLatch streamEnd = new CountDownLatch(1);
-
-            invoker.call(requestState.getMessage(), new StreamObserver<>() {
-                @Override
-                public void onNext(DynamicMessage value) {
-                    ComputationState state = ComputationState.from(
-                            currentId++,
-                            value);
-                    outputStream.accept(state);
-                }
+            // Wait for a stream to end if the
+            // maximum number of streams are open
+            try {
+                inFlight.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pause();
+                continue;
+            }
 
-                @Override
-                public void onError(Throwable t) {
-                    handleThrowable(t);
+            boolean flowControl = outputStream.usesCredits();
+            if (flowControl) {
+                // Credit for the first message, always requested by the call
+                try {
+                    outputStream.acquireCredit();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    inFlight.release();
+                    pause();
+                    continue;
                 }
+            }
 
-                @Override
-                public void onCompleted() {
-                    streamEnd.countDown();
+            ComputationState requestState = inputStream.get();
+            if (requestState == null) {
+                // Interrupted while waiting for the input
+                if (flowControl) {
+                    outputStream.releaseCredit();
                 }
-            });
+                inFlight.release();
+            }
+            else {
+                StreamResponseObserver observer = new StreamResponseObserver(
+                        requestState,
+                        deriveIds,
+                        outputStream,
+                        flowControl,
+                        inFlight,
+                        getMetrics().startCall());
 
-            try {
-                // Wait for the stream to end before starting the next stream
-                streamEnd.await();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                openStreams.add(observer);
+                invoker.call(requestState.getMessage(), observer);
+
+                if (flowControl) {
+                    // Requests are not made in this thread so that
+                    // the stage still handles the pause and finish signals
+                    scheduler.schedule(
+                            getName() + "-stream-" + streams++,
+                            observer::requestUntilEnd);
+                }
             }
 
             if (Thread.currentThread().isInterrupted()) {
@@ -103,52 +179,40 @@ public class ServerStreamingPipelineStage extends AbstractPipelineStage {
     @Override
     public void resume() {
         getLogger().trace("Stage '{}': Received resume signal", getName());
-        synchronized (this) {
-            // Can only resume if not paused
-            if (!finished) {
-                paused = false;
-                // Notify thread to resume if waiting
-                notifyAll();
-            }
-            else {
-                // Stage remains finished
-                // Should not happen
-                getLogger().warn(
-                        "Stage '{}': Not resumed (already finished)",
-                        getName());
-            }
+        if (!pauseControl.resume()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not resumed (already finished)",
+                    getName());
         }
     }
 
     @Override
     public void pause() {
         getLogger().trace("Stage '{}': Received pause signal", getName());
-        synchronized (this) {
-            // Can only pause if not paused
-            if (!finished) {
-                // In this case of the stream it will keep processing the
-                // received objects and storing them if possible
-                paused = true;
-            }
-            else {
-                // Stage remains finished
-                // Should not happen
-                getLogger().warn(
-                        "Stage '{}': Not paused (already finished)",
-                        getName());
-            }
+        // In this case of the stream it will keep processing the
+        // received objects and storing them if possible
+        if (!pauseControl.pause()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not paused (already finished)",
+                    getName());
         }
     }
 
     @Override
     public void finish() {
         getLogger().trace("Stage '{}': Received finish signal", getName());
-        synchronized (this) {
-            // Unpause in order to finish
-            paused = false;
-            finished = true;
-            notifyAll();
-        }
+        pauseControl.finish();
+        // The stage waits for the open streams to end
+        openStreams.forEach(StreamResponseObserver::cancel);
+    }
+
+    @Override
+    int getMaxFanOut() {
+        return maxFanOut;
     }
 
     /**
@@ -159,30 +223,196 @@ public class ServerStreamingPipelineStage extends AbstractPipelineStage {
         return new Builder();
     }
 
-    private void waitPaused() {
-        synchronized (this) {
-            while (paused) {
-                getLogger().trace("Stage '{}': Waiting", getName());
-                try {
-                    wait();
+    /**
+     * Observer for the messages of a stream
+     * With flow control, counts the credits granted for messages that
+     * were requested but not received, which are released when the
+     * stream ends.
+     */
+    private final class StreamResponseObserver
+            implements ClientResponseObserver<DynamicMessage, DynamicMessage> {
+
+        private final ComputationState requestState;
+        private final boolean deriveIds;
+        private final StageOutputStream outputStream;
+        private final boolean flowControl;
+        private final Semaphore inFlight;
+        private final long start;
+
+        // Messages received in the stream
+        private int received = 0;
+
+        // The first message is requested when the call starts
+        private final AtomicInteger granted = new AtomicInteger(1);
+        private volatile boolean ended = false;
+
+        // Set when the stream is cancelled because the stage finished
+        private volatile boolean cancelled = false;
+
+        private volatile ClientCallStreamObserver<DynamicMessage> call;
+
+        private StreamResponseObserver(
+                ComputationState requestState,
+                boolean deriveIds,
+                StageOutputStream outputStream,
+                boolean flowControl,
+                Semaphore inFlight,
+                long start) {
+
+            this.requestState = requestState;
+            this.deriveIds = deriveIds;
+            this.outputStream = outputStream;
+            this.flowControl = flowControl;
+            this.inFlight = inFlight;
+            this.start = start;
+        }
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<DynamicMessage> requestStream) {
+            if (flowControl) {
+                requestStream.disableAutoInboundFlowControl();
+            }
+            call = requestStream;
+        }
+
+        @Override
+        public void onNext(DynamicMessage value) {
+            granted.decrementAndGet();
+            int index = received++;
+            if (deriveIds && index >= maxFanOut) {
+                // The sub id would overlap with the states of the other inputs
+                if (index == maxFanOut) {
+                    getLogger().warn(
+                            "Stage '{}': Stream of state {} exceeded {} messages, discarding remaining",
+                            getName(),
+                            requestState.getId(),
+                            maxFanOut);
                 }
-                catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                if (flowControl) {
+                    outputStream.releaseCredit();
+                }
+                return;
+            }
+            ComputationState state;
+            if (deriveIds) {
+                // Each message continues the computation of the input
+                state = ComputationState.derive(requestState, index, maxFanOut, value);
+            }
+            else {
+                // Each message of the stream starts a new computation
+                state = ComputationState.from(
+                        currentId.getAndIncrement(),
+                        value);
+            }
+            state.recordHop(getName(), start, System.nanoTime());
+            outputLock.lock();
+            try {
+                outputStream.accept(state);
+            }
+            finally {
+                outputLock.unlock();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (cancelled) {
+                end();
+                return;
+            }
+            getMetrics().callFailed(start);
+            end();
+            handleThrowable(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            getMetrics().callCompleted(start);
+            end();
+        }
+
+        /**
+         * Requests one more message for each new credit
+         * until the stream ends
+         */
+        private void requestUntilEnd() {
+            try {
+                while (requestNext()) {
+                    // Continue until the stream ends
                 }
             }
+            catch (InterruptedException e) {
+                // The stage is being stopped
+                Thread.currentThread().interrupt();
+                cancel();
+            }
+        }
+
+        /**
+         * Waits for a credit and requests one more message
+         * @return true if the message was requested and
+         *         false if the stream already ended
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private boolean requestNext() throws InterruptedException {
+            if (ended) {
+                return false;
+            }
+            waitPaused();
+            if (isFinished()) {
+                cancel();
+                return false;
+            }
+            outputStream.acquireCredit();
+            granted.incrementAndGet();
+            if (ended) {
+                // The stream ended while waiting
+                releaseGranted();
+                return false;
+            }
+            call.request(1);
+            return true;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            // Not set if the call did not start yet
+            ClientCallStreamObserver<DynamicMessage> requestStream = call;
+            if (requestStream != null) {
+                requestStream.cancel("Stage finished", null);
+            }
+        }
+
+        private void end() {
+            ended = true;
+            openStreams.remove(this);
+            if (flowControl) {
+                releaseGranted();
+            }
+            inFlight.release();
+        }
+
+        private void releaseGranted() {
+            for (int i = granted.getAndSet(0); i > 0; i--) {
+                outputStream.releaseCredit();
+            }
         }
     }
 
-    private boolean isFinished() {
-        synchronized (this) {
-            return finished;
+    private void waitPaused() {
+        if (pauseControl.isPaused()) {
+            getLogger().trace("Stage '{}': Waiting", getName());
         }
+        pauseControl.awaitResumed();
+    }
+
+    private boolean isFinished() {
+        return pauseControl.isFinished();
     }
 
     private void handleThrowable(Throwable t) {
         if (t instanceof StatusRuntimeException) {
             handleStatusRuntimeException((StatusRuntimeException) t);
-            pause();
         }
         else {
             getLogger().error("Unknown Throwable when executing call", t);
@@ -191,7 +421,9 @@ public class ServerStreamingPipelineStage extends AbstractPipelineStage {
     }
 
     private void handleStatusRuntimeException(StatusRuntimeException e) {
-        if (StatusRuntimeExceptions.isUnavailable(e)) {
+        if (StatusRuntimeExceptions.isUnavailable(e)
+                || StatusRuntimeExceptions.isDeadlineExceeded(e)) {
+            // Paused by the stages monitor
             postEvent(new UnavailableServiceEvent(getName()));
         }
         else {
@@ -210,7 +442,10 @@ public class ServerStreamingPipelineStage extends AbstractPipelineStage {
                     getName(),
                     getChannel(),
                     getDescription(),
-                    getEventBus());
+                    getEventBus(),
+                    getMaxInFlight(),
+                    getMaxFanOut(),
+                    getScheduler());
         }
     }
 }
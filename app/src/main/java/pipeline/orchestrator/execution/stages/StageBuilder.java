@@ -2,6 +2,10 @@ package pipeline.orchestrator.execution.stages;
 
 import com.google.common.eventbus.EventBus;
 import io.grpc.Channel;
+import pipeline.orchestrator.architecture.CacheInformation;
+import pipeline.orchestrator.architecture.OutputOrdering;
+import pipeline.orchestrator.architecture.StageInformation;
+import pipeline.orchestrator.execution.scheduling.StageScheduler;
 import pipeline.orchestrator.grpc.methods.FullMethodDescription;
 
 /**
@@ -25,6 +29,38 @@ public abstract class StageBuilder<T extends AbstractPipelineStage> {
     // publishing events
     private EventBus eventBus;
 
+    // Maximum number of requests that the
+    // stage can have waiting for a response
+    private int maxInFlight = StageInformation.DEFAULT_MAX_IN_FLIGHT;
+
+    // Number of workers that process states
+    // concurrently and order of their results
+    private int parallelism = StageInformation.DEFAULT_PARALLELISM;
+    private OutputOrdering outputOrdering = StageInformation.DEFAULT_OUTPUT_ORDERING;
+
+    // Maximum size of the batches and time
+    // to wait for a batch to fill
+    private int batchSize = StageInformation.DEFAULT_BATCH_SIZE;
+    private int batchTimeoutMs = StageInformation.DEFAULT_BATCH_TIMEOUT_MS;
+
+    // Field to match the responses of bidirectional streams
+    // Null if the responses are matched in order
+    private String idField;
+
+    // Maximum number of states derived from each received state
+    private int maxFanOut = StageInformation.DEFAULT_MAX_FAN_OUT;
+
+    // Cache of the responses, null if disabled
+    private CacheInformation cache;
+
+    // Maximum time to wait for each response
+    // Null if the stage has no limit of its own
+    private Integer timeoutMs;
+
+    // Scheduler for any additional
+    // threads that the stage needs
+    private StageScheduler scheduler;
+
     public StageBuilder<T> setName(String name) {
         this.name = name;
         return this;
@@ -63,6 +99,96 @@ public abstract class StageBuilder<T extends AbstractPipelineStage> {
         return eventBus;
     }
 
+    public StageBuilder<T> setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    protected int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public StageBuilder<T> setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    protected int getParallelism() {
+        return parallelism;
+    }
+
+    public StageBuilder<T> setOutputOrdering(OutputOrdering outputOrdering) {
+        this.outputOrdering = outputOrdering;
+        return this;
+    }
+
+    protected OutputOrdering getOutputOrdering() {
+        return outputOrdering;
+    }
+
+    public StageBuilder<T> setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    protected int getBatchSize() {
+        return batchSize;
+    }
+
+    public StageBuilder<T> setBatchTimeoutMs(int batchTimeoutMs) {
+        this.batchTimeoutMs = batchTimeoutMs;
+        return this;
+    }
+
+    protected int getBatchTimeoutMs() {
+        return batchTimeoutMs;
+    }
+
+    public StageBuilder<T> setIdField(String idField) {
+        this.idField = idField;
+        return this;
+    }
+
+    protected String getIdField() {
+        return idField;
+    }
+
+    public StageBuilder<T> setMaxFanOut(int maxFanOut) {
+        this.maxFanOut = maxFanOut;
+        return this;
+    }
+
+    protected int getMaxFanOut() {
+        return maxFanOut;
+    }
+
+    public StageBuilder<T> setCache(CacheInformation cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    protected CacheInformation getCache() {
+        return cache;
+    }
+
+    public StageBuilder<T> setTimeoutMs(Integer timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        return this;
+    }
+
+    protected Integer getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public StageBuilder<T> setScheduler(StageScheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    protected StageScheduler getScheduler() {
+        return scheduler;
+    }
+
     /**
      * Builds a new stage instance
      * @return the new stage
@@ -0,0 +1,181 @@
+package pipeline.orchestrator.execution.stages;
+
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.inputs.CollectorInputStream;
+import pipeline.orchestrator.execution.inputs.MultipleInputStream;
+import pipeline.orchestrator.execution.inputs.StageInputStream;
+import pipeline.orchestrator.execution.outputs.StageOutputStream;
+import pipeline.orchestrator.metrics.Counter;
+import pipeline.orchestrator.metrics.Histogram;
+import pipeline.orchestrator.metrics.MetricsRegistry;
+
+/**
+ * Metrics of a pipeline stage
+ * Counts the calls to the service and their errors and records
+ * the latency of the calls and the time that the stage is blocked
+ * waiting for the inputs or for space in the outputs.
+ */
+final class StageMetrics {
+
+    private final String stageName;
+    private final MetricsRegistry registry;
+
+    private final Counter calls;
+    private final Counter errors;
+    private final Histogram callLatency;
+    private final Histogram inputWait;
+    private final Histogram outputWait;
+    private final Histogram creditWait;
+
+    StageMetrics(String stageName, MetricsRegistry registry) {
+        this.stageName = stageName;
+        this.registry = registry;
+        calls = registry.counter(
+                "pipeline_stage_calls_total",
+                "Calls sent to the stage service",
+                "stage", stageName);
+        errors = registry.counter(
+                "pipeline_stage_errors_total",
+                "Calls to the stage service that failed",
+                "stage", stageName);
+        callLatency = registry.histogram(
+                "pipeline_stage_call_latency_seconds",
+                "Time from sending a call to the stage service until it completes",
+                "stage", stageName);
+        inputWait = registry.histogram(
+                "pipeline_stage_input_wait_seconds",
+                "Time that the stage waits for a state from the inputs",
+                "stage", stageName);
+        outputWait = registry.histogram(
+                "pipeline_stage_output_wait_seconds",
+                "Time that the stage takes to send a state to the outputs",
+                "stage", stageName);
+        creditWait = registry.histogram(
+                "pipeline_stage_credit_wait_seconds",
+                "Time that the stage waits for credit in the output links",
+                "stage", stageName);
+    }
+
+    /**
+     * Counts a new call
+     * @return the instant when the call started
+     */
+    long startCall() {
+        calls.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the latency of a call that completed successfully
+     * @param start instant returned when the call started
+     * @return the instant when the call completed
+     */
+    long callCompleted(long start) {
+        long end = System.nanoTime();
+        callLatency.record(end - start);
+        return end;
+    }
+
+    /**
+     * Records the latency of a call that failed
+     * @param start instant returned when the call started
+     */
+    void callFailed(long start) {
+        callLatency.recordSince(start);
+        errors.increment();
+    }
+
+    /**
+     * Wraps the input stream to record the time waiting for the states
+     * Also exposes the join counters of multiple inputs
+     * and the states waiting in the links of collected inputs
+     * @param inputStream stream to wrap
+     * @return the wrapped stream
+     */
+    StageInputStream meter(StageInputStream inputStream) {
+        if (inputStream instanceof MultipleInputStream) {
+            registerJoin((MultipleInputStream) inputStream);
+        }
+        if (inputStream instanceof CollectorInputStream) {
+            registerCollector((CollectorInputStream) inputStream);
+        }
+        if (inputStream.isSource()) {
+            // Nothing to wait for
+            return inputStream;
+        }
+        return new StageInputStream() {
+            @Override
+            public boolean isSource() {
+                return false;
+            }
+
+            @Override
+            public ComputationState get() {
+                long start = System.nanoTime();
+                ComputationState state = inputStream.get();
+                inputWait.recordSince(start);
+                return state;
+            }
+        };
+    }
+
+    /**
+     * Wraps the output stream to record the time sending the
+     * states and waiting for credit in the output links
+     * @param outputStream stream to wrap
+     * @return the wrapped stream
+     */
+    StageOutputStream meter(StageOutputStream outputStream) {
+        return new StageOutputStream() {
+            @Override
+            public void accept(ComputationState state) {
+                long start = System.nanoTime();
+                outputStream.accept(state);
+                outputWait.recordSince(start);
+            }
+
+            @Override
+            public void acquireCredit() throws InterruptedException {
+                long start = System.nanoTime();
+                outputStream.acquireCredit();
+                creditWait.recordSince(start);
+            }
+
+            @Override
+            public void releaseCredit() {
+                outputStream.releaseCredit();
+            }
+
+            @Override
+            public boolean usesCredits() {
+                return outputStream.usesCredits();
+            }
+        };
+    }
+
+    private void registerCollector(CollectorInputStream inputStream) {
+        registry.gauge(
+                "pipeline_collector_pending",
+                "States waiting in all the input links collected by the stage",
+                inputStream::getPending,
+                "stage", stageName);
+    }
+
+    private void registerJoin(MultipleInputStream inputStream) {
+        registry.counter(
+                "pipeline_join_completed_total",
+                "Computations with all the input fields joined",
+                inputStream::getCompletedJoins,
+                "stage", stageName);
+        registry.counter(
+                "pipeline_join_expired_total",
+                "Computations discarded before receiving all the input fields",
+                inputStream::getExpiredJoins,
+                "stage", stageName);
+        registry.counter(
+                "pipeline_join_discarded_total",
+                "Input states received after their computation was discarded",
+                inputStream::getDiscardedStates,
+                "stage", stageName);
+    }
+}
@@ -1,68 +1,135 @@
 package pipeline.orchestrator.execution.stages;
 
+import com.google.common.base.Preconditions;
 import com.google.common.eventbus.EventBus;
-import com.google.protobuf.DynamicMessage;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
 import io.grpc.Channel;
 import io.grpc.StatusRuntimeException;
+import pipeline.orchestrator.architecture.CacheInformation;
 import pipeline.orchestrator.execution.ComputationState;
 import pipeline.orchestrator.execution.inputs.StageInputStream;
-import pipeline.orchestrator.execution.outputs.StageOutputStream;
+import pipeline.orchestrator.architecture.OutputOrdering;
+import pipeline.orchestrator.execution.outputs.ConcurrentOutputStream;
+import pipeline.orchestrator.execution.scheduling.StageScheduler;
 import pipeline.orchestrator.execution.stages.events.UnavailableServiceEvent;
 import pipeline.orchestrator.grpc.methods.FullMethodDescription;
 import pipeline.orchestrator.grpc.utils.StatusRuntimeExceptions;
 import pipeline.orchestrator.grpc.methods.UnaryServiceMethodInvoker;
+import pipeline.orchestrator.metrics.MetricsRegistry;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Stage that executes an Unary Grpc Method
+ * The stage has one or more workers that receive states from the
+ * inputs and send the requests. Each worker sends up to a maximum
+ * number of requests without waiting for the previous responses.
+ * The responses are sent to the outputs either in the same order
+ * as the requests or as soon as they are received.
+ * Messages are sent and received in their serialized form, so states
+ * are only parsed if required by the inputs or the outputs.
+ * If the stage has a cache, requests with a cached response are
+ * not sent to the service.
  */
 public class UnaryPipelineStage extends AbstractPipelineStage {
 
-    private final UnaryServiceMethodInvoker<DynamicMessage, DynamicMessage> invoker;
+    private final UnaryServiceMethodInvoker<ByteString, ByteString> invoker;
+
+    private final Descriptors.Descriptor responseDescriptor;
+
+    // Maximum requests waiting for a response for each worker
+    private final int maxInFlight;
+
+    // Number of workers sending requests
+    private final int parallelism;
+
+    private final OutputOrdering outputOrdering;
+
+    // Inputs are shared by the workers but are not thread safe
+    private final Lock inputLock = new ReentrantLock();
 
-    private boolean paused = false;
-    private boolean finished = false;
+    // Scheduler for the additional workers
+    private final StageScheduler scheduler;
+
+    // Null if the responses are not cached
+    private final ResponseCache cache;
+
+    private final PauseControl pauseControl = new PauseControl();
 
     private UnaryPipelineStage(
             String stageName,
             Channel channel,
             FullMethodDescription fullMethodDescription,
-            EventBus eventBus) {
+            EventBus eventBus,
+            int maxInFlight,
+            int parallelism,
+            OutputOrdering outputOrdering,
+            StageScheduler scheduler,
+            CacheInformation cacheInformation) {
 
         super(stageName,  channel, fullMethodDescription, eventBus);
+        Preconditions.checkArgument(maxInFlight > 0);
+        Preconditions.checkArgument(parallelism > 0);
+        Preconditions.checkNotNull(outputOrdering);
+        Preconditions.checkArgument(parallelism == 1 || scheduler != null);
         invoker = buildInvoker();
+        responseDescriptor = getFullMethodDescription().getMethodDescriptor().getOutputType();
+        this.maxInFlight = maxInFlight;
+        this.parallelism = parallelism;
+        this.outputOrdering = outputOrdering;
+        this.scheduler = scheduler;
+        this.cache = cacheInformation != null
+                ? new ResponseCache(
+                        stageName,
+                        cacheInformation,
+                        getFullMethodDescription().getMethodDescriptor().getInputType(),
+                        MetricsRegistry.getInstance())
+                : null;
     }
 
     @Override
     public void run() {
         StageInputStream inputStream = getStageInputStream();
-        StageOutputStream outputStream = getStageOutputStream();
-
-        getLogger().debug("Stage '{}': Running", getName());
+        ConcurrentOutputStream outputStream = ConcurrentOutputStream.forOrdering(
+                outputOrdering,
+                getStageOutputStream(),
+                // Requests in flight of all the workers
+                parallelism * maxInFlight);
 
-        // Run forever until finished
-        while (true) {
+        getLogger().debug(
+                "Stage '{}': Running with {} worker(s)",
+                getName(),
+                parallelism);
 
-            waitPaused();
-
-            // Check if finished while paused
-            if (isFinished()) {
-                break;
-            }
-
-            ComputationState requestState = inputStream.get();
-            try {
-                DynamicMessage response = invoker.call(requestState.getMessage());
-                ComputationState responseState = ComputationState.from(
-                        requestState,
-                        response);
-                outputStream.accept(responseState);
-            } catch (StatusRuntimeException e) {
-                handleStatusRuntimeException(e);
-            }
+        // This thread is also a worker
+        CountDownLatch workersEnd = new CountDownLatch(parallelism - 1);
+        for (int i = 1; i < parallelism; i++) {
+            scheduler.schedule(
+                    getName() + "-worker-" + i,
+                    () -> {
+                        try {
+                            runWorker(inputStream, outputStream);
+                        }
+                        finally {
+                            workersEnd.countDown();
+                        }
+                    });
+        }
+        runWorker(inputStream, outputStream);
 
-            if (Thread.currentThread().isInterrupted()) {
-                pause();
-            }
+        try {
+            workersEnd.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
         getLogger().info("Stage '{}': Processing finished", getName());
     }
@@ -70,50 +137,31 @@ public class UnaryPipelineStage extends AbstractPipelineStage {
     @Override
     public void resume() {
         getLogger().trace("Stage '{}': Received resume signal", getName());
-        synchronized (this) {
-            // Can only resume if not paused
-            if (!finished) {
-                paused = false;
-                // Notify thread to resume if waiting
-                notifyAll();
-            }
-            else {
-                // Stage remains finished
-                // Should not happen
-                getLogger().warn(
-                        "Stage '{}': Not resumed (already finished)",
-                        getName());
-            }
+        if (!pauseControl.resume()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not resumed (already finished)",
+                    getName());
         }
     }
 
     @Override
     public void pause() {
         getLogger().trace("Stage '{}': Received pause signal", getName());
-        synchronized (this) {
-            // Can only pause if not paused
-            if (!finished) {
-                paused = true;
-            }
-            else {
-                // Stage remains finished
-                // Should not happen
-                getLogger().warn(
-                        "Stage '{}': Not paused (already finished)",
-                        getName());
-            }
+        if (!pauseControl.pause()) {
+            // Stage remains finished
+            // Should not happen
+            getLogger().warn(
+                    "Stage '{}': Not paused (already finished)",
+                    getName());
         }
     }
 
     @Override
     public void finish() {
         getLogger().trace("Stage '{}': Received finish signal", getName());
-        synchronized (this) {
-            // Unpause in order to finish
-            paused = false;
-            finished = true;
-            notifyAll();
-        }
+        pauseControl.finish();
     }
 
     /**
@@ -125,29 +173,156 @@ public class UnaryPipelineStage extends AbstractPipelineStage {
     }
 
     private void waitPaused() {
-        synchronized (this) {
-            while (paused) {
-                getLogger().trace("Stage '{}': Waiting", getName());
-                try {
-                    wait();
-                }
-                catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
+        if (pauseControl.isPaused()) {
+            getLogger().trace("Stage '{}': Waiting", getName());
         }
+        pauseControl.awaitResumed();
     }
 
     private boolean isFinished() {
-        synchronized (this) {
-            return finished;
+        return pauseControl.isFinished();
+    }
+
+    private void runWorker(
+            StageInputStream inputStream,
+            ConcurrentOutputStream outputStream) {
+
+        // Permits for the requests that can be waiting for a response
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        // Run forever until finished
+        while (true) {
+
+            waitPaused();
+
+            // Check if finished while paused
+            if (isFinished()) {
+                break;
+            }
+
+            // Wait for a response if the maximum
+            // number of requests are in flight
+            try {
+                inFlight.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pause();
+                continue;
+            }
+
+            // Wait for space in the outputs before reading
+            // a state so that the response is never dropped
+            try {
+                outputStream.acquireCredit();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                inFlight.release();
+                pause();
+                continue;
+            }
+
+            ComputationState requestState;
+            long position;
+            // Reserve the output position with the input so
+            // that positions follow the order of the states
+            inputLock.lock();
+            try {
+                requestState = inputStream.get();
+                position = requestState != null ? outputStream.reserve() : -1;
+            }
+            finally {
+                inputLock.unlock();
+            }
+            if (requestState == null) {
+                // Interrupted while waiting for the input
+                outputStream.releaseCredit();
+                inFlight.release();
+            }
+            else {
+                sendRequest(requestState, position, outputStream, inFlight);
+            }
+
+            if (Thread.currentThread().isInterrupted()) {
+                pause();
+            }
+        }
+    }
+
+    private void sendRequest(
+            ComputationState requestState,
+            long position,
+            ConcurrentOutputStream outputStream,
+            Semaphore inFlight) {
+
+        ByteString key = null;
+        if (cache != null) {
+            key = cache.keyOf(requestState);
+            long now = System.nanoTime();
+            ByteString cached = cache.get(key, now);
+            if (cached != null) {
+                ComputationState responseState =
+                        ComputationState.from(requestState, responseDescriptor, cached);
+                responseState.recordHop(getName(), now, System.nanoTime());
+                outputStream.complete(position, responseState);
+                inFlight.release();
+                return;
+            }
+        }
+        ByteString cacheKey = key;
+
+        long start = getMetrics().startCall();
+        ListenableFuture<ByteString> response =
+                invoker.futureCall(requestState.getBytes());
+
+        Futures.addCallback(
+                response,
+                new FutureCallback<>() {
+                    @Override
+                    public void onSuccess(ByteString result) {
+                        long end = getMetrics().callCompleted(start);
+                        if (cacheKey != null) {
+                            cache.put(cacheKey, result, end);
+                        }
+                        ComputationState responseState =
+                                ComputationState.from(requestState, responseDescriptor, result);
+                        responseState.recordHop(getName(), start, end);
+                        outputStream.complete(position, responseState);
+                        inFlight.release();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        getMetrics().callFailed(start);
+                        outputStream.skip(position);
+                        outputStream.releaseCredit();
+                        inFlight.release();
+                        handleCallFailure(t);
+                    }
+                },
+                MoreExecutors.directExecutor());
+    }
+
+    private void handleCallFailure(Throwable t) {
+        if (t instanceof StatusRuntimeException) {
+            handleStatusRuntimeException((StatusRuntimeException) t);
+        }
+        else {
+            getLogger().error(
+                    "Stage '{}': Unknown error when executing call",
+                    getName(),
+                    t);
+            System.exit(1);
         }
     }
 
     private void handleStatusRuntimeException(StatusRuntimeException e) {
-        if (StatusRuntimeExceptions.isUnavailable(e)) {
+        // A server that does not respond in time is handled as unavailable
+        if (StatusRuntimeExceptions.isUnavailable(e)
+                || StatusRuntimeExceptions.isDeadlineExceeded(e)) {
+            // Paused by the stages monitor
             postEvent(new UnavailableServiceEvent(getName()));
-            pause();
         }
         else {
             getLogger().error(
@@ -158,10 +333,10 @@ public class UnaryPipelineStage extends AbstractPipelineStage {
         }
     }
 
-    private UnaryServiceMethodInvoker<DynamicMessage, DynamicMessage> buildInvoker() {
-        return UnaryServiceMethodInvoker.<DynamicMessage, DynamicMessage>newBuilder()
+    private UnaryServiceMethodInvoker<ByteString, ByteString> buildInvoker() {
+        return UnaryServiceMethodInvoker.<ByteString, ByteString>newBuilder()
                 .forChannel(getChannel())
-                .forMethod(buildGrpcMethodDescriptor())
+                .forMethod(buildRawGrpcMethodDescriptor())
                 .build();
     }
 
@@ -173,7 +348,12 @@ public class UnaryPipelineStage extends AbstractPipelineStage {
                     getName(),
                     getChannel(),
                     getDescription(),
-                    getEventBus());
+                    getEventBus(),
+                    getMaxInFlight(),
+                    getParallelism(),
+                    getOutputOrdering(),
+                    getScheduler(),
+                    getCache());
         }
     }
 }
\ No newline at end of file
@@ -1,5 +1,12 @@
 package pipeline.orchestrator.execution.stages.events;
 
+/**
+ * Event posted by a stage when its service is unavailable
+ * The stage keeps running after posting the event, since the monitor
+ * that receives it pauses the stage and later resumes it to probe the
+ * service. A stage that paused itself could do it after the resume
+ * and stay paused.
+ */
 public class UnavailableServiceEvent {
 
     private final String stageName;
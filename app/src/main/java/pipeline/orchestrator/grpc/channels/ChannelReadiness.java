@@ -0,0 +1,47 @@
+package pipeline.orchestrator.grpc.channels;
+
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to wait for the servers at the endpoints of channels
+ * to accept connections, by watching the connectivity state
+ * of the channels
+ */
+public class ChannelReadiness {
+
+    // Time to wait for a state change before
+    // trying to connect again after a failure
+    private static final long RECONNECT_INTERVAL_MS = 1000;
+
+    private ChannelReadiness() {}
+
+    /**
+     * Waits until the channel is connected to the server
+     * A channel that fails to connect tries again every
+     * second, instead of the increasing backoff of grpc,
+     * so the wait ends shortly after the server starts
+     * @param channel channel to wait for
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void awaitReady(ManagedChannel channel) throws InterruptedException {
+        // Requesting the state starts the connection if idle
+        ConnectivityState state = channel.getState(true);
+        while (state != ConnectivityState.READY) {
+            if (state == ConnectivityState.SHUTDOWN) {
+                throw new IllegalStateException(
+                        String.format("Channel for %s was shutdown", channel.authority()));
+            }
+            CountDownLatch changed = new CountDownLatch(1);
+            channel.notifyWhenStateChanged(state, changed::countDown);
+            if (!changed.await(RECONNECT_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                    && state == ConnectivityState.TRANSIENT_FAILURE) {
+                channel.resetConnectBackoff();
+            }
+            state = channel.getState(true);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package pipeline.orchestrator.grpc.channels;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HostAndPort;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.NegotiationType;
+import io.grpc.netty.NettyChannelBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pipeline.orchestrator.architecture.ChannelInformation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the channels to the servers of the stages
+ * Stages that connect to the same server with the same configuration
+ * share the channels, instead of each stage opening its own connections.
+ * The registry counts the stages that use each channel, and the channels
+ * are shut down when the last of them releases it.
+ * All channels use a single event loop group, with the native epoll
+ * transport when it is available and the nio transport otherwise.
+ */
+public class ChannelRegistry {
+
+    private static final Logger LOGGER = LogManager.getLogger(ChannelRegistry.class);
+
+    private static final ChannelRegistry INSTANCE = new ChannelRegistry();
+
+    private final Map<ChannelKey, ImmutableList<ManagedChannel>> channels = new HashMap<>();
+
+    // Number of times the channels were requested and not released
+    private final Map<ChannelKey, Integer> references = new HashMap<>();
+
+    // Created with the first channel
+    private EventLoopGroup eventLoopGroup = null;
+
+    private Class<? extends io.netty.channel.Channel> channelType = null;
+
+    ChannelRegistry() {}
+
+    public static ChannelRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the channels to a server, creating them if no stage
+     * connected to the server with the same configuration before
+     * Each channel has its own connection to the server
+     * Each call must be matched by a call to {@link #release}
+     * @param address address of the server
+     * @param information configuration of the connections
+     * @return list with the configured number of channels
+     */
+    public synchronized List<ManagedChannel> getChannels(
+            HostAndPort address,
+            ChannelInformation information) {
+
+        ChannelKey key = new ChannelKey(address, information);
+        ImmutableList<ManagedChannel> keyChannels = channels.computeIfAbsent(
+                key,
+                k -> buildChannels(address, information));
+        references.merge(key, 1, Integer::sum);
+        return keyChannels;
+    }
+
+    /**
+     * Releases the channels to a server obtained with {@link #getChannels}
+     * The channels are shut down if no other stage uses them
+     * @param address address of the server
+     * @param information configuration of the connections
+     */
+    public synchronized void release(
+            HostAndPort address,
+            ChannelInformation information) {
+
+        ChannelKey key = new ChannelKey(address, information);
+        Integer count = references.get(key);
+        if (count == null) {
+            LOGGER.warn("Released channels to {} that were not in use", address);
+            return;
+        }
+        if (count > 1) {
+            references.put(key, count - 1);
+            return;
+        }
+        references.remove(key);
+        LOGGER.debug("Closing connections to {}", address);
+        channels.remove(key).forEach(ManagedChannel::shutdown);
+    }
+
+    /**
+     * @param address address of the server
+     * @param information configuration of the connections
+     * @return number of stages that use the channels to the server
+     */
+    synchronized int getReferences(
+            HostAndPort address,
+            ChannelInformation information) {
+
+        return references.getOrDefault(new ChannelKey(address, information), 0);
+    }
+
+    /**
+     * Shuts down all channels and the event loop group
+     */
+    public synchronized void shutdown() {
+        channels.values().forEach(list -> list.forEach(ManagedChannel::shutdown));
+        channels.clear();
+        references.clear();
+        if (eventLoopGroup != null) {
+            eventLoopGroup.shutdownGracefully();
+            eventLoopGroup = null;
+        }
+    }
+
+    private ImmutableList<ManagedChannel> buildChannels(
+            HostAndPort address,
+            ChannelInformation information) {
+
+        LOGGER.debug(
+                "Opening {} connections to {} with {}",
+                information.getConnections(),
+                address,
+                information);
+        ImmutableList.Builder<ManagedChannel> builder = ImmutableList.builder();
+        for (int i = 0; i < information.getConnections(); i++) {
+            builder.add(buildChannel(address, information));
+        }
+        return builder.build();
+    }
+
+    private ManagedChannel buildChannel(HostAndPort address, ChannelInformation information) {
+        initEventLoopGroup();
+        NettyChannelBuilder builder = NettyChannelBuilder
+                .forAddress(address.getHost(), address.getPort())
+                .negotiationType(NegotiationType.PLAINTEXT)
+                .eventLoopGroup(eventLoopGroup)
+                .channelType(channelType)
+                .maxInboundMessageSize(information.getMaxInboundMessageBytes());
+        information.getFlowControlWindowBytes().ifPresent(builder::flowControlWindow);
+        information.getKeepAliveTimeMs().ifPresent(keepAliveTimeMs -> builder
+                .keepAliveTime(keepAliveTimeMs, TimeUnit.MILLISECONDS)
+                .keepAliveTimeout(information.getKeepAliveTimeoutMs(), TimeUnit.MILLISECONDS));
+        return builder.build();
+    }
+
+    private void initEventLoopGroup() {
+        if (eventLoopGroup != null) {
+            return;
+        }
+        // Daemon threads so that the channels do not keep the application running
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory("stage-channels", true);
+        if (Epoll.isAvailable()) {
+            eventLoopGroup = new EpollEventLoopGroup(0, threadFactory);
+            channelType = EpollSocketChannel.class;
+        }
+        else {
+            eventLoopGroup = new NioEventLoopGroup(0, threadFactory);
+            channelType = NioSocketChannel.class;
+        }
+        LOGGER.debug("Using {} for the stage channels", channelType.getSimpleName());
+    }
+
+    private static final class ChannelKey {
+
+        private final HostAndPort address;
+        private final ChannelInformation information;
+
+        private ChannelKey(HostAndPort address, ChannelInformation information) {
+            this.address = address;
+            this.information = information;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ChannelKey that = (ChannelKey) o;
+            return address.equals(that.address) && information.equals(that.information);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(address, information);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package pipeline.orchestrator.grpc.channels;
+
+import com.google.common.base.Preconditions;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interceptor that sets a deadline on the calls with a single request
+ * The deadline starts when the call is created, so every call of the
+ * stage gets the whole timeout. Streaming calls that send multiple
+ * requests are kept open for the whole execution and have no deadline.
+ */
+public class DeadlineInterceptor implements ClientInterceptor {
+
+    private final long timeoutMs;
+
+    public DeadlineInterceptor(long timeoutMs) {
+        Preconditions.checkArgument(timeoutMs > 0);
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+            MethodDescriptor<ReqT, RespT> methodDescriptor,
+            CallOptions callOptions,
+            Channel next) {
+
+        CallOptions options = callOptions;
+        if (methodDescriptor.getType().clientSendsOneMessage() && callOptions.getDeadline() == null) {
+            options = callOptions.withDeadlineAfter(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        return next.newCall(methodDescriptor, options);
+    }
+}
@@ -0,0 +1,334 @@
+package pipeline.orchestrator.grpc.channels;
+
+import com.google.common.base.Preconditions;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Channel that hedges the unary calls that take longer than usual
+ * A call without a response after the 95th percentile of the latency
+ * of the recent calls is sent a second time, and the first attempt to
+ * respond is used while the other is cancelled. When the underlying
+ * channel is a pool of replicas, the second attempt is sent to another
+ * replica, so a replica that is briefly stalled does not delay the call.
+ */
+public class HedgingChannel extends Channel {
+
+    private static final Logger LOGGER = LogManager.getLogger(HedgingChannel.class);
+
+    // Only starts the attempts so a single thread is enough
+    private static final ScheduledExecutorService HEDGE_EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "call-hedges");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // Number of recent calls used to estimate the percentile
+    static final int WINDOW_SIZE = 1000;
+
+    // Calls observed before the first hedged call
+    static final int MIN_SAMPLES = 100;
+
+    // Calls between estimates of the percentile
+    private static final int ESTIMATE_INTERVAL = 50;
+
+    private static final double HEDGE_PERCENTILE = 0.95;
+
+    private final Channel channel;
+
+    private final LatencyWindow latencies = new LatencyWindow();
+
+    private HedgingChannel(Channel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+            MethodDescriptor<ReqT, RespT> methodDescriptor,
+            CallOptions callOptions) {
+
+        if (methodDescriptor.getType() != MethodDescriptor.MethodType.UNARY) {
+            return channel.newCall(methodDescriptor, callOptions);
+        }
+        return new HedgingCall<>(methodDescriptor, callOptions);
+    }
+
+    @Override
+    public String authority() {
+        return channel.authority();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return time without a response after which a call is hedged,
+     *         or -1 if not enough calls were observed yet
+     */
+    long getHedgeDelayNanos() {
+        return latencies.getEstimate();
+    }
+
+    /**
+     * Latencies of the most recent calls
+     */
+    private static final class LatencyWindow {
+
+        private final long[] values = new long[WINDOW_SIZE];
+
+        private int next = 0;
+        private int size = 0;
+
+        private int sinceEstimate = 0;
+        private long estimate = -1;
+
+        private synchronized void record(long nanos) {
+            values[next] = nanos;
+            next = (next + 1) % values.length;
+            size = Math.min(size + 1, values.length);
+            // Sorting the window on every call would be too expensive
+            if (++sinceEstimate >= ESTIMATE_INTERVAL) {
+                sinceEstimate = 0;
+                estimate = computeEstimate();
+            }
+        }
+
+        private synchronized long getEstimate() {
+            return estimate;
+        }
+
+        private long computeEstimate() {
+            if (size < MIN_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(HEDGE_PERCENTILE * size) - 1;
+            return sorted[index];
+        }
+    }
+
+    /**
+     * Call that may be sent a second time and
+     * only uses the first attempt to respond
+     */
+    private final class HedgingCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+
+        private final MethodDescriptor<ReqT, RespT> methodDescriptor;
+        private final CallOptions callOptions;
+
+        private final long startNanos = System.nanoTime();
+
+        private Listener<RespT> listener;
+        private Metadata headers;
+        private int requested = 0;
+        private final List<ReqT> sent = new ArrayList<>();
+        private boolean halfClosed = false;
+        private boolean cancelled = false;
+
+        // Attempts that were not closed yet
+        private final List<Attempt> running = new ArrayList<>();
+
+        // Attempt that responded first, or null if none responded yet
+        private Attempt committed = null;
+
+        // Second attempt while waiting for the delay, otherwise null
+        private ScheduledFuture<?> pendingHedge = null;
+
+        // Set when the listener was closed
+        private boolean closed = false;
+
+        private HedgingCall(
+                MethodDescriptor<ReqT, RespT> methodDescriptor,
+                CallOptions callOptions) {
+
+            this.methodDescriptor = methodDescriptor;
+            this.callOptions = callOptions;
+        }
+
+        @Override
+        public synchronized void start(Listener<RespT> listener, Metadata headers) {
+            this.listener = listener;
+            this.headers = headers;
+            startAttempt();
+            long delay = latencies.getEstimate();
+            if (delay >= 0) {
+                pendingHedge = HEDGE_EXECUTOR.schedule(this::hedge, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public synchronized void request(int numMessages) {
+            requested += numMessages;
+            new ArrayList<>(running).forEach(attempt -> attempt.call.request(numMessages));
+        }
+
+        @Override
+        public synchronized void cancel(String message, Throwable cause) {
+            cancelled = true;
+            cancelHedge();
+            // The listener is closed when the attempts are closed
+            new ArrayList<>(running).forEach(attempt -> attempt.call.cancel(message, cause));
+        }
+
+        @Override
+        public synchronized void halfClose() {
+            halfClosed = true;
+            new ArrayList<>(running).forEach(attempt -> attempt.call.halfClose());
+        }
+
+        @Override
+        public synchronized void sendMessage(ReqT message) {
+            sent.add(message);
+            new ArrayList<>(running).forEach(attempt -> attempt.call.sendMessage(message));
+        }
+
+        @Override
+        public synchronized boolean isReady() {
+            Attempt attempt = committed != null ? committed : running.isEmpty() ? null : running.get(0);
+            return attempt != null && attempt.call.isReady();
+        }
+
+        private Attempt startAttempt() {
+            Attempt attempt = new Attempt(channel.newCall(methodDescriptor, callOptions));
+            running.add(attempt);
+            Metadata attemptHeaders = new Metadata();
+            attemptHeaders.merge(headers);
+            attempt.call.start(attempt, attemptHeaders);
+            return attempt;
+        }
+
+        private synchronized void hedge() {
+            pendingHedge = null;
+            if (cancelled || closed || committed != null) {
+                return;
+            }
+            LOGGER.debug(
+                    "Call to {} without response after {} ms: Sending it again",
+                    methodDescriptor.getFullMethodName(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            Attempt attempt = startAttempt();
+            if (requested > 0) {
+                attempt.call.request(requested);
+            }
+            sent.forEach(attempt.call::sendMessage);
+            if (halfClosed) {
+                attempt.call.halfClose();
+            }
+        }
+
+        private void cancelHedge() {
+            if (pendingHedge != null) {
+                pendingHedge.cancel(false);
+                pendingHedge = null;
+            }
+        }
+
+        /**
+         * Uses the attempt if it is the first to respond
+         * @param attempt attempt that responded
+         * @return true if the response of the attempt should be delivered
+         */
+        private synchronized boolean onResponse(Attempt attempt) {
+            if (committed == null) {
+                committed = attempt;
+                latencies.record(System.nanoTime() - startNanos);
+                cancelHedge();
+                new ArrayList<>(running).stream()
+                        .filter(other -> other != attempt)
+                        .forEach(other -> other.call.cancel("Other attempt responded first", null));
+            }
+            return committed == attempt;
+        }
+
+        /**
+         * Removes a closed attempt
+         * The failure of an attempt is only delivered if no other
+         * attempt is running and no other attempt will be started
+         * @param attempt attempt that was closed
+         * @return true if the close of the attempt should be delivered
+         */
+        private synchronized boolean onClose(Attempt attempt) {
+            running.remove(attempt);
+            if (closed) {
+                return false;
+            }
+            if (committed == attempt || (committed == null && running.isEmpty())) {
+                cancelHedge();
+                closed = true;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Single attempt of the call
+         */
+        private final class Attempt extends Listener<RespT> {
+
+            private final ClientCall<ReqT, RespT> call;
+
+            private Attempt(ClientCall<ReqT, RespT> call) {
+                this.call = call;
+            }
+
+            @Override
+            public void onHeaders(Metadata headers) {
+                if (onResponse(this)) {
+                    listener.onHeaders(headers);
+                }
+            }
+
+            @Override
+            public void onMessage(RespT message) {
+                if (onResponse(this)) {
+                    listener.onMessage(message);
+                }
+            }
+
+            @Override
+            public void onReady() {
+                listener.onReady();
+            }
+
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+                if (HedgingCall.this.onClose(this)) {
+                    listener.onClose(status, trailers);
+                }
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private Channel channel;
+
+        public Builder forChannel(Channel channel) {
+            Preconditions.checkNotNull(channel);
+            this.channel = channel;
+            return this;
+        }
+
+        public HedgingChannel build() {
+            Preconditions.checkState(channel != null);
+            return new HedgingChannel(channel);
+        }
+    }
+}
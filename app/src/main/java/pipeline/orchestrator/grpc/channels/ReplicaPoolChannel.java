@@ -0,0 +1,348 @@
+package pipeline.orchestrator.grpc.channels;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pipeline.orchestrator.architecture.LoadBalancingPolicy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Channel that distributes the calls through several replicas
+ * of the same service
+ * Each call is sent to a replica chosen with the load balancing
+ * policy. A replica that fails with an unavailable status is taken out
+ * of rotation for some time and the call is sent again to another replica
+ * if no response was received yet. The stage only sees the failure when
+ * no replica is available.
+ */
+public class ReplicaPoolChannel extends Channel {
+
+    private static final Logger LOGGER = LogManager.getLogger(ReplicaPoolChannel.class);
+
+    // Time that an unavailable replica is out of rotation
+    private static final long UNAVAILABLE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ImmutableList<Replica> replicas;
+
+    private final LoadBalancingPolicy loadBalancingPolicy;
+
+    // Next replica to start the search for the round robin policy
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private ReplicaPoolChannel(
+            List<ManagedChannel> channels,
+            LoadBalancingPolicy loadBalancingPolicy) {
+
+        this.replicas = channels.stream()
+                .map(Replica::new)
+                .collect(ImmutableList.toImmutableList());
+        this.loadBalancingPolicy = loadBalancingPolicy;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+            MethodDescriptor<ReqT, RespT> methodDescriptor,
+            CallOptions callOptions) {
+
+        return new PooledCall<>(methodDescriptor, callOptions);
+    }
+
+    /**
+     * @return the authority of the first replica
+     */
+    @Override
+    public String authority() {
+        return replicas.get(0).channel.authority();
+    }
+
+    public LoadBalancingPolicy getLoadBalancingPolicy() {
+        return loadBalancingPolicy;
+    }
+
+    /**
+     * @return number of replicas in the pool
+     */
+    public int size() {
+        return replicas.size();
+    }
+
+    /**
+     * @return number of replicas that are currently in rotation
+     */
+    public int availableReplicas() {
+        long now = System.nanoTime();
+        return (int) replicas.stream().filter(r -> r.isAvailable(now)).count();
+    }
+
+    /**
+     * Shuts down the channels for all replicas
+     */
+    public void shutdown() {
+        replicas.forEach(replica -> replica.channel.shutdown());
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Selects the replica for a new call
+     * @param excluded replicas already tried for the call
+     * @return the selected replica, or null if all replicas were tried
+     */
+    private Replica select(Set<Replica> excluded) {
+        long now = System.nanoTime();
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+
+        Replica selected = null;
+        Replica fallback = null;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (excluded.contains(replica)) {
+                continue;
+            }
+            if (!replica.isAvailable(now)) {
+                // Only used if all replicas are unavailable
+                if (fallback == null || replica.unavailableUntil < fallback.unavailableUntil) {
+                    fallback = replica;
+                }
+                continue;
+            }
+            if (loadBalancingPolicy == LoadBalancingPolicy.ROUND_ROBIN) {
+                return replica;
+            }
+            if (selected == null || replica.outstanding.get() < selected.outstanding.get()) {
+                selected = replica;
+            }
+        }
+        return selected != null ? selected : fallback;
+    }
+
+    private static final class Replica {
+
+        private final ManagedChannel channel;
+
+        // Calls started in this replica without a response
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        // Instant until which the replica is out of rotation
+        private volatile long unavailableUntil;
+
+        private Replica(ManagedChannel channel) {
+            this.channel = channel;
+            this.unavailableUntil = System.nanoTime();
+        }
+
+        private boolean isAvailable(long now) {
+            return now - unavailableUntil >= 0;
+        }
+
+        private void markUnavailable() {
+            unavailableUntil = System.nanoTime() + UNAVAILABLE_COOLDOWN_NANOS;
+            LOGGER.warn(
+                    "Replica {} unavailable: Removed from rotation for {} ms",
+                    channel.authority(),
+                    TimeUnit.NANOSECONDS.toMillis(UNAVAILABLE_COOLDOWN_NANOS));
+        }
+    }
+
+    /**
+     * Call that is executed in one of the replicas
+     * Records the request so that it can be sent again to
+     * another replica if the first one is unavailable
+     */
+    private final class PooledCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+
+        private final MethodDescriptor<ReqT, RespT> methodDescriptor;
+        private final CallOptions callOptions;
+
+        // Replicas where the call was already started
+        private final Set<Replica> tried = new HashSet<>();
+
+        private ClientCall<ReqT, RespT> delegate;
+
+        private Listener<RespT> listener;
+        private Metadata headers;
+        private int requested = 0;
+        private final List<ReqT> sent = new ArrayList<>();
+        private boolean halfClosed = false;
+        private boolean cancelled = false;
+
+        // Set when the server responded and the call can no longer be retried
+        private boolean responded = false;
+
+        private PooledCall(
+                MethodDescriptor<ReqT, RespT> methodDescriptor,
+                CallOptions callOptions) {
+
+            this.methodDescriptor = methodDescriptor;
+            this.callOptions = callOptions;
+        }
+
+        @Override
+        public synchronized void start(Listener<RespT> listener, Metadata headers) {
+            this.listener = listener;
+            this.headers = headers;
+            startInReplica(select(tried));
+        }
+
+        @Override
+        public synchronized void request(int numMessages) {
+            requested += numMessages;
+            delegate.request(numMessages);
+        }
+
+        @Override
+        public synchronized void cancel(String message, Throwable cause) {
+            cancelled = true;
+            if (delegate != null) {
+                delegate.cancel(message, cause);
+            }
+        }
+
+        @Override
+        public synchronized void halfClose() {
+            halfClosed = true;
+            delegate.halfClose();
+        }
+
+        @Override
+        public synchronized void sendMessage(ReqT message) {
+            // Only calls with a single request are sent again
+            if (isRetriable()) {
+                sent.add(message);
+            }
+            delegate.sendMessage(message);
+        }
+
+        @Override
+        public synchronized boolean isReady() {
+            return delegate.isReady();
+        }
+
+        private boolean isRetriable() {
+            return methodDescriptor.getType().clientSendsOneMessage();
+        }
+
+        private void startInReplica(Replica selected) {
+            tried.add(selected);
+            selected.outstanding.incrementAndGet();
+            delegate = selected.channel.newCall(methodDescriptor, callOptions);
+            Metadata attemptHeaders = new Metadata();
+            attemptHeaders.merge(headers);
+            delegate.start(new ReplicaListener(selected), attemptHeaders);
+        }
+
+        /**
+         * Sends the call again to another replica
+         * @return true if the call was sent and false otherwise
+         */
+        private synchronized boolean retry() {
+            if (cancelled || responded || !isRetriable()) {
+                return false;
+            }
+            Replica next = select(tried);
+            if (next == null || !next.isAvailable(System.nanoTime())) {
+                return false;
+            }
+            LOGGER.debug(
+                    "Call to {} sent again to replica {}",
+                    methodDescriptor.getFullMethodName(),
+                    next.channel.authority());
+            startInReplica(next);
+            if (requested > 0) {
+                delegate.request(requested);
+            }
+            sent.forEach(delegate::sendMessage);
+            if (halfClosed) {
+                delegate.halfClose();
+            }
+            return true;
+        }
+
+        private synchronized void onResponse() {
+            responded = true;
+        }
+
+        /**
+         * Listener for the call in a single replica
+         */
+        private final class ReplicaListener extends Listener<RespT> {
+
+            private final Replica listenedReplica;
+
+            private ReplicaListener(Replica listenedReplica) {
+                this.listenedReplica = listenedReplica;
+            }
+
+            @Override
+            public void onHeaders(Metadata headers) {
+                onResponse();
+                listener.onHeaders(headers);
+            }
+
+            @Override
+            public void onMessage(RespT message) {
+                onResponse();
+                listener.onMessage(message);
+            }
+
+            @Override
+            public void onReady() {
+                listener.onReady();
+            }
+
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+                listenedReplica.outstanding.decrementAndGet();
+                if (status.getCode() == Status.Code.UNAVAILABLE) {
+                    listenedReplica.markUnavailable();
+                    if (retry()) {
+                        return;
+                    }
+                }
+                listener.onClose(status, trailers);
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private final List<ManagedChannel> channels = new ArrayList<>();
+
+        private LoadBalancingPolicy loadBalancingPolicy =
+                LoadBalancingPolicy.ROUND_ROBIN;
+
+        public Builder addReplica(ManagedChannel channel) {
+            Preconditions.checkNotNull(channel);
+            channels.add(channel);
+            return this;
+        }
+
+        public Builder setLoadBalancingPolicy(LoadBalancingPolicy loadBalancingPolicy) {
+            Preconditions.checkNotNull(loadBalancingPolicy);
+            this.loadBalancingPolicy = loadBalancingPolicy;
+            return this;
+        }
+
+        public ReplicaPoolChannel build() {
+            Preconditions.checkState(!channels.isEmpty());
+            return new ReplicaPoolChannel(channels, loadBalancingPolicy);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package pipeline.orchestrator.grpc.channels;
+
+import com.google.common.base.Preconditions;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pipeline.orchestrator.architecture.RetryInformation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Channel that sends again the calls that fail with an unavailable
+ * status before the server responded
+ * The attempts are separated by an exponential backoff with jitter,
+ * and a call is not sent again if the backoff would exceed the
+ * deadline in its call options.
+ * Only calls with a single request are sent again, since the
+ * other calls are not recorded.
+ */
+public class RetryingChannel extends Channel {
+
+    private static final Logger LOGGER = LogManager.getLogger(RetryingChannel.class);
+
+    // Only starts the attempts so a single thread is enough
+    private static final ScheduledExecutorService RETRY_EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "call-retries");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Channel channel;
+
+    private final int maxAttempts;
+
+    private final long initialBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    private RetryingChannel(Channel channel, RetryInformation retry) {
+        this.channel = channel;
+        this.maxAttempts = retry.getMaxAttempts();
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(retry.getInitialBackoffMs());
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(retry.getMaxBackoffMs());
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+            MethodDescriptor<ReqT, RespT> methodDescriptor,
+            CallOptions callOptions) {
+
+        if (maxAttempts == 1 || !methodDescriptor.getType().clientSendsOneMessage()) {
+            return channel.newCall(methodDescriptor, callOptions);
+        }
+        return new RetryingCall<>(methodDescriptor, callOptions);
+    }
+
+    @Override
+    public String authority() {
+        return channel.authority();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Computes the backoff before the next attempt
+     * The backoff doubles with each failed attempt up to the maximum,
+     * and a random value of up to half of it is subtracted so that
+     * the calls that failed together are not sent again together
+     * @param failedAttempts number of attempts that already failed
+     * @return the backoff in nanoseconds
+     */
+    long backoffNanos(int failedAttempts) {
+        long backoff = initialBackoffNanos;
+        for (int i = 1; i < failedAttempts && backoff < maxBackoffNanos; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, maxBackoffNanos);
+        return backoff - ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * Call that records the request so that it can be
+     * sent again when an attempt is unavailable
+     */
+    private final class RetryingCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+
+        private final MethodDescriptor<ReqT, RespT> methodDescriptor;
+        private final CallOptions callOptions;
+
+        private ClientCall<ReqT, RespT> delegate;
+
+        private Listener<RespT> listener;
+        private Metadata headers;
+        private int requested = 0;
+        private final List<ReqT> sent = new ArrayList<>();
+        private boolean halfClosed = false;
+        private boolean cancelled = false;
+
+        // Set when the server responded and the call can no longer be retried
+        private boolean responded = false;
+
+        private int attempts = 0;
+
+        // Next attempt while waiting for the backoff, otherwise null
+        private ScheduledFuture<?> pendingAttempt = null;
+
+        private RetryingCall(
+                MethodDescriptor<ReqT, RespT> methodDescriptor,
+                CallOptions callOptions) {
+
+            this.methodDescriptor = methodDescriptor;
+            this.callOptions = callOptions;
+        }
+
+        @Override
+        public synchronized void start(Listener<RespT> listener, Metadata headers) {
+            this.listener = listener;
+            this.headers = headers;
+            startAttempt();
+        }
+
+        @Override
+        public synchronized void request(int numMessages) {
+            requested += numMessages;
+            if (pendingAttempt == null) {
+                delegate.request(numMessages);
+            }
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+            boolean waiting;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                waiting = pendingAttempt != null;
+                if (waiting) {
+                    pendingAttempt.cancel(false);
+                    pendingAttempt = null;
+                }
+                else if (delegate != null) {
+                    delegate.cancel(message, cause);
+                }
+            }
+            // No attempt is running to close the listener
+            if (waiting) {
+                listener.onClose(
+                        Status.CANCELLED.withDescription(message).withCause(cause),
+                        new Metadata());
+            }
+        }
+
+        @Override
+        public synchronized void halfClose() {
+            halfClosed = true;
+            if (pendingAttempt == null) {
+                delegate.halfClose();
+            }
+        }
+
+        @Override
+        public synchronized void sendMessage(ReqT message) {
+            sent.add(message);
+            if (pendingAttempt == null) {
+                delegate.sendMessage(message);
+            }
+        }
+
+        @Override
+        public synchronized boolean isReady() {
+            return pendingAttempt == null && delegate.isReady();
+        }
+
+        private void startAttempt() {
+            attempts++;
+            delegate = channel.newCall(methodDescriptor, callOptions);
+            Metadata attemptHeaders = new Metadata();
+            attemptHeaders.merge(headers);
+            delegate.start(new AttemptListener(), attemptHeaders);
+        }
+
+        /**
+         * Schedules another attempt after the backoff
+         * @return true if the attempt was scheduled and false otherwise
+         */
+        private synchronized boolean scheduleAttempt() {
+            if (cancelled || responded || attempts >= maxAttempts) {
+                return false;
+            }
+            long backoff = backoffNanos(attempts);
+            Deadline deadline = callOptions.getDeadline();
+            if (deadline != null && deadline.timeRemaining(TimeUnit.NANOSECONDS) <= backoff) {
+                return false;
+            }
+            LOGGER.debug(
+                    "Call to {} unavailable: Attempt {} in {} ms",
+                    methodDescriptor.getFullMethodName(),
+                    attempts + 1,
+                    TimeUnit.NANOSECONDS.toMillis(backoff));
+            pendingAttempt = RETRY_EXECUTOR.schedule(
+                    this::retry,
+                    backoff,
+                    TimeUnit.NANOSECONDS);
+            return true;
+        }
+
+        private synchronized void retry() {
+            if (cancelled) {
+                return;
+            }
+            pendingAttempt = null;
+            startAttempt();
+            if (requested > 0) {
+                delegate.request(requested);
+            }
+            sent.forEach(delegate::sendMessage);
+            if (halfClosed) {
+                delegate.halfClose();
+            }
+        }
+
+        private synchronized void onResponse() {
+            responded = true;
+        }
+
+        /**
+         * Listener for a single attempt of the call
+         */
+        private final class AttemptListener extends Listener<RespT> {
+
+            @Override
+            public void onHeaders(Metadata headers) {
+                onResponse();
+                listener.onHeaders(headers);
+            }
+
+            @Override
+            public void onMessage(RespT message) {
+                onResponse();
+                listener.onMessage(message);
+            }
+
+            @Override
+            public void onReady() {
+                listener.onReady();
+            }
+
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+                if (status.getCode() == Status.Code.UNAVAILABLE && scheduleAttempt()) {
+                    return;
+                }
+                listener.onClose(status, trailers);
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private Channel channel;
+
+        private RetryInformation retry;
+
+        public Builder forChannel(Channel channel) {
+            Preconditions.checkNotNull(channel);
+            this.channel = channel;
+            return this;
+        }
+
+        public Builder setRetry(RetryInformation retry) {
+            Preconditions.checkNotNull(retry);
+            this.retry = retry;
+            return this;
+        }
+
+        public RetryingChannel build() {
+            Preconditions.checkState(channel != null);
+            Preconditions.checkState(retry != null);
+            return new RetryingChannel(channel, retry);
+        }
+    }
+}
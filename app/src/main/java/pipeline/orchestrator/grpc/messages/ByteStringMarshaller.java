@@ -0,0 +1,55 @@
+package pipeline.orchestrator.grpc.messages;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Marshaller that keeps the messages in their serialized form
+ * Used to forward the messages between stages without parsing
+ * and serializing them again.
+ */
+public class ByteStringMarshaller implements MethodDescriptor.Marshaller<ByteString> {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final ByteStringMarshaller INSTANCE = new ByteStringMarshaller();
+
+    private ByteStringMarshaller() {}
+
+    /**
+     * @return the marshaller instance, which is stateless and thread safe
+     */
+    public static ByteStringMarshaller getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public InputStream stream(ByteString value) {
+        return value.newInput();
+    }
+
+    @Override
+    public ByteString parse(InputStream stream) {
+        try {
+            if (stream instanceof KnownLength) {
+                // Read into a single array that is wrapped
+                // without copying since it is never modified
+                byte[] buffer = new byte[stream.available()];
+                ByteStreams.readFully(stream, buffer);
+                return UnsafeByteOperations.unsafeWrap(buffer);
+            }
+            return ByteString.readFrom(stream);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read message from input stream");
+            throw new IllegalArgumentException("Unable to read message from input stream", e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package pipeline.orchestrator.grpc.messages;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Message;
+import pipeline.orchestrator.protobuf.Descriptors;
+
+import java.util.List;
+
+/**
+ * Class designed to pack multiple messages into the repeated
+ * field of a batch request and to unpack the messages from
+ * the repeated field of a batch response
+ * The batch field of each message is its only repeated
+ * message field
+ */
+public class DynamicMessageBatcher {
+
+    private final FieldDescriptor requestBatchField;
+    private final FieldDescriptor responseBatchField;
+
+    public DynamicMessageBatcher(
+            Descriptor requestDescriptor,
+            Descriptor responseDescriptor) {
+
+        requestBatchField = findBatchField(requestDescriptor);
+        responseBatchField = findBatchField(responseDescriptor);
+    }
+
+    /**
+     * Creates a batch request with the given messages
+     * @param messages messages to pack in the same order
+     * @return the request with the repeated field set with the messages
+     * @throws IllegalArgumentException if a message has
+     *                                  the wrong descriptor
+     */
+    public DynamicMessage batch(List<DynamicMessage> messages) {
+        Preconditions.checkNotNull(messages);
+        DynamicMessage.Builder builder =
+                DynamicMessage.newBuilder(requestBatchField.getContainingType());
+        for (DynamicMessage message : messages) {
+            Preconditions.checkArgument(
+                    message.getDescriptorForType().equals(getRequestItemDescriptor()));
+            builder.addRepeatedField(requestBatchField, message);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Recovers the messages from a batch response
+     * @param response batch response
+     * @return the messages in the repeated field of the response
+     */
+    public ImmutableList<DynamicMessage> unbatch(DynamicMessage response) {
+        Preconditions.checkNotNull(response);
+        Preconditions.checkArgument(
+                response.getDescriptorForType().equals(responseBatchField.getContainingType()));
+        int count = response.getRepeatedFieldCount(responseBatchField);
+        ImmutableList.Builder<DynamicMessage> builder = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            // Responses parsed with generated classes have generated items
+            Message item = (Message) response.getRepeatedField(responseBatchField, i);
+            builder.add(item instanceof DynamicMessage
+                    ? (DynamicMessage) item
+                    : DynamicMessage.newBuilder(item).build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return descriptor of the messages packed into a request
+     */
+    public Descriptor getRequestItemDescriptor() {
+        return requestBatchField.getMessageType();
+    }
+
+    /**
+     * @return descriptor of the messages unpacked from a response
+     */
+    public Descriptor getResponseItemDescriptor() {
+        return responseBatchField.getMessageType();
+    }
+
+    /**
+     * Finds the batch field of a message, which must be its only
+     * repeated message field
+     * @param descriptor descriptor of the message
+     * @return the descriptor of the batch field
+     * @throws IllegalArgumentException if the message does not
+     *                                  have exactly one such field
+     */
+    public static FieldDescriptor findBatchField(Descriptor descriptor) {
+        Preconditions.checkNotNull(descriptor);
+        List<FieldDescriptor> fields = descriptor.getFields().stream()
+                .filter(FieldDescriptor::isRepeated)
+                .filter(Descriptors::isMessage)
+                .filter(field -> !field.isMapField())
+                .collect(ImmutableList.toImmutableList());
+        Preconditions.checkArgument(
+                fields.size() == 1,
+                "Message '%s' must have exactly one repeated message field to batch",
+                descriptor.getFullName());
+        return fields.get(0);
+    }
+
+    public static Builder newBuilder() { return new Builder(); }
+
+    public static class Builder {
+
+        private Descriptor requestDescriptor;
+        private Descriptor responseDescriptor;
+
+        public Builder forRequestDescriptor(Descriptor descriptor) {
+            requestDescriptor = descriptor;
+            return this;
+        }
+
+        public Builder forResponseDescriptor(Descriptor descriptor) {
+            responseDescriptor = descriptor;
+            return this;
+        }
+
+        public DynamicMessageBatcher build() {
+            return new DynamicMessageBatcher(requestDescriptor, responseDescriptor);
+        }
+    }
+}
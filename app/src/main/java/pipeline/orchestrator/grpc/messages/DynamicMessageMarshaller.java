@@ -1,22 +1,34 @@
 package pipeline.orchestrator.grpc.messages;
 
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Parser;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
 import io.grpc.MethodDescriptor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
+/**
+ * Marshaller for dynamic messages of a given type
+ * The marshaller is stateless and can parse messages for
+ * concurrent calls.
+ */
 public class DynamicMessageMarshaller implements MethodDescriptor.Marshaller<DynamicMessage> {
 
     private static final Logger LOGGER = LogManager.getLogger();
 
-    private final DynamicMessage.Builder builder;
+    private final Parser<DynamicMessage> parser;
 
     private DynamicMessageMarshaller(Descriptors.Descriptor messageDescriptor) {
-        builder = DynamicMessage.newBuilder(messageDescriptor);
+        parser = DynamicMessage.getDefaultInstance(messageDescriptor).getParserForType();
     }
 
     /**
@@ -32,16 +44,88 @@ public class DynamicMessageMarshaller implements MethodDescriptor.Marshaller<Dyn
 
     @Override
     public InputStream stream(DynamicMessage value) {
-        return value.toByteString().newInput();
+        return new MessageInputStream(value);
     }
 
     @Override
     public DynamicMessage parse(InputStream stream) {
         try {
-            return builder.clear().mergeFrom(stream).build();
+            if (stream instanceof KnownLength) {
+                // Read the whole message into an array of the exact size
+                // The array is not reused so bytes fields can reference it
+                // instead of being copied
+                byte[] buffer = new byte[stream.available()];
+                ByteStreams.readFully(stream, buffer);
+                CodedInputStream input = CodedInputStream.newInstance(buffer);
+                input.enableAliasing(true);
+                return parser.parseFrom(input);
+            }
+            return parser.parseFrom(stream);
         } catch (IOException e) {
             LOGGER.warn("Unable to parse message from input stream");
             throw new IllegalArgumentException("Unable to parse message from input stream", e);
         }
     }
+
+    /**
+     * Stream for a message to send
+     * Grpc drains the message directly to its buffers, without
+     * serializing it to an intermediate array. The array is only
+     * created if the stream is read.
+     */
+    private static final class MessageInputStream extends InputStream
+            implements Drainable, KnownLength {
+
+        private DynamicMessage message;
+
+        private ByteArrayInputStream serialized;
+
+        private MessageInputStream(DynamicMessage message) {
+            this.message = message;
+        }
+
+        @Override
+        public int drainTo(OutputStream target) throws IOException {
+            int written;
+            if (message != null) {
+                written = message.getSerializedSize();
+                message.writeTo(target);
+                message = null;
+            }
+            else if (serialized != null) {
+                written = (int) ByteStreams.copy(serialized, target);
+                serialized = null;
+            }
+            else {
+                written = 0;
+            }
+            return written;
+        }
+
+        @Override
+        public int read() {
+            return toSerialized() != null ? serialized.read() : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return toSerialized() != null ? serialized.read(b, off, len) : -1;
+        }
+
+        @Override
+        public int available() {
+            if (message != null) {
+                return message.getSerializedSize();
+            }
+            return serialized != null ? serialized.available() : 0;
+        }
+
+        private ByteArrayInputStream toSerialized() {
+            if (message != null) {
+                serialized = new ByteArrayInputStream(message.toByteArray());
+                message = null;
+            }
+            return serialized;
+        }
+    }
 }
@@ -1,9 +1,11 @@
 package pipeline.orchestrator.grpc.methods;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.Descriptors.MethodDescriptor;
 import com.google.protobuf.DynamicMessage;
 import io.grpc.MethodDescriptor.MethodType;
+import pipeline.orchestrator.grpc.messages.ByteStringMarshaller;
 import pipeline.orchestrator.grpc.messages.DynamicMessageMarshaller;
 
 /**
@@ -28,6 +30,22 @@ public class MethodDescriptors {
                 description.getMethodDescriptor().getOutputType());
     }
 
+    /**
+     * Builds a new method descriptor that can be invoked with the
+     * serialized messages, without parsing the responses
+     * @param description full description for the given method
+     * @return the new method descriptor
+     */
+    public static io.grpc.MethodDescriptor<ByteString, ByteString> rawFromDescription(
+            FullMethodDescription description) {
+        return io.grpc.MethodDescriptor.newBuilder(
+                        ByteStringMarshaller.getInstance(),
+                        ByteStringMarshaller.getInstance())
+                .setFullMethodName(description.getMethodFullName())
+                .setType(getType(description.getMethodDescriptor()))
+                .build();
+    }
+
     /**
      * Finds the method type from its methodDescriptor
      * @param methodDescriptor method descriptor to analyse
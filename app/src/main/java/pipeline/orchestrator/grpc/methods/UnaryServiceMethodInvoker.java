@@ -1,6 +1,7 @@
 package pipeline.orchestrator.grpc.methods;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.grpc.CallOptions;
 import io.grpc.Channel;
 import io.grpc.MethodDescriptor;
@@ -28,6 +29,19 @@ public class UnaryServiceMethodInvoker<ReqT, RespT> {
         return ClientCalls.blockingUnaryCall(channel, methodDescriptor, callOptions, request);
     }
 
+    /**
+     * Executes the call without waiting for the response
+     * Multiple calls can be in flight at the same time
+     * @param request request to send
+     * @return future that completes with the response or fails
+     *         with a StatusRuntimeException
+     */
+    public ListenableFuture<RespT> futureCall(ReqT request) {
+        return ClientCalls.futureUnaryCall(
+                channel.newCall(methodDescriptor, callOptions),
+                request);
+    }
+
     public static <ReqT, ResT> Builder<ReqT, ResT> newBuilder() {
         return new Builder<>();
     }
@@ -66,6 +66,13 @@ public class ReflectionStreamManager {
         return future;
     }
 
+    /**
+     * @return maximum number of requests waiting for a response
+     */
+    public int getMaxSimultaneousRequests() {
+        return maxSimultaneousRequests;
+    }
+
     /**
      * Ends the stream of requests
      */
@@ -13,6 +13,7 @@ import pipeline.orchestrator.common.Conditions;
 import pipeline.orchestrator.common.Futures;
 
 import java.util.*;
+import java.util.concurrent.Future;
 
 import static io.grpc.reflection.v1alpha.ServerReflectionResponse.MessageResponseCase.LIST_SERVICES_RESPONSE;
 import static io.grpc.reflection.v1alpha.ServerReflectionResponse.MessageResponseCase.FILE_DESCRIPTOR_RESPONSE;
@@ -91,6 +92,42 @@ public class ServerReflectionHelper {
         }
     }
 
+    /**
+     * Method to collect the descriptors that the server sends
+     * in response to a single request for the given service
+     * Depending on the server, the dependencies of the file
+     * with the service may or may not be included
+     * @param serviceName the name of the service
+     * @return the file descriptor protos in the response
+     * @throws UnableToLookupServiceException if an error occurs
+     * @throws InterruptedException if the thread is interrupted
+     *                              while waiting for a reply from the server
+     */
+    public ImmutableSet<FileDescriptorProto> lookupServiceFiles(String serviceName)
+            throws UnableToLookupServiceException, InterruptedException {
+
+        ReflectionStreamManager manager = newReflectionStreamManager();
+        try {
+            ServerReflectionRequest request =
+                    ReflectionRequestFactory.fileBySymbolRequest(host, serviceName);
+
+            ServerReflectionResponse response
+                    = Futures.waitComputation(manager.submit(request),
+                    UnableToLookupServiceException::new);
+
+            Conditions.checkState(
+                    response.getMessageResponseCase() == FILE_DESCRIPTOR_RESPONSE,
+                    UnableToLookupServiceException::new);
+
+            return DescriptorProtos.parse(
+                    response.getFileDescriptorResponse().getFileDescriptorProtoList());
+        }
+        finally {
+            // Complete to close connection so that channel can be shutdown
+            manager.complete();
+        }
+    }
+
     public static Builder newBuilder() {
         return new Builder();
     }
@@ -130,12 +167,18 @@ public class ServerReflectionHelper {
      * protobuf file with the service name and issue
      * subsequent requests with the file dependencies
      * until all dependencies are collected
+     * Requests for the dependencies are sent without waiting for
+     * the previous responses, up to the maximum of the stream, and
+     * each file is only requested once
      */
     private class LookupServiceHelper {
 
         Queue<ServerReflectionRequest> pendingRequests = new LinkedList<>();
+        // Responses are received in the order of the requests
+        Queue<Future<ServerReflectionResponse>> submittedRequests = new LinkedList<>();
         Map<String, FileDescriptorProto> resolvedFileDescriptors = new HashMap<>();
-        Set<String> pendingDependencies = new HashSet<>();
+        // Files requested, including the ones already resolved
+        Set<String> requestedFiles = new HashSet<>();
         String serviceName;
         ReflectionStreamManager manager;
 
@@ -148,9 +191,13 @@ public class ServerReflectionHelper {
                 throws UnableToLookupServiceException, InterruptedException {
             pendingRequests.add(ReflectionRequestFactory.fileBySymbolRequest(host, serviceName));
 
-            while (!pendingRequests.isEmpty()) {
+            while (!pendingRequests.isEmpty() || !submittedRequests.isEmpty()) {
+                while (!pendingRequests.isEmpty()
+                        && submittedRequests.size() < manager.getMaxSimultaneousRequests()) {
+                    submittedRequests.add(manager.submit(pendingRequests.poll()));
+                }
                 ServerReflectionResponse response =
-                        Futures.waitComputation(manager.submit(pendingRequests.poll()),
+                        Futures.waitComputation(submittedRequests.poll(),
                                 UnableToLookupServiceException::new);
                 Conditions.checkState(
                         response.getMessageResponseCase() == FILE_DESCRIPTOR_RESPONSE,
@@ -164,17 +211,18 @@ public class ServerReflectionHelper {
         }
 
         private void processFileDescriptors(ImmutableSet<FileDescriptorProto> fileDescriptors) {
+            // Register all the files of the response first since
+            // they may include the dependencies of each other
             fileDescriptors.forEach(fileDescriptorProto -> {
                 resolvedFileDescriptors.put(fileDescriptorProto.getName(), fileDescriptorProto);
-                pendingDependencies.remove(fileDescriptorProto.getName());
+                requestedFiles.add(fileDescriptorProto.getName());
+            });
+            fileDescriptors.forEach(fileDescriptorProto ->
                 fileDescriptorProto.getDependencyList().forEach(dependency -> {
-                    if (!(pendingDependencies.contains(dependency) && resolvedFileDescriptors.containsKey(dependency))) {
-                        pendingDependencies.add(dependency);
+                    if (requestedFiles.add(dependency)) {
                         pendingRequests.add(ReflectionRequestFactory.fileByFilenameRequest(host, dependency));
                     }
-                });
-            });
+                }));
         }
     }
 }
-
@@ -21,6 +21,17 @@ public class StatusRuntimeExceptions {
         return exception.getStatus().getCode() == Status.Code.UNAVAILABLE;
     }
 
+    /**
+     * Checks if the given exception was thrown due to
+     * a call that exceeded its deadline
+     * @param exception exception that was delivered
+     * @return true if the exception means the server did not
+     *         respond in time and false otherwise
+     */
+    public static boolean isDeadlineExceeded(StatusRuntimeException exception) {
+        return exception.getStatus().getCode() == Status.Code.DEADLINE_EXCEEDED;
+    }
+
     /**
      * Checks if the given exception was thrown due to
      * an unimplemented method in the server
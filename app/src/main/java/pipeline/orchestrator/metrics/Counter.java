@@ -0,0 +1,25 @@
+package pipeline.orchestrator.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter that can be incremented concurrently by multiple threads
+ */
+public class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter() {}
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
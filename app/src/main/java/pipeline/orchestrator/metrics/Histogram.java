@@ -0,0 +1,145 @@
+package pipeline.orchestrator.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with linear sub-buckets in each power of two
+ * Each range [2^e, 2^(e+1)) is split into SUB_BUCKETS buckets of equal
+ * width, so the width of a bucket is at most 1/SUB_BUCKETS of its values
+ * and percentiles have a bounded relative error (12.5%), instead of the
+ * factor of two of buckets that double in size. The bucket of a value is
+ * found from the position of its highest bit and the bits that follow it,
+ * so recording a value is a few bit operations and an increment without
+ * locks. Values are recorded in nanoseconds and exported in seconds.
+ * Durations from one microsecond to about two minutes are distinguished.
+ */
+public class Histogram {
+
+    // First bucket holds values below 2^MIN_EXPONENT nanoseconds (~1us)
+    private static final int MIN_EXPONENT = 10;
+    // Last finite bucket holds values below 2^MAX_EXPONENT nanoseconds (~137s)
+    private static final int MAX_EXPONENT = 37;
+
+    // Each power of two has 2^SUB_BITS buckets
+    private static final int SUB_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // First bucket, sub-buckets for each power of two and overflow bucket
+    static final int NUM_BUCKETS = (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS + 2;
+
+    // Last bucket holds the values above the upper limit
+    private final LongAdder[] buckets = new LongAdder[NUM_BUCKETS];
+    private final LongAdder sum = new LongAdder();
+
+    Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a duration
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets[bucketIndex(value)].increment();
+        sum.add(value);
+    }
+
+    /**
+     * Records the time elapsed since the given instant
+     * @param startNanos instant given by {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return sum of the recorded values in nanoseconds
+     */
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    /**
+     * @param index bucket index
+     * @return number of values recorded in the bucket
+     */
+    long getBucketCount(int index) {
+        return buckets[index].sum();
+    }
+
+    /**
+     * Estimates a percentile of the recorded values
+     * The estimate is the upper limit of the bucket with the
+     * percentile, so it is above the real value by at most
+     * 1/SUB_BUCKETS of the value, for values in the finite buckets
+     * @param percentile percentile between 0 and 1
+     * @return estimate of the percentile in nanoseconds, 0 if there
+     *         are no values or Long.MAX_VALUE if above the upper limit
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[NUM_BUCKETS];
+        long count = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(percentile * count), 1);
+        long cumulative = 0;
+        for (int i = 0; i < NUM_BUCKETS - 1; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return getUpperBoundNanos(i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @param index bucket index, excluding the last bucket
+     * @return upper limit of the bucket in seconds
+     */
+    static double getUpperBoundSeconds(int index) {
+        return (double) getUpperBoundNanos(index) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static long getUpperBoundNanos(int index) {
+        if (index == 0) {
+            return 1L << MIN_EXPONENT;
+        }
+        int exponent = MIN_EXPONENT + (index - 1) / SUB_BUCKETS;
+        int subBucket = (index - 1) % SUB_BUCKETS;
+        return (1L << exponent) + ((long) (subBucket + 1) << (exponent - SUB_BITS));
+    }
+
+    static int bucketIndex(long nanos) {
+        // Position of the highest bit of the value
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent < MIN_EXPONENT) {
+            return 0;
+        }
+        if (exponent >= MAX_EXPONENT) {
+            return NUM_BUCKETS - 1;
+        }
+        // Bits after the highest one select the sub-bucket
+        int subBucket = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+}
@@ -0,0 +1,281 @@
+package pipeline.orchestrator.metrics;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry with the metrics of the orchestrator
+ * Metrics are identified by their name and labels. Registering a
+ * metric that already exists returns the existing one, or replaces
+ * it for metrics computed from a supplier, so that components can be
+ * rebuilt without duplicating their metrics. Components that are
+ * removed unregister their metrics so that they are no longer exported.
+ * The metrics are written in the Prometheus text format.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    MetricsRegistry() {}
+
+    /**
+     * @return the registry shared by the whole application
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers a counter
+     * @param name name of the metric
+     * @param help description of the metric
+     * @param labels label names and values, alternated
+     * @return the counter with the given name and labels
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, Type.COUNTER, labels, Counter::new);
+    }
+
+    /**
+     * Registers a counter whose value is read when the metrics are written
+     * @param name name of the metric
+     * @param help description of the metric
+     * @param supplier supplier for the current value
+     * @param labels label names and values, alternated
+     */
+    public void counter(String name, String help, LongSupplier supplier, String... labels) {
+        Preconditions.checkNotNull(supplier);
+        replace(name, help, Type.COUNTER, labels, supplier);
+    }
+
+    /**
+     * Registers a gauge whose value is read when the metrics are written
+     * @param name name of the metric
+     * @param help description of the metric
+     * @param supplier supplier for the current value
+     * @param labels label names and values, alternated
+     */
+    public void gauge(String name, String help, LongSupplier supplier, String... labels) {
+        Preconditions.checkNotNull(supplier);
+        replace(name, help, Type.GAUGE, labels, supplier);
+    }
+
+    /**
+     * Registers a histogram of durations
+     * @param name name of the metric, that should end with _seconds
+     * @param help description of the metric
+     * @param labels label names and values, alternated
+     * @return the histogram with the given name and labels
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) register(name, help, Type.HISTOGRAM, labels, Histogram::new);
+    }
+
+    /**
+     * Removes the metrics that have all the given labels
+     * The metrics that were already returned by the registry can still
+     * be updated, but they are no longer written
+     * @param labels label names and values, alternated
+     * @return number of metrics removed
+     */
+    public synchronized int unregister(String... labels) {
+        Preconditions.checkArgument(labels.length > 0, "Labels must not be empty");
+        String[] pairs = formatLabelPairs(labels);
+        int removed = 0;
+        Iterator<Family> families = this.families.values().iterator();
+        while (families.hasNext()) {
+            Family family = families.next();
+            Iterator<String> metrics = family.metrics.keySet().iterator();
+            while (metrics.hasNext()) {
+                if (hasLabels(metrics.next(), pairs)) {
+                    metrics.remove();
+                    removed++;
+                }
+            }
+            if (family.metrics.isEmpty()) {
+                families.remove();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Writes all the metrics in the Prometheus text format
+     * @param output builder to write to
+     */
+    public synchronized void writeTo(StringBuilder output) {
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            output.append("# HELP ").append(name).append(' ').append(escapeHelp(family.help)).append('\n');
+            output.append("# TYPE ").append(name).append(' ').append(family.type.exposedName).append('\n');
+            for (Map.Entry<String, Object> metric : family.metrics.entrySet()) {
+                writeMetric(output, name, metric.getKey(), metric.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return all the metrics in the Prometheus text format
+     */
+    public String scrape() {
+        StringBuilder output = new StringBuilder();
+        writeTo(output);
+        return output.toString();
+    }
+
+    private synchronized Object register(
+            String name,
+            String help,
+            Type type,
+            String[] labels,
+            Supplier<Object> factory) {
+
+        Family family = getFamily(name, help, type);
+        return family.metrics.computeIfAbsent(formatLabels(labels), key -> factory.get());
+    }
+
+    private synchronized void replace(
+            String name,
+            String help,
+            Type type,
+            String[] labels,
+            LongSupplier supplier) {
+
+        getFamily(name, help, type).metrics.put(formatLabels(labels), supplier);
+    }
+
+    private Family getFamily(String name, String help, Type type) {
+        Preconditions.checkArgument(name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*"));
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        Preconditions.checkArgument(
+                family.type == type,
+                "Metric %s already registered with another type",
+                name);
+        return family;
+    }
+
+    private static void writeMetric(
+            StringBuilder output,
+            String name,
+            String labels,
+            Object metric) {
+
+        if (metric instanceof Counter) {
+            writeSample(output, name, labels, ((Counter) metric).get());
+        }
+        else if (metric instanceof LongSupplier) {
+            writeSample(output, name, labels, ((LongSupplier) metric).getAsLong());
+        }
+        else if (metric instanceof Histogram) {
+            writeHistogram(output, name, labels, (Histogram) metric);
+        }
+    }
+
+    private static void writeHistogram(
+            StringBuilder output,
+            String name,
+            String labels,
+            Histogram histogram) {
+
+        // Buckets are cumulative in the exposed format
+        long cumulative = 0;
+        for (int i = 0; i < Histogram.NUM_BUCKETS; i++) {
+            cumulative += histogram.getBucketCount(i);
+            String bound = i < Histogram.NUM_BUCKETS - 1
+                    ? Double.toString(Histogram.getUpperBoundSeconds(i))
+                    : "+Inf";
+            output.append(name).append("_bucket")
+                    .append(withLabel(labels, "le", bound))
+                    .append(' ').append(cumulative).append('\n');
+        }
+        output.append(name).append("_sum").append(labels).append(' ')
+                .append(histogram.getSumNanos() / 1e9).append('\n');
+        writeSample(output, name + "_count", labels, cumulative);
+    }
+
+    private static void writeSample(StringBuilder output, String name, String labels, long value) {
+        output.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static String formatLabels(String[] labels) {
+        String[] pairs = formatLabelPairs(labels);
+        return pairs.length > 0 ? "{" + String.join(",", pairs) + "}" : "";
+    }
+
+    private static String[] formatLabelPairs(String[] labels) {
+        Preconditions.checkArgument(labels.length % 2 == 0, "Labels must be name and value pairs");
+        String[] pairs = new String[labels.length / 2];
+        for (int i = 0; i < labels.length; i += 2) {
+            pairs[i / 2] = labels[i] + "=\"" + escapeLabel(labels[i + 1]) + '"';
+        }
+        return pairs;
+    }
+
+    private static boolean hasLabels(String formattedLabels, String[] pairs) {
+        // Values are escaped, so pairs are only delimited by the braces and commas
+        for (String pair : pairs) {
+            int index = formattedLabels.indexOf(pair);
+            boolean found = false;
+            while (index >= 0 && !found) {
+                int end = index + pair.length();
+                found = (formattedLabels.charAt(index - 1) == '{' || formattedLabels.charAt(index - 1) == ',')
+                        && (formattedLabels.charAt(end) == '}' || formattedLabels.charAt(end) == ',');
+                index = formattedLabels.indexOf(pair, index + 1);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        String label = name + "=\"" + value + '"';
+        if (labels.isEmpty()) {
+            return "{" + label + "}";
+        }
+        return labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String value) {
+        return value.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        HISTOGRAM("histogram");
+
+        private final String exposedName;
+
+        Type(String exposedName) {
+            this.exposedName = exposedName;
+        }
+    }
+
+    private static final class Family {
+
+        private final String help;
+        private final Type type;
+
+        // Metrics by their formatted labels
+        private final Map<String, Object> metrics = new LinkedHashMap<>();
+
+        private Family(String help, Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package pipeline.orchestrator.metrics;
+
+import com.google.common.base.Preconditions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded http server that exposes the metrics of a
+ * registry in the Prometheus text format at /metrics
+ */
+public class PrometheusExporter {
+
+    private static final Logger LOGGER = LogManager.getLogger(PrometheusExporter.class);
+
+    private static final String PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private PrometheusExporter(MetricsRegistry registry, int port) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        // Scrapes are rare so a single thread is enough
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts an exporter for the registry in the given port
+     * @param registry registry with the metrics to export
+     * @param port port to listen on, or 0 for any free port
+     * @return the started exporter
+     * @throws IOException if unable to bind to the port
+     */
+    public static PrometheusExporter start(MetricsRegistry registry, int port)
+            throws IOException {
+        Preconditions.checkNotNull(registry);
+        Preconditions.checkArgument(port >= 0);
+        PrometheusExporter exporter = new PrometheusExporter(registry, port);
+        exporter.server.start();
+        LOGGER.info("Exporting metrics at port {}", exporter.getPort());
+        return exporter;
+    }
+
+    /**
+     * @return the port where the metrics are exported
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+        finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package pipeline.orchestrator.reflection;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableGraph;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pipeline.orchestrator.common.DirectedGraphs;
+import pipeline.orchestrator.grpc.reflection.ServerReflectionHelper;
+import pipeline.orchestrator.grpc.reflection.UnableToLookupServiceException;
+import pipeline.orchestrator.protobuf.DescriptorProtos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the descriptors discovered through server reflection
+ * The descriptors of each service are indexed by the authority of
+ * the server and the name of the service, and may also be stored
+ * in a directory so that they survive restarts. Before a cached
+ * entry is used, it is validated with a single reflection request
+ * for the file of the service, which must match the cached files.
+ * Files shared by multiple services are only built once.
+ */
+public final class DescriptorCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(DescriptorCache.class);
+
+    private static final DescriptorCache INSTANCE = new DescriptorCache();
+
+    private static final String FILE_EXTENSION = ".pb";
+
+    // Directory to store the descriptors, null if only kept in memory
+    private volatile Path directory = null;
+
+    // Descriptors of each service, indexed by authority and service name
+    private final Map<String, FileDescriptorSet> services = new ConcurrentHashMap<>();
+
+    // Files built from the same proto with the same dependencies
+    private final Map<FileKey, FileDescriptor> files = new ConcurrentHashMap<>();
+
+    DescriptorCache() {}
+
+    /**
+     * @return the cache shared by the whole application
+     */
+    public static DescriptorCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Stores the descriptors in the given directory
+     * and reuses any descriptors already there
+     * @param directory directory to store the descriptors
+     */
+    public void persistTo(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Collects the necessary descriptors for a given service, using
+     * the cached descriptors if they are still valid
+     * @param authority authority of the server
+     * @param serviceName name of the service
+     * @param helper helper to send reflection requests to the server
+     * @return a set of file descriptors with all the necessary
+     *         descriptors for the methods and messages of the service
+     * @throws UnableToLookupServiceException if an error occurs
+     * @throws InterruptedException if the thread is interrupted
+     *                              while waiting for a reply from the server
+     */
+    FileDescriptorSet lookupService(
+            String authority,
+            String serviceName,
+            ServerReflectionHelper helper)
+            throws UnableToLookupServiceException, InterruptedException {
+
+        String key = authority + "/" + serviceName;
+        FileDescriptorSet cached = services.get(key);
+        if (cached == null) {
+            cached = read(key);
+        }
+        if (cached != null && isValid(cached, serviceName, helper)) {
+            LOGGER.debug("Using cached descriptors for '{}'", key);
+            services.put(key, cached);
+            return cached;
+        }
+        FileDescriptorSet descriptorSet = helper.lookupService(serviceName);
+        services.put(key, descriptorSet);
+        write(key, descriptorSet);
+        return descriptorSet;
+    }
+
+    /**
+     * Builds the file descriptors of a set, reusing the files
+     * that were already built from the same protos
+     * @param fileDescriptorSet set of file descriptor protos
+     * @return list of file descriptors
+     * @throws DescriptorValidationException if a not valid descriptor is found
+     */
+    ImmutableList<FileDescriptor> buildAll(FileDescriptorSet fileDescriptorSet)
+            throws DescriptorValidationException {
+
+        ImmutableGraph<FileDescriptorProto> dependenciesGraph =
+                DescriptorProtos.buildDependencyGraph(fileDescriptorSet);
+        // Dependencies are built before the files that depend on them
+        ImmutableList<FileDescriptorProto> reversedDependencies =
+                DirectedGraphs.reversedTopologicalOrder(dependenciesGraph);
+
+        Map<String, FileDescriptor> built = new HashMap<>();
+        ImmutableList.Builder<FileDescriptor> descriptors = ImmutableList.builder();
+        for (FileDescriptorProto descriptorProto : reversedDependencies) {
+            List<FileDescriptor> dependencies = new ArrayList<>();
+            descriptorProto.getDependencyList().stream()
+                    .map(built::get)
+                    .filter(Objects::nonNull)
+                    .forEach(dependencies::add);
+
+            FileKey fileKey = new FileKey(descriptorProto, dependencies);
+            FileDescriptor descriptor = files.get(fileKey);
+            if (descriptor == null) {
+                descriptor = FileDescriptor.buildFrom(
+                        descriptorProto,
+                        dependencies.toArray(new FileDescriptor[0]));
+                FileDescriptor previous = files.putIfAbsent(fileKey, descriptor);
+                if (previous != null) {
+                    descriptor = previous;
+                }
+            }
+            built.put(descriptorProto.getName(), descriptor);
+            descriptors.add(descriptor);
+        }
+        return descriptors.build();
+    }
+
+    private boolean isValid(
+            FileDescriptorSet cached,
+            String serviceName,
+            ServerReflectionHelper helper)
+            throws InterruptedException {
+
+        ImmutableSet<FileDescriptorProto> current;
+        try {
+            current = helper.lookupServiceFiles(serviceName);
+        }
+        catch (UnableToLookupServiceException e) {
+            return false;
+        }
+        ImmutableMap<String, FileDescriptorProto> cachedFiles =
+                DescriptorProtos.buildFileDescriptorsMapping(cached);
+        return !current.isEmpty() && current.stream()
+                .allMatch(file -> file.equals(cachedFiles.get(file.getName())));
+    }
+
+    private FileDescriptorSet read(String key) {
+        Path file = fileFor(key);
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try (InputStream input = Files.newInputStream(file)) {
+            return FileDescriptorSet.parseFrom(input);
+        }
+        catch (IOException e) {
+            LOGGER.warn("Unable to read cached descriptors from '{}'", file, e);
+            return null;
+        }
+    }
+
+    private void write(String key, FileDescriptorSet descriptorSet) {
+        Path file = fileFor(key);
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            // Written to a temporary file first so that
+            // a partial file is never read
+            Path temporary = Files.createTempFile(file.getParent(), null, FILE_EXTENSION);
+            try (OutputStream output = Files.newOutputStream(temporary)) {
+                descriptorSet.writeTo(output);
+            }
+            Files.move(
+                    temporary,
+                    file,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            LOGGER.warn("Unable to cache descriptors in '{}'", file, e);
+        }
+    }
+
+    private Path fileFor(String key) {
+        Path current = directory;
+        if (current == null) {
+            return null;
+        }
+        String name = Hashing.sha256()
+                .hashString(key, StandardCharsets.UTF_8)
+                .toString();
+        return current.resolve(name + FILE_EXTENSION);
+    }
+
+    /**
+     * Identifies a file by its proto and the files it depends on
+     */
+    private static final class FileKey {
+
+        private final FileDescriptorProto proto;
+        // Compared by identity since the files are reused
+        private final List<FileDescriptor> dependencies;
+
+        private FileKey(FileDescriptorProto proto, List<FileDescriptor> dependencies) {
+            this.proto = proto;
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FileKey fileKey = (FileKey) o;
+            return proto.equals(fileKey.proto) &&
+                    dependencies.equals(fileKey.dependencies);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(proto, dependencies);
+        }
+    }
+}
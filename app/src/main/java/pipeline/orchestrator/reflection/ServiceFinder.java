@@ -17,9 +17,21 @@ import pipeline.orchestrator.protobuf.Descriptors;
 /**
  * Class to find the gRPC service that a stage
  * should call
+ * The descriptors of the services are cached so
+ * that they are only discovered and built once
  */
 public class ServiceFinder {
 
+    private final DescriptorCache cache;
+
+    public ServiceFinder() {
+        this(DescriptorCache.getInstance());
+    }
+
+    public ServiceFinder(DescriptorCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * Finds the service offered by the grpc server on the
      * other endpoint of the given channel.
@@ -89,8 +101,11 @@ public class ServiceFinder {
 
         try {
 
-            FileDescriptorSet descriptorSet = helper.lookupService(serviceName);
-            ImmutableList<FileDescriptor> fileDescriptors = Descriptors.buildAllFrom(descriptorSet);
+            FileDescriptorSet descriptorSet = cache.lookupService(
+                    channel.authority(),
+                    serviceName,
+                    helper);
+            ImmutableList<FileDescriptor> fileDescriptors = cache.buildAll(descriptorSet);
 
             return Descriptors.findService(
                     serviceName,
@@ -115,17 +115,15 @@ public abstract class AbstractObjectVerifier {
     }
 
     private void verifyPositive(Object object, Field field) {
-        int value;
-        try {
-            field.setAccessible(true);
-            value = field.getInt(object);
-        }
-        catch (IllegalAccessException e) {
-            throw new IllegalStateException(e);
-        }
+        Object value = getFieldValue(object, field);
+
+        // Optional fields are only verified if set
+        if (value == null)
+            return;
 
-        if (value <= 0)
-            onNonPositiveField(field.getName(), value);
+        int intValue = ((Number) value).intValue();
+        if (intValue <= 0)
+            onNonPositiveField(field.getName(), intValue);
     }
 
     private void verifyNotNull(Object object, Field field) {
@@ -7,6 +7,7 @@ import java.lang.annotation.Target;
 
 /**
  * Annotation to verify a field as positive
+ * Fields with a wrapper type are not verified if null
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.FIELD)
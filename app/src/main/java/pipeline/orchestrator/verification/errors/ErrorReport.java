@@ -17,7 +17,8 @@ public class ErrorReport {
     private static final Map<Class<? extends VerificationError>, String> SECTION_HEADERS =
             ImmutableMap.of(
                     NotNullVerificationError.class, "Not Null Verification Errors",
-                    PositiveVerificationError.class, "Positive Verification Errors");
+                    PositiveVerificationError.class, "Positive Verification Errors",
+                    UnsupportedOptionError.class, "Unsupported Option Errors");
 
     public static final String NO_ERRORS_DESCRIPTION = "ERROR REPORT: No errors fourd.\n";
 
@@ -0,0 +1,42 @@
+package pipeline.orchestrator.verification.errors;
+
+import com.google.common.base.Strings;
+
+public class UnsupportedOptionError implements VerificationError {
+
+    private static final String MESSAGE = "Stage %s: Option %s is not supported by %s stages.";
+
+    private final String stage;
+    private final String option;
+    private final String stageType;
+
+    private UnsupportedOptionError(String stage, String option, String stageType) {
+        this.stage = stage;
+        this.option = option;
+        this.stageType = stageType;
+    }
+
+    public static UnsupportedOptionError forOption(String stage, String option, String stageType) {
+        return new UnsupportedOptionError(stage, option, stageType);
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public String getOption() {
+        return option;
+    }
+
+    public String getStageType() {
+        return stageType;
+    }
+
+    @Override
+    public void summarize(StringBuilder sb, int tab) {
+        sb.append(Strings.repeat("\t", tab))
+                .append(String.format(MESSAGE, stage, option, stageType))
+                .append('\n');
+    }
+
+}
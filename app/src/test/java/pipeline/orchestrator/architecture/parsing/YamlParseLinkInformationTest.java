@@ -2,9 +2,13 @@ package pipeline.orchestrator.architecture.parsing;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import org.junit.Test;
+import pipeline.orchestrator.architecture.LinkInformation;
+import pipeline.orchestrator.architecture.OverflowPolicy;
 import pipeline.orchestrator.verification.Verifications;
 import pipeline.orchestrator.verification.exceptions.NotNullVerificationException;
+import pipeline.orchestrator.verification.exceptions.PositiveVerificationException;
 
 import static org.junit.Assert.*;
 
@@ -62,6 +66,83 @@ public class YamlParseLinkInformationTest {
         assertNull(linkInformation.getSource().getField());
         assertEquals(TARGET_STAGE, linkInformation.getTarget().getStage());
         assertNull(linkInformation.getTarget().getField());
+        assertEquals(LinkInformation.DEFAULT_CAPACITY, linkInformation.getCapacity());
+        assertNull(linkInformation.getOverflow());
+    }
+
+    @Test
+    public void bufferFieldsTest() throws Exception {
+        String content =
+                "source:\n" +
+                "  stage: \"" + SOURCE_STAGE + "\"\n" +
+                "target:\n" +
+                "  stage: \"" + TARGET_STAGE + "\"\n" +
+                "capacity: 16\n" +
+                "overflow: drop-newest\n";
+
+        LinkInformationDto linkInformation = MAPPER.readValue(
+                content,
+                LinkInformationDto.class);
+
+        // Nothing should happen
+        Verifications.verify(linkInformation);
+
+        assertEquals(16, linkInformation.getCapacity());
+        assertEquals(OverflowPolicy.DROP_NEWEST, linkInformation.getOverflow());
+    }
+
+    @Test
+    public void creditOverflowTest() throws Exception {
+        String content =
+                "source:\n" +
+                "  stage: \"" + SOURCE_STAGE + "\"\n" +
+                "target:\n" +
+                "  stage: \"" + TARGET_STAGE + "\"\n" +
+                "overflow: credit\n";
+
+        LinkInformationDto linkInformation = MAPPER.readValue(
+                content,
+                LinkInformationDto.class);
+
+        Verifications.verify(linkInformation);
+
+        assertEquals(OverflowPolicy.CREDIT, linkInformation.getOverflow());
+    }
+
+    @Test
+    public void nonPositiveCapacityTest() throws Exception {
+        String content =
+                "source:\n" +
+                "  stage: \"" + SOURCE_STAGE + "\"\n" +
+                "target:\n" +
+                "  stage: \"" + TARGET_STAGE + "\"\n" +
+                "capacity: 0\n";
+
+        LinkInformationDto linkInformation = MAPPER.readValue(
+                content,
+                LinkInformationDto.class);
+
+        PositiveVerificationException exception = assertThrows(
+                PositiveVerificationException.class,
+                () -> Verifications.verify(linkInformation));
+
+        assertEquals(
+                String.format(PositiveVerificationException.MESSAGE, "capacity"),
+                exception.getMessage());
+    }
+
+    @Test
+    public void unknownOverflowPolicyTest() {
+        String content =
+                "source:\n" +
+                "  stage: \"" + SOURCE_STAGE + "\"\n" +
+                "target:\n" +
+                "  stage: \"" + TARGET_STAGE + "\"\n" +
+                "overflow: unknown\n";
+
+        assertThrows(
+                JsonMappingException.class,
+                () -> MAPPER.readValue(content, LinkInformationDto.class));
     }
 
     @Test
@@ -1,12 +1,20 @@
 package pipeline.orchestrator.architecture.parsing;
 
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.junit.Test;
+import pipeline.orchestrator.architecture.ChannelInformation;
+import pipeline.orchestrator.architecture.LoadBalancingPolicy;
+import pipeline.orchestrator.architecture.OutputOrdering;
+import pipeline.orchestrator.architecture.RetryInformation;
+import pipeline.orchestrator.architecture.StageInformation;
 import pipeline.orchestrator.verification.Verifications;
 import pipeline.orchestrator.verification.exceptions.NotNullVerificationException;
 import pipeline.orchestrator.verification.exceptions.PositiveVerificationException;
 
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class YamlParseStageInformationTest {
@@ -90,6 +98,407 @@ public class YamlParseStageInformationTest {
         assertNull(stageInformation.getService());
         assertNull(stageInformation.getMethod());
         assertFalse(stageInformation.isOneShot());
+        assertEquals(
+                StageInformation.DEFAULT_MAX_IN_FLIGHT,
+                stageInformation.getMaxInFlight());
+        assertEquals(
+                StageInformation.DEFAULT_PARALLELISM,
+                stageInformation.getParallelism());
+        assertNull(stageInformation.getOrdering());
+        assertEquals(
+                StageInformation.DEFAULT_BATCH_SIZE,
+                stageInformation.getBatchSize());
+    }
+
+    @Test
+    public void maxInFlightTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "max-in-flight: 16\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        assertEquals(16, stageInformation.getMaxInFlight());
+    }
+
+    @Test
+    public void replicasTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "replicas:\n" +
+                "  - host: " + HOST + "\n" +
+                "    port: 2\n" +
+                "  - host: " + HOST + "\n" +
+                "    port: 3\n" +
+                "load-balancing: least-outstanding\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        assertEquals(2, stageInformation.getReplicas().size());
+        assertEquals(HOST, stageInformation.getReplicas().get(0).getHost());
+        assertEquals(2, stageInformation.getReplicas().get(0).getPort());
+        assertEquals(HOST, stageInformation.getReplicas().get(1).getHost());
+        assertEquals(3, stageInformation.getReplicas().get(1).getPort());
+        assertEquals(
+                LoadBalancingPolicy.LEAST_OUTSTANDING,
+                stageInformation.getLoadBalancing());
+    }
+
+    @Test
+    public void cacheTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "cache:\n" +
+                "  size: 100\n" +
+                "  max-bytes: 4096\n" +
+                "  ttl-ms: 60000\n" +
+                "  fields: [key]\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        StageInformationDto.CacheDto cache = stageInformation.getCache();
+        assertEquals(100, cache.getSize());
+        assertEquals(4096, cache.getMaxBytes());
+        assertEquals(Integer.valueOf(60000), cache.getTtlMs());
+        assertEquals(List.of("key"), cache.getFields());
+    }
+
+    @Test
+    public void nonPositiveCacheSizeTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "cache:\n" +
+                "  size: 0\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+
+        PositiveVerificationException exception = assertThrows(
+                PositiveVerificationException.class,
+                () -> Verifications.verify(stageInformation));
+
+        assertEquals(
+                String.format(PositiveVerificationException.MESSAGE, "size"),
+                exception.getMessage());
+    }
+
+    @Test
+    public void retryTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "retry:\n" +
+                "  max-attempts: 5\n" +
+                "  initial-backoff-ms: 50\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        StageInformationDto.RetryDto retry = stageInformation.getRetry();
+        assertEquals(5, retry.getMaxAttempts());
+        assertEquals(50, retry.getInitialBackoffMs());
+        assertEquals(RetryInformation.DEFAULT_MAX_BACKOFF_MS, retry.getMaxBackoffMs());
+    }
+
+    @Test
+    public void timeoutAndHedgingTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "timeout-ms: 2000\n" +
+                "hedging: true\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        assertEquals(Integer.valueOf(2000), stageInformation.getTimeoutMs());
+        assertTrue(stageInformation.isHedging());
+    }
+
+    @Test
+    public void nonPositiveTimeoutTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "timeout-ms: 0\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+
+        PositiveVerificationException exception = assertThrows(
+                PositiveVerificationException.class,
+                () -> Verifications.verify(stageInformation));
+
+        assertEquals(
+                String.format(PositiveVerificationException.MESSAGE, "timeoutMs"),
+                exception.getMessage());
+    }
+
+    @Test
+    public void channelTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "channel:\n" +
+                "  connections: 4\n" +
+                "  max-inbound-message-bytes: 67108864\n" +
+                "  flow-control-window-bytes: 16777216\n" +
+                "  keep-alive-time-ms: 30000\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        StageInformationDto.ChannelDto channel = stageInformation.getChannel();
+        assertEquals(4, channel.getConnections());
+        assertEquals(67108864, channel.getMaxInboundMessageBytes());
+        assertEquals(Integer.valueOf(16777216), channel.getFlowControlWindowBytes());
+        assertEquals(Integer.valueOf(30000), channel.getKeepAliveTimeMs());
+        assertEquals(ChannelInformation.DEFAULT_KEEP_ALIVE_TIMEOUT_MS, channel.getKeepAliveTimeoutMs());
+    }
+
+    @Test
+    public void replicaWithoutHostTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "replicas:\n" +
+                "  - port: 2\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+
+        NotNullVerificationException exception = assertThrows(
+                NotNullVerificationException.class,
+                () ->  Verifications.verify(stageInformation));
+
+        assertEquals(
+                String.format(NotNullVerificationException.MESSAGE, "host"),
+                exception.getMessage());
+    }
+
+    @Test
+    public void unknownLoadBalancingPolicyTest() {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "load-balancing: unknown\n";
+
+        assertThrows(
+                JsonMappingException.class,
+                () -> MAPPER.readValue(content, StageInformationDto.class));
+    }
+
+    @Test
+    public void parallelismTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "parallelism: 4\n" +
+                "ordering: relaxed\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        assertEquals(4, stageInformation.getParallelism());
+        assertEquals(OutputOrdering.RELAXED, stageInformation.getOrdering());
+    }
+
+    @Test
+    public void batchingTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "batch-size: 32\n" +
+                "batch-timeout-ms: 5\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        assertEquals(32, stageInformation.getBatchSize());
+        assertEquals(5, stageInformation.getBatchTimeoutMs());
+    }
+
+    @Test
+    public void joinTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "join-window: 128\n" +
+                "join-timeout-ms: 200\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        assertEquals(128, stageInformation.getJoinWindow());
+        assertEquals(200, stageInformation.getJoinTimeoutMs());
+    }
+
+    @Test
+    public void idFieldTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "id-field: frame_id\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        assertEquals("frame_id", stageInformation.getIdField());
+    }
+
+    @Test
+    public void maxFanOutTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "max-fan-out: 64\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+        // Nothing should happen
+        Verifications.verify(stageInformation);
+
+        assertEquals(64, stageInformation.getMaxFanOut());
+    }
+
+    @Test
+    public void nonPositiveMaxFanOutTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "max-fan-out: 0\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+
+        PositiveVerificationException exception = assertThrows(
+                PositiveVerificationException.class,
+                () -> Verifications.verify(stageInformation));
+
+        assertEquals(
+                String.format(PositiveVerificationException.MESSAGE, "maxFanOut"),
+                exception.getMessage());
+    }
+
+    @Test
+    public void nonPositiveJoinWindowTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "join-window: 0\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+
+        PositiveVerificationException exception = assertThrows(
+                PositiveVerificationException.class,
+                () -> Verifications.verify(stageInformation));
+
+        assertEquals(
+                String.format(PositiveVerificationException.MESSAGE, "joinWindow"),
+                exception.getMessage());
+    }
+
+    @Test
+    public void nonPositiveParallelismTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "parallelism: 0\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+
+        PositiveVerificationException exception = assertThrows(
+                PositiveVerificationException.class,
+                () -> Verifications.verify(stageInformation));
+
+        assertEquals(
+                String.format(PositiveVerificationException.MESSAGE, "parallelism"),
+                exception.getMessage());
+    }
+
+    @Test
+    public void nonPositiveMaxInFlightTest() throws Exception {
+        String content =
+                "name: \"" + NAME + "\"\n" +
+                "host: " + HOST + "\n" +
+                "port: " + PORT + "\n" +
+                "max-in-flight: 0\n";
+
+        StageInformationDto stageInformation = MAPPER.readValue(
+                content,
+                StageInformationDto.class);
+
+        PositiveVerificationException exception = assertThrows(
+                PositiveVerificationException.class,
+                () -> Verifications.verify(stageInformation));
+
+        assertEquals(
+                String.format(PositiveVerificationException.MESSAGE, "maxInFlight"),
+                exception.getMessage());
     }
 
     @Test
@@ -0,0 +1,44 @@
+package pipeline.orchestrator.architecture.parsing;
+
+import org.junit.Test;
+import pipeline.orchestrator.verification.errors.ErrorReport;
+import pipeline.orchestrator.verification.errors.UnsupportedOptionError;
+import pipeline.orchestrator.verification.errors.VerificationError;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for an architecture with options that the stages do not support
+ * 1 > > 2 > > 3
+ */
+public class YamlUnsupportedOptionsTest {
+
+    private static final String CONFIG_FILE =
+            "src/test/resources/yaml/unsupported_options_architecture.yaml";
+
+    @Test
+    public void unsupportedOptionsTest() throws Exception {
+        ArchitectureParser.ParsingResult result = ArchitectureParser.parseYaml(CONFIG_FILE);
+
+        assertNull(result.getArchitecture());
+        ErrorReport report = result.getReport();
+        assertTrue(report.hasErrors());
+
+        List<VerificationError> errors = report.getErrors();
+        assertEquals(2, errors.size());
+
+        assertTrue(errors.get(0) instanceof UnsupportedOptionError);
+        UnsupportedOptionError error1 = (UnsupportedOptionError) errors.get(0);
+        assertEquals("Stage 1", error1.getStage());
+        assertEquals("max-in-flight", error1.getOption());
+        assertEquals("one-shot", error1.getStageType());
+
+        assertTrue(errors.get(1) instanceof UnsupportedOptionError);
+        UnsupportedOptionError error2 = (UnsupportedOptionError) errors.get(1);
+        assertEquals("Stage 2", error2.getStage());
+        assertEquals("parallelism", error2.getOption());
+        assertEquals("batching", error2.getStageType());
+    }
+}
@@ -0,0 +1,49 @@
+package pipeline.orchestrator.execution;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void openTest() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(0));
+
+        assertOpenTime(CircuitBreaker.INITIAL_OPEN_MS, breaker.open(0));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(0));
+
+        // Failures of calls sent before the circuit opened are ignored
+        assertEquals(-1, breaker.open(10));
+    }
+
+    @Test
+    public void failedProbeTest() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.open(0);
+        breaker.halfOpen(1000);
+
+        // Each failed probe doubles the open time
+        assertOpenTime(2 * CircuitBreaker.INITIAL_OPEN_MS, breaker.open(1500));
+        breaker.halfOpen(4000);
+        assertOpenTime(4 * CircuitBreaker.INITIAL_OPEN_MS, breaker.open(4500));
+    }
+
+    @Test
+    public void successfulProbeTest() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.open(0);
+        breaker.halfOpen(1000);
+        breaker.open(1500);
+        breaker.halfOpen(4000);
+
+        long closedMs = 4000 + CircuitBreaker.PROBE_WINDOW_MS;
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(closedMs));
+        assertOpenTime(CircuitBreaker.INITIAL_OPEN_MS, breaker.open(closedMs));
+    }
+
+    private static void assertOpenTime(long expectedMs, long openMs) {
+        assertTrue(openMs >= expectedMs && openMs <= expectedMs + expectedMs / 4);
+    }
+}
@@ -0,0 +1,70 @@
+package pipeline.orchestrator.execution;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DynamicMessage;
+import org.junit.Test;
+import pipeline.orchestrator.grpc.messages.Data;
+
+import static org.junit.Assert.*;
+
+public class ComputationStateTest {
+
+    private static final Data DATA = Data.newBuilder().setNum(3).build();
+
+    @Test
+    public void testFromBytesIsParsedLazily() {
+        ComputationState state = ComputationState.from(1, Data.getDescriptor(), DATA.toByteString());
+        assertFalse(state.isParsed());
+        assertEquals(DATA.toByteString(), state.getBytes());
+        assertFalse(state.isParsed());
+
+        DynamicMessage message = state.getMessage();
+        assertTrue(state.isParsed());
+        assertEquals(DynamicMessage.newBuilder(DATA).build(), message);
+        // Parsed only once
+        assertSame(message, state.getMessage());
+    }
+
+    @Test
+    public void testFromMessageIsSerializedLazily() {
+        DynamicMessage message = DynamicMessage.newBuilder(DATA).build();
+        ComputationState state = ComputationState.from(1, message);
+        assertTrue(state.isParsed());
+        assertEquals(Data.getDescriptor(), state.getDescriptor());
+
+        ByteString bytes = state.getBytes();
+        assertEquals(DATA.toByteString(), bytes);
+        assertSame(bytes, state.getBytes());
+    }
+
+    @Test
+    public void testFollowupKeepsId() {
+        ComputationState previous = ComputationState.from(7, DynamicMessage.newBuilder(DATA).build());
+        ComputationState next = ComputationState.from(previous, Data.getDescriptor(), DATA.toByteString());
+        assertEquals(7, next.getId());
+    }
+
+    @Test
+    public void testFollowupKeepsTrail() {
+        ComputationState previous = ComputationState.from(7, DynamicMessage.newBuilder(DATA).build());
+        assertNull(previous.getTrail());
+        previous.recordHop("source", 10, 20);
+
+        ComputationState next = ComputationState.from(previous, Data.getDescriptor(), DATA.toByteString());
+        assertEquals(previous.getTrail(), next.getTrail());
+        next.recordHop("stage", 25, 40);
+        assertEquals(2, next.getTrail().getHops());
+        assertEquals(previous.getTrail(), next.getTrail().getPrevious());
+        // The previous state is not modified
+        assertEquals(1, previous.getTrail().getHops());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidBytes() {
+        ComputationState state = ComputationState.from(
+                1,
+                Data.getDescriptor(),
+                ByteString.copyFrom(new byte[] { (byte) 0xFF }));
+        state.getMessage();
+    }
+}
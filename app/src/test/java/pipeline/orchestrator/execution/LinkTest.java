@@ -0,0 +1,143 @@
+package pipeline.orchestrator.execution;
+
+import com.google.protobuf.DynamicMessage;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.grpc.messages.Data;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LinkTest {
+
+    @Test
+    public void dropOldestTest() throws Exception {
+        Link link = new Link(2, OverflowPolicy.DROP_OLDEST);
+
+        link.put(buildState(1));
+        link.put(buildState(2));
+        link.put(buildState(3));
+
+        assertEquals(3, link.getEnqueued());
+        assertEquals(1, link.getDropped());
+        assertState(2, link.take());
+        assertState(3, link.take());
+    }
+
+    @Test
+    public void dropNewestTest() throws Exception {
+        Link link = new Link(2, OverflowPolicy.DROP_NEWEST);
+
+        link.put(buildState(1));
+        link.put(buildState(2));
+        link.put(buildState(3));
+        link.put(buildState(4));
+
+        assertEquals(2, link.getEnqueued());
+        assertEquals(2, link.getDropped());
+        assertState(1, link.take());
+        assertState(2, link.take());
+    }
+
+    @Test
+    public void blockTest() throws Exception {
+        Link link = new Link(1, OverflowPolicy.BLOCK);
+        CountDownLatch secondPut = new CountDownLatch(1);
+
+        link.put(buildState(1));
+        Thread producer = new Thread(() -> {
+            try {
+                link.put(buildState(2));
+                secondPut.countDown();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        // Producer should be blocked while the link is full
+        assertFalse(secondPut.await(100, TimeUnit.MILLISECONDS));
+
+        assertState(1, link.take());
+        assertTrue(secondPut.await(1, TimeUnit.SECONDS));
+        assertState(2, link.take());
+        producer.join();
+    }
+
+    @Test
+    public void spillTest() throws Exception {
+        Link link = new Link(2, OverflowPolicy.SPILL);
+
+        for (int i = 1; i <= 5; i++) {
+            link.put(buildState(i));
+        }
+
+        // No state should be lost and the order should be kept
+        for (int i = 1; i <= 5; i++) {
+            assertState(i, link.take());
+        }
+    }
+
+    @Test
+    public void creditTest() throws Exception {
+        Link link = new Link(2, OverflowPolicy.CREDIT);
+        assertTrue(link.usesCredits());
+
+        link.acquireCredit();
+        link.put(buildState(1));
+        assertTrue(link.tryAcquireCredit(0, TimeUnit.MILLISECONDS));
+        link.put(buildState(2));
+
+        // No credit while the link is full
+        assertEquals(0, link.getAvailableCredits());
+        assertFalse(link.tryAcquireCredit(100, TimeUnit.MILLISECONDS));
+
+        // Taking a state returns its credit
+        assertState(1, link.take());
+        assertTrue(link.tryAcquireCredit(0, TimeUnit.MILLISECONDS));
+        // Unused credits are returned to the link
+        link.releaseCredit();
+        assertState(2, link.poll());
+        assertEquals(2, link.getAvailableCredits());
+        assertEquals(0, link.getDropped());
+    }
+
+    @Test
+    public void noCreditsTest() throws Exception {
+        Link link = new Link(1, OverflowPolicy.DROP_OLDEST);
+        assertFalse(link.usesCredits());
+
+        // Never waits without credits
+        link.acquireCredit();
+        link.acquireCredit();
+        assertTrue(link.tryAcquireCredit(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void takeUntilTest() throws Exception {
+        Link link = new Link(3, OverflowPolicy.DROP_OLDEST);
+
+        link.put(buildState(1));
+        link.put(buildState(2));
+        link.put(buildState(3));
+
+        assertState(2, link.takeUntil(state -> state.getId() >= 2));
+        assertState(3, link.take());
+    }
+
+    private static ComputationState buildState(int id) {
+        Data data = Data.newBuilder().setNum(id).build();
+        return ComputationState.from(id, DynamicMessage.newBuilder(data).build());
+    }
+
+    private static void assertState(int expectedId, ComputationState state) {
+        assertEquals(expectedId, state.getId());
+        assertEquals(
+                (long) expectedId,
+                state.getMessage().getField(
+                        Data.getDescriptor().findFieldByName("num")));
+    }
+}
@@ -0,0 +1,107 @@
+package pipeline.orchestrator.execution;
+
+import com.google.protobuf.DynamicMessage;
+import org.junit.Test;
+import pipeline.orchestrator.grpc.messages.Data;
+
+import static org.junit.Assert.*;
+
+public class TimingTrailTest {
+
+    @Test
+    public void testHops() {
+        TimingTrail source = TimingTrail.append(null, "source", 100, 150);
+        TimingTrail trail = TimingTrail.append(source, "stage", 170, 200);
+
+        assertEquals(2, trail.getHops());
+        assertEquals(0, source.getQueueNanos());
+        assertEquals(20, trail.getQueueNanos());
+        assertEquals(30, trail.getProcessingNanos());
+        assertEquals(100, trail.getSourceNanos());
+        assertEquals("source>stage", trail.getPath());
+    }
+
+    @Test
+    public void testPathHash() {
+        TimingTrail first = TimingTrail.append(
+                TimingTrail.append(null, "source", 0, 1), "stage", 2, 3);
+        TimingTrail second = TimingTrail.append(
+                TimingTrail.append(null, "source", 10, 11), "stage", 12, 13);
+        TimingTrail other = TimingTrail.append(
+                TimingTrail.append(null, "source", 0, 1), "other", 2, 3);
+
+        assertEquals(first.getPathHash(), second.getPathHash());
+        assertNotEquals(first.getPathHash(), other.getPathHash());
+    }
+
+    @Test
+    public void testSiblingsKeepTheirHops() {
+        // A state sent to two stages is extended by both
+        TimingTrail source = TimingTrail.append(null, "source", 0, 10);
+        TimingTrail first = TimingTrail.append(source, "first", 20, 30);
+        TimingTrail second = TimingTrail.append(source, "second", 40, 50);
+
+        assertEquals("source>first", first.getPath());
+        assertEquals("source>second", second.getPath());
+        assertEquals(10, first.getQueueNanos());
+        assertEquals(30, second.getQueueNanos());
+        assertEquals(source, first.getPrevious());
+        assertEquals(source, TimingTrail.append(first, "next", 60, 70).getPrevious().getPrevious());
+    }
+
+    @Test
+    public void testLongTrail() {
+        // Hops beyond the initial capacity of the arrays
+        TimingTrail trail = null;
+        for (int i = 0; i < 100; i++) {
+            trail = TimingTrail.append(trail, "stage" + i, 10L * i, 10L * i + 5);
+        }
+        assertEquals(100, trail.getHops());
+        assertEquals("stage0", trail.getStageName(0));
+        assertEquals("stage99", trail.getStageName());
+        assertEquals(5, trail.getQueueNanos(50));
+        assertEquals(5, trail.getProcessingNanos(99));
+        assertEquals(0, trail.getSourceNanos());
+    }
+
+    @Test
+    public void testCycleIsFolded() {
+        // Going around a cycle keeps one hop for each stage
+        ComputationState state = ComputationState.from(
+                0, DynamicMessage.getDefaultInstance(Data.getDescriptor()));
+        state.recordHop("source", 0, 10);
+        for (int i = 0; i < 1000; i++) {
+            state.recordHop("cycle1", 100L * i + 20, 100L * i + 30);
+            state.recordHop("cycle2", 100L * i + 40, 100L * i + 50);
+        }
+        TimingTrail trail = state.getTrail();
+        assertEquals(3, trail.getHops());
+        assertEquals("source>cycle1>cycle2", trail.getPath());
+        assertEquals(0, trail.getSourceNanos());
+        // Folded hops span from the first visit to the last one
+        assertEquals(10, trail.getQueueNanos(1));
+        assertEquals(99_930 - 20, trail.getProcessingNanos(1));
+        // The hop after the fold is the last visit
+        assertEquals(99_940, trail.getStartNanos());
+        assertEquals(99_950, trail.getEndNanos());
+
+        TimingTrail repeated = TimingTrail.append(trail, "cycle1", 100_000, 100_010);
+        assertEquals("source>cycle1", repeated.getPath());
+        assertEquals(trail.getPrevious().getPathHash(), repeated.getPathHash());
+        assertEquals(20, repeated.getStartNanos());
+    }
+
+    @Test
+    public void testLatestIsCriticalPath() {
+        DynamicMessage message = DynamicMessage.getDefaultInstance(Data.getDescriptor());
+        ComputationState fast = ComputationState.from(1, message);
+        fast.recordHop("fast", 0, 10);
+        ComputationState slow = ComputationState.from(1, message);
+        slow.recordHop("slow", 0, 50);
+        ComputationState untraced = ComputationState.from(1, message);
+
+        assertEquals(slow.getTrail(), TimingTrail.latest(
+                new ComputationState[] { fast, untraced, slow }));
+        assertNull(TimingTrail.latest(new ComputationState[] { untraced }));
+    }
+}
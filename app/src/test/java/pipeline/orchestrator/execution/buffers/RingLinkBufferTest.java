@@ -0,0 +1,107 @@
+package pipeline.orchestrator.execution.buffers;
+
+import com.google.protobuf.DynamicMessage;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.grpc.messages.Data;
+
+
+import static org.junit.Assert.*;
+
+public class RingLinkBufferTest {
+
+    private static final int NUM_STATES = 20_000;
+
+    private static final DynamicMessage MESSAGE =
+            DynamicMessage.newBuilder(Data.getDefaultInstance()).build();
+
+    @Test
+    public void topologySelectionTest() {
+        assertTrue(LinkBuffers.forTopology(1, 1, 1, OverflowPolicy.DROP_OLDEST)
+                instanceof SpscRingLinkBuffer);
+        assertTrue(LinkBuffers.forTopology(2, 1, 1, OverflowPolicy.BLOCK)
+                instanceof LockingLinkBuffer);
+        assertTrue(LinkBuffers.forTopology(2, 1, 1, OverflowPolicy.DROP_OLDEST)
+                instanceof LockingLinkBuffer);
+        assertTrue(LinkBuffers.forTopology(1, 2, 1, OverflowPolicy.BLOCK)
+                instanceof LockingLinkBuffer);
+        assertTrue(LinkBuffers.forTopology(1, 1, 1, OverflowPolicy.SPILL)
+                instanceof LockingLinkBuffer);
+    }
+
+    @Test
+    public void spscDropOldestTest() throws Exception {
+        LinkBuffer buffer = new SpscRingLinkBuffer(3, OverflowPolicy.DROP_OLDEST);
+
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(buffer.put(buildState(i)));
+        }
+
+        assertEquals(3, buffer.size());
+        assertEquals(3, buffer.take().getId());
+        assertEquals(4, buffer.take().getId());
+        assertEquals(5, buffer.take().getId());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void spscDropNewestTest() throws Exception {
+        LinkBuffer buffer = new SpscRingLinkBuffer(3, OverflowPolicy.DROP_NEWEST);
+
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i <= 3, buffer.put(buildState(i)));
+        }
+
+        assertEquals(1, buffer.take().getId());
+        assertEquals(2, buffer.take().getId());
+        assertEquals(3, buffer.take().getId());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void spscBlockKeepsOrderTest() throws Exception {
+        LinkBuffer buffer = new SpscRingLinkBuffer(4, OverflowPolicy.BLOCK);
+
+        Thread producer = startProducer(buffer, 0, NUM_STATES);
+        for (int i = 0; i < NUM_STATES; i++) {
+            assertEquals(i, buffer.take().getId());
+        }
+        producer.join();
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void spscDropOldestIncreasingIdsTest() throws Exception {
+        LinkBuffer buffer = new SpscRingLinkBuffer(2, OverflowPolicy.DROP_OLDEST);
+
+        Thread producer = startProducer(buffer, 0, NUM_STATES);
+        // States can be lost but never delivered twice or out of order
+        int lastId = -1;
+        while (lastId < NUM_STATES - 1) {
+            int id = buffer.take().getId();
+            assertTrue(id > lastId);
+            lastId = id;
+        }
+        producer.join();
+    }
+
+    private static Thread startProducer(LinkBuffer buffer, int from, int to) {
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = from; i < to; i++) {
+                    buffer.put(buildState(i));
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        return producer;
+    }
+
+    private static ComputationState buildState(int id) {
+        return ComputationState.from(id, MESSAGE);
+    }
+}
@@ -0,0 +1,85 @@
+package pipeline.orchestrator.execution.inputs;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.protobuf.DynamicMessage;
+import org.junit.Before;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.Link;
+import pipeline.orchestrator.grpc.messages.Data;
+
+import static org.junit.Assert.*;
+
+public class CollectorInputStreamTest {
+
+    private static final int CAPACITY = 2;
+
+    private Link firstLink;
+    private Link secondLink;
+
+    private CollectorInputStream inputStream;
+
+    @Before
+    public void setUp() {
+        firstLink = new Link(CAPACITY, OverflowPolicy.BLOCK);
+        secondLink = new Link(CAPACITY, OverflowPolicy.DROP_OLDEST);
+        inputStream = new CollectorInputStream(ImmutableSetMultimap.of(
+                "", firstLink,
+                "", secondLink));
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        firstLink.put(state(0));
+        firstLink.put(state(1));
+        secondLink.put(state(10));
+        assertEquals(3, inputStream.getPending());
+
+        // Links are read in turn even if the first has more states
+        assertEquals(0, inputStream.get().getId());
+        assertEquals(10, inputStream.get().getId());
+        assertEquals(1, inputStream.get().getId());
+        assertEquals(0, inputStream.getPending());
+    }
+
+    @Test
+    public void testDroppedStates() throws Exception {
+        // The oldest states are dropped by the link
+        secondLink.put(state(10));
+        secondLink.put(state(11));
+        secondLink.put(state(12));
+        firstLink.put(state(0));
+
+        assertEquals(0, inputStream.get().getId());
+        assertEquals(11, inputStream.get().getId());
+        assertEquals(12, inputStream.get().getId());
+
+        // Permits of the dropped states do not affect later states
+        firstLink.put(state(1));
+        assertEquals(1, inputStream.get().getId());
+        assertEquals(0, inputStream.getPending());
+    }
+
+    @Test
+    public void testStatesBeforeStream() throws Exception {
+        // States left in the links by a replaced stage
+        Link first = new Link(CAPACITY, OverflowPolicy.BLOCK);
+        Link second = new Link(CAPACITY, OverflowPolicy.BLOCK);
+        first.put(state(0));
+        second.put(state(10));
+
+        CollectorInputStream stream = new CollectorInputStream(ImmutableSetMultimap.of(
+                "", first,
+                "", second));
+        assertEquals(0, stream.get().getId());
+        assertEquals(10, stream.get().getId());
+        assertEquals(0, stream.getPending());
+    }
+
+    private static ComputationState state(int id) {
+        return ComputationState.from(
+                id,
+                DynamicMessage.newBuilder(Data.newBuilder().setNum(id).build()).build());
+    }
+}
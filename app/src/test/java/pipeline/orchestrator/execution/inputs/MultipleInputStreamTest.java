@@ -0,0 +1,167 @@
+package pipeline.orchestrator.execution.inputs;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.protobuf.DynamicMessage;
+import org.junit.Before;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.Link;
+import pipeline.orchestrator.grpc.messages.CompositeMessage;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.messages.SubMessage;
+
+import static org.junit.Assert.*;
+
+public class MultipleInputStreamTest {
+
+    private static final int CAPACITY = 16;
+
+    private Link dataLink;
+    private Link subMessageLink;
+
+    @Before
+    public void setUp() {
+        dataLink = new Link(CAPACITY, OverflowPolicy.BLOCK);
+        subMessageLink = new Link(CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    @Test
+    public void testJoinOutOfOrder() throws Exception {
+        MultipleInputStream inputStream = buildInputStream(4, 1000);
+
+        dataLink.put(dataState(1));
+        dataLink.put(dataState(2));
+        subMessageLink.put(subMessageState(2));
+        subMessageLink.put(subMessageState(1));
+
+        ComputationState first = inputStream.get();
+        ComputationState second = inputStream.get();
+        // Id 2 is complete as soon as its sub message arrives
+        assertEquals(2, first.getId());
+        assertEquals(1, second.getId());
+
+        CompositeMessage message = CompositeMessage.parseFrom(first.getMessage().toByteString());
+        assertEquals(2, message.getData().getNum());
+        assertEquals(2, message.getSubMessage().getSubData().getNum());
+        assertEquals(2, inputStream.getCompletedJoins());
+        assertEquals(0, inputStream.getExpiredJoins());
+    }
+
+    @Test
+    public void testMissingIdsDoNotBlockLaterIds() throws Exception {
+        MultipleInputStream inputStream = buildInputStream(4, 1000);
+
+        // Sub message for id 0 never arrives
+        dataLink.put(dataState(0));
+        dataLink.put(dataState(1));
+        subMessageLink.put(subMessageState(1));
+
+        assertEquals(1, inputStream.get().getId());
+        assertEquals(1, inputStream.getCompletedJoins());
+    }
+
+    @Test
+    public void testExpiredByWindow() throws Exception {
+        MultipleInputStream inputStream = buildInputStream(4, 1000);
+
+        // Id 4 uses the same slot as id 0 in a window of 4
+        dataLink.put(dataState(0));
+        dataLink.put(dataState(4));
+        subMessageLink.put(subMessageState(4));
+        assertEquals(4, inputStream.get().getId());
+        assertEquals(1, inputStream.getExpiredJoins());
+
+        // Late state for the expired id
+        subMessageLink.put(subMessageState(0));
+        dataLink.put(dataState(5));
+        subMessageLink.put(subMessageState(5));
+        assertEquals(5, inputStream.get().getId());
+        assertEquals(1, inputStream.getDiscardedStates());
+        assertEquals(2, inputStream.getCompletedJoins());
+    }
+
+    @Test
+    public void testExpiredByTimeout() throws Exception {
+        MultipleInputStream inputStream = buildInputStream(4, 20);
+
+        dataLink.put(dataState(0));
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+                dataLink.put(dataState(1));
+                subMessageLink.put(subMessageState(1));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        assertEquals(1, inputStream.get().getId());
+        producer.join();
+        assertEquals(1, inputStream.getExpiredJoins());
+        assertEquals(1, inputStream.getCompletedJoins());
+    }
+
+    @Test
+    public void testJoinChainedFanOuts() throws Exception {
+        MultipleInputStream inputStream = buildInputStream(4, 1000);
+        int maxFanOut = 1024;
+        // Id that overflowed when the ids were multiplied by the fan outs
+        int id = 3_000_000;
+
+        // Data went through two server streaming stages and the
+        // sub message comes directly from the same computation
+        ComputationState first = ComputationState.derive(dataState(id), 1, maxFanOut, dataMessage(1));
+        ComputationState second = ComputationState.derive(dataState(id), 2, maxFanOut, dataMessage(2));
+        dataLink.put(ComputationState.derive(first, 0, maxFanOut, dataMessage(10)));
+        dataLink.put(ComputationState.derive(first, 1, maxFanOut, dataMessage(11)));
+        subMessageLink.put(subMessageState(id));
+        dataLink.put(ComputationState.derive(second, 0, maxFanOut, dataMessage(20)));
+
+        // Each derived state is joined with the sub message of its computation
+        for (int num : new int[] {10, 11, 20}) {
+            ComputationState joined = inputStream.get();
+            assertEquals(id, joined.getId());
+            assertNotEquals(0, joined.getSubId());
+            CompositeMessage message = CompositeMessage.parseFrom(joined.getMessage().toByteString());
+            assertEquals(num, message.getData().getNum());
+            assertEquals(id, message.getSubMessage().getSubData().getNum());
+        }
+        assertEquals(3, inputStream.getCompletedJoins());
+        assertEquals(0, inputStream.getExpiredJoins());
+    }
+
+    @Test
+    public void testInterrupted() {
+        MultipleInputStream inputStream = buildInputStream(4, 1000);
+        Thread.currentThread().interrupt();
+        assertNull(inputStream.get());
+        // Clear the interrupted flag
+        assertTrue(Thread.interrupted());
+    }
+
+    private MultipleInputStream buildInputStream(int joinWindow, int joinTimeoutMs) {
+        return new MultipleInputStream(
+                CompositeMessage.getDescriptor(),
+                ImmutableSetMultimap.of("data", dataLink, "sub_message", subMessageLink),
+                joinWindow,
+                joinTimeoutMs);
+    }
+
+    private static ComputationState dataState(int id) {
+        return ComputationState.from(id, dataMessage(id));
+    }
+
+    private static DynamicMessage dataMessage(int num) {
+        return DynamicMessage.newBuilder(Data.newBuilder().setNum(num).build()).build();
+    }
+
+    private static ComputationState subMessageState(int id) {
+        SubMessage subMessage = SubMessage.newBuilder()
+                .setSubData(Data.newBuilder().setNum(id))
+                .build();
+        return ComputationState.from(id, DynamicMessage.newBuilder(subMessage).build());
+    }
+}
@@ -0,0 +1,82 @@
+package pipeline.orchestrator.execution.outputs;
+
+import com.google.protobuf.DynamicMessage;
+import org.junit.Test;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.metrics.MetricsRegistry;
+
+import static org.junit.Assert.*;
+
+public class PathLatencyRecorderTest {
+
+    private static final DynamicMessage MESSAGE =
+            DynamicMessage.getDefaultInstance(Data.getDescriptor());
+
+    @Test
+    public void testRecordsPathAndHops() {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        PathLatencyRecorder recorder = new PathLatencyRecorder(registry);
+
+        for (int i = 0; i < 3; i++) {
+            ComputationState state = ComputationState.from(i, MESSAGE);
+            state.recordHop("recorder-source", 0, 1_000);
+            state.recordHop("recorder-sink", 5_000, 8_000);
+            recorder.record(state, 10_000);
+        }
+        // States without a trail are ignored
+        recorder.record(ComputationState.from(3, MESSAGE), 10_000);
+
+        String output = registry.scrape();
+        assertTrue(output.contains(
+                "pipeline_path_latency_seconds_count{path=\"recorder-source>recorder-sink\"} 3\n"));
+        assertTrue(output.contains(
+                "pipeline_path_latency_seconds_sum{path=\"recorder-source>recorder-sink\"} 3.0E-5\n"));
+        assertTrue(output.contains(
+                "pipeline_path_hop_queue_seconds_sum{path=\"recorder-source>recorder-sink\",hop=\"1\",stage=\"recorder-sink\"} 1.2E-5\n"));
+        assertTrue(output.contains(
+                "pipeline_path_hop_processing_seconds_sum{path=\"recorder-source>recorder-sink\",hop=\"0\",stage=\"recorder-source\"} 3.0E-6\n"));
+    }
+
+    @Test
+    public void testRecordsCycleAsOnePath() {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        PathLatencyRecorder recorder = new PathLatencyRecorder(registry);
+
+        // Each state goes around the cycle a different number of times
+        for (int i = 0; i < 10; i++) {
+            ComputationState state = ComputationState.from(i, MESSAGE);
+            state.recordHop("cycle-source", 0, 1_000);
+            for (int j = 0; j <= i; j++) {
+                state.recordHop("cycle-first", 2_000, 3_000);
+                state.recordHop("cycle-second", 4_000, 5_000);
+            }
+            recorder.record(state, 10_000);
+        }
+
+        String output = registry.scrape();
+        assertTrue(output.contains(
+                "pipeline_path_latency_seconds_count{path=\"cycle-source>cycle-first>cycle-second\"} 10\n"));
+        assertFalse(output.contains("cycle-second>cycle-first"));
+    }
+
+    @Test
+    public void testPathsOverMaximum() {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        PathLatencyRecorder recorder = new PathLatencyRecorder(registry);
+
+        for (int i = 0; i <= PathLatencyRecorder.MAX_PATHS; i++) {
+            ComputationState state = ComputationState.from(i, MESSAGE);
+            state.recordHop("bounded-source-" + i, 0, 1_000);
+            recorder.record(state, 10_000);
+        }
+
+        String output = registry.scrape();
+        assertTrue(output.contains(
+                "pipeline_path_latency_seconds_count{path=\"bounded-source-0\"} 1\n"));
+        // The last path only has its latency recorded as other
+        assertFalse(output.contains("bounded-source-" + PathLatencyRecorder.MAX_PATHS));
+        assertTrue(output.contains(
+                "pipeline_path_latency_seconds_count{path=\"" + PathLatencyRecorder.OTHER_PATH + "\"} 1\n"));
+    }
+}
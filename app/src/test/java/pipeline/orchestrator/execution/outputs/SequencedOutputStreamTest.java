@@ -0,0 +1,241 @@
+package pipeline.orchestrator.execution.outputs;
+
+import com.google.protobuf.DynamicMessage;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.OutputOrdering;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.grpc.messages.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SequencedOutputStreamTest {
+
+    private static final int CAPACITY = 3;
+
+    private static final DynamicMessage MESSAGE =
+            DynamicMessage.newBuilder(Data.getDefaultInstance()).build();
+
+    @Test
+    public void inOrderCompletionTest() {
+        List<Integer> received = new ArrayList<>();
+        SequencedOutputStream stream = new SequencedOutputStream(
+                state -> received.add(state.getId()),
+                CAPACITY);
+
+        for (int i = 0; i < 3; i++) {
+            long position = reserve(stream);
+            stream.complete(position, buildState(i));
+        }
+
+        assertEquals(List.of(0, 1, 2), received);
+    }
+
+    @Test
+    public void outOfOrderCompletionTest() {
+        List<Integer> received = new ArrayList<>();
+        SequencedOutputStream stream = new SequencedOutputStream(
+                state -> received.add(state.getId()),
+                CAPACITY);
+
+        long first = reserve(stream);
+        long second = reserve(stream);
+        long third = reserve(stream);
+
+        stream.complete(third, buildState(3));
+        stream.complete(second, buildState(2));
+        // Waiting for the first state
+        assertTrue(received.isEmpty());
+
+        stream.complete(first, buildState(1));
+        assertEquals(List.of(1, 2, 3), received);
+    }
+
+    @Test
+    public void skipTest() {
+        List<Integer> received = new ArrayList<>();
+        SequencedOutputStream stream = new SequencedOutputStream(
+                state -> received.add(state.getId()),
+                CAPACITY);
+
+        long first = reserve(stream);
+        long second = reserve(stream);
+        long third = reserve(stream);
+
+        stream.complete(third, buildState(3));
+        stream.complete(first, buildState(1));
+        assertEquals(List.of(1), received);
+
+        // Failed request should not hold back the next states
+        stream.skip(second);
+        assertEquals(List.of(1, 3), received);
+    }
+
+    @Test
+    public void relaxedOrderingTest() {
+        List<Integer> received = new ArrayList<>();
+        ConcurrentOutputStream stream = ConcurrentOutputStream.forOrdering(
+                OutputOrdering.RELAXED,
+                state -> received.add(state.getId()),
+                CAPACITY);
+
+        long first = reserve(stream);
+        long second = reserve(stream);
+
+        // Results are sent as soon as they are completed
+        stream.complete(second, buildState(2));
+        assertEquals(List.of(2), received);
+        stream.complete(first, buildState(1));
+        assertEquals(List.of(2, 1), received);
+    }
+
+    @Test
+    public void concurrentCompletionTest() throws Exception {
+        int numStates = 10_000;
+        List<Integer> received = new ArrayList<>();
+        SequencedOutputStream stream = new SequencedOutputStream(
+                state -> received.add(state.getId()),
+                numStates);
+
+        long[] positions = new long[numStates];
+        for (int i = 0; i < numStates; i++) {
+            positions[i] = reserve(stream);
+        }
+
+        // Complete even and odd positions from different threads
+        Thread even = startCompleting(stream, positions, 0);
+        Thread odd = startCompleting(stream, positions, 1);
+        even.join();
+        odd.join();
+
+        assertEquals(numStates, received.size());
+        for (int i = 0; i < numStates; i++) {
+            assertEquals(i, (int) received.get(i));
+        }
+    }
+
+    @Test
+    public void blockedOutputTest() throws Exception {
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        SequencedOutputStream stream = new SequencedOutputStream(
+                state -> {
+                    sending.countDown();
+                    awaitUninterruptibly(unblock);
+                    received.add(state.getId());
+                },
+                CAPACITY);
+
+        long first = reserve(stream);
+        long second = reserve(stream);
+
+        // The first completion sends the state and blocks in the output
+        Thread drainer = new Thread(() -> stream.complete(first, buildState(1)));
+        drainer.start();
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // Other completions only queue their states
+        stream.complete(second, buildState(2));
+        assertTrue(received.isEmpty());
+
+        unblock.countDown();
+        drainer.join();
+        assertEquals(List.of(1, 2), received);
+    }
+
+    @Test
+    public void relaxedBlockedOutputTest() throws Exception {
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        ConcurrentOutputStream stream = ConcurrentOutputStream.forOrdering(
+                OutputOrdering.RELAXED,
+                state -> {
+                    sending.countDown();
+                    awaitUninterruptibly(unblock);
+                    received.add(state.getId());
+                },
+                CAPACITY);
+
+        long first = reserve(stream);
+        long second = reserve(stream);
+
+        Thread drainer = new Thread(() -> stream.complete(second, buildState(2)));
+        drainer.start();
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // Does not wait for the blocked output
+        stream.complete(first, buildState(1));
+        assertTrue(received.isEmpty());
+
+        unblock.countDown();
+        drainer.join();
+        assertEquals(List.of(2, 1), received);
+    }
+
+    @Test
+    public void capacityTest() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        SequencedOutputStream stream = new SequencedOutputStream(
+                state -> awaitUninterruptibly(unblock),
+                1);
+
+        long first = reserve(stream);
+        Thread drainer = new Thread(() -> stream.complete(first, buildState(1)));
+        drainer.start();
+
+        // No credit until the first state is sent
+        Thread reader = new Thread(() -> reserve(stream));
+        reader.start();
+        reader.join(100);
+        assertTrue(reader.isAlive());
+
+        unblock.countDown();
+        reader.join(5_000);
+        assertFalse(reader.isAlive());
+        drainer.join();
+    }
+
+    private static long reserve(ConcurrentOutputStream stream) {
+        try {
+            stream.acquireCredit();
+        }
+        catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        return stream.reserve();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static Thread startCompleting(
+            SequencedOutputStream stream,
+            long[] positions,
+            int offset) {
+
+        Thread thread = new Thread(() -> {
+            for (int i = offset; i < positions.length; i += 2) {
+                stream.complete(positions[i], buildState(i));
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static ComputationState buildState(int id) {
+        return ComputationState.from(id, MESSAGE);
+    }
+}
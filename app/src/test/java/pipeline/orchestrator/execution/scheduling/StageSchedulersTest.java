@@ -0,0 +1,105 @@
+package pipeline.orchestrator.execution.scheduling;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class StageSchedulersTest {
+
+    private static final String NAME = "Stage";
+
+    @Test
+    public void platformSchedulerTest() throws Exception {
+        StageScheduler scheduler = StageSchedulers.forType(SchedulerType.PLATFORM);
+        assertTrue(scheduler instanceof PlatformStageScheduler);
+        assertRunsWithName(scheduler);
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void virtualSchedulerTest() throws Exception {
+        // Falls back to platform threads in older JVMs
+        StageScheduler scheduler = StageSchedulers.forType(SchedulerType.VIRTUAL);
+        assertEquals(
+                VirtualStageScheduler.create().isPresent(),
+                scheduler instanceof VirtualStageScheduler);
+        assertRunsWithName(scheduler);
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void shutdownInterruptsTest() throws Exception {
+        StageScheduler scheduler = StageSchedulers.platform();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        scheduler.schedule(NAME, () -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            }
+            catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scheduler.shutdown();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void groupShutdownTest() throws Exception {
+        StageScheduler scheduler = StageSchedulers.platform();
+        StageGroupScheduler group = StageSchedulers.group(scheduler);
+        StageGroupScheduler otherGroup = StageSchedulers.group(scheduler);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(2);
+        Runnable task = () -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            }
+            catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        };
+        group.schedule(NAME, task);
+        otherGroup.schedule(NAME, task);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Only the tasks of the group are interrupted
+        group.shutdown();
+        assertTrue(group.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, interrupted.getCount());
+        assertFalse(otherGroup.awaitTermination(100, TimeUnit.MILLISECONDS));
+
+        scheduler.shutdown();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void schedulerTypeFromConfigNameTest() {
+        assertEquals(
+                SchedulerType.VIRTUAL,
+                SchedulerType.fromConfigName("Virtual").orElseThrow());
+        assertTrue(SchedulerType.fromConfigName("unknown").isEmpty());
+    }
+
+    private static void assertRunsWithName(StageScheduler scheduler)
+            throws InterruptedException {
+
+        AtomicReference<String> threadName = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.schedule(NAME, () -> {
+            threadName.set(Thread.currentThread().getName());
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(NAME, threadName.get());
+    }
+}
@@ -0,0 +1,203 @@
+package pipeline.orchestrator.execution.stages;
+
+import com.google.common.eventbus.EventBus;
+import com.google.protobuf.DynamicMessage;
+import io.grpc.ManagedChannel;
+import io.grpc.protobuf.ProtoServiceDescriptorSupplier;
+import io.grpc.stub.StreamObserver;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.common.TestWithBindableService;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.Link;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.methods.FullMethodDescription;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BidiStreamingPipelineStageTest extends TestWithBindableService {
+
+    private static final int NUM_STATES = 4;
+
+    private ManagedChannel channel;
+
+    @Test(timeout = 5000)
+    public void testResponsesInOrder() throws Exception {
+        setUpServerImpl(new AddingServiceGrpc.AddingServiceImplBase() {
+            @Override
+            public StreamObserver<Data> addBidiStreaming(StreamObserver<Data> responseObserver) {
+                return new EchoObserver(responseObserver) {
+                    @Override
+                    public void onNext(Data value) {
+                        responseObserver.onNext(Data.newBuilder().setNum(value.getNum() * 10).build());
+                    }
+                };
+            }
+        });
+
+        List<ComputationState> results = runStage(null, NUM_STATES, null, NUM_STATES);
+
+        for (int i = 0; i < NUM_STATES; i++) {
+            assertEquals(i, results.get(i).getId());
+            assertEquals(10L * i, num(results.get(i)));
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testResponsesById() throws Exception {
+        setUpServerImpl(new AddingServiceGrpc.AddingServiceImplBase() {
+            @Override
+            public StreamObserver<Data> addBidiStreaming(StreamObserver<Data> responseObserver) {
+                return new EchoObserver(responseObserver) {
+                    private Data previous = null;
+
+                    @Override
+                    public void onNext(Data value) {
+                        // Responds to each pair of requests in reverse order
+                        if (previous == null) {
+                            previous = value;
+                            return;
+                        }
+                        responseObserver.onNext(value);
+                        responseObserver.onNext(previous);
+                        previous = null;
+                    }
+                };
+            }
+        });
+
+        List<ComputationState> results = runStage("num", NUM_STATES, null, NUM_STATES);
+
+        assertEquals(NUM_STATES, results.size());
+        for (int i = 0; i < NUM_STATES; i++) {
+            // Id was set in the request and copied in the response
+            assertEquals(results.get(i).getId(), num(results.get(i)));
+        }
+        assertEquals(1, results.get(0).getId());
+        assertEquals(0, results.get(1).getId());
+    }
+
+    @Test(timeout = 5000)
+    public void testExpiredResponseById() throws Exception {
+        setUpServerImpl(new DroppingService());
+
+        // The permit of the expired state is needed for the next ones
+        List<ComputationState> results = runStage("num", 1, 100, NUM_STATES - 1);
+
+        assertEquals(0, results.get(0).getId());
+        assertEquals(2, results.get(1).getId());
+        assertEquals(3, results.get(2).getId());
+    }
+
+    @Test(timeout = 5000)
+    public void testExpiredResponseInOrder() throws Exception {
+        setUpServerImpl(new DroppingService());
+
+        // The next states are sent in a new stream
+        List<ComputationState> results = runStage(null, 1, 100, NUM_STATES - 1);
+
+        assertEquals(0, results.get(0).getId());
+        assertEquals(2, results.get(1).getId());
+        assertEquals(3, results.get(2).getId());
+        assertEquals(3L, num(results.get(2)));
+    }
+
+    private List<ComputationState> runStage(
+            String idField,
+            int maxInFlight,
+            Integer timeoutMs,
+            int expectedResults) throws Exception {
+
+
+        BidiStreamingPipelineStage stage = BidiStreamingPipelineStage.newBuilder()
+                .setName("bidi")
+                .setChannel(channel)
+                .setFullMethodDescription(bidiMethodDescription())
+                .setEventBus(new EventBus())
+                .setMaxInFlight(maxInFlight)
+                .setIdField(idField)
+                .setTimeoutMs(timeoutMs)
+                .build();
+        Link input = new Link(NUM_STATES, OverflowPolicy.BLOCK);
+        Link output = new Link(NUM_STATES, OverflowPolicy.BLOCK);
+        stage.bindInput("", input);
+        stage.bindOutput("", output);
+
+        for (int i = 0; i < NUM_STATES; i++) {
+            input.put(ComputationState.from(
+                    i,
+                    DynamicMessage.newBuilder(Data.newBuilder().setNum(i).build()).build()));
+        }
+
+        Thread thread = new Thread(stage);
+        thread.start();
+        List<ComputationState> results = new ArrayList<>();
+        for (int i = 0; i < expectedResults; i++) {
+            results.add(output.take());
+        }
+        stage.finish();
+        thread.interrupt();
+        thread.join();
+        return results;
+    }
+
+    private static long num(ComputationState state) {
+        return (long) state.getMessage().getField(
+                Data.getDescriptor().findFieldByName("num"));
+    }
+
+    private static FullMethodDescription bidiMethodDescription() {
+        ProtoServiceDescriptorSupplier supplier = (ProtoServiceDescriptorSupplier)
+                AddingServiceGrpc.getServiceDescriptor().getSchemaDescriptor();
+        return FullMethodDescription.newBuilder()
+                .setMethodDescriptor(supplier.getServiceDescriptor().findMethodByName("AddBidiStreaming"))
+                .setMethodFullName(AddingServiceGrpc.getAddBidiStreamingMethod().getFullMethodName())
+                .build();
+    }
+
+    @Override
+    protected void setUpAfterServerImpl(ManagedChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Service that echoes the requests except the one with number 1
+     */
+    private static class DroppingService extends AddingServiceGrpc.AddingServiceImplBase {
+
+        @Override
+        public StreamObserver<Data> addBidiStreaming(StreamObserver<Data> responseObserver) {
+            return new EchoObserver(responseObserver) {
+                @Override
+                public void onNext(Data value) {
+                    if (value.getNum() != 1) {
+                        responseObserver.onNext(value);
+                    }
+                }
+            };
+        }
+    }
+
+    private abstract static class EchoObserver implements StreamObserver<Data> {
+
+        protected final StreamObserver<Data> responseObserver;
+
+        private EchoObserver(StreamObserver<Data> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // Stream cancelled when the test ends
+        }
+
+        @Override
+        public void onCompleted() {
+            responseObserver.onCompleted();
+        }
+    }
+}
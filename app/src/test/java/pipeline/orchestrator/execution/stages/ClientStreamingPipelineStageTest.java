@@ -0,0 +1,137 @@
+package pipeline.orchestrator.execution.stages;
+
+import com.google.common.eventbus.EventBus;
+import com.google.protobuf.DynamicMessage;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.protobuf.ProtoServiceDescriptorSupplier;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.common.TestWithBindableService;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.Link;
+import pipeline.orchestrator.execution.scheduling.StageScheduler;
+import pipeline.orchestrator.execution.scheduling.StageSchedulers;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.methods.FullMethodDescription;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClientStreamingPipelineStageTest extends TestWithBindableService {
+
+    private static final int NUM_STATES = 4;
+
+    private final StageScheduler scheduler = StageSchedulers.platform();
+
+    private ManagedChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        // Servers of other languages may complete client streaming calls
+        // without a response, which the java server rejects, so the
+        // method is served as bidi streaming
+        MethodDescriptor<Data, Data> method = AddingServiceGrpc.getAddClientStreamingMethod()
+                .toBuilder()
+                .setType(MethodDescriptor.MethodType.BIDI_STREAMING)
+                .build();
+        setUpServerImpl(() -> ServerServiceDefinition.builder(AddingServiceGrpc.SERVICE_NAME)
+                .addMethod(method, ServerCalls.asyncBidiStreamingCall(SummingObserver::new))
+                .build());
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test(timeout = 5000)
+    public void testCompletedWithoutResponse() throws Exception {
+        ClientStreamingPipelineStage stage = ClientStreamingPipelineStage.newBuilder()
+                .setName("client-streaming")
+                .setChannel(channel)
+                .setFullMethodDescription(clientStreamingMethodDescription())
+                .setEventBus(new EventBus())
+                .setBatchSize(1)
+                .setMaxInFlight(2)
+                .setScheduler(scheduler)
+                .build();
+        Link input = new Link(NUM_STATES, OverflowPolicy.BLOCK);
+        Link output = new Link(NUM_STATES, OverflowPolicy.BLOCK);
+        stage.bindInput("", input);
+        stage.bindOutput("", output);
+        for (int i = 0; i < NUM_STATES; i++) {
+            input.put(ComputationState.from(
+                    i,
+                    DynamicMessage.newBuilder(Data.newBuilder().setNum(i).build()).build()));
+        }
+
+        Thread thread = new Thread(stage);
+        thread.start();
+        // Only received if the position of the missing response was skipped
+        for (int i : new int[] { 0, 2, 3 }) {
+            ComputationState result = output.take();
+            assertEquals(i, result.getId());
+            assertEquals((long) i, result.getMessage().getField(
+                    Data.getDescriptor().findFieldByName("num")));
+        }
+
+        stage.finish();
+        thread.interrupt();
+        thread.join();
+    }
+
+    private static FullMethodDescription clientStreamingMethodDescription() {
+        ProtoServiceDescriptorSupplier supplier = (ProtoServiceDescriptorSupplier)
+                AddingServiceGrpc.getServiceDescriptor().getSchemaDescriptor();
+        return FullMethodDescription.newBuilder()
+                .setMethodDescriptor(supplier.getServiceDescriptor().findMethodByName("AddClientStreaming"))
+                .setMethodFullName(AddingServiceGrpc.getAddClientStreamingMethod().getFullMethodName())
+                .build();
+    }
+
+    @Override
+    protected void setUpAfterServerImpl(ManagedChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Responds with the sum of the stream, except for
+     * the streams with number 1 that have no response
+     */
+    private static class SummingObserver implements StreamObserver<Data> {
+
+        private final StreamObserver<Data> responseObserver;
+
+        private long sum = 0;
+        private boolean respond = true;
+
+        private SummingObserver(StreamObserver<Data> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(Data value) {
+            sum += value.getNum();
+            respond &= value.getNum() != 1;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // Stream cancelled when the test ends
+        }
+
+        @Override
+        public void onCompleted() {
+            if (respond) {
+                responseObserver.onNext(Data.newBuilder().setNum(sum).build());
+            }
+            responseObserver.onCompleted();
+        }
+    }
+}
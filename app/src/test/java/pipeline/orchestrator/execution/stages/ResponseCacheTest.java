@@ -0,0 +1,116 @@
+package pipeline.orchestrator.execution.stages;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DynamicMessage;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.CacheInformation;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.messages.Payload;
+import pipeline.orchestrator.metrics.MetricsRegistry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResponseCacheTest {
+
+    private static final ByteString RESPONSE = ByteString.copyFromUtf8("response");
+
+    @Test
+    public void leastRecentlyUsedEvictionTest() {
+        ResponseCache cache = buildCache("lru", CacheInformation.newBuilder()
+                .setSize(2)
+                .build());
+
+        ByteString first = key(cache, 1);
+        ByteString second = key(cache, 2);
+        cache.put(first, RESPONSE, 0);
+        cache.put(second, RESPONSE, 0);
+        // First becomes the most recently used
+        assertEquals(RESPONSE, cache.get(first, 0));
+        cache.put(key(cache, 3), RESPONSE, 0);
+
+        assertEquals(2, cache.size());
+        assertEquals(RESPONSE, cache.get(first, 0));
+        assertNull(cache.get(second, 0));
+    }
+
+    @Test
+    public void maxBytesEvictionTest() {
+        ByteString first = Data.newBuilder().setNum(1).build().toByteString();
+        int entryBytes = first.size() + RESPONSE.size();
+        ResponseCache cache = buildCache("bytes", CacheInformation.newBuilder()
+                .setMaxBytes(entryBytes * 2)
+                .build());
+
+        cache.put(key(cache, 1), RESPONSE, 0);
+        cache.put(key(cache, 2), RESPONSE, 0);
+        assertEquals(2 * entryBytes, cache.getBytes());
+        cache.put(key(cache, 3), RESPONSE, 0);
+
+        assertEquals(2, cache.size());
+        assertEquals(2 * entryBytes, cache.getBytes());
+        assertNull(cache.get(key(cache, 1), 0));
+    }
+
+    @Test
+    public void ttlTest() {
+        ResponseCache cache = buildCache("ttl", CacheInformation.newBuilder()
+                .setTtlMs(10)
+                .build());
+
+        ByteString key = key(cache, 1);
+        cache.put(key, RESPONSE, 0);
+
+        assertEquals(RESPONSE, cache.get(key, TimeUnit.MILLISECONDS.toNanos(10)));
+        assertNull(cache.get(key, TimeUnit.MILLISECONDS.toNanos(11)));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void fieldsKeyTest() {
+        ResponseCache cache = new ResponseCache(
+                "cache-fields",
+                CacheInformation.newBuilder()
+                        .setFields(List.of("data"))
+                        .build(),
+                Payload.getDescriptor(),
+                MetricsRegistry.getInstance());
+
+        ComputationState first = payload("a", 1);
+        ComputationState second = payload("b", 1);
+        ComputationState third = payload("a", 2);
+
+        // Only the data field identifies the response
+        assertEquals(cache.keyOf(first), cache.keyOf(second));
+        cache.put(cache.keyOf(first), RESPONSE, 0);
+        assertEquals(RESPONSE, cache.get(cache.keyOf(second), 0));
+        assertNull(cache.get(cache.keyOf(third), 0));
+    }
+
+    private static ResponseCache buildCache(String name, CacheInformation information) {
+        return new ResponseCache(
+                "cache-" + name,
+                information,
+                Data.getDescriptor(),
+                MetricsRegistry.getInstance());
+    }
+
+    private static ByteString key(ResponseCache cache, long num) {
+        return cache.keyOf(ComputationState.from(
+                0,
+                DynamicMessage.newBuilder(Data.newBuilder().setNum(num).build()).build()));
+    }
+
+    private static ComputationState payload(String content, long num) {
+        Payload payload = Payload.newBuilder()
+                .setContent(ByteString.copyFromUtf8(content))
+                .setData(Data.newBuilder().setNum(num))
+                .build();
+        return ComputationState.from(0, DynamicMessage.newBuilder(payload).build());
+    }
+}
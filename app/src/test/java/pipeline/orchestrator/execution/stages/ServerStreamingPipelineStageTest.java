@@ -0,0 +1,244 @@
+package pipeline.orchestrator.execution.stages;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.graph.MutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+import com.google.protobuf.DynamicMessage;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoServiceDescriptorSupplier;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.LinkInformation;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.architecture.StageInformation;
+import pipeline.orchestrator.common.TestWithBindableService;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.Link;
+import pipeline.orchestrator.execution.scheduling.StageScheduler;
+import pipeline.orchestrator.execution.scheduling.StageSchedulers;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.methods.FullMethodDescription;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+public class ServerStreamingPipelineStageTest extends TestWithBindableService {
+
+    private static final int NUM_STATES = 2;
+    private static final int STREAM_SIZE = 3;
+
+    private final StageScheduler scheduler = StageSchedulers.platform();
+
+    // Number of next streams that fail as unavailable
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private ManagedChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        setUpServerImpl(new AddingServiceGrpc.AddingServiceImplBase() {
+            @Override
+            public void addServerStreaming(Data request, StreamObserver<Data> responseObserver) {
+                if (failures.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                    responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                    return;
+                }
+                for (int i = 0; i < STREAM_SIZE; i++) {
+                    responseObserver.onNext(
+                            Data.newBuilder().setNum(request.getNum() * 10 + i).build());
+                }
+                responseObserver.onCompleted();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test(timeout = 5000)
+    public void testDerivedIds() throws Exception {
+        List<ComputationState> results = runStage(4, NUM_STATES * STREAM_SIZE);
+
+        for (int i = 0; i < NUM_STATES; i++) {
+            for (int j = 0; j < STREAM_SIZE; j++) {
+                ComputationState state = results.get(i * STREAM_SIZE + j);
+                // Derived states keep the id of their computation
+                assertEquals(i, state.getId());
+                assertEquals(j + 1, state.getSubId());
+                assertEquals(10L * i + j, num(state));
+            }
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testMaxFanOut() throws Exception {
+        List<ComputationState> results = runStage(2, NUM_STATES * 2);
+
+        // Last message of each stream is discarded
+        for (int i = 0; i < NUM_STATES * 2; i++) {
+            assertEquals(i / 2, results.get(i).getId());
+            assertEquals(i % 2 + 1, results.get(i).getSubId());
+        }
+        assertEquals(10L, num(results.get(2)));
+    }
+
+    @Test(timeout = 5000)
+    public void testFinishWhileStreaming() throws Exception {
+        ServerStreamingPipelineStage stage = buildStage(4);
+        Link input = new Link(NUM_STATES, OverflowPolicy.BLOCK);
+        // Only one message is requested at a time
+        Link output = new Link(1, OverflowPolicy.CREDIT);
+        stage.bindInput("", input);
+        stage.bindOutput("", output);
+        input.put(dataState(0));
+
+        Thread thread = new Thread(stage);
+        thread.start();
+        output.take();
+
+        // The stream is cancelled without interrupting the stage
+        stage.finish();
+        thread.join(2000);
+        assertFalse(thread.isAlive());
+    }
+
+    @Test(timeout = 5000)
+    public void testResumedAfterUnavailableStream() throws Exception {
+        failures.set(1);
+        EventBus eventBus = new EventBus();
+        ServerStreamingPipelineStage stage = buildStage(4, eventBus);
+        // The monitor may resume the stage before
+        // the stage finishes handling the failure
+        eventBus.register(new UnaryPipelineStageTest.ImmediateProbe(stage));
+
+        Link input = new Link(NUM_STATES, OverflowPolicy.BLOCK);
+        Link output = new Link(STREAM_SIZE, OverflowPolicy.CREDIT);
+        stage.bindInput("", input);
+        stage.bindOutput("", output);
+        for (int i = 0; i < NUM_STATES; i++) {
+            input.put(dataState(i));
+        }
+
+        Thread thread = new Thread(stage);
+        thread.start();
+        // Only received if the stage was not left paused
+        for (int j = 0; j < STREAM_SIZE; j++) {
+            ComputationState state = output.take();
+            assertEquals(1, state.getId());
+            assertEquals(10L + j, num(state));
+        }
+
+        stage.finish();
+        thread.interrupt();
+        thread.join();
+    }
+
+    @Test
+    public void testChainedFanOutLimit() {
+        // Each stage after the first multiplies the sub ids by 2^20 + 1
+        int maxFanOut = 1 << 20;
+        verifyChain(4, maxFanOut);
+        assertThrows(IllegalArgumentException.class, () -> verifyChain(5, maxFanOut));
+    }
+
+    private void verifyChain(int length, int maxFanOut) {
+        MutableValueGraph<StageInformation, LinkInformation> architecture =
+                ValueGraphBuilder.directed().build();
+        Map<String, AbstractPipelineStage> stages = new HashMap<>();
+        StageInformation previous = null;
+        for (int i = 0; i < length; i++) {
+            StageInformation stageInformation = StageInformation.newBuilder()
+                    .setName("stage-" + i)
+                    .setServiceHost("localhost")
+                    .setServicePort(i + 1)
+                    .setMaxFanOut(maxFanOut)
+                    .build();
+            architecture.addNode(stageInformation);
+            if (previous != null) {
+                architecture.putEdgeValue(previous, stageInformation, LinkInformation.newBuilder()
+                        .setSourceStageName(previous.getName())
+                        .setTargetStageName(stageInformation.getName())
+                        .build());
+            }
+            stages.put(stageInformation.getName(), buildStage(maxFanOut));
+            previous = stageInformation;
+        }
+        PipelineStages.verifyFanOut(architecture, stages);
+    }
+
+    private List<ComputationState> runStage(int maxFanOut, int expected) throws Exception {
+        ServerStreamingPipelineStage stage = buildStage(maxFanOut);
+        Link input = new Link(NUM_STATES, OverflowPolicy.BLOCK);
+        Link output = new Link(NUM_STATES * STREAM_SIZE, OverflowPolicy.CREDIT);
+        stage.bindInput("", input);
+        stage.bindOutput("", output);
+
+        for (int i = 0; i < NUM_STATES; i++) {
+            input.put(dataState(i));
+        }
+
+        Thread thread = new Thread(stage);
+        thread.start();
+        List<ComputationState> results = new ArrayList<>();
+        for (int i = 0; i < expected; i++) {
+            results.add(output.take());
+        }
+        stage.finish();
+        thread.interrupt();
+        thread.join();
+        return results;
+    }
+
+    private ServerStreamingPipelineStage buildStage(int maxFanOut) {
+        return buildStage(maxFanOut, new EventBus());
+    }
+
+    private ServerStreamingPipelineStage buildStage(int maxFanOut, EventBus eventBus) {
+        return ServerStreamingPipelineStage.newBuilder()
+                .setName("server-streaming")
+                .setChannel(channel)
+                .setFullMethodDescription(serverStreamingMethodDescription())
+                .setEventBus(eventBus)
+                .setMaxFanOut(maxFanOut)
+                .setScheduler(scheduler)
+                .build();
+    }
+
+    private static ComputationState dataState(int num) {
+        return ComputationState.from(
+                num,
+                DynamicMessage.newBuilder(Data.newBuilder().setNum(num).build()).build());
+    }
+
+    private static long num(ComputationState state) {
+        return (long) state.getMessage().getField(
+                Data.getDescriptor().findFieldByName("num"));
+    }
+
+    private static FullMethodDescription serverStreamingMethodDescription() {
+        ProtoServiceDescriptorSupplier supplier = (ProtoServiceDescriptorSupplier)
+                AddingServiceGrpc.getServiceDescriptor().getSchemaDescriptor();
+        return FullMethodDescription.newBuilder()
+                .setMethodDescriptor(supplier.getServiceDescriptor().findMethodByName("AddServerStreaming"))
+                .setMethodFullName(AddingServiceGrpc.getAddServerStreamingMethod().getFullMethodName())
+                .build();
+    }
+
+    @Override
+    protected void setUpAfterServerImpl(ManagedChannel channel) {
+        this.channel = channel;
+    }
+}
@@ -0,0 +1,114 @@
+package pipeline.orchestrator.execution.stages;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.protobuf.DynamicMessage;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoServiceDescriptorSupplier;
+import io.grpc.stub.StreamObserver;
+import org.junit.Before;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.OverflowPolicy;
+import pipeline.orchestrator.common.TestWithBindableService;
+import pipeline.orchestrator.execution.ComputationState;
+import pipeline.orchestrator.execution.Link;
+import pipeline.orchestrator.execution.stages.events.UnavailableServiceEvent;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.methods.FullMethodDescription;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class UnaryPipelineStageTest extends TestWithBindableService {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private ManagedChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        setUpServerImpl(new AddingServiceGrpc.AddingServiceImplBase() {
+            @Override
+            public void add(Data request, StreamObserver<Data> responseObserver) {
+                // Only the first call fails
+                if (calls.getAndIncrement() == 0) {
+                    responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                    return;
+                }
+                responseObserver.onNext(Data.newBuilder().setNum(request.getNum() + 1).build());
+                responseObserver.onCompleted();
+            }
+        });
+    }
+
+    @Test(timeout = 5000)
+    public void testResumedWhileHandlingUnavailable() throws Exception {
+        EventBus eventBus = new EventBus();
+        UnaryPipelineStage stage = UnaryPipelineStage.newBuilder()
+                .setName("unary")
+                .setChannel(channel)
+                .setFullMethodDescription(addMethodDescription())
+                .setEventBus(eventBus)
+                .build();
+        // The monitor may resume the stage before
+        // the stage finishes handling the failure
+        eventBus.register(new ImmediateProbe(stage));
+
+        Link input = new Link(2, OverflowPolicy.BLOCK);
+        Link output = new Link(2, OverflowPolicy.BLOCK);
+        stage.bindInput("", input);
+        stage.bindOutput("", output);
+        for (int i = 0; i < 2; i++) {
+            input.put(ComputationState.from(
+                    i,
+                    DynamicMessage.newBuilder(Data.newBuilder().setNum(i).build()).build()));
+        }
+
+        Thread thread = new Thread(stage);
+        thread.start();
+        // Only received if the stage was not left paused
+        ComputationState result = output.take();
+        assertEquals(1, result.getId());
+        assertEquals(2L, result.getMessage().getField(Data.getDescriptor().findFieldByName("num")));
+
+        stage.finish();
+        thread.interrupt();
+        thread.join();
+    }
+
+    private static FullMethodDescription addMethodDescription() {
+        ProtoServiceDescriptorSupplier supplier = (ProtoServiceDescriptorSupplier)
+                AddingServiceGrpc.getServiceDescriptor().getSchemaDescriptor();
+        return FullMethodDescription.newBuilder()
+                .setMethodDescriptor(supplier.getServiceDescriptor().findMethodByName("Add"))
+                .setMethodFullName(AddingServiceGrpc.getAddMethod().getFullMethodName())
+                .build();
+    }
+
+    @Override
+    protected void setUpAfterServerImpl(ManagedChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Pauses the stage and resumes it right away, as the
+     * monitor does when the probe of the service is due
+     */
+    public static class ImmediateProbe {
+
+        private final AbstractPipelineStage stage;
+
+        ImmediateProbe(AbstractPipelineStage stage) {
+            this.stage = stage;
+        }
+
+        @Subscribe
+        public void handleUnavailableService(UnavailableServiceEvent event) {
+            stage.pause();
+            stage.resume();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package pipeline.orchestrator.grpc.channels;
+
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.testing.GrpcCleanupRule;
+import org.junit.Rule;
+import org.junit.Test;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChannelReadinessTest {
+
+    @Rule
+    public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+    @Test(timeout = 5000)
+    public void runningServerTest() throws Exception {
+        String serverName = InProcessServerBuilder.generateName();
+        startServer(serverName);
+        ManagedChannel channel = grpcCleanup.register(
+                InProcessChannelBuilder.forName(serverName).build());
+
+        ChannelReadiness.awaitReady(channel);
+
+        assertEquals(ConnectivityState.READY, channel.getState(false));
+    }
+
+    @Test(timeout = 10000)
+    public void serverStartedLaterTest() throws Exception {
+        String serverName = InProcessServerBuilder.generateName();
+        ManagedChannel channel = grpcCleanup.register(
+                InProcessChannelBuilder.forName(serverName).build());
+
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                ChannelReadiness.awaitReady(channel);
+                ready.countDown();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+
+        // Not ready while the server is not running
+        assertFalse(ready.await(500, TimeUnit.MILLISECONDS));
+
+        startServer(serverName);
+
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        waiting.join();
+    }
+
+    private void startServer(String serverName) throws Exception {
+        Server server = InProcessServerBuilder.forName(serverName)
+                .addService(new AddingServiceGrpc.AddingServiceImplBase() {})
+                .build()
+                .start();
+        grpcCleanup.register(server);
+    }
+}
@@ -0,0 +1,87 @@
+package pipeline.orchestrator.grpc.channels;
+
+import com.google.common.net.HostAndPort;
+import io.grpc.ManagedChannel;
+import org.junit.After;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.ChannelInformation;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChannelRegistryTest {
+
+    private static final HostAndPort ADDRESS = HostAndPort.fromParts("localhost", 50051);
+
+    private final ChannelRegistry registry = new ChannelRegistry();
+
+    @After
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    public void sharedChannelsTest() {
+        List<ManagedChannel> first = registry.getChannels(
+                ADDRESS,
+                ChannelInformation.newBuilder().build());
+        List<ManagedChannel> second = registry.getChannels(
+                ADDRESS,
+                ChannelInformation.newBuilder().build());
+
+        assertEquals(1, first.size());
+        assertSame(first.get(0), second.get(0));
+    }
+
+    @Test
+    public void connectionsTest() {
+        List<ManagedChannel> channels = registry.getChannels(
+                ADDRESS,
+                ChannelInformation.newBuilder()
+                        .setConnections(3)
+                        .build());
+
+        assertEquals(3, channels.size());
+        assertEquals(3, channels.stream().distinct().count());
+    }
+
+    @Test
+    public void differentConfigurationTest() {
+        List<ManagedChannel> first = registry.getChannels(
+                ADDRESS,
+                ChannelInformation.newBuilder().build());
+        List<ManagedChannel> second = registry.getChannels(
+                ADDRESS,
+                ChannelInformation.newBuilder()
+                        .setMaxInboundMessageBytes(64 * 1024 * 1024)
+                        .build());
+        List<ManagedChannel> third = registry.getChannels(
+                HostAndPort.fromParts("localhost", 50052),
+                ChannelInformation.newBuilder().build());
+
+        assertNotSame(first.get(0), second.get(0));
+        assertNotSame(first.get(0), third.get(0));
+    }
+
+    @Test
+    public void releaseTest() {
+        ChannelInformation information = ChannelInformation.newBuilder().build();
+        List<ManagedChannel> first = registry.getChannels(ADDRESS, information);
+        registry.getChannels(ADDRESS, information);
+        assertEquals(2, registry.getReferences(ADDRESS, information));
+
+        // Still used by the other stage
+        registry.release(ADDRESS, information);
+        assertEquals(1, registry.getReferences(ADDRESS, information));
+        assertFalse(first.get(0).isShutdown());
+
+        registry.release(ADDRESS, information);
+        assertEquals(0, registry.getReferences(ADDRESS, information));
+        assertTrue(first.get(0).isShutdown());
+
+        // New channels are opened after all were released
+        List<ManagedChannel> second = registry.getChannels(ADDRESS, information);
+        assertNotSame(first.get(0), second.get(0));
+    }
+}
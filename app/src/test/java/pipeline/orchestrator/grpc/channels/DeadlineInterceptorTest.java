@@ -0,0 +1,57 @@
+package pipeline.orchestrator.grpc.channels;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import org.junit.Rule;
+import org.junit.Test;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class DeadlineInterceptorTest {
+
+    @Rule
+    public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+    @Test(timeout = 5000)
+    public void stalledCallTest() throws Exception {
+        List<StreamObserver<Data>> stalled = new CopyOnWriteArrayList<>();
+        String serverName = InProcessServerBuilder.generateName();
+        grpcCleanup.register(InProcessServerBuilder.forName(serverName)
+                .addService(new AddingServiceGrpc.AddingServiceImplBase() {
+                    @Override
+                    public void add(Data request, StreamObserver<Data> responseObserver) {
+                        stalled.add(responseObserver);
+                    }
+                })
+                .build()
+                .start());
+        Channel channel = ClientInterceptors.intercept(
+                grpcCleanup.register(InProcessChannelBuilder.forName(serverName).build()),
+                new DeadlineInterceptor(100));
+
+        // The call fails instead of waiting forever
+        StatusRuntimeException exception = assertThrows(
+                StatusRuntimeException.class,
+                () -> ClientCalls.blockingUnaryCall(
+                        channel,
+                        AddingServiceGrpc.getAddMethod(),
+                        CallOptions.DEFAULT,
+                        Data.getDefaultInstance()));
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, exception.getStatus().getCode());
+        assertEquals(1, stalled.size());
+    }
+}
@@ -0,0 +1,118 @@
+package pipeline.orchestrator.grpc.channels;
+
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import org.junit.Rule;
+import org.junit.Test;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HedgingChannelTest {
+
+    private static final Data REQUEST = Data.newBuilder()
+            .setNum(1)
+            .build();
+
+    @Rule
+    public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+    private final List<StreamObserver<Data>> stalled = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void noHedgeBeforeSamplesTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        HedgingChannel channel = HedgingChannel.newBuilder()
+                .forChannel(startServer(new StallingService(new AtomicBoolean(), calls)))
+                .build();
+
+        for (int i = 0; i < HedgingChannel.MIN_SAMPLES - 1; i++) {
+            assertEquals(2, call(channel).getNum());
+        }
+
+        assertEquals(-1, channel.getHedgeDelayNanos());
+        assertEquals(HedgingChannel.MIN_SAMPLES - 1, calls.get());
+    }
+
+    @Test(timeout = 10000)
+    public void hedgeStalledCallTest() throws Exception {
+        AtomicBoolean stallNext = new AtomicBoolean();
+        AtomicInteger calls = new AtomicInteger();
+        HedgingChannel channel = HedgingChannel.newBuilder()
+                .forChannel(startServer(new StallingService(stallNext, calls)))
+                .build();
+
+        for (int i = 0; i < HedgingChannel.MIN_SAMPLES; i++) {
+            call(channel);
+        }
+        assertTrue(channel.getHedgeDelayNanos() >= 0);
+
+        // The first attempt never responds so the second is used
+        stallNext.set(true);
+        assertEquals(2, call(channel).getNum());
+        assertEquals(HedgingChannel.MIN_SAMPLES + 2, calls.get());
+        assertEquals(1, stalled.size());
+    }
+
+    private static Data call(HedgingChannel channel) {
+        return ClientCalls.blockingUnaryCall(
+                channel,
+                AddingServiceGrpc.getAddMethod(),
+                CallOptions.DEFAULT,
+                REQUEST);
+    }
+
+    private ManagedChannel startServer(AddingServiceGrpc.AddingServiceImplBase service)
+            throws IOException {
+
+        String serverName = InProcessServerBuilder.generateName();
+        grpcCleanup.register(InProcessServerBuilder.forName(serverName)
+                .addService(service)
+                .directExecutor()
+                .build()
+                .start());
+        return grpcCleanup.register(InProcessChannelBuilder.forName(serverName)
+                .directExecutor()
+                .build());
+    }
+
+    /**
+     * Service that does not respond to a call when requested
+     */
+    private class StallingService extends AddingServiceGrpc.AddingServiceImplBase {
+
+        private final AtomicBoolean stallNext;
+
+        private final AtomicInteger calls;
+
+        private StallingService(AtomicBoolean stallNext, AtomicInteger calls) {
+            this.stallNext = stallNext;
+            this.calls = calls;
+        }
+
+        @Override
+        public void add(Data request, StreamObserver<Data> responseObserver) {
+            calls.incrementAndGet();
+            if (stallNext.compareAndSet(true, false)) {
+                stalled.add(responseObserver);
+                return;
+            }
+            responseObserver.onNext(Data.newBuilder()
+                    .setNum(request.getNum() + 1)
+                    .build());
+            responseObserver.onCompleted();
+        }
+    }
+}
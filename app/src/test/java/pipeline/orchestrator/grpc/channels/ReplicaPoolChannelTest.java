@@ -0,0 +1,142 @@
+package pipeline.orchestrator.grpc.channels;
+
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import org.junit.Rule;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.LoadBalancingPolicy;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.methods.UnaryServiceMethodInvoker;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReplicaPoolChannelTest {
+
+    private static final Data REQUEST = Data.newBuilder()
+            .setNum(1)
+            .build();
+
+    @Rule
+    public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+    @Test
+    public void roundRobinTest() throws Exception {
+        List<Data> delivered1 = new ArrayList<>();
+        List<Data> delivered2 = new ArrayList<>();
+
+        ReplicaPoolChannel channel = ReplicaPoolChannel.newBuilder()
+                .addReplica(startReplica(new RespondingService(delivered1)))
+                .addReplica(startReplica(new RespondingService(delivered2)))
+                .setLoadBalancingPolicy(LoadBalancingPolicy.ROUND_ROBIN)
+                .build();
+        UnaryServiceMethodInvoker<Data, Data> invoker = buildInvoker(channel);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2, invoker.call(REQUEST).getNum());
+        }
+
+        assertEquals(5, delivered1.size());
+        assertEquals(5, delivered2.size());
+    }
+
+    @Test
+    public void leastOutstandingTest() throws Exception {
+        List<StreamObserver<Data>> pending = new ArrayList<>();
+        List<Data> delivered = new ArrayList<>();
+
+        // First replica never responds until the end of the test
+        ReplicaPoolChannel channel = ReplicaPoolChannel.newBuilder()
+                .addReplica(startReplica(new AddingServiceGrpc.AddingServiceImplBase() {
+                    @Override
+                    public void add(Data request, StreamObserver<Data> responseObserver) {
+                        pending.add(responseObserver);
+                    }
+                }))
+                .addReplica(startReplica(new RespondingService(delivered)))
+                .setLoadBalancingPolicy(LoadBalancingPolicy.LEAST_OUTSTANDING)
+                .build();
+        UnaryServiceMethodInvoker<Data, Data> invoker = buildInvoker(channel);
+
+        invoker.futureCall(REQUEST);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2, invoker.call(REQUEST).getNum());
+        }
+
+        assertEquals(1, pending.size());
+        assertEquals(10, delivered.size());
+        pending.forEach(StreamObserver::onCompleted);
+    }
+
+    @Test
+    public void unavailableReplicaTest() throws Exception {
+        List<Data> delivered = new ArrayList<>();
+
+        // No server with this name so calls fail with unavailable
+        ManagedChannel unavailable = grpcCleanup.register(
+                InProcessChannelBuilder.forName(InProcessServerBuilder.generateName())
+                        .directExecutor()
+                        .build());
+
+        ReplicaPoolChannel channel = ReplicaPoolChannel.newBuilder()
+                .addReplica(unavailable)
+                .addReplica(startReplica(new RespondingService(delivered)))
+                .setLoadBalancingPolicy(LoadBalancingPolicy.ROUND_ROBIN)
+                .build();
+        UnaryServiceMethodInvoker<Data, Data> invoker = buildInvoker(channel);
+
+        // Calls are sent again to the available replica
+        for (int i = 0; i < 4; i++) {
+            assertEquals(2, invoker.call(REQUEST).getNum());
+        }
+
+        assertEquals(4, delivered.size());
+        assertEquals(1, channel.availableReplicas());
+    }
+
+    private ManagedChannel startReplica(AddingServiceGrpc.AddingServiceImplBase service)
+            throws IOException {
+
+        String serverName = InProcessServerBuilder.generateName();
+        grpcCleanup.register(InProcessServerBuilder.forName(serverName)
+                .addService(service)
+                .directExecutor()
+                .build()
+                .start());
+        return grpcCleanup.register(InProcessChannelBuilder.forName(serverName)
+                .directExecutor()
+                .build());
+    }
+
+    private static UnaryServiceMethodInvoker<Data, Data> buildInvoker(ReplicaPoolChannel channel) {
+        return UnaryServiceMethodInvoker.<Data, Data>newBuilder()
+                .forChannel(channel)
+                .forMethod(AddingServiceGrpc.getAddMethod())
+                .build();
+    }
+
+    private static class RespondingService extends AddingServiceGrpc.AddingServiceImplBase {
+
+        private final List<Data> delivered;
+
+        private RespondingService(List<Data> delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override
+        public void add(Data request, StreamObserver<Data> responseObserver) {
+            delivered.add(request);
+            responseObserver.onNext(Data.newBuilder()
+                    .setNum(request.getNum() + 1)
+                    .build());
+            responseObserver.onCompleted();
+        }
+    }
+}
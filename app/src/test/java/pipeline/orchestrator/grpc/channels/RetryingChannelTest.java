@@ -0,0 +1,154 @@
+package pipeline.orchestrator.grpc.channels;
+
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import org.junit.Rule;
+import org.junit.Test;
+import pipeline.orchestrator.architecture.RetryInformation;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RetryingChannelTest {
+
+    private static final Data REQUEST = Data.newBuilder()
+            .setNum(1)
+            .build();
+
+    @Rule
+    public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+    @Test
+    public void retryUntilAvailableTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RetryingChannel channel = RetryingChannel.newBuilder()
+                .forChannel(startServer(new FlappingService(2, calls)))
+                .setRetry(retry(3, 10))
+                .build();
+
+        assertEquals(2, call(channel, CallOptions.DEFAULT).getNum());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void maxAttemptsTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RetryingChannel channel = RetryingChannel.newBuilder()
+                .forChannel(startServer(new FlappingService(Integer.MAX_VALUE, calls)))
+                .setRetry(retry(2, 10))
+                .build();
+
+        StatusRuntimeException exception = assertThrows(
+                StatusRuntimeException.class,
+                () -> call(channel, CallOptions.DEFAULT));
+        assertEquals(Status.Code.UNAVAILABLE, exception.getStatus().getCode());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void deadlineTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RetryingChannel channel = RetryingChannel.newBuilder()
+                .forChannel(startServer(new FlappingService(1, calls)))
+                .setRetry(retry(3, 5000))
+                .build();
+
+        // The backoff exceeds the deadline so the call is not sent again
+        StatusRuntimeException exception = assertThrows(
+                StatusRuntimeException.class,
+                () -> call(channel, CallOptions.DEFAULT.withDeadlineAfter(1, TimeUnit.SECONDS)));
+        assertEquals(Status.Code.UNAVAILABLE, exception.getStatus().getCode());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void backoffTest() {
+        RetryingChannel channel = RetryingChannel.newBuilder()
+                .forChannel(grpcCleanup.register(
+                        InProcessChannelBuilder.forName(InProcessServerBuilder.generateName()).build()))
+                .setRetry(RetryInformation.newBuilder()
+                        .setInitialBackoffMs(100)
+                        .setMaxBackoffMs(300)
+                        .build())
+                .build();
+
+        assertBackoff(50, 100, channel.backoffNanos(1));
+        assertBackoff(100, 200, channel.backoffNanos(2));
+        assertBackoff(150, 300, channel.backoffNanos(3));
+        assertBackoff(150, 300, channel.backoffNanos(10));
+    }
+
+    private static void assertBackoff(long minMs, long maxMs, long backoffNanos) {
+        long backoffMs = TimeUnit.NANOSECONDS.toMillis(backoffNanos);
+        assertTrue(backoffMs >= minMs && backoffMs <= maxMs);
+    }
+
+    private static RetryInformation retry(int maxAttempts, int initialBackoffMs) {
+        return RetryInformation.newBuilder()
+                .setMaxAttempts(maxAttempts)
+                .setInitialBackoffMs(initialBackoffMs)
+                .setMaxBackoffMs(initialBackoffMs)
+                .build();
+    }
+
+    private static Data call(RetryingChannel channel, CallOptions callOptions) {
+        return ClientCalls.blockingUnaryCall(
+                channel,
+                AddingServiceGrpc.getAddMethod(),
+                callOptions,
+                REQUEST);
+    }
+
+    private ManagedChannel startServer(AddingServiceGrpc.AddingServiceImplBase service)
+            throws IOException {
+
+        String serverName = InProcessServerBuilder.generateName();
+        grpcCleanup.register(InProcessServerBuilder.forName(serverName)
+                .addService(service)
+                .directExecutor()
+                .build()
+                .start());
+        return grpcCleanup.register(InProcessChannelBuilder.forName(serverName)
+                .directExecutor()
+                .build());
+    }
+
+    /**
+     * Service that is unavailable for the first calls
+     */
+    private static class FlappingService extends AddingServiceGrpc.AddingServiceImplBase {
+
+        private final int failures;
+
+        private final AtomicInteger calls;
+
+        private FlappingService(int failures, AtomicInteger calls) {
+            this.failures = failures;
+            this.calls = calls;
+        }
+
+        @Override
+        public void add(Data request, StreamObserver<Data> responseObserver) {
+            if (calls.incrementAndGet() <= failures) {
+                responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                return;
+            }
+            responseObserver.onNext(Data.newBuilder()
+                    .setNum(request.getNum() + 1)
+                    .build());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package pipeline.orchestrator.grpc.messages;
+
+import com.google.protobuf.ByteString;
+import io.grpc.MethodDescriptor;
+import org.junit.Test;
+
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class ByteStringMarshallerTest {
+
+    private static final Data ORIGINAL = Data.newBuilder().setNum(2).build();
+    private static final MethodDescriptor.Marshaller<ByteString> marshaller =
+            ByteStringMarshaller.getInstance();
+
+    @Test
+    public void testMarshall() throws Exception {
+        InputStream stream = marshaller.stream(ORIGINAL.toByteString());
+        Data after = Data.parseFrom(stream);
+        assertEquals(ORIGINAL, after);
+    }
+
+    @Test
+    public void testUnmarshall() throws Exception {
+        InputStream stream = ORIGINAL.toByteString().newInput();
+        ByteString bytes = marshaller.parse(stream);
+        assertEquals(ORIGINAL.toByteString(), bytes);
+        assertEquals(ORIGINAL, Data.parseFrom(bytes));
+    }
+
+    @Test
+    public void testMarshallAndUnmarshall() {
+        ByteString original = ORIGINAL.toByteString();
+        InputStream stream = marshaller.stream(original);
+        assertEquals(original, marshaller.parse(stream));
+    }
+}
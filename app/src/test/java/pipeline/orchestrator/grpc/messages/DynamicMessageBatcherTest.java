@@ -0,0 +1,79 @@
+package pipeline.orchestrator.grpc.messages;
+
+import com.google.protobuf.DynamicMessage;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DynamicMessageBatcherTest {
+
+    private static final Data DATA_1 = Data.newBuilder()
+            .setNum(1)
+            .build();
+
+    private static final Data DATA_2 = Data.newBuilder()
+            .setNum(2)
+            .build();
+
+    private static final DynamicMessageBatcher BATCHER = DynamicMessageBatcher.newBuilder()
+            .forRequestDescriptor(DataBatch.getDescriptor())
+            .forResponseDescriptor(DataBatch.getDescriptor())
+            .build();
+
+    @Test
+    public void testItemDescriptors() {
+        assertEquals(Data.getDescriptor(), BATCHER.getRequestItemDescriptor());
+        assertEquals(Data.getDescriptor(), BATCHER.getResponseItemDescriptor());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        DynamicMessage batch = BATCHER.batch(List.of(
+                DynamicMessage.newBuilder(DATA_1).build(),
+                DynamicMessage.newBuilder(DATA_2).build()));
+
+        DataBatch dataBatch = DataBatch.parseFrom(batch.toByteString());
+        assertEquals(2, dataBatch.getItemsCount());
+        assertEquals(DATA_1, dataBatch.getItems(0));
+        assertEquals(DATA_2, dataBatch.getItems(1));
+    }
+
+    @Test
+    public void testUnbatch() throws Exception {
+        DataBatch dataBatch = DataBatch.newBuilder()
+                .addItems(DATA_1)
+                .addItems(DATA_2)
+                .build();
+
+        List<DynamicMessage> messages = BATCHER.unbatch(
+                DynamicMessage.newBuilder(dataBatch).build());
+
+        assertEquals(2, messages.size());
+        assertEquals(DATA_1, Data.parseFrom(messages.get(0).toByteString()));
+        assertEquals(DATA_2, Data.parseFrom(messages.get(1).toByteString()));
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        List<DynamicMessage> messages = BATCHER.unbatch(
+                DynamicMessage.newBuilder(DataBatch.getDefaultInstance()).build());
+        assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    public void testWrongItemType() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> BATCHER.batch(List.of(
+                        DynamicMessage.newBuilder(SubMessage.getDefaultInstance()).build())));
+    }
+
+    @Test
+    public void testNoRepeatedField() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> DynamicMessageBatcher.findBatchField(CompositeMessage.getDescriptor()));
+    }
+}
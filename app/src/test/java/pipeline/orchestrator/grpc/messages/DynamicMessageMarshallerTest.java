@@ -1,13 +1,25 @@
 package pipeline.orchestrator.grpc.messages;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.DynamicMessage;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
 import io.grpc.MethodDescriptor;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class DynamicMessageMarshallerTest {
 
@@ -42,4 +54,69 @@ public class DynamicMessageMarshallerTest {
         DynamicMessage dynamicMessage = messageMarshaller.parse(stream);
         assertEquals(original, dynamicMessage);
     }
+
+    @Test
+    public void testUnmarshallKnownLength() {
+        Payload payload = Payload.newBuilder()
+                .setContent(ByteString.copyFromUtf8("content"))
+                .setData(ORIGINAL)
+                .build();
+        MethodDescriptor.Marshaller<DynamicMessage> payloadMarshaller =
+                DynamicMessageMarshaller.forDescriptor(Payload.getDescriptor());
+        DynamicMessage dynamicMessage = payloadMarshaller.parse(
+                new KnownLengthInputStream(payload.toByteArray()));
+        assertEquals(DynamicMessage.newBuilder(payload).build(), dynamicMessage);
+    }
+
+    @Test
+    public void testDrain() throws Exception {
+        DynamicMessage original = DynamicMessage.newBuilder(ORIGINAL).build();
+        InputStream stream = messageMarshaller.stream(original);
+        assertTrue(stream instanceof Drainable);
+        assertEquals(ORIGINAL.getSerializedSize(), stream.available());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int written = ((Drainable) stream).drainTo(output);
+        assertEquals(ORIGINAL.getSerializedSize(), written);
+        assertEquals(ORIGINAL, Data.parseFrom(output.toByteArray()));
+        assertEquals(0, stream.available());
+    }
+
+    @Test
+    public void testConcurrentUnmarshall() throws Exception {
+        int numThreads = 4;
+        int numMessages = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                Callable<Boolean> task = () -> {
+                    for (int i = 0; i < numMessages; i++) {
+                        Data data = Data.newBuilder().setNum(i).build();
+                        DynamicMessage parsed = messageMarshaller.parse(
+                                new KnownLengthInputStream(data.toByteArray()));
+                        if (!DynamicMessage.newBuilder(data).build().equals(parsed)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+                results.add(executor.submit(task));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class KnownLengthInputStream
+            extends ByteArrayInputStream implements KnownLength {
+
+        private KnownLengthInputStream(byte[] buf) {
+            super(buf);
+        }
+    }
 }
@@ -0,0 +1,152 @@
+package pipeline.orchestrator.grpc.methods;
+
+import io.grpc.ManagedChannel;
+import io.grpc.stub.StreamObserver;
+import org.junit.Test;
+import pipeline.orchestrator.common.TestWithBindableService;
+import pipeline.orchestrator.grpc.messages.Data;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+public class AsyncStreamingMethodInvokerTest extends TestWithBindableService {
+
+    private static final Data REQUEST_1 = Data.newBuilder()
+            .setNum(1)
+            .build();
+
+    private static final Data REQUEST_2 = Data.newBuilder()
+            .setNum(2)
+            .build();
+
+    private ManagedChannel channel;
+
+    @Test
+    public void testClientStreaming() throws Exception {
+        final List<Data> responsesReceived = new ArrayList<>();
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        setUpServerImpl(new AddingServiceGrpc.AddingServiceImplBase() {
+            @Override
+            public StreamObserver<Data> addClientStreaming(StreamObserver<Data> responseObserver) {
+                return new StreamObserver<>() {
+                    private long sum = 0;
+
+                    @Override
+                    public void onNext(Data value) {
+                        sum += value.getNum();
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        responseObserver.onNext(Data.newBuilder().setNum(sum).build());
+                        responseObserver.onCompleted();
+                    }
+                };
+            }
+        });
+
+        AsyncStreamingMethodInvoker<Data, Data> invoker =
+                AsyncStreamingMethodInvoker.<Data, Data>newBuilder()
+                        .forChannel(channel)
+                        .forMethod(AddingServiceGrpc.getAddClientStreamingMethod())
+                        .build();
+
+        StreamObserver<Data> requests = invoker.call(collecting(responsesReceived, countDownLatch));
+        requests.onNext(REQUEST_1);
+        requests.onNext(REQUEST_2);
+        requests.onCompleted();
+
+        countDownLatch.await();
+
+        assertEquals(1, responsesReceived.size());
+        assertEquals(3, responsesReceived.get(0).getNum());
+    }
+
+    @Test
+    public void testBidiStreaming() throws Exception {
+        final List<Data> responsesReceived = new ArrayList<>();
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        setUpServerImpl(new AddingServiceGrpc.AddingServiceImplBase() {
+            @Override
+            public StreamObserver<Data> addBidiStreaming(StreamObserver<Data> responseObserver) {
+                return new StreamObserver<>() {
+                    @Override
+                    public void onNext(Data value) {
+                        responseObserver.onNext(Data.newBuilder().setNum(value.getNum() * 10).build());
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        responseObserver.onCompleted();
+                    }
+                };
+            }
+        });
+
+        AsyncStreamingMethodInvoker<Data, Data> invoker =
+                AsyncStreamingMethodInvoker.<Data, Data>newBuilder()
+                        .forChannel(channel)
+                        .forMethod(AddingServiceGrpc.getAddBidiStreamingMethod())
+                        .build();
+
+        StreamObserver<Data> requests = invoker.call(collecting(responsesReceived, countDownLatch));
+        requests.onNext(REQUEST_1);
+        requests.onNext(REQUEST_2);
+        requests.onCompleted();
+
+        countDownLatch.await();
+
+        assertEquals(2, responsesReceived.size());
+        assertEquals(10, responsesReceived.get(0).getNum());
+        assertEquals(20, responsesReceived.get(1).getNum());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnaryMethod() {
+        AsyncStreamingMethodInvoker.<Data, Data>newBuilder()
+                .forMethod(AddingServiceGrpc.getAddMethod());
+    }
+
+    private static StreamObserver<Data> collecting(
+            List<Data> responsesReceived,
+            CountDownLatch countDownLatch) {
+
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(Data value) {
+                responsesReceived.add(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new RuntimeException(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                countDownLatch.countDown();
+            }
+        };
+    }
+
+    @Override
+    protected void setUpAfterServerImpl(ManagedChannel channel) {
+        this.channel = channel;
+    }
+}
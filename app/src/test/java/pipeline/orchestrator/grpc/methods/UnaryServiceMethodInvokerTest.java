@@ -1,5 +1,6 @@
 package pipeline.orchestrator.grpc.methods;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import io.grpc.ManagedChannel;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
@@ -11,6 +12,7 @@ import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.*;
 
@@ -92,6 +94,49 @@ public class UnaryServiceMethodInvokerTest extends TestWithBindableService {
         assertEquals(Status.ABORTED, exception.getStatus());
     }
 
+    @Test
+    public void testFutureCalls() throws Exception {
+        final List<Data> requestsDelivered = new ArrayList<>();
+        setUpServerImpl(new AddingServiceGrpc.AddingServiceImplBase() {
+            @Override
+            public void add(Data request, StreamObserver<Data> responseObserver) {
+                synchronized (requestsDelivered) {
+                    requestsDelivered.add(request);
+                }
+                responseObserver.onNext(Data.newBuilder()
+                        .setNum(request.getNum() + 1)
+                        .build());
+                responseObserver.onCompleted();
+            }
+        });
+
+        // Both requests are sent before waiting for the responses
+        ListenableFuture<Data> response_1 = invoker.futureCall(REQUEST_1);
+        ListenableFuture<Data> response_2 = invoker.futureCall(REQUEST_2);
+
+        assertEquals(2, response_1.get().getNum());
+        assertEquals(3, response_2.get().getNum());
+        assertEquals( 2, requestsDelivered.size());
+    }
+
+    @Test
+    public void testFutureCallOnError() throws Exception {
+        setUpServerImpl(new AddingServiceGrpc.AddingServiceImplBase() {
+            @Override
+            public void add(Data request, StreamObserver<Data> responseObserver) {
+                responseObserver.onError(new StatusRuntimeException(Status.ABORTED));
+            }
+        });
+
+        ListenableFuture<Data> response = invoker.futureCall(REQUEST_1);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, response::get);
+        assertTrue(exception.getCause() instanceof StatusRuntimeException);
+        assertEquals(
+                Status.ABORTED,
+                ((StatusRuntimeException) exception.getCause()).getStatus());
+    }
+
     @Override
     protected void setUpAfterServerImpl(ManagedChannel channel) {
         invoker = UnaryServiceMethodInvoker.<Data, Data>newBuilder()
@@ -2,6 +2,7 @@ package pipeline.orchestrator.grpc.reflection;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
 import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
 import io.grpc.ManagedChannel;
 import io.grpc.reflection.v1alpha.*;
@@ -13,6 +14,7 @@ import pipeline.orchestrator.common.TestWithBindableService;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -174,6 +176,75 @@ public class ServerReflectionHelperTest extends TestWithBindableService {
         assertFalse(errors[0]);
     }
 
+    @Test(timeout = 5000)
+    public void lookupServiceDependenciesTest() throws Exception {
+        // Given
+        FileDescriptorProto root = FileDescriptorProto.newBuilder()
+                .setName("root.proto")
+                .addDependency("a.proto")
+                .addDependency("b.proto")
+                .build();
+        FileDescriptorProto a = FileDescriptorProto.newBuilder()
+                .setName("a.proto")
+                .addDependency("b.proto")
+                .build();
+        FileDescriptorProto b = FileDescriptorProto.newBuilder()
+                .setName("b.proto")
+                .build();
+        Map<String, FileDescriptorProto> files = Map.of(
+                a.getName(), a,
+                b.getName(), b);
+        final List<ServerReflectionRequest> requestsDelivered = new ArrayList<>();
+        setUpServerImpl(new ServerReflectionImplBase() {
+            @Override
+            public StreamObserver<ServerReflectionRequest> serverReflectionInfo(StreamObserver<ServerReflectionResponse> responseObserver) {
+                return new StreamObserver<>() {
+
+                    private final List<ServerReflectionRequest> waiting = new ArrayList<>();
+
+                    @Override
+                    public void onNext(ServerReflectionRequest value) {
+                        requestsDelivered.add(value);
+                        if (value.getMessageRequestCase()
+                                == ServerReflectionRequest.MessageRequestCase.FILE_CONTAINING_SYMBOL) {
+                            responseObserver.onNext(fileResponse(root));
+                            return;
+                        }
+                        // Only responds after both dependencies are requested
+                        waiting.add(value);
+                        if (waiting.size() == 2) {
+                            waiting.forEach(request -> responseObserver.onNext(
+                                    fileResponse(files.get(request.getFileByFilename()))));
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {}
+
+                    @Override
+                    public void onCompleted() {
+                        responseObserver.onCompleted();
+                    }
+                };
+            }
+        });
+
+        // When
+        FileDescriptorSet fileDescriptorSet = helper.lookupService("service");
+
+        // Then
+        // Each dependency is only requested once
+        assertEquals(3, requestsDelivered.size());
+        assertEquals(3, fileDescriptorSet.getFileCount());
+    }
+
+    private static ServerReflectionResponse fileResponse(FileDescriptorProto file) {
+        return ServerReflectionResponse.newBuilder()
+                .setFileDescriptorResponse(FileDescriptorResponse.newBuilder()
+                        .addFileDescriptorProto(file.toByteString()))
+                .build();
+    }
+
     @Override
     protected void setUpAfterServerImpl(ManagedChannel channel) {
         helper = ServerReflectionHelper.newBuilder()
@@ -0,0 +1,90 @@
+package pipeline.orchestrator.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    private static final double MAX_RELATIVE_ERROR = 1.0 / Histogram.SUB_BUCKETS;
+
+    private static final double[] PERCENTILES = {0.01, 0.25, 0.5, 0.9, 0.95, 0.99, 0.999, 1};
+
+    @Test
+    public void testPercentileAccuracy() {
+        Histogram histogram = new Histogram();
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-uniform between 2us and 10s
+            values[i] = (long) Math.exp(Math.log(2_000) + random.nextDouble() * Math.log(5_000_000));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : PERCENTILES) {
+            long expected = values[(int) Math.ceil(percentile * values.length) - 1];
+            long estimate = histogram.getPercentileNanos(percentile);
+            assertTrue(
+                    "Percentile " + percentile + " estimated below the real value",
+                    estimate >= expected);
+            assertTrue(
+                    "Percentile " + percentile + " estimated with a high relative error",
+                    (double) (estimate - expected) / expected <= MAX_RELATIVE_ERROR);
+        }
+    }
+
+    @Test
+    public void testPercentileOfCloseValues() {
+        // Values in the same power of two are distinguished
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(1_100_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1_900_000);
+        }
+        long median = histogram.getPercentileNanos(0.5);
+        long p95 = histogram.getPercentileNanos(0.95);
+        assertTrue(median >= 1_100_000 && median <= 1_100_000 * (1 + MAX_RELATIVE_ERROR));
+        assertTrue(p95 >= 1_900_000 && p95 <= 1_900_000 * (1 + MAX_RELATIVE_ERROR));
+    }
+
+    @Test
+    public void testPercentileLimits() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentileNanos(0.5));
+
+        // Values below the lower limit share the first bucket
+        histogram.record(10);
+        assertEquals(1024, histogram.getPercentileNanos(0.5));
+
+        // Values above the upper limit have no estimate
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(1));
+    }
+
+    @Test
+    public void testExportedBounds() {
+        // Bounds must increase for the cumulative buckets
+        for (int i = 1; i < Histogram.NUM_BUCKETS - 1; i++) {
+            assertTrue(Histogram.getUpperBoundSeconds(i) > Histogram.getUpperBoundSeconds(i - 1));
+        }
+    }
+
+    @Test
+    public void testRecord() {
+        Histogram histogram = new Histogram();
+        histogram.record(2_000);
+        histogram.record(1_500);
+        // Negative durations are recorded as zero
+        histogram.record(-1);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(3_500, histogram.getSumNanos());
+        assertEquals(1, histogram.getBucketCount(0));
+    }
+}
@@ -0,0 +1,89 @@
+package pipeline.orchestrator.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testCounter() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("calls_total", "Calls", "stage", "a");
+        counter.increment();
+        counter.add(2);
+
+        // Same name and labels return the same counter
+        assertSame(counter, registry.counter("calls_total", "Calls", "stage", "a"));
+
+        String output = registry.scrape();
+        assertTrue(output.contains("# HELP calls_total Calls\n"));
+        assertTrue(output.contains("# TYPE calls_total counter\n"));
+        assertTrue(output.contains("calls_total{stage=\"a\"} 3\n"));
+    }
+
+    @Test
+    public void testGauge() {
+        MetricsRegistry registry = new MetricsRegistry();
+        AtomicLong value = new AtomicLong(5);
+        registry.gauge("depth", "Depth", value::get, "link", "a");
+        assertTrue(registry.scrape().contains("depth{link=\"a\"} 5\n"));
+
+        value.set(7);
+        assertTrue(registry.scrape().contains("depth{link=\"a\"} 7\n"));
+    }
+
+    @Test
+    public void testHistogram() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("latency_seconds", "Latency");
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(500));
+        histogram.record(TimeUnit.SECONDS.toNanos(1));
+
+        String output = registry.scrape();
+        assertTrue(output.contains("# TYPE latency_seconds histogram\n"));
+        assertTrue(output.contains("latency_seconds_bucket{le=\"+Inf\"} 2\n"));
+        assertTrue(output.contains("latency_seconds_count 2\n"));
+        assertTrue(output.contains("latency_seconds_sum 1.0005\n"));
+    }
+
+    @Test
+    public void testUnregister() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("calls_total", "Calls", "stage", "a");
+        registry.counter("calls_total", "Calls", "stage", "ab");
+        registry.gauge("depth", "Depth", () -> 1, "source", "a", "target", "b");
+        registry.gauge("depth", "Depth", () -> 2, "source", "b", "target", "a");
+        registry.histogram("latency_seconds", "Latency", "stage", "a");
+
+        assertEquals(2, registry.unregister("stage", "a"));
+        assertEquals(1, registry.unregister("source", "a", "target", "b"));
+
+        String output = registry.scrape();
+        assertFalse(output.contains("calls_total{stage=\"a\"}"));
+        assertTrue(output.contains("calls_total{stage=\"ab\"} 0\n"));
+        assertFalse(output.contains("depth{source=\"a\",target=\"b\"}"));
+        assertTrue(output.contains("depth{source=\"b\",target=\"a\"} 2\n"));
+        // Families without metrics are not written
+        assertFalse(output.contains("latency_seconds"));
+    }
+
+    @Test
+    public void testLabelsEscaped() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("calls_total", "Calls", "stage", "a\"b");
+        assertTrue(registry.scrape().contains("calls_total{stage=\"a\\\"b\"} 0\n"));
+    }
+
+    @Test
+    public void testDifferentTypes() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("metric", "Metric");
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> registry.histogram("metric", "Metric"));
+    }
+}
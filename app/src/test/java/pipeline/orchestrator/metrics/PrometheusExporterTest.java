@@ -0,0 +1,35 @@
+package pipeline.orchestrator.metrics;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class PrometheusExporterTest {
+
+    @Test
+    public void testScrape() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("calls_total", "Calls", "stage", "a").increment();
+
+        PrometheusExporter exporter = PrometheusExporter.start(registry, 0);
+        try {
+            URL url = new URL("http://localhost:" + exporter.getPort() + "/metrics");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain"));
+            String body;
+            try (InputStream input = connection.getInputStream()) {
+                body = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            assertEquals(registry.scrape(), body);
+        }
+        finally {
+            exporter.stop();
+        }
+    }
+}
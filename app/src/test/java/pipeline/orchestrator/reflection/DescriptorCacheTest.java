@@ -0,0 +1,107 @@
+package pipeline.orchestrator.reflection;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import io.grpc.ManagedChannel;
+import io.grpc.protobuf.services.ProtoReflectionService;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pipeline.orchestrator.common.TestWithBindableService;
+import pipeline.orchestrator.grpc.methods.SubtractingServiceGrpc;
+import pipeline.orchestrator.grpc.reflection.ServerReflectionHelper;
+import pipeline.orchestrator.grpc.reflection.UnableToLookupServiceException;
+import pipeline.orchestrator.grpc.services.AddingServiceGrpc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+public class DescriptorCacheTest extends TestWithBindableService {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private ServerReflectionHelper helper;
+
+    @Test
+    public void persistTest() throws Exception {
+        setUpServerImpl(
+                new AddingServiceGrpc.AddingServiceImplBase() {},
+                ProtoReflectionService.newInstance());
+        Path directory = folder.getRoot().toPath();
+
+        DescriptorCache cache = new DescriptorCache();
+        cache.persistTo(directory);
+        FileDescriptorSet discovered = cache.lookupService(
+                "server",
+                AddingServiceGrpc.SERVICE_NAME,
+                helper);
+
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+
+        // A new cache reads the descriptors stored by the previous one
+        DescriptorCache restarted = new DescriptorCache();
+        restarted.persistTo(directory);
+        assertEquals(
+                discovered,
+                restarted.lookupService("server", AddingServiceGrpc.SERVICE_NAME, helper));
+    }
+
+    @Test
+    public void invalidEntryTest() throws Exception {
+        setUpServerImpl(
+                new AddingServiceGrpc.AddingServiceImplBase() {},
+                ProtoReflectionService.newInstance());
+        Path directory = folder.getRoot().toPath();
+
+        DescriptorCache cache = new DescriptorCache();
+        cache.persistTo(directory);
+        cache.lookupService("server", AddingServiceGrpc.SERVICE_NAME, helper);
+
+        // The server at the same authority no longer has the service
+        setUpServerImpl(
+                new SubtractingServiceGrpc.SubtractingServiceImplBase() {},
+                ProtoReflectionService.newInstance());
+
+        DescriptorCache restarted = new DescriptorCache();
+        restarted.persistTo(directory);
+        assertThrows(
+                UnableToLookupServiceException.class,
+                () -> restarted.lookupService("server", AddingServiceGrpc.SERVICE_NAME, helper));
+    }
+
+    @Test
+    public void buildOnceTest() throws Exception {
+        setUpServerImpl(
+                new AddingServiceGrpc.AddingServiceImplBase() {},
+                ProtoReflectionService.newInstance());
+
+        DescriptorCache cache = new DescriptorCache();
+        FileDescriptorSet descriptorSet = cache.lookupService(
+                "server",
+                AddingServiceGrpc.SERVICE_NAME,
+                helper);
+
+        ImmutableList<FileDescriptor> first = cache.buildAll(descriptorSet);
+        ImmutableList<FileDescriptor> second = cache.buildAll(descriptorSet);
+
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i), second.get(i));
+        }
+    }
+
+    @Override
+    protected void setUpAfterServerImpl(ManagedChannel channel) {
+        helper = ServerReflectionHelper.newBuilder()
+                .forChannel(channel)
+                .build();
+    }
+}